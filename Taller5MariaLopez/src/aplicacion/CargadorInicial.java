@@ -0,0 +1,140 @@
+package aplicacion;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+import persistencia.RepositorioIncidencias;
+
+/**
+ * Clase que carga en la lógica, al arrancar, las incidencias guardadas en el almacenamiento.
+ * Cada estado se lee en paralelo dividiendo su intervalo de fechas de registro en tramos.
+ * Las incidencias pendientes y las resueltas y eliminadas registradas hoy se cargan antes de mostrar el menú,
+ * para que la secuencia diaria de los códigos continúe a partir de la última guardada, y el resto del historial
+ * de resueltas y eliminadas termina de cargarse en segundo plano.
+ */
+public class CargadorInicial {
+    private static final int TAMANO_LOTE = 1000;
+
+    private final RepositorioIncidencias dao;
+    private final Logica logica;
+    private final int tramos;
+    private final ExecutorService hilos;
+
+    /**
+     * Constructor de la clase CargadorInicial.
+     *
+     * @param dao    El almacenamiento del que se leen las incidencias.
+     * @param logica La lógica en la que se cargan.
+     * @param tramos Número de tramos de fechas que se leen en paralelo para cada estado.
+     */
+    public CargadorInicial(RepositorioIncidencias dao, Logica logica, int tramos) {
+        if (tramos < 1) {
+            throw new IllegalArgumentException("El número de tramos debe ser positivo");
+        }
+        this.dao = dao;
+        this.logica = logica;
+        this.tramos = tramos;
+        this.hilos = Executors.newFixedThreadPool(tramos, r -> {
+            Thread hilo = new Thread(r, "carga-inicial");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Carga las incidencias pendientes y espera a que terminen.
+     *
+     * @return Número de incidencias pendientes cargadas.
+     */
+    public int cargarPendientes() {
+        return cargarEstado(EstadoIncidencia.PENDIENTE);
+    }
+
+    /**
+     * Carga las incidencias resueltas y eliminadas registradas hoy y espera a que terminen. Debe llamarse antes
+     * de registrar incidencias: si no, la secuencia del día podría empezar en un número ya guardado.
+     *
+     * @return Número de incidencias resueltas y eliminadas de hoy cargadas.
+     */
+    public int cargarCerradasDeHoy() {
+        LocalDateTime hoy = logica.hoy().atStartOfDay();
+        LocalDateTime manana = hoy.plusDays(1);
+        return cargarTramo(EstadoIncidencia.RESUELTA, hoy, manana) + cargarTramo(EstadoIncidencia.ELIMINADA, hoy, manana);
+    }
+
+    /**
+     * Empieza a cargar en segundo plano las incidencias resueltas y eliminadas. Las ya cargadas con
+     * cargarCerradasDeHoy se leen otra vez pero la lógica las descarta.
+     *
+     * @return Tarea que se completa con el número de incidencias cargadas cuando termina el historial.
+     */
+    public CompletableFuture<Integer> cargarHistorialEnSegundoPlano() {
+        CompletableFuture<Integer> historial = CompletableFuture.supplyAsync(
+                () -> cargarEstado(EstadoIncidencia.RESUELTA) + cargarEstado(EstadoIncidencia.ELIMINADA), r -> {
+                    Thread hilo = new Thread(r, "carga-historial");
+                    hilo.setDaemon(true);
+                    hilo.start();
+                });
+        historial.whenComplete((total, error) -> hilos.shutdown());
+        return historial;
+    }
+
+    /**
+     * Carga todas las incidencias de un estado leyendo sus tramos de fechas en paralelo.
+     *
+     * @param estado El estado de las incidencias a cargar.
+     * @return Número de incidencias cargadas.
+     */
+    private int cargarEstado(EstadoIncidencia estado) {
+        LocalDateTime[] extremos = dao.fechasRegistroExtremas(estado);
+        if (extremos == null) {
+            return 0;
+        }
+
+        // El último tramo debe incluir la fecha máxima, por eso el final se desplaza un segundo
+        LocalDateTime inicio = extremos[0];
+        LocalDateTime fin = extremos[1].plusSeconds(1);
+        long segundos = Duration.between(inicio, fin).getSeconds();
+        long segundosPorTramo = Math.max(1, (segundos + tramos - 1) / tramos);
+
+        AtomicInteger cargadas = new AtomicInteger();
+        List<CompletableFuture<Void>> tareas = new ArrayList<>();
+        for (LocalDateTime desde = inicio; desde.isBefore(fin); desde = desde.plusSeconds(segundosPorTramo)) {
+            LocalDateTime hasta = desde.plusSeconds(segundosPorTramo);
+            LocalDateTime desdeTramo = desde;
+            LocalDateTime hastaTramo = hasta.isAfter(fin) ? fin : hasta;
+            tareas.add(CompletableFuture.runAsync(
+                    () -> cargadas.addAndGet(cargarTramo(estado, desdeTramo, hastaTramo)), hilos));
+        }
+        CompletableFuture.allOf(tareas.toArray(new CompletableFuture<?>[0])).join();
+        return cargadas.get();
+    }
+
+    /**
+     * Lee un tramo de fechas y lo pasa a la lógica en lotes.
+     */
+    private int cargarTramo(EstadoIncidencia estado, LocalDateTime desde, LocalDateTime hasta) {
+        List<Incidencia> lote = new ArrayList<>(TAMANO_LOTE);
+        int total = 0;
+        try (Stream<Incidencia> incidencias = dao.streamPorEstadoYFechas(estado, desde, hasta)) {
+            for (Incidencia incidencia : (Iterable<Incidencia>) incidencias::iterator) {
+                lote.add(incidencia);
+                if (lote.size() == TAMANO_LOTE) {
+                    logica.cargarIncidencias(lote);
+                    total += lote.size();
+                    lote.clear();
+                }
+            }
+        }
+        logica.cargarIncidencias(lote);
+        return total + lote.size();
+    }
+}
@@ -0,0 +1,295 @@
+package aplicacion;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import dominio.Incidencia;
+import persistencia.IncidenciasMemoria;
+import persistencia.RepositorioIncidencias;
+
+/**
+ * Clase que guarda en el almacenamiento, en segundo plano, los cambios que hace la lógica en memoria.
+ * Los cambios se acumulan por código de incidencia, de modo que varias modificaciones de la misma
+ * incidencia entre dos volcados se guardan con una sola escritura, y se vuelcan en lotes cada cierto
+ * intervalo. Si se alcanza el máximo de cambios pendientes, quien registra un cambio espera a que
+ * se vuelque el lote actual.
+ * Los cambios que el almacenamiento no llega a guardar vuelven a la cola y se reintentan, de uno en uno,
+ * en los volcados siguientes, que se espacian cada vez más mientras sigan fallando. Un cambio que falla
+ * {@value #MAXIMO_INTENTOS} veces se descarta.
+ * Se encola una copia de cada incidencia, porque el volcado la lee sin los cerrojos de la lógica; quien registra
+ * el cambio debe hacerlo con el cerrojo que protege la incidencia.
+ */
+public class EscrituraDiferida implements AutoCloseable {
+    static final int MAXIMO_INTENTOS = 5;
+    private static final long ESPERA_MAXIMA_MS = 60_000;
+
+    private final RepositorioIncidencias dao;
+    private final long intervaloVolcadoMs;
+    private final int maximoPendientes;
+    private final ScheduledExecutorService volcador;
+
+    private final ReentrantLock cerrojo = new ReentrantLock();
+    private final Condition hayEspacio = cerrojo.newCondition();
+    private final ReentrantLock cerrojoVolcado = new ReentrantLock(); // Un solo volcado a la vez
+    private Map<String, Cambio> pendientes = new LinkedHashMap<>();
+    private boolean cerrada;
+    private long esperaMs; // Espera tras el último volcado fallido, 0 si no falló; protegida por cerrojoVolcado
+    private long siguienteIntento; // Instante (nanoTime) antes del cual no se reintenta un volcado fallido
+
+    /**
+     * Constructor de la clase EscrituraDiferida.
+     *
+     * @param dao                El almacenamiento en el que se guardan los cambios.
+     * @param intervaloVolcadoMs Milisegundos entre dos volcados automáticos.
+     * @param maximoPendientes   Número máximo de incidencias con cambios sin volcar.
+     */
+    public EscrituraDiferida(RepositorioIncidencias dao, long intervaloVolcadoMs, int maximoPendientes) {
+        if (maximoPendientes < 1) {
+            throw new IllegalArgumentException("El máximo de cambios pendientes debe ser positivo");
+        }
+        this.dao = dao;
+        this.intervaloVolcadoMs = intervaloVolcadoMs;
+        this.maximoPendientes = maximoPendientes;
+        this.volcador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "escritura-diferida");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        volcador.scheduleWithFixedDelay(this::volcarProgramado, intervaloVolcadoMs, intervaloVolcadoMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registra una incidencia nueva para insertarla en el próximo volcado. Se guarda una copia de su estado actual.
+     *
+     * @param incidencia La incidencia registrada.
+     */
+    public void registrarAlta(Incidencia incidencia) {
+        encolar(incidencia, true);
+    }
+
+    /**
+     * Registra un cambio en una incidencia para actualizarla en el próximo volcado. Se guarda una copia de su
+     * estado actual.
+     *
+     * @param incidencia La incidencia modificada.
+     */
+    public void registrarCambio(Incidencia incidencia) {
+        encolar(incidencia, false);
+    }
+
+    /**
+     * Añade el cambio a la cola, agrupándolo con el cambio pendiente de la misma incidencia si lo hay.
+     * Espera a que haya hueco si la cola está llena.
+     */
+    private void encolar(Incidencia original, boolean alta) {
+        Incidencia incidencia = IncidenciasMemoria.copiar(original);
+        cerrojo.lock();
+        try {
+            if (cerrada) {
+                throw new IllegalStateException("La escritura diferida está cerrada");
+            }
+            Cambio pendiente = pendientes.get(incidencia.getCodigo());
+            if (pendiente != null) {
+                // La incidencia se guarda con su estado más reciente; si aún no se había insertado, sigue siendo un alta
+                pendiente.incidencia = incidencia;
+                pendiente.alta |= alta;
+                return;
+            }
+            while (pendientes.size() >= maximoPendientes && !cerrada) {
+                volcador.execute(this::volcarProgramado);
+                hayEspacio.awaitUninterruptibly();
+            }
+            // Se vuelve a comprobar porque close() despierta a los que esperan: lo que se añada ya no se volcaría
+            if (cerrada) {
+                throw new IllegalStateException("La escritura diferida está cerrada");
+            }
+            pendientes.put(incidencia.getCodigo(), new Cambio(incidencia, alta));
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Guarda en el almacenamiento todos los cambios pendientes: primero las altas y después las modificaciones.
+     * Los que no se guardan vuelven a la cola para el siguiente volcado.
+     */
+    public void volcar() {
+        cerrojoVolcado.lock();
+        try {
+            Map<String, Cambio> lote;
+            cerrojo.lock();
+            try {
+                if (pendientes.isEmpty()) {
+                    return;
+                }
+                lote = pendientes;
+                pendientes = new LinkedHashMap<>();
+                hayEspacio.signalAll();
+            } finally {
+                cerrojo.unlock();
+            }
+
+            List<Cambio> altas = new ArrayList<>();
+            List<Cambio> cambios = new ArrayList<>();
+            for (Cambio cambio : lote.values()) {
+                (cambio.alta ? altas : cambios).add(cambio);
+            }
+            List<Cambio> fallidos = new ArrayList<>();
+            guardar(altas, true, fallidos);
+            guardar(cambios, false, fallidos);
+
+            if (fallidos.isEmpty()) {
+                esperaMs = 0;
+            } else {
+                devolver(fallidos);
+                esperaMs = Math.min(esperaMs == 0 ? intervaloVolcadoMs : esperaMs * 2, ESPERA_MAXIMA_MS);
+                siguienteIntento = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMs);
+            }
+        } finally {
+            cerrojoVolcado.unlock();
+        }
+    }
+
+    /**
+     * Volcado periódico o pedido por una cola llena. Tras un volcado fallido espera a que pase el tiempo de reintento
+     * para no insistir contra un almacenamiento caído; mientras tanto, quien espera hueco en la cola sigue esperando.
+     */
+    private void volcarProgramado() {
+        cerrojoVolcado.lock();
+        try {
+            if (esperaMs > 0 && System.nanoTime() - siguienteIntento < 0) {
+                return;
+            }
+            volcar();
+        } finally {
+            cerrojoVolcado.unlock();
+        }
+    }
+
+    /**
+     * Guarda los cambios indicados y añade a fallidos los que no se han guardado. Los que ya fallaron antes
+     * se guardan de uno en uno, para que uno que no se puede guardar no haga fallar el lote de los demás.
+     */
+    private void guardar(List<Cambio> lote, boolean alta, List<Cambio> fallidos) {
+        List<Cambio> nuevos = new ArrayList<>();
+        for (Cambio cambio : lote) {
+            if (cambio.intentos == 0) {
+                nuevos.add(cambio);
+            } else {
+                escribir(List.of(cambio), alta, fallidos);
+            }
+        }
+        if (!nuevos.isEmpty()) {
+            escribir(nuevos, alta, fallidos);
+        }
+    }
+
+    private void escribir(List<Cambio> lote, boolean alta, List<Cambio> fallidos) {
+        List<Incidencia> incidencias = new ArrayList<>(lote.size());
+        for (Cambio cambio : lote) {
+            incidencias.add(cambio.incidencia);
+        }
+        int guardadas;
+        try {
+            guardadas = alta ? dao.createAll(incidencias) : dao.updateAll(incidencias);
+        } catch (RuntimeException ex) {
+            System.out.println("Error al guardar los cambios pendientes");
+            ex.printStackTrace();
+            guardadas = 0;
+        }
+        if (guardadas >= lote.size()) {
+            return;
+        }
+        if (alta) {
+            // createAll confirma las incidencias en orden, así que las que faltan son las últimas
+            fallidos.addAll(lote.subList(guardadas, lote.size()));
+        } else {
+            // No se sabe cuáles faltan; repetir una actualización completa no cambia las que ya se guardaron
+            fallidos.addAll(lote);
+        }
+    }
+
+    /**
+     * Devuelve a la cola los cambios que no se han guardado, salvo los que ya han agotado sus intentos.
+     * Si mientras tanto se ha registrado otro cambio de la misma incidencia, se guarda ese, que es más reciente,
+     * pero sigue siendo un alta si el alta anterior no llegó a guardarse.
+     */
+    private void devolver(List<Cambio> fallidos) {
+        int descartados = 0;
+        cerrojo.lock();
+        try {
+            for (Cambio cambio : fallidos) {
+                if (++cambio.intentos >= MAXIMO_INTENTOS) {
+                    descartados++;
+                    continue;
+                }
+                Cambio reciente = pendientes.putIfAbsent(cambio.incidencia.getCodigo(), cambio);
+                if (reciente != null) {
+                    reciente.alta |= cambio.alta;
+                    reciente.intentos = cambio.intentos;
+                }
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+        System.out.println("No se han podido guardar los cambios de " + fallidos.size() + " incidencias; se reintentarán "
+                + (fallidos.size() - descartados) + " y se descartan " + descartados + ".");
+    }
+
+    /**
+     * Detiene los volcados periódicos y vuelca los cambios que quedan pendientes, reintentando los que fallen
+     * hasta agotar sus intentos. Desde ese momento no se admiten cambios nuevos, tampoco de quien esperaba hueco.
+     */
+    @Override
+    public void close() {
+        cerrojo.lock();
+        try {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            hayEspacio.signalAll();
+        } finally {
+            cerrojo.unlock();
+        }
+        volcador.shutdown();
+        try {
+            volcador.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        // Cada vuelta guarda o gasta un intento de cada cambio, así que termina
+        while (hayPendientes()) {
+            volcar();
+        }
+    }
+
+    private boolean hayPendientes() {
+        cerrojo.lock();
+        try {
+            return !pendientes.isEmpty();
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * Cambio pendiente de una incidencia.
+     */
+    private static class Cambio {
+        private Incidencia incidencia;
+        private boolean alta;
+        private int intentos; // Volcados en los que no se ha podido guardar
+
+        Cambio(Incidencia incidencia, boolean alta) {
+            this.incidencia = incidencia;
+            this.alta = alta;
+        }
+    }
+}
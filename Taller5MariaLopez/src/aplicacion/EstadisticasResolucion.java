@@ -0,0 +1,173 @@
+package aplicacion;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Estadísticas del tiempo de resolución que se mantienen a medida que se resuelven y se devuelven
+ * incidencias, en total, por día de resolución y por puesto.
+ * <p>
+ * Cada grupo guarda un histograma de tamaño fijo con cubetas logarítmico-lineales: cada potencia de dos de
+ * segundos se divide en 32 cubetas, así que la mediana y el percentil 95 se calculan con un error relativo
+ * menor del 2 %. A diferencia de un resumen de cuantiles habitual, un histograma permite retirar un valor
+ * restando uno a su cubeta, que es lo que hace falta cuando una incidencia resuelta vuelve a pendiente.
+ * Añadir o retirar una incidencia y consultar un grupo cuestan un tiempo constante que no depende del
+ * número de incidencias.
+ * @author Maria
+ */
+class EstadisticasResolucion {
+    private static final int BITS_SUBCUBETA = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int EXPONENTE_MAXIMO = 31; // 2^32 segundos, más de un siglo
+    private static final int NUMERO_CUBETAS = (EXPONENTE_MAXIMO - BITS_SUBCUBETA + 2) * SUBCUBETAS;
+
+    private final Histograma todas = new Histograma();
+    private final Map<LocalDate, Histograma> porDia = new HashMap<>();
+    private final Map<Integer, Histograma> porPuesto = new HashMap<>();
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    /**
+     * Suma el tiempo de resolución de una incidencia si está resuelta. Se llama con el cerrojo de su franja tomado.
+     * @param incidencia La incidencia, con su estado y sus fechas actuales.
+     */
+    void anadir(Incidencia incidencia) {
+        cambiar(incidencia, 1);
+    }
+
+    /**
+     * Retira el tiempo de resolución de una incidencia si estaba resuelta. Se llama con el cerrojo de su franja
+     * tomado, antes de cambiar su estado.
+     * @param incidencia La incidencia, con el estado y las fechas que tenía al añadirla.
+     */
+    void quitar(Incidencia incidencia) {
+        cambiar(incidencia, -1);
+    }
+
+    TiemposResolucion total() {
+        cerrojo.readLock().lock();
+        try {
+            return consultar(todas);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    TiemposResolucion dia(LocalDate dia) {
+        cerrojo.readLock().lock();
+        try {
+            return consultar(porDia.get(dia));
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    TiemposResolucion puesto(int puesto) {
+        cerrojo.readLock().lock();
+        try {
+            return consultar(porPuesto.get(puesto));
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private void cambiar(Incidencia incidencia, int cambio) {
+        if (incidencia.getEstado() != EstadoIncidencia.RESUELTA || incidencia.getFechaResolucion() == null) {
+            return;
+        }
+        // En segundos, como se guardan las fechas en la base de datos, para que retirar reste lo mismo que se sumó
+        long segundos = Math.max(incidencia.getFechaResolucion().toEpochSecond(ZoneOffset.UTC)
+                - incidencia.getFechaRegistro().toEpochSecond(ZoneOffset.UTC), 0);
+        LocalDate dia = incidencia.getFechaResolucion().toLocalDate();
+        cerrojo.writeLock().lock();
+        try {
+            todas.cambiar(segundos, cambio);
+            cambiarGrupo(porDia, dia, segundos, cambio);
+            cambiarGrupo(porPuesto, incidencia.getPuesto(), segundos, cambio);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    private static <K> void cambiarGrupo(Map<K, Histograma> grupos, K clave, long segundos, int cambio) {
+        Histograma histograma = grupos.computeIfAbsent(clave, k -> new Histograma());
+        histograma.cambiar(segundos, cambio);
+        if (histograma.total == 0) {
+            grupos.remove(clave);
+        }
+    }
+
+    /**
+     * Calcula las estadísticas de un grupo. Se llama con el cerrojo de lectura tomado.
+     */
+    private static TiemposResolucion consultar(Histograma histograma) {
+        if (histograma == null || histograma.total == 0) {
+            return new TiemposResolucion(0, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+        }
+        return new TiemposResolucion(histograma.total, Duration.ofMillis(histograma.suma * 1000 / histograma.total),
+                Duration.ofSeconds(histograma.percentil(0.5)), Duration.ofSeconds(histograma.percentil(0.95)));
+    }
+
+    /**
+     * Histograma de duraciones en segundos que admite retirar valores.
+     */
+    private static final class Histograma {
+        private final int[] cubetas = new int[NUMERO_CUBETAS];
+        private long total;
+        private long suma;
+
+        void cambiar(long segundos, int cambio) {
+            cubetas[indice(segundos)] += cambio;
+            total += cambio;
+            suma += cambio * segundos;
+        }
+
+        long percentil(double proporcion) {
+            long objetivo = Math.max(1, (long) Math.ceil(proporcion * total));
+            long acumulado = 0;
+            for (int i = 0; i < NUMERO_CUBETAS; i++) {
+                acumulado += cubetas[i];
+                if (acumulado >= objetivo) {
+                    return limiteInferior(i) + anchura(i) / 2;
+                }
+            }
+            return limiteInferior(NUMERO_CUBETAS - 1);
+        }
+    }
+
+    /**
+     * Cubeta de un valor: los menores que 32 tienen cubeta propia y el resto se agrupan por su
+     * potencia de dos y los 5 bits siguientes al más alto.
+     */
+    private static int indice(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        if (exponente > EXPONENTE_MAXIMO) {
+            return NUMERO_CUBETAS - 1;
+        }
+        int subcubeta = (int) (valor >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+        return (exponente - BITS_SUBCUBETA + 1) * SUBCUBETAS + subcubeta;
+    }
+
+    private static long limiteInferior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int exponente = indice / SUBCUBETAS + BITS_SUBCUBETA - 1;
+        return (1L << exponente) + (long) (indice % SUBCUBETAS) * anchura(indice);
+    }
+
+    private static long anchura(int indice) {
+        if (indice < SUBCUBETAS) {
+            return 1;
+        }
+        return 1L << (indice / SUBCUBETAS - 1);
+    }
+}
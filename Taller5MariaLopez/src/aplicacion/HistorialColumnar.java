@@ -0,0 +1,568 @@
+package aplicacion;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Clase que guarda en columnas el historial de incidencias cerradas (resueltas y eliminadas).
+ * Cada incidencia ocupa una fila repartida en arrays de tipos primitivos: las fechas como segundos,
+ * el puesto, el estado y unas referencias a los textos. Los textos se guardan una sola vez cada uno,
+ * codificados en UTF-8, en un buffer fuera del montón de Java. Los objetos Incidencia solo se crean
+ * cuando se consulta una incidencia y no se guardan.
+ * Las fechas se guardan con precisión de segundos, la misma que tienen en la base de datos.
+ */
+public class HistorialColumnar {
+    private static final int CAPACIDAD_INICIAL = 1024;
+    private static final long SIN_FECHA = Long.MIN_VALUE;
+    private static final byte FILA_BORRADA = -1;
+
+    // Columnas, una posición por fila
+    private int[] minutosCodigo = new int[CAPACIDAD_INICIAL]; // Fecha y hora del código en minutos desde 1970
+    private int[] secuencias = new int[CAPACIDAD_INICIAL];
+    private long[] fechasRegistro = new long[CAPACIDAD_INICIAL]; // Segundos desde 1970
+    private long[] fechasResolucion = new long[CAPACIDAD_INICIAL];
+    private long[] fechasEliminacion = new long[CAPACIDAD_INICIAL];
+    private int[] puestos = new int[CAPACIDAD_INICIAL];
+    private byte[] estados = new byte[CAPACIDAD_INICIAL];
+    private int[] problemas = new int[CAPACIDAD_INICIAL]; // Referencias a los textos
+    private int[] resoluciones = new int[CAPACIDAD_INICIAL];
+    private int[] causasEliminacion = new int[CAPACIDAD_INICIAL];
+    private int filas;
+
+    private int[] tablaCodigos = new int[CAPACIDAD_INICIAL * 2]; // Dispersión abierta: fila + 1, o 0 si está libre
+    private final Textos textos = new Textos();
+    private final int[] totalesPorEstado = new int[EstadoIncidencia.values().length];
+    // Permutación de las filas en orden cronológico de código. Las que llegan en orden se añaden al final y solo
+    // las que llegan desordenadas esperan en desordenadas hasta el siguiente recorrido, que las ordena y las mezcla.
+    // Las filas quitadas siguen en orden hasta que son la mitad; los recorridos las saltan.
+    private int[] orden = new int[CAPACIDAD_INICIAL];
+    private int ordenadas; // Posiciones ocupadas de orden
+    private int[] desordenadas = new int[16];
+    private int pendientes; // Posiciones ocupadas de desordenadas
+    private int quitadas; // Filas quitadas desde la última mezcla
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    /**
+     * Guarda una incidencia cerrada en el historial.
+     *
+     * @param incidencia La incidencia a guardar.
+     * @return true si se ha guardado; false si su código no se puede representar en columnas o ya estaba guardada.
+     */
+    public boolean anadir(Incidencia incidencia) {
+        CodigoIncidencia codigo;
+        int minutos;
+        try {
+            codigo = CodigoIncidencia.parse(incidencia.getCodigo());
+            LocalDateTime fechaCodigo = fechaDeMarca(codigo.getMarcaTemporal());
+            // El código se reconstruye a partir de la fecha y la secuencia, así que debe coincidir con el original
+            if (!CodigoIncidencia.de(fechaCodigo, codigo.getSecuencia()).getCodigo().equals(codigo.getCodigo())) {
+                return false;
+            }
+            minutos = Math.toIntExact(fechaCodigo.toEpochSecond(ZoneOffset.UTC) / 60);
+        } catch (IllegalArgumentException | DateTimeException | ArithmeticException ex) {
+            return false;
+        }
+
+        cerrojo.writeLock().lock();
+        try {
+            int hueco = buscarHueco(minutos, codigo.getSecuencia());
+            int existente = tablaCodigos[hueco] - 1;
+            if (existente >= 0 && estados[existente] != FILA_BORRADA) {
+                return false;
+            }
+            if (filas == estados.length) {
+                crecer();
+                hueco = buscarHueco(minutos, codigo.getSecuencia());
+            }
+            int fila = filas++;
+            minutosCodigo[fila] = minutos;
+            secuencias[fila] = codigo.getSecuencia();
+            fechasRegistro[fila] = aSegundos(incidencia.getFechaRegistro());
+            fechasResolucion[fila] = aSegundos(incidencia.getFechaResolucion());
+            fechasEliminacion[fila] = aSegundos(incidencia.getFechaEliminacion());
+            puestos[fila] = incidencia.getPuesto();
+            estados[fila] = incidencia.getEstado().getValor();
+            problemas[fila] = textos.guardar(incidencia.getProblema());
+            resoluciones[fila] = textos.guardar(incidencia.getResolucion());
+            causasEliminacion[fila] = textos.guardar(incidencia.getCausaEliminacion());
+            tablaCodigos[hueco] = fila + 1;
+            totalesPorEstado[estados[fila]]++;
+            if (ordenadas > 0 && anterior(fila, orden[ordenadas - 1])) {
+                if (pendientes == desordenadas.length) {
+                    desordenadas = Arrays.copyOf(desordenadas, pendientes * 2);
+                }
+                desordenadas[pendientes++] = fila;
+            } else {
+                // Los recorridos en curso solo leen hasta la posición que había al empezar
+                if (ordenadas == orden.length) {
+                    orden = Arrays.copyOf(orden, ordenadas * 2);
+                }
+                orden[ordenadas++] = fila;
+            }
+            return true;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene una copia de una incidencia del historial.
+     *
+     * @param codigo El código de la incidencia.
+     * @return Una incidencia nueva con los datos guardados, o null si no está en el historial.
+     */
+    public Incidencia obtener(String codigo) {
+        cerrojo.readLock().lock();
+        try {
+            int fila = buscarFila(codigo);
+            return fila < 0 ? null : materializar(fila);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Comprueba si una incidencia está en el historial.
+     *
+     * @param codigo El código de la incidencia.
+     * @return true si la incidencia está en el historial.
+     */
+    public boolean contiene(String codigo) {
+        cerrojo.readLock().lock();
+        try {
+            return buscarFila(codigo) >= 0;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Quita una incidencia del historial. El espacio de su fila no se recupera.
+     *
+     * @param codigo El código de la incidencia.
+     * @return true si la incidencia estaba en el historial.
+     */
+    public boolean quitar(String codigo) {
+        cerrojo.writeLock().lock();
+        try {
+            int fila = buscarFila(codigo);
+            if (fila < 0) {
+                return false;
+            }
+            totalesPorEstado[estados[fila]]--;
+            estados[fila] = FILA_BORRADA;
+            quitadas++;
+            return true;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cuenta las incidencias del historial con un estado.
+     *
+     * @param estado El estado a contar.
+     * @return Número de incidencias con ese estado.
+     */
+    public int contar(EstadoIncidencia estado) {
+        cerrojo.readLock().lock();
+        try {
+            return totalesPorEstado[estado.getValor()];
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene las incidencias del historial con un estado, en orden cronológico de código.
+     * Las incidencias se crean a medida que se recorre la colección.
+     *
+     * @param estado El estado de las incidencias.
+     * @return Vista de solo lectura de las incidencias con ese estado.
+     */
+    public Collection<Incidencia> incidencias(EstadoIncidencia estado) {
+        return new AbstractCollection<Incidencia>() {
+            @Override
+            public Iterator<Incidencia> iterator() {
+                return new Recorrido(estado.getValor());
+            }
+
+            @Override
+            public int size() {
+                return contar(estado);
+            }
+        };
+    }
+
+    /**
+     * Calcula la memoria que ocupa el historial: las columnas, la tabla de códigos y los textos.
+     *
+     * @return Número aproximado de bytes ocupados dentro y fuera del montón.
+     */
+    public long getBytesOcupados() {
+        cerrojo.readLock().lock();
+        try {
+            long porFila = 4 + 4 + 8 + 8 + 8 + 4 + 1 + 4 + 4 + 4;
+            return porFila * estados.length + 4L * tablaCodigos.length + textos.getBytesOcupados()
+                    + 4L * orden.length + 4L * desordenadas.length;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtiene el número de incidencias guardadas en el historial.
+     *
+     * @return Número de incidencias.
+     */
+    public int getTamano() {
+        cerrojo.readLock().lock();
+        try {
+            int total = 0;
+            for (int t : totalesPorEstado) {
+                total += t;
+            }
+            return total;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca la fila de un código. Se llama con el cerrojo tomado.
+     *
+     * @return La fila, o -1 si el código no está en el historial.
+     */
+    private int buscarFila(String codigo) {
+        if (!CodigoIncidencia.esValido(codigo)) {
+            return -1;
+        }
+        CodigoIncidencia analizado;
+        int minutos;
+        try {
+            analizado = CodigoIncidencia.parse(codigo);
+            minutos = Math.toIntExact(fechaDeMarca(analizado.getMarcaTemporal()).toEpochSecond(ZoneOffset.UTC) / 60);
+        } catch (IllegalArgumentException | DateTimeException | ArithmeticException ex) {
+            return -1;
+        }
+        int fila = tablaCodigos[buscarHueco(minutos, analizado.getSecuencia())] - 1;
+        return fila >= 0 && estados[fila] != FILA_BORRADA ? fila : -1;
+    }
+
+    /**
+     * Busca en la tabla de códigos el hueco de un código: el que ocupa o el primero libre.
+     */
+    private int buscarHueco(int minutos, int secuencia) {
+        int mascara = tablaCodigos.length - 1;
+        int h = minutos * 31 + secuencia;
+        int i = (h ^ (h >>> 16)) * 0x9E3779B9 & mascara;
+        while (true) {
+            int fila = tablaCodigos[i] - 1;
+            if (fila < 0 || (minutosCodigo[fila] == minutos && secuencias[fila] == secuencia)) {
+                return i;
+            }
+            i = (i + 1) & mascara;
+        }
+    }
+
+    /**
+     * Duplica la capacidad de las columnas y de la tabla de códigos.
+     */
+    private void crecer() {
+        int capacidad = estados.length * 2;
+        minutosCodigo = Arrays.copyOf(minutosCodigo, capacidad);
+        secuencias = Arrays.copyOf(secuencias, capacidad);
+        fechasRegistro = Arrays.copyOf(fechasRegistro, capacidad);
+        fechasResolucion = Arrays.copyOf(fechasResolucion, capacidad);
+        fechasEliminacion = Arrays.copyOf(fechasEliminacion, capacidad);
+        puestos = Arrays.copyOf(puestos, capacidad);
+        estados = Arrays.copyOf(estados, capacidad);
+        problemas = Arrays.copyOf(problemas, capacidad);
+        resoluciones = Arrays.copyOf(resoluciones, capacidad);
+        causasEliminacion = Arrays.copyOf(causasEliminacion, capacidad);
+
+        // Cada código ocupa un solo hueco, que apunta a su fila más reciente
+        int[] anteriores = tablaCodigos;
+        tablaCodigos = new int[capacidad * 2];
+        for (int referencia : anteriores) {
+            if (referencia != 0) {
+                int fila = referencia - 1;
+                tablaCodigos[buscarHueco(minutosCodigo[fila], secuencias[fila])] = referencia;
+            }
+        }
+    }
+
+    /**
+     * Crea una incidencia con los datos de una fila. Se llama con el cerrojo tomado.
+     */
+    private Incidencia materializar(int fila) {
+        LocalDateTime fechaCodigo = LocalDateTime.ofEpochSecond(minutosCodigo[fila] * 60L, 0, ZoneOffset.UTC);
+        return new Incidencia(CodigoIncidencia.de(fechaCodigo, secuencias[fila]).getCodigo(),
+                textos.leer(problemas[fila]), puestos[fila], EstadoIncidencia.desdeValor(estados[fila]),
+                aFecha(fechasRegistro[fila]), aFecha(fechasResolucion[fila]), textos.leer(resoluciones[fila]),
+                aFecha(fechasEliminacion[fila]), textos.leer(causasEliminacion[fila]));
+    }
+
+    /**
+     * Indica si la fila a va antes que la fila b en orden cronológico de código.
+     */
+    private boolean anterior(int a, int b) {
+        return minutosCodigo[a] < minutosCodigo[b]
+                || (minutosCodigo[a] == minutosCodigo[b] && secuencias[a] < secuencias[b]);
+    }
+
+    /**
+     * Indica si hay que mezclar las filas desordenadas o descartar de orden las filas quitadas.
+     * Se llama con el cerrojo tomado.
+     */
+    private boolean ordenPorRehacer() {
+        return pendientes > 0 || quitadas > ordenadas / 2;
+    }
+
+    /**
+     * Ordena las filas desordenadas, O(k log k), y las mezcla con las ya ordenadas en una sola pasada, O(n),
+     * descartando las filas quitadas. Se llama con el cerrojo de escritura tomado.
+     */
+    private void mezclarDesordenadas() {
+        // Se ordena por minuto con la fila en los bits bajos y después por secuencia dentro de cada minuto
+        long[] claves = new long[pendientes];
+        int k = 0;
+        for (int i = 0; i < pendientes; i++) {
+            int fila = desordenadas[i];
+            if (estados[fila] != FILA_BORRADA) {
+                claves[k++] = ((long) minutosCodigo[fila] << 32) | fila;
+            }
+        }
+        Arrays.sort(claves, 0, k);
+        int[] nuevas = new int[k];
+        for (int i = 0; i < k; i++) {
+            nuevas[i] = (int) claves[i];
+        }
+        for (int i = 1; i < k; i++) {
+            int fila = nuevas[i];
+            int j = i - 1;
+            while (j >= 0 && minutosCodigo[nuevas[j]] == minutosCodigo[fila] && secuencias[nuevas[j]] > secuencias[fila]) {
+                nuevas[j + 1] = nuevas[j];
+                j--;
+            }
+            nuevas[j + 1] = fila;
+        }
+
+        // Array nuevo para no cambiar el que estén leyendo los recorridos en curso
+        int[] mezcla = new int[Math.max(orden.length, ordenadas + k)];
+        int n = 0;
+        int j = 0;
+        for (int i = 0; i < ordenadas; i++) {
+            int fila = orden[i];
+            if (estados[fila] == FILA_BORRADA) {
+                continue;
+            }
+            while (j < k && anterior(nuevas[j], fila)) {
+                mezcla[n++] = nuevas[j++];
+            }
+            mezcla[n++] = fila;
+        }
+        while (j < k) {
+            mezcla[n++] = nuevas[j++];
+        }
+        orden = mezcla;
+        ordenadas = n;
+        pendientes = 0;
+        quitadas = 0;
+        if (desordenadas.length > 16) {
+            desordenadas = new int[16];
+        }
+    }
+
+    static LocalDateTime fechaDeMarca(long marca) {
+        return LocalDateTime.of((int) (marca / 100000000), (int) (marca / 1000000 % 100), (int) (marca / 10000 % 100),
+                (int) (marca / 100 % 100), (int) (marca % 100));
+    }
+
+    private static long aSegundos(LocalDateTime fecha) {
+        return fecha != null ? fecha.toEpochSecond(ZoneOffset.UTC) : SIN_FECHA;
+    }
+
+    private static LocalDateTime aFecha(long segundos) {
+        return segundos != SIN_FECHA ? LocalDateTime.ofEpochSecond(segundos, 0, ZoneOffset.UTC) : null;
+    }
+
+    /**
+     * Recorrido de las filas de un estado que crea cada incidencia al pedirla.
+     */
+    private class Recorrido implements Iterator<Incidencia> {
+        private final byte estado;
+        private int[] filasOrdenadas;
+        private int total; // Filas que había en orden al empezar; las que se añaden después no se recorren
+        private int posicion;
+        private Incidencia siguiente;
+
+        Recorrido(byte estado) {
+            this.estado = estado;
+            cerrojo.readLock().lock();
+            try {
+                if (!ordenPorRehacer()) {
+                    filasOrdenadas = orden;
+                    total = ordenadas;
+                    return;
+                }
+            } finally {
+                cerrojo.readLock().unlock();
+            }
+            cerrojo.writeLock().lock();
+            try {
+                if (ordenPorRehacer()) {
+                    mezclarDesordenadas();
+                }
+                filasOrdenadas = orden;
+                total = ordenadas;
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (siguiente != null) {
+                return true;
+            }
+            cerrojo.readLock().lock();
+            try {
+                // Las filas quitadas después de empezar el recorrido se saltan
+                while (posicion < total) {
+                    int fila = filasOrdenadas[posicion++];
+                    if (estados[fila] == estado) {
+                        siguiente = materializar(fila);
+                        return true;
+                    }
+                }
+                return false;
+            } finally {
+                cerrojo.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Incidencia next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Incidencia incidencia = siguiente;
+            siguiente = null;
+            return incidencia;
+        }
+    }
+
+    /**
+     * Textos guardados sin repetir en un buffer fuera del montón. Cada texto se guarda como su longitud
+     * en bytes seguida de sus bytes en UTF-8 y se identifica por la posición en la que empieza.
+     * Se usa con el cerrojo del historial tomado.
+     */
+    private static class Textos {
+        private static final int SIN_TEXTO = -1;
+
+        private ByteBuffer datos = ByteBuffer.allocateDirect(64 * 1024);
+        private int[] tabla = new int[1024]; // Dispersión abierta: posición + 1, o 0 si está libre
+        private int[] dispersiones = new int[1024];
+        private int guardados;
+
+        /**
+         * Guarda un texto si no estaba ya guardado.
+         *
+         * @return La referencia del texto, o SIN_TEXTO si es null.
+         */
+        int guardar(String texto) {
+            if (texto == null) {
+                return SIN_TEXTO;
+            }
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            int h = Arrays.hashCode(bytes);
+            int mascara = tabla.length - 1;
+            int i = (h ^ (h >>> 16)) & mascara;
+            while (tabla[i] != 0) {
+                if (dispersiones[i] == h && mismosBytes(tabla[i] - 1, bytes)) {
+                    return tabla[i] - 1;
+                }
+                i = (i + 1) & mascara;
+            }
+
+            if (datos.capacity() - datos.position() < Integer.BYTES + bytes.length) {
+                long capacidad = Math.max(datos.capacity() * 2L, datos.position() + Integer.BYTES + (long) bytes.length);
+                ByteBuffer nuevos = ByteBuffer.allocateDirect((int) Math.min(capacidad, Integer.MAX_VALUE));
+                datos.flip();
+                nuevos.put(datos);
+                datos = nuevos;
+            }
+            int posicion = datos.position();
+            datos.putInt(bytes.length).put(bytes);
+
+            tabla[i] = posicion + 1;
+            dispersiones[i] = h;
+            if (++guardados * 2 > tabla.length) {
+                redimensionar();
+            }
+            return posicion;
+        }
+
+        /**
+         * Lee un texto guardado.
+         */
+        String leer(int referencia) {
+            if (referencia == SIN_TEXTO) {
+                return null;
+            }
+            int longitud = datos.getInt(referencia);
+            byte[] bytes = new byte[longitud];
+            datos.get(referencia + Integer.BYTES, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        long getBytesOcupados() {
+            return datos.capacity() + 8L * tabla.length;
+        }
+
+        private boolean mismosBytes(int posicion, byte[] bytes) {
+            if (datos.getInt(posicion) != bytes.length) {
+                return false;
+            }
+            int inicio = posicion + Integer.BYTES;
+            for (int i = 0; i < bytes.length; i++) {
+                if (datos.get(inicio + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void redimensionar() {
+            int[] tablaAnterior = tabla;
+            int[] dispersionesAnteriores = dispersiones;
+            tabla = new int[tablaAnterior.length * 2];
+            dispersiones = new int[tabla.length];
+            int mascara = tabla.length - 1;
+            for (int j = 0; j < tablaAnterior.length; j++) {
+                if (tablaAnterior[j] != 0) {
+                    int h = dispersionesAnteriores[j];
+                    int i = (h ^ (h >>> 16)) & mascara;
+                    while (tabla[i] != 0) {
+                        i = (i + 1) & mascara;
+                    }
+                    tabla[i] = tablaAnterior[j];
+                    dispersiones[i] = h;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package aplicacion;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Índice ordenado de las fechas de registro, resolución y eliminación de las incidencias, para buscar las
+ * de un intervalo de tiempo sin recorrerlas todas.
+ * <p>
+ * Cada fecha se guarda en un árbol de bloques: bloques ordenados de hasta {@value #TAMANO_BLOQUE} claves
+ * primitivas (segundos desde 1970 de la fecha local) con el código de su incidencia, y un directorio con la
+ * primera clave de cada bloque. Una búsqueda localiza el primer bloque con una búsqueda binaria en el
+ * directorio y otra dentro del bloque, y después recorre en orden las k incidencias del intervalo:
+ * O(log n + k). Como las fechas llegan casi siempre en orden, las altas se añaden al final del último bloque.
+ * <p>
+ * Las fechas de registro tienen un árbol por estado, de modo que filtrar por estado no obliga a saltar
+ * las incidencias de los otros. Las fechas se guardan con precisión de segundos, la misma que la base de
+ * datos y el historial en columnas.
+ * @author Maria
+ */
+class IndiceFechas {
+    private static final int TAMANO_BLOQUE = 256;
+
+    private final Map<EstadoIncidencia, Arbol> registroPorEstado = new EnumMap<>(EstadoIncidencia.class);
+    private final Arbol resolucion = new Arbol();
+    private final Arbol eliminacion = new Arbol();
+
+    IndiceFechas() {
+        for (EstadoIncidencia estado : EstadoIncidencia.values()) {
+            registroPorEstado.put(estado, new Arbol());
+        }
+    }
+
+    /**
+     * Añade las fechas de una incidencia. Se llama con el cerrojo de su franja tomado.
+     * @param incidencia La incidencia, con su estado y sus fechas actuales.
+     */
+    void anadir(Incidencia incidencia) {
+        String codigo = incidencia.getCodigo();
+        registroPorEstado.get(incidencia.getEstado()).anadir(clave(incidencia.getFechaRegistro()), codigo);
+        if (incidencia.getFechaResolucion() != null) {
+            resolucion.anadir(clave(incidencia.getFechaResolucion()), codigo);
+        }
+        if (incidencia.getFechaEliminacion() != null) {
+            eliminacion.anadir(clave(incidencia.getFechaEliminacion()), codigo);
+        }
+    }
+
+    /**
+     * Quita las fechas de una incidencia, que deben ser las mismas con las que se añadió. Se llama con el
+     * cerrojo de su franja tomado, antes de cambiar su estado o sus fechas.
+     * @param incidencia La incidencia, con el estado y las fechas que tenía al añadirla.
+     */
+    void quitar(Incidencia incidencia) {
+        String codigo = incidencia.getCodigo();
+        registroPorEstado.get(incidencia.getEstado()).quitar(clave(incidencia.getFechaRegistro()), codigo);
+        if (incidencia.getFechaResolucion() != null) {
+            resolucion.quitar(clave(incidencia.getFechaResolucion()), codigo);
+        }
+        if (incidencia.getFechaEliminacion() != null) {
+            eliminacion.quitar(clave(incidencia.getFechaEliminacion()), codigo);
+        }
+    }
+
+    /**
+     * Códigos de las incidencias registradas en [desde, hasta), en orden de registro.
+     * @param estado El estado de las incidencias, o null para todas.
+     */
+    List<String> registradas(LocalDateTime desde, LocalDateTime hasta, EstadoIncidencia estado, int saltar, int limite) {
+        comprobarPaginacion(saltar, limite);
+        long minima = clave(desde);
+        long maxima = clave(hasta);
+        if (estado != null) {
+            return registroPorEstado.get(estado).buscar(minima, maxima, saltar, limite).codigos();
+        }
+        // Sin estado se mezclan en orden los tres árboles; de cada uno basta con las saltar + limite primeras
+        int maximo = (int) Math.min((long) saltar + limite, Integer.MAX_VALUE);
+        List<Resultado> parciales = new ArrayList<>();
+        for (Arbol arbol : registroPorEstado.values()) {
+            parciales.add(arbol.buscar(minima, maxima, 0, maximo));
+        }
+        int[] posiciones = new int[parciales.size()];
+        List<String> codigos = new ArrayList<>();
+        for (int n = 0; codigos.size() < limite; n++) {
+            int menor = -1;
+            for (int i = 0; i < parciales.size(); i++) {
+                Resultado parcial = parciales.get(i);
+                if (posiciones[i] < parcial.tamano
+                        && (menor < 0 || parcial.claves[posiciones[i]] < parciales.get(menor).claves[posiciones[menor]])) {
+                    menor = i;
+                }
+            }
+            if (menor < 0) {
+                break;
+            }
+            String codigo = parciales.get(menor).codigos[posiciones[menor]++];
+            if (n >= saltar) {
+                codigos.add(codigo);
+            }
+        }
+        return codigos;
+    }
+
+    /**
+     * Códigos de las incidencias resueltas en [desde, hasta), en orden de resolución.
+     */
+    List<String> resueltas(LocalDateTime desde, LocalDateTime hasta, int saltar, int limite) {
+        return resolucion.buscar(clave(desde), clave(hasta), saltar, limite).codigos();
+    }
+
+    /**
+     * Códigos de las incidencias eliminadas en [desde, hasta), en orden de eliminación.
+     */
+    List<String> eliminadas(LocalDateTime desde, LocalDateTime hasta, int saltar, int limite) {
+        return eliminacion.buscar(clave(desde), clave(hasta), saltar, limite).codigos();
+    }
+
+    private static void comprobarPaginacion(int saltar, int limite) {
+        if (saltar < 0 || limite < 0) {
+            throw new IllegalArgumentException("saltar y limite no pueden ser negativos");
+        }
+    }
+
+    private static long clave(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Claves y códigos encontrados en un árbol, en orden.
+     */
+    private static final class Resultado {
+        private final long[] claves;
+        private final String[] codigos;
+        private int tamano;
+
+        Resultado(int capacidad) {
+            claves = new long[capacidad];
+            codigos = new String[capacidad];
+        }
+
+        List<String> codigos() {
+            List<String> lista = new ArrayList<>(tamano);
+            for (int i = 0; i < tamano; i++) {
+                lista.add(codigos[i]);
+            }
+            return lista;
+        }
+    }
+
+    /**
+     * Árbol de bloques de dos niveles con claves long repetibles. Los bloques no se fusionan al vaciarse
+     * en parte; un bloque que se queda vacío se quita del directorio.
+     */
+    private static final class Arbol {
+        private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+        private long[][] claves = new long[1][TAMANO_BLOQUE];
+        private String[][] codigos = new String[1][TAMANO_BLOQUE];
+        private int[] tamanos = new int[1];
+        private long[] primeras = new long[1]; // Primera clave de cada bloque no vacío
+        private int bloques = 1;
+        private int tamano;
+
+        void anadir(long clave, String codigo) {
+            cerrojo.writeLock().lock();
+            try {
+                // Bloque en el que cae la clave: el último cuya primera clave no es mayor
+                int bloque = Math.max(ultimoConPrimeraHasta(clave), 0);
+                if (tamanos[bloque] == TAMANO_BLOQUE) {
+                    dividir(bloque);
+                    if (clave >= primeras[bloque + 1]) {
+                        bloque++;
+                    }
+                }
+                long[] clavesBloque = claves[bloque];
+                String[] codigosBloque = codigos[bloque];
+                int n = tamanos[bloque];
+                // Detrás de las claves iguales, para que las de la misma fecha queden en orden de llegada
+                int posicion = n > 0 && clavesBloque[n - 1] <= clave ? n : posterior(clavesBloque, n, clave);
+                System.arraycopy(clavesBloque, posicion, clavesBloque, posicion + 1, n - posicion);
+                System.arraycopy(codigosBloque, posicion, codigosBloque, posicion + 1, n - posicion);
+                clavesBloque[posicion] = clave;
+                codigosBloque[posicion] = codigo;
+                tamanos[bloque] = n + 1;
+                primeras[bloque] = clavesBloque[0];
+                tamano++;
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+        }
+
+        boolean quitar(long clave, String codigo) {
+            cerrojo.writeLock().lock();
+            try {
+                // Las claves iguales pueden repartirse entre varios bloques seguidos
+                for (int bloque = Math.max(ultimoConPrimeraMenor(clave), 0); bloque < bloques; bloque++) {
+                    long[] clavesBloque = claves[bloque];
+                    int n = tamanos[bloque];
+                    for (int i = anterior(clavesBloque, n, clave); i < n && clavesBloque[i] == clave; i++) {
+                        if (codigos[bloque][i].equals(codigo)) {
+                            quitarDeBloque(bloque, i);
+                            return true;
+                        }
+                    }
+                    if (n > 0 && clavesBloque[n - 1] > clave) {
+                        return false;
+                    }
+                }
+                return false;
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Busca las claves del intervalo [minima, maxima), saltando las primeras y devolviendo como mucho el límite.
+         */
+        Resultado buscar(long minima, long maxima, int saltar, int limite) {
+            comprobarPaginacion(saltar, limite);
+            cerrojo.readLock().lock();
+            try {
+                Resultado resultado = new Resultado(Math.min(limite, Math.max(tamano - saltar, 0)));
+                int saltadas = 0;
+                for (int bloque = Math.max(ultimoConPrimeraMenor(minima), 0); bloque < bloques; bloque++) {
+                    long[] clavesBloque = claves[bloque];
+                    int n = tamanos[bloque];
+                    for (int i = anterior(clavesBloque, n, minima); i < n; i++) {
+                        if (clavesBloque[i] >= maxima || resultado.tamano == resultado.claves.length) {
+                            return resultado;
+                        }
+                        if (saltadas < saltar) {
+                            saltadas++;
+                            continue;
+                        }
+                        resultado.claves[resultado.tamano] = clavesBloque[i];
+                        resultado.codigos[resultado.tamano++] = codigos[bloque][i];
+                    }
+                }
+                return resultado;
+            } finally {
+                cerrojo.readLock().unlock();
+            }
+        }
+
+        /**
+         * Parte un bloque lleno en dos mitades.
+         */
+        private void dividir(int bloque) {
+            if (bloques == claves.length) {
+                int capacidad = bloques * 2;
+                claves = Arrays.copyOf(claves, capacidad);
+                codigos = Arrays.copyOf(codigos, capacidad);
+                tamanos = Arrays.copyOf(tamanos, capacidad);
+                primeras = Arrays.copyOf(primeras, capacidad);
+            }
+            int siguiente = bloque + 1;
+            System.arraycopy(claves, siguiente, claves, siguiente + 1, bloques - siguiente);
+            System.arraycopy(codigos, siguiente, codigos, siguiente + 1, bloques - siguiente);
+            System.arraycopy(tamanos, siguiente, tamanos, siguiente + 1, bloques - siguiente);
+            System.arraycopy(primeras, siguiente, primeras, siguiente + 1, bloques - siguiente);
+            bloques++;
+
+            // Si el bloque es el último, se deja casi lleno: las fechas suelen llegar en orden y no volverán a él
+            int mitad = siguiente == bloques - 1 ? TAMANO_BLOQUE - TAMANO_BLOQUE / 8 : TAMANO_BLOQUE / 2;
+            int mueven = TAMANO_BLOQUE - mitad;
+            claves[siguiente] = new long[TAMANO_BLOQUE];
+            codigos[siguiente] = new String[TAMANO_BLOQUE];
+            System.arraycopy(claves[bloque], mitad, claves[siguiente], 0, mueven);
+            System.arraycopy(codigos[bloque], mitad, codigos[siguiente], 0, mueven);
+            Arrays.fill(codigos[bloque], mitad, TAMANO_BLOQUE, null);
+            tamanos[bloque] = mitad;
+            tamanos[siguiente] = mueven;
+            primeras[siguiente] = claves[siguiente][0];
+        }
+
+        private void quitarDeBloque(int bloque, int posicion) {
+            int n = tamanos[bloque] - 1;
+            System.arraycopy(claves[bloque], posicion + 1, claves[bloque], posicion, n - posicion);
+            System.arraycopy(codigos[bloque], posicion + 1, codigos[bloque], posicion, n - posicion);
+            codigos[bloque][n] = null;
+            tamanos[bloque] = n;
+            tamano--;
+            if (n > 0) {
+                primeras[bloque] = claves[bloque][0];
+            } else if (bloques > 1) {
+                // El bloque vacío sale del directorio
+                int siguiente = bloque + 1;
+                System.arraycopy(claves, siguiente, claves, bloque, bloques - siguiente);
+                System.arraycopy(codigos, siguiente, codigos, bloque, bloques - siguiente);
+                System.arraycopy(tamanos, siguiente, tamanos, bloque, bloques - siguiente);
+                System.arraycopy(primeras, siguiente, primeras, bloque, bloques - siguiente);
+                bloques--;
+                claves[bloques] = null;
+                codigos[bloques] = null;
+            }
+        }
+
+        /**
+         * Último bloque cuya primera clave es menor o igual que la indicada, o -1 si no hay ninguno.
+         */
+        private int ultimoConPrimeraHasta(long clave) {
+            return posterior(primeras, bloques, clave) - 1;
+        }
+
+        /**
+         * Último bloque cuya primera clave es menor que la indicada, o -1 si no hay ninguno.
+         */
+        private int ultimoConPrimeraMenor(long clave) {
+            return anterior(primeras, bloques, clave) - 1;
+        }
+
+        /**
+         * Primera posición de las n primeras con una clave mayor o igual que la indicada.
+         */
+        private static int anterior(long[] claves, int n, long clave) {
+            int bajo = 0;
+            int alto = n;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (claves[medio] < clave) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+
+        /**
+         * Primera posición de las n primeras con una clave mayor que la indicada.
+         */
+        private static int posterior(long[] claves, int n, long clave) {
+            int bajo = 0;
+            int alto = n;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (claves[medio] <= clave) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+    }
+}
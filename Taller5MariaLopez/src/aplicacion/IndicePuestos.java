@@ -0,0 +1,374 @@
+package aplicacion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Índice de las incidencias de cada puesto y recuento de sus incidencias pendientes.
+ * <p>
+ * Los puestos se buscan en una tabla de dispersión abierta de enteros, sin crear objetos Integer. Cada
+ * puesto tiene una lista de códigos por estado, ordenada cronológicamente por código; como las incidencias
+ * llegan casi siempre en orden, añadir suele ser escribir al final, y quitar es una búsqueda binaria.
+ * <p>
+ * Para el informe de los puestos con más incidencias pendientes se mantiene un montículo de máximos
+ * indexado con todos los puestos: cada alta, cambio de estado o cambio de puesto sube o baja el puesto
+ * afectado en O(log n), y los k primeros se sacan en O(k log k) recorriendo el montículo sin modificarlo.
+ * @author Maria
+ */
+class IndicePuestos {
+    private static final int CAPACIDAD_INICIAL = 64;
+    private static final int ESTADOS = EstadoIncidencia.values().length;
+
+    private int[] puestos = new int[CAPACIDAD_INICIAL]; // Número de cada puesto, por orden de aparición
+    private int[] pendientes = new int[CAPACIDAD_INICIAL];
+    private ListaCodigos[] listas = new ListaCodigos[CAPACIDAD_INICIAL * ESTADOS]; // Por puesto y estado
+    private int numeroPuestos;
+    private int[] tabla = new int[CAPACIDAD_INICIAL * 2]; // Dispersión abierta: índice del puesto + 1, o 0 si está libre
+
+    private int[] monticulo = new int[CAPACIDAD_INICIAL]; // Índices de puesto, el de más pendientes en la raíz
+    private int[] posiciones = new int[CAPACIDAD_INICIAL]; // Posición de cada puesto en el montículo
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+    /**
+     * Añade una incidencia a la lista de su puesto y estado. Se llama con el cerrojo de su franja tomado.
+     * @param incidencia La incidencia, con su puesto y su estado actuales.
+     */
+    void anadir(Incidencia incidencia) {
+        CodigoIncidencia codigo = CodigoIncidencia.parse(incidencia.getCodigo());
+        cerrojo.writeLock().lock();
+        try {
+            int indice = indiceDe(incidencia.getPuesto(), true);
+            int lista = indice * ESTADOS + incidencia.getEstado().ordinal();
+            if (listas[lista] == null) {
+                listas[lista] = new ListaCodigos();
+            }
+            listas[lista].anadir(codigo);
+            if (incidencia.getEstado() == EstadoIncidencia.PENDIENTE) {
+                pendientes[indice]++;
+                subir(posiciones[indice]);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita una incidencia de la lista de su puesto y estado. Se llama con el cerrojo de su franja tomado,
+     * antes de cambiar su puesto o su estado.
+     * @param incidencia La incidencia, con el puesto y el estado que tenía al añadirla.
+     */
+    void quitar(Incidencia incidencia) {
+        CodigoIncidencia codigo = CodigoIncidencia.parse(incidencia.getCodigo());
+        cerrojo.writeLock().lock();
+        try {
+            int indice = indiceDe(incidencia.getPuesto(), false);
+            if (indice < 0) {
+                return;
+            }
+            ListaCodigos lista = listas[indice * ESTADOS + incidencia.getEstado().ordinal()];
+            if (lista != null && lista.quitar(codigo) && incidencia.getEstado() == EstadoIncidencia.PENDIENTE) {
+                pendientes[indice]--;
+                bajar(posiciones[indice]);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Códigos de las incidencias de un puesto en orden cronológico.
+     * @param estado El estado de las incidencias, o null para todas: primero las pendientes, después las
+     *               resueltas y por último las eliminadas.
+     */
+    List<String> codigos(int puesto, EstadoIncidencia estado, int saltar, int limite) {
+        if (saltar < 0 || limite < 0) {
+            throw new IllegalArgumentException("saltar y limite no pueden ser negativos");
+        }
+        List<String> codigos = new ArrayList<>();
+        cerrojo.readLock().lock();
+        try {
+            int indice = indiceDe(puesto, false);
+            if (indice < 0) {
+                return codigos;
+            }
+            for (EstadoIncidencia actual : EstadoIncidencia.values()) {
+                ListaCodigos lista = listas[indice * ESTADOS + actual.ordinal()];
+                if ((estado != null && actual != estado) || lista == null) {
+                    continue;
+                }
+                int desde = Math.min(saltar, lista.tamano);
+                saltar -= desde;
+                for (int i = desde; i < lista.tamano && codigos.size() < limite; i++) {
+                    codigos.add(lista.codigos[i]);
+                }
+            }
+            return codigos;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Número de incidencias pendientes de un puesto.
+     */
+    int pendientes(int puesto) {
+        cerrojo.readLock().lock();
+        try {
+            int indice = indiceDe(puesto, false);
+            return indice < 0 ? 0 : pendientes[indice];
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Los k puestos con más incidencias pendientes, de más a menos; los empates se ordenan por número de
+     * puesto. No aparecen los puestos sin pendientes.
+     */
+    List<PuestoConPendientes> masPendientes(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k no puede ser negativo");
+        }
+        List<PuestoConPendientes> resultado = new ArrayList<>(Math.min(k, CAPACIDAD_INICIAL));
+        cerrojo.readLock().lock();
+        try {
+            // Búsqueda por niveles desde la raíz: los candidatos son los hijos de los ya sacados,
+            // ordenados en un montículo auxiliar de posiciones del montículo principal
+            int[] candidatos = new int[Math.min(k, numeroPuestos) + 1];
+            int numeroCandidatos = 0;
+            if (numeroPuestos > 0) {
+                candidatos[numeroCandidatos++] = 0;
+            }
+            while (numeroCandidatos > 0 && resultado.size() < k) {
+                int posicion = candidatos[0];
+                int indice = monticulo[posicion];
+                if (pendientes[indice] == 0) {
+                    break;
+                }
+                resultado.add(new PuestoConPendientes(puestos[indice], pendientes[indice]));
+
+                // El puesto sacado deja los candidatos y entran sus dos hijos
+                numeroCandidatos = quitarRaizCandidatos(candidatos, numeroCandidatos);
+                for (int hijo = 2 * posicion + 1; hijo <= 2 * posicion + 2 && hijo < numeroPuestos; hijo++) {
+                    if (numeroCandidatos == candidatos.length) {
+                        candidatos = Arrays.copyOf(candidatos, candidatos.length * 2);
+                    }
+                    candidatos[numeroCandidatos] = hijo;
+                    subirCandidato(candidatos, numeroCandidatos++);
+                }
+            }
+            return resultado;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca el índice de un puesto y, si se indica, lo crea si no existe.
+     * @return El índice del puesto, o -1 si no existe y no se ha creado.
+     */
+    private int indiceDe(int puesto, boolean crear) {
+        int hueco = buscarHueco(puesto);
+        int indice = tabla[hueco] - 1;
+        if (indice >= 0 || !crear) {
+            return indice;
+        }
+        if (numeroPuestos == puestos.length) {
+            crecer();
+            hueco = buscarHueco(puesto);
+        }
+        indice = numeroPuestos++;
+        puestos[indice] = puesto;
+        tabla[hueco] = indice + 1;
+        // El puesto nuevo entra en el montículo al final, con cero pendientes, y sube por los empates
+        colocar(indice, indice);
+        subir(indice);
+        return indice;
+    }
+
+    private int buscarHueco(int puesto) {
+        int mascara = tabla.length - 1;
+        int i = (puesto ^ (puesto >>> 16)) * 0x9E3779B9 & mascara;
+        while (true) {
+            int indice = tabla[i] - 1;
+            if (indice < 0 || puestos[indice] == puesto) {
+                return i;
+            }
+            i = (i + 1) & mascara;
+        }
+    }
+
+    /**
+     * Duplica la capacidad de los puestos y rehace la tabla de dispersión.
+     */
+    private void crecer() {
+        int capacidad = puestos.length * 2;
+        puestos = Arrays.copyOf(puestos, capacidad);
+        pendientes = Arrays.copyOf(pendientes, capacidad);
+        listas = Arrays.copyOf(listas, capacidad * ESTADOS);
+        monticulo = Arrays.copyOf(monticulo, capacidad);
+        posiciones = Arrays.copyOf(posiciones, capacidad);
+        tabla = new int[capacidad * 2];
+        for (int indice = 0; indice < numeroPuestos; indice++) {
+            tabla[buscarHueco(puestos[indice])] = indice + 1;
+        }
+    }
+
+    /**
+     * true si el puesto a va antes que el b en el informe: más pendientes o, con las mismas, menor número.
+     */
+    private boolean antes(int a, int b) {
+        return pendientes[a] != pendientes[b] ? pendientes[a] > pendientes[b] : puestos[a] < puestos[b];
+    }
+
+    private void subir(int posicion) {
+        int indice = monticulo[posicion];
+        while (posicion > 0) {
+            int padre = (posicion - 1) >>> 1;
+            if (!antes(indice, monticulo[padre])) {
+                break;
+            }
+            colocar(posicion, monticulo[padre]);
+            posicion = padre;
+        }
+        colocar(posicion, indice);
+    }
+
+    private void bajar(int posicion) {
+        int indice = monticulo[posicion];
+        while (true) {
+            int hijo = 2 * posicion + 1;
+            if (hijo >= numeroPuestos) {
+                break;
+            }
+            if (hijo + 1 < numeroPuestos && antes(monticulo[hijo + 1], monticulo[hijo])) {
+                hijo++;
+            }
+            if (!antes(monticulo[hijo], indice)) {
+                break;
+            }
+            colocar(posicion, monticulo[hijo]);
+            posicion = hijo;
+        }
+        colocar(posicion, indice);
+    }
+
+    private void colocar(int posicion, int indice) {
+        monticulo[posicion] = indice;
+        posiciones[indice] = posicion;
+    }
+
+    private int quitarRaizCandidatos(int[] candidatos, int numero) {
+        numero--;
+        if (numero > 0) {
+            int ultimo = candidatos[numero];
+            int posicion = 0;
+            while (true) {
+                int hijo = 2 * posicion + 1;
+                if (hijo >= numero) {
+                    break;
+                }
+                if (hijo + 1 < numero && antes(monticulo[candidatos[hijo + 1]], monticulo[candidatos[hijo]])) {
+                    hijo++;
+                }
+                if (!antes(monticulo[candidatos[hijo]], monticulo[ultimo])) {
+                    break;
+                }
+                candidatos[posicion] = candidatos[hijo];
+                posicion = hijo;
+            }
+            candidatos[posicion] = ultimo;
+        }
+        return numero;
+    }
+
+    private void subirCandidato(int[] candidatos, int posicion) {
+        int candidato = candidatos[posicion];
+        while (posicion > 0) {
+            int padre = (posicion - 1) >>> 1;
+            if (!antes(monticulo[candidato], monticulo[candidatos[padre]])) {
+                break;
+            }
+            candidatos[posicion] = candidatos[padre];
+            posicion = padre;
+        }
+        candidatos[posicion] = candidato;
+    }
+
+    /**
+     * Códigos de un puesto y un estado en orden cronológico, con la fecha y la secuencia de cada uno
+     * para compararlos sin volver a analizarlos.
+     */
+    private static final class ListaCodigos {
+        private long[] marcas = new long[4];
+        private int[] secuencias = new int[4];
+        private String[] codigos = new String[4];
+        private int tamano;
+
+        void anadir(CodigoIncidencia codigo) {
+            int posicion = tamano > 0 && compararCon(tamano - 1, codigo) >= 0 ? buscar(codigo) : tamano;
+            if (posicion < tamano && codigos[posicion].equals(codigo.getCodigo())) {
+                return;
+            }
+            if (tamano == codigos.length) {
+                marcas = Arrays.copyOf(marcas, tamano * 2);
+                secuencias = Arrays.copyOf(secuencias, tamano * 2);
+                codigos = Arrays.copyOf(codigos, tamano * 2);
+            }
+            System.arraycopy(marcas, posicion, marcas, posicion + 1, tamano - posicion);
+            System.arraycopy(secuencias, posicion, secuencias, posicion + 1, tamano - posicion);
+            System.arraycopy(codigos, posicion, codigos, posicion + 1, tamano - posicion);
+            marcas[posicion] = codigo.getMarcaTemporal();
+            secuencias[posicion] = codigo.getSecuencia();
+            codigos[posicion] = codigo.getCodigo();
+            tamano++;
+        }
+
+        boolean quitar(CodigoIncidencia codigo) {
+            int posicion = buscar(codigo);
+            if (posicion == tamano || !codigos[posicion].equals(codigo.getCodigo())) {
+                return false;
+            }
+            tamano--;
+            System.arraycopy(marcas, posicion + 1, marcas, posicion, tamano - posicion);
+            System.arraycopy(secuencias, posicion + 1, secuencias, posicion, tamano - posicion);
+            System.arraycopy(codigos, posicion + 1, codigos, posicion, tamano - posicion);
+            codigos[tamano] = null;
+            return true;
+        }
+
+        /**
+         * Primera posición cuyo código no va antes que el indicado.
+         */
+        private int buscar(CodigoIncidencia codigo) {
+            int bajo = 0;
+            int alto = tamano;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (compararCon(medio, codigo) < 0) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+
+        /**
+         * Compara el código de una posición con otro en el mismo orden que CodigoIncidencia.
+         */
+        private int compararCon(int posicion, CodigoIncidencia codigo) {
+            int resultado = Long.compare(marcas[posicion], codigo.getMarcaTemporal());
+            if (resultado == 0) {
+                resultado = Integer.compare(secuencias[posicion], codigo.getSecuencia());
+            }
+            return resultado != 0 ? resultado : codigos[posicion].compareTo(codigo.getCodigo());
+        }
+    }
+}
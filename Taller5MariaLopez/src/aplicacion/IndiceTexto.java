@@ -0,0 +1,459 @@
+package aplicacion;
+
+import java.text.Normalizer;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import dominio.CodigoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Índice invertido de las palabras del problema, la resolución y la causa de eliminación de las incidencias.
+ * Las palabras se guardan sin tildes y en minúsculas, así que "Impresión" y "impresion" son la misma palabra,
+ * y se descartan las palabras vacías más comunes del español (artículos, preposiciones...).
+ * <p>
+ * Cada palabra tiene una lista con los documentos que la contienen. Al volver a indexar una incidencia no se
+ * borra nada de las listas: el documento cambia de versión, se añaden sus palabras con la versión nueva y las
+ * entradas con una versión anterior se ignoran al buscar. Cuando las entradas obsoletas son muchas se
+ * compactan todas las listas de una vez.
+ * <p>
+ * Las búsquedas devuelven las incidencias que contienen alguna de las palabras, ordenadas por relevancia
+ * (BM25): pesan más las palabras poco frecuentes, las que se repiten y los textos cortos.
+ */
+public class IndiceTexto {
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int BITS_FRECUENCIA = 8;
+    private static final int FRECUENCIA_MAXIMA = (1 << BITS_FRECUENCIA) - 1;
+    private static final int MASCARA_VERSION = (1 << (32 - BITS_FRECUENCIA)) - 1;
+    private static final int CAPACIDAD_INICIAL = 1024;
+    private static final long SIN_CLAVE = Long.MIN_VALUE;
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "el", "la", "los", "las", "un", "una", "unos", "unas", "lo", "al", "del", "de", "a", "en", "y", "e",
+            "o", "u", "que", "por", "para", "con", "sin", "se", "su", "sus", "es", "son", "esta", "este", "ha",
+            "le", "les", "me", "mi", "muy", "mas", "pero", "como", "ya");
+
+    // Documentos: una posición por incidencia indexada
+    private long[] claves = new long[CAPACIDAD_INICIAL]; // Minutos del código en los 32 bits altos y secuencia en los bajos
+    private int[] versiones = new int[CAPACIDAD_INICIAL];
+    private int[] longitudes = new int[CAPACIDAD_INICIAL]; // Número de palabras indexadas
+    private int[] distintas = new int[CAPACIDAD_INICIAL]; // Número de palabras distintas, que son sus entradas en las listas
+    private int documentos;
+    private long sumaLongitudes;
+    private int[] tablaClaves = new int[CAPACIDAD_INICIAL * 2]; // Direccionamiento abierto: documento + 1, o 0 si está libre
+    private final Map<String, Integer> otrosCodigos = new HashMap<>(); // Códigos que no se pueden reconstruir con fecha y secuencia
+    private final Map<Integer, String> codigosDeOtros = new HashMap<>();
+
+    private final Map<String, Lista> listas = new HashMap<>();
+    private long entradas;
+    private long obsoletas;
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final ThreadLocal<Acumulador> acumuladores = ThreadLocal.withInitial(Acumulador::new);
+
+    /**
+     * Indexa el problema, la resolución y la causa de eliminación de una incidencia, sustituyendo lo que se
+     * hubiera indexado antes para el mismo código.
+     * @param incidencia La incidencia, con un código de formato correcto.
+     */
+    public void indexar(Incidencia incidencia) {
+        Map<String, int[]> frecuencias = new HashMap<>();
+        int longitud = contar(incidencia.getProblema(), frecuencias)
+                + contar(incidencia.getResolucion(), frecuencias)
+                + contar(incidencia.getCausaEliminacion(), frecuencias);
+        long clave = clave(incidencia.getCodigo());
+
+        cerrojo.writeLock().lock();
+        try {
+            int documento = buscarDocumento(clave, incidencia.getCodigo());
+            if (documento < 0) {
+                documento = nuevoDocumento(clave, incidencia.getCodigo());
+            } else {
+                // Las entradas de la versión anterior quedan obsoletas
+                obsoletas += distintas[documento];
+                sumaLongitudes -= longitudes[documento];
+            }
+            int version = (versiones[documento] + 1) & MASCARA_VERSION;
+            versiones[documento] = version;
+            longitudes[documento] = longitud;
+            sumaLongitudes += longitud;
+            for (Map.Entry<String, int[]> palabra : frecuencias.entrySet()) {
+                int frecuencia = Math.min(palabra.getValue()[0], FRECUENCIA_MAXIMA);
+                listas.computeIfAbsent(palabra.getKey(), p -> new Lista()).anadir(documento, (version << BITS_FRECUENCIA) | frecuencia);
+            }
+            entradas += frecuencias.size();
+            distintas[documento] = frecuencias.size();
+            if (obsoletas > CAPACIDAD_INICIAL && obsoletas * 2 > entradas) {
+                compactar();
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca las incidencias que contienen alguna de las palabras de la consulta.
+     * @param consulta Las palabras a buscar, separadas por espacios o signos de puntuación.
+     * @param desde Número de resultados que se saltan al principio.
+     * @param limite Número máximo de resultados.
+     * @return Los códigos de las incidencias encontradas, de la más relevante a la menos; a igual relevancia,
+     *         primero la indexada más tarde.
+     */
+    public List<String> buscar(String consulta, int desde, int limite) {
+        if (desde < 0 || limite < 0) {
+            throw new IllegalArgumentException("desde y limite no pueden ser negativos");
+        }
+        Set<String> palabras = new LinkedHashSet<>(palabras(consulta));
+        Acumulador acumulador = acumuladores.get();
+        cerrojo.readLock().lock();
+        try {
+            if (palabras.isEmpty() || documentos == 0 || limite == 0) {
+                return new ArrayList<>();
+            }
+            acumulador.preparar(documentos);
+            float longitudMedia = (float) sumaLongitudes / documentos;
+            for (String palabra : palabras) {
+                Lista lista = listas.get(palabra);
+                if (lista != null) {
+                    puntuar(lista, longitudMedia, acumulador);
+                }
+            }
+            int[] mejores = acumulador.mejores((int) Math.min((long) desde + limite, Integer.MAX_VALUE));
+            List<String> codigos = new ArrayList<>(Math.max(0, mejores.length - desde));
+            for (int i = desde; i < mejores.length; i++) {
+                codigos.add(codigo(mejores[i]));
+            }
+            return codigos;
+        } finally {
+            acumulador.limpiar();
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Número de incidencias indexadas.
+     * @return
+     */
+    public int getTamano() {
+        cerrojo.readLock().lock();
+        try {
+            return documentos;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Número de palabras distintas indexadas.
+     * @return
+     */
+    public int getPalabras() {
+        cerrojo.readLock().lock();
+        try {
+            return listas.size();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Separa un texto en palabras indexables: sin tildes, en minúsculas, de al menos dos caracteres y sin
+     * palabras vacías.
+     * @param texto El texto, o null.
+     * @return Las palabras en el orden del texto, con repeticiones.
+     */
+    public static List<String> palabras(String texto) {
+        List<String> palabras = new ArrayList<>();
+        if (texto == null) {
+            return palabras;
+        }
+        String normalizado = esAscii(texto) ? texto : Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder palabra = new StringBuilder();
+        for (int i = 0; i <= normalizado.length(); i++) {
+            char c = i < normalizado.length() ? normalizado.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                // Tilde, diéresis o virgulilla separada de su letra por la normalización
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                palabra.append(Character.toLowerCase(c));
+            } else if (palabra.length() > 0) {
+                if (palabra.length() > 1) {
+                    String encontrada = palabra.toString();
+                    if (!PALABRAS_VACIAS.contains(encontrada)) {
+                        palabras.add(encontrada);
+                    }
+                }
+                palabra.setLength(0);
+            }
+        }
+        return palabras;
+    }
+
+    private static boolean esAscii(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Añade a las frecuencias las palabras de un texto.
+     * @return Número de palabras del texto.
+     */
+    private static int contar(String texto, Map<String, int[]> frecuencias) {
+        List<String> palabras = palabras(texto);
+        for (String palabra : palabras) {
+            frecuencias.computeIfAbsent(palabra, p -> new int[1])[0]++;
+        }
+        return palabras.size();
+    }
+
+    /**
+     * Suma a cada documento vigente de la lista la puntuación BM25 de la palabra.
+     */
+    private void puntuar(Lista lista, float longitudMedia, Acumulador acumulador) {
+        int vigentes = Math.min(lista.tamano, documentos); // Aproximado: incluye las entradas obsoletas aún no compactadas
+        float idf = (float) Math.log(1 + (documentos - vigentes + 0.5) / (vigentes + 0.5));
+        for (int i = 0; i < lista.tamano; i++) {
+            int documento = lista.documentos[i];
+            int versionYFrecuencia = lista.versionesYFrecuencias[i];
+            if ((versionYFrecuencia >>> BITS_FRECUENCIA) != versiones[documento]) {
+                continue;
+            }
+            int frecuencia = versionYFrecuencia & FRECUENCIA_MAXIMA;
+            float normalizacion = K1 * (1 - B + B * longitudes[documento] / longitudMedia);
+            acumulador.sumar(documento, idf * frecuencia * (K1 + 1) / (frecuencia + normalizacion));
+        }
+    }
+
+    /**
+     * Quita de todas las listas las entradas de versiones anteriores.
+     */
+    private void compactar() {
+        entradas = 0;
+        for (Lista lista : listas.values()) {
+            int vigentes = 0;
+            for (int i = 0; i < lista.tamano; i++) {
+                if ((lista.versionesYFrecuencias[i] >>> BITS_FRECUENCIA) == versiones[lista.documentos[i]]) {
+                    lista.documentos[vigentes] = lista.documentos[i];
+                    lista.versionesYFrecuencias[vigentes] = lista.versionesYFrecuencias[i];
+                    vigentes++;
+                }
+            }
+            lista.tamano = vigentes;
+            entradas += vigentes;
+        }
+        listas.values().removeIf(lista -> lista.tamano == 0);
+        obsoletas = 0;
+    }
+
+    /**
+     * Clave numérica de un código: los minutos desde 1970 de su fecha y su secuencia. Si el código no se
+     * puede reconstruir a partir de ellas (por ejemplo, con ceros a la izquierda en la secuencia) devuelve SIN_CLAVE.
+     */
+    private static long clave(String codigo) {
+        try {
+            CodigoIncidencia analizado = CodigoIncidencia.parse(codigo);
+            LocalDateTime fecha = HistorialColumnar.fechaDeMarca(analizado.getMarcaTemporal());
+            if (!CodigoIncidencia.de(fecha, analizado.getSecuencia()).getCodigo().equals(codigo)) {
+                return SIN_CLAVE;
+            }
+            long minutos = Math.toIntExact(fecha.toEpochSecond(ZoneOffset.UTC) / 60);
+            return (minutos << 32) | analizado.getSecuencia();
+        } catch (IllegalArgumentException | DateTimeException | ArithmeticException ex) {
+            return SIN_CLAVE;
+        }
+    }
+
+    private String codigo(int documento) {
+        long clave = claves[documento];
+        if (clave == SIN_CLAVE) {
+            return codigosDeOtros.get(documento);
+        }
+        LocalDateTime fecha = LocalDateTime.ofEpochSecond((clave >> 32) * 60, 0, ZoneOffset.UTC);
+        return CodigoIncidencia.de(fecha, (int) clave).getCodigo();
+    }
+
+    /**
+     * Busca el documento de un código. Se llama con el cerrojo tomado.
+     * @return El documento, o -1 si el código no está indexado.
+     */
+    private int buscarDocumento(long clave, String codigo) {
+        if (clave == SIN_CLAVE) {
+            Integer documento = otrosCodigos.get(codigo);
+            return documento != null ? documento : -1;
+        }
+        return tablaClaves[buscarHueco(clave)] - 1;
+    }
+
+    private int nuevoDocumento(long clave, String codigo) {
+        if (documentos == claves.length) {
+            crecer();
+        }
+        int documento = documentos++;
+        claves[documento] = clave;
+        versiones[documento] = 0;
+        if (clave == SIN_CLAVE) {
+            otrosCodigos.put(codigo, documento);
+            codigosDeOtros.put(documento, codigo);
+        } else {
+            tablaClaves[buscarHueco(clave)] = documento + 1;
+        }
+        return documento;
+    }
+
+    private int buscarHueco(long clave) {
+        int mascara = tablaClaves.length - 1;
+        long h = clave * 0x9E3779B97F4A7C15L;
+        int i = (int) (h ^ (h >>> 32)) & mascara;
+        while (true) {
+            int documento = tablaClaves[i] - 1;
+            if (documento < 0 || claves[documento] == clave) {
+                return i;
+            }
+            i = (i + 1) & mascara;
+        }
+    }
+
+    private void crecer() {
+        int capacidad = claves.length * 2;
+        claves = Arrays.copyOf(claves, capacidad);
+        versiones = Arrays.copyOf(versiones, capacidad);
+        longitudes = Arrays.copyOf(longitudes, capacidad);
+        distintas = Arrays.copyOf(distintas, capacidad);
+        tablaClaves = new int[capacidad * 2];
+        for (int documento = 0; documento < documentos; documento++) {
+            if (claves[documento] != SIN_CLAVE) {
+                tablaClaves[buscarHueco(claves[documento])] = documento + 1;
+            }
+        }
+    }
+
+    /**
+     * Documentos que contienen una palabra, con la versión del documento y la frecuencia de la palabra
+     * juntas en un int.
+     */
+    private static class Lista {
+        private int[] documentos = new int[4];
+        private int[] versionesYFrecuencias = new int[4];
+        private int tamano;
+
+        void anadir(int documento, int versionYFrecuencia) {
+            if (tamano == documentos.length) {
+                documentos = Arrays.copyOf(documentos, tamano * 2);
+                versionesYFrecuencias = Arrays.copyOf(versionesYFrecuencias, tamano * 2);
+            }
+            documentos[tamano] = documento;
+            versionesYFrecuencias[tamano] = versionYFrecuencia;
+            tamano++;
+        }
+    }
+
+    /**
+     * Puntuaciones de una búsqueda, que se reutilizan entre búsquedas del mismo hilo.
+     * Solo se recorren y se ponen a cero los documentos que han recibido puntuación.
+     */
+    private static class Acumulador {
+        private float[] puntuaciones = new float[0];
+        private int[] tocados = new int[0];
+        private int numeroTocados;
+
+        void preparar(int documentos) {
+            if (puntuaciones.length < documentos) {
+                puntuaciones = new float[documentos];
+                tocados = new int[documentos];
+            }
+        }
+
+        void sumar(int documento, float puntuacion) {
+            if (puntuaciones[documento] == 0) {
+                tocados[numeroTocados++] = documento;
+            }
+            puntuaciones[documento] += puntuacion;
+        }
+
+        /**
+         * Los k documentos con más puntuación, de mayor a menor, con un montículo de mínimos de tamaño k.
+         */
+        int[] mejores(int k) {
+            int[] monticulo = new int[Math.min(k, numeroTocados)];
+            int tamano = 0;
+            for (int i = 0; i < numeroTocados; i++) {
+                int documento = tocados[i];
+                if (tamano < monticulo.length) {
+                    monticulo[tamano] = documento;
+                    subir(monticulo, tamano++);
+                } else if (tamano > 0 && antes(documento, monticulo[0])) {
+                    monticulo[0] = documento;
+                    bajar(monticulo, tamano);
+                }
+            }
+            // Se sacan de peor a mejor y se colocan desde el final
+            for (int fin = tamano - 1; fin > 0; fin--) {
+                int peor = monticulo[0];
+                monticulo[0] = monticulo[fin];
+                monticulo[fin] = peor;
+                bajar(monticulo, fin);
+            }
+            return monticulo;
+        }
+
+        void limpiar() {
+            for (int i = 0; i < numeroTocados; i++) {
+                puntuaciones[tocados[i]] = 0;
+            }
+            numeroTocados = 0;
+        }
+
+        // true si el documento a va antes que b en los resultados
+        private boolean antes(int a, int b) {
+            return puntuaciones[a] > puntuaciones[b] || (puntuaciones[a] == puntuaciones[b] && a > b);
+        }
+
+        private void subir(int[] monticulo, int i) {
+            while (i > 0) {
+                int padre = (i - 1) / 2;
+                if (!antes(monticulo[padre], monticulo[i])) {
+                    return;
+                }
+                int t = monticulo[padre];
+                monticulo[padre] = monticulo[i];
+                monticulo[i] = t;
+                i = padre;
+            }
+        }
+
+        private void bajar(int[] monticulo, int tamano) {
+            int i = 0;
+            while (true) {
+                int menor = i;
+                int izquierdo = 2 * i + 1;
+                int derecho = izquierdo + 1;
+                if (izquierdo < tamano && antes(monticulo[menor], monticulo[izquierdo])) {
+                    menor = izquierdo;
+                }
+                if (derecho < tamano && antes(monticulo[menor], monticulo[derecho])) {
+                    menor = derecho;
+                }
+                if (menor == i) {
+                    return;
+                }
+                int t = monticulo[menor];
+                monticulo[menor] = monticulo[i];
+                monticulo[i] = t;
+                i = menor;
+            }
+        }
+    }
+}
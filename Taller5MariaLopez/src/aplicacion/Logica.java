@@ -1,27 +1,116 @@
 package aplicacion;
 
+import java.time.Clock;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
 import dominio.Incidencia;
+import metricas.MetricaOperacion;
+import metricas.Metricas;
 
 
 /**
  * Clase que representa la lógica del sistema para gestionar incidencias.
+ * Puede usarse desde varios hilos a la vez: los códigos se generan sin bloqueos con una secuencia
+ * diaria atómica, los cambios de una incidencia se hacen con el cerrojo de su franja y las lecturas
+ * nunca se bloquean.
  */
 public class Logica {
-    private List<Incidencia> incidencias; // Lista de incidencia
-    private LocalDateTime fechaRegistroActual;
-    private int contadorDiario;
+    private static final int NUMERO_FRANJAS = 64; // Potencia de dos
+    private static final int MUESTREO_BUSQUEDAS = 16; // Una búsqueda dura menos que leer el reloj, solo se mide una de cada 16
+
+    private Map<String, Incidencia> indicePorCodigo; // Índice de incidencias por código
+    private Map<EstadoIncidencia, ConcurrentSkipListMap<CodigoIncidencia, Incidencia>> incidenciasPorEstado; // Incidencias agrupadas por estado, en orden cronológico
+    private Map<EstadoIncidencia, AtomicInteger> totalesPorEstado; // Número de incidencias de cada estado
+    private final Object[] cerrojos; // Cerrojos por franjas de códigos para los cambios de las incidencias
+    private final AtomicLong secuenciaDiaria; // Día (epoch day) en los 32 bits altos y último número de secuencia en los bajos
+    private EscrituraDiferida persistencia; // Guarda los cambios en la base de datos, o null si no se persisten
+    private HistorialColumnar historial; // Incidencias cerradas cargadas en columnas, o null si se guardan como objetos
+    private Clock reloj = Clock.systemDefaultZone(); // Da la fecha de registro, resolución y eliminación
+    private final IndiceTexto indiceTexto = new IndiceTexto(); // Palabras del problema, la resolución y la causa de eliminación
+    private final IndiceFechas indiceFechas = new IndiceFechas(); // Fechas de registro, resolución y eliminación en orden
+    private final IndicePuestos indicePuestos = new IndicePuestos(); // Incidencias de cada puesto y recuento de pendientes
+    private final EstadisticasResolucion estadisticas = new EstadisticasResolucion(); // Tiempos de resolución en total, por día y por puesto
+
+    // Métricas de cada operación, consultables por JMX y desde el menú
+    private final MetricaOperacion metricaRegistrar = Metricas.global().operacion("logica.registrarIncidencia");
+    private final MetricaOperacion metricaBuscar = Metricas.global().operacion("logica.buscarIncidencia", MUESTREO_BUSQUEDAS);
+    private final MetricaOperacion metricaBuscarTexto = Metricas.global().operacion("logica.buscarPorTexto");
+    private final MetricaOperacion metricaBuscarFechas = Metricas.global().operacion("logica.buscarPorFechas");
+    private final MetricaOperacion metricaBuscarPuesto = Metricas.global().operacion("logica.buscarPorPuesto");
+    private final MetricaOperacion metricaModificar = Metricas.global().operacion("logica.modificarIncidencia");
+    private final MetricaOperacion metricaEliminar = Metricas.global().operacion("logica.eliminarIncidencia");
+    private final MetricaOperacion metricaResolver = Metricas.global().operacion("logica.resolverIncidencia");
+    private final MetricaOperacion metricaModificarResuelta = Metricas.global().operacion("logica.modificarIncidenciaResuelta");
+    private final MetricaOperacion metricaDevolver = Metricas.global().operacion("logica.devolverIncidenciaResuelta");
+    private final MetricaOperacion metricaCargar = Metricas.global().operacion("logica.cargarIncidencias");
+    private final MetricaOperacion metricaImportar = Metricas.global().operacion("logica.importarIncidencias");
     /**
      * Constructor de la clase Logica.
      */
     public Logica() {
-        this.incidencias = new ArrayList<>(); // Inicializa la lista de incidencias
-        this.fechaRegistroActual = null;
-        this.contadorDiario = 1;
+        this.indicePorCodigo = new ConcurrentHashMap<>(); // Inicializa el índice por código
+        this.incidenciasPorEstado = new EnumMap<>(EstadoIncidencia.class); // Inicializa los grupos por estado
+        this.totalesPorEstado = new EnumMap<>(EstadoIncidencia.class);
+        for (EstadoIncidencia estado : EstadoIncidencia.values()) {
+            this.incidenciasPorEstado.put(estado, new ConcurrentSkipListMap<>());
+            this.totalesPorEstado.put(estado, new AtomicInteger());
+        }
+        this.cerrojos = new Object[NUMERO_FRANJAS];
+        for (int i = 0; i < NUMERO_FRANJAS; i++) {
+            this.cerrojos[i] = new Object();
+        }
+        this.secuenciaDiaria = new AtomicLong();
+    }
+
+    /**
+     * Constructor de la clase Logica que guarda en segundo plano los cambios en la base de datos.
+     * 
+     * @param persistencia La escritura diferida a la que se envían los cambios.
+     */
+    public Logica(EscrituraDiferida persistencia) {
+        this();
+        this.persistencia = persistencia;
+    }
+
+    /**
+     * Constructor de la clase Logica que, además, guarda en columnas las incidencias resueltas y
+     * eliminadas que se cargan, en lugar de mantenerlas como objetos. Cuando se cambia una de ellas
+     * se vuelve a crear su objeto y sale del historial.
+     * 
+     * @param persistencia La escritura diferida a la que se envían los cambios, o null.
+     * @param historial    El historial en el que se guardan las incidencias cerradas cargadas.
+     */
+    public Logica(EscrituraDiferida persistencia, HistorialColumnar historial) {
+        this(persistencia);
+        this.historial = historial;
+    }
+
+    /**
+     * Constructor para las pruebas, con un reloj que puede no ser el del sistema.
+     * 
+     * @param persistencia La escritura diferida a la que se envían los cambios, o null.
+     * @param historial    El historial de las incidencias cerradas cargadas, o null.
+     * @param reloj        El reloj del que se obtienen las fechas.
+     */
+    Logica(EscrituraDiferida persistencia, HistorialColumnar historial, Clock reloj) {
+        this(persistencia, historial);
+        this.reloj = reloj;
     }
 
     Scanner scanner = new Scanner(System.in);
@@ -31,30 +120,51 @@ public class Logica {
      * 
      * @param puesto   El número del puesto asociado a la incidencia.
      * @param problema La descripción del problema de la incidencia.
+     * @return La incidencia registrada.
      */
-    public void registrarIncidencia(int puesto, String problema) {
-        // Obtiene la fecha actual
-        LocalDateTime fechaActual = LocalDateTime.now();
+    public Incidencia registrarIncidencia(int puesto, String problema) {
+        long inicio = metricaRegistrar.iniciar();
+        try {
+            // Obtiene la fecha actual
+            LocalDateTime fechaActual = LocalDateTime.now(reloj);
 
-        // Verifica si es un nuevo día para reiniciar el contador diario
-        if (fechaRegistroActual == null || !fechaActual.toLocalDate().isEqual(fechaRegistroActual.toLocalDate())) {
-            fechaRegistroActual = fechaActual;
-            contadorDiario = 1; // Reiniciar el contador diario si es un nuevo día
-        } else {
-            contadorDiario++; // Incrementar el contador si es el mismo día
-        }
+            // Obtiene el siguiente número del día; el contador vuelve a 1 si es un nuevo día
+            long dia = fechaActual.toLocalDate().toEpochDay();
+            long diaYSecuencia = siguienteSecuencia(dia);
+            if ((diaYSecuencia >>> 32) != dia) {
+                // Otro hilo ya ha registrado pasada la medianoche: se usa el primer instante de su día
+                fechaActual = LocalDate.ofEpochDay(diaYSecuencia >>> 32).atStartOfDay();
+            }
+            int secuencia = (int) diaYSecuencia;
 
-        // Formatea la fecha y hora en el formato especificado
-        DateTimeFormatter formatterFechaHora = DateTimeFormatter.ofPattern("dd/MM/yyyy-HH:mm");
-        String codigo = String.format("%s-%d", fechaActual.format(formatterFechaHora), contadorDiario);
+            // Genera el código con el formato dd/MM/yyyy-HH:mm-N
+            CodigoIncidencia codigo = CodigoIncidencia.de(fechaActual, secuencia);
 
-        // Crea una nueva instancia de Incidencia con los datos proporcionados y la
-        // agrega a la lista de incidencias
-        Incidencia incidencia = new Incidencia(codigo, "pendiente", puesto, problema, fechaActual);
-        incidencias.add(incidencia);
+            // Crea una nueva instancia de Incidencia con los datos proporcionados y la
+            // agrega a los índices
+            Incidencia incidencia = new Incidencia(codigo.getCodigo(), EstadoIncidencia.PENDIENTE, puesto, problema, fechaActual);
+            // Con el cerrojo de su franja, un cambio que la encuentre por su código espera a que esté en todos los índices
+            synchronized (cerrojo(codigo.getCodigo())) {
+                if ((historial != null && historial.contiene(codigo.getCodigo())) || !indexar(codigo, incidencia)) {
+                    throw new IllegalStateException("Ya existe una incidencia con el código " + codigo.getCodigo());
+                }
+                indiceTexto.indexar(incidencia);
+                indiceFechas.anadir(incidencia);
+                indicePuestos.anadir(incidencia);
+                if (persistencia != null) {
+                    persistencia.registrarAlta(incidencia);
+                }
+            }
 
-        // Muestra un mensaje de confirmación
-        System.out.println("Incidencia registrada con éxito.");
+            // Muestra un mensaje de confirmación
+            System.out.println("Incidencia registrada con éxito.");
+            return incidencia;
+        } catch (RuntimeException ex) {
+            metricaRegistrar.fallo();
+            throw ex;
+        } finally {
+            metricaRegistrar.terminar(inicio);
+        }
     }
 
     /**
@@ -64,20 +174,217 @@ public class Logica {
      * @return La incidencia encontrada, o null si no se encuentra ninguna.
      */
     public Incidencia buscarIncidencia(String codigoBuscado) {
-        // Verifica si el código tiene el formato correcto antes de buscar la incidencia
-        if (!codigoBuscado.matches("^\\d{2}/\\d{2}/\\d{4}-\\d{2}:\\d{2}-\\d+$")) {
-            // No lanza una excepción, sino que devuelve null para indicar un formato incorrecto
-            return null;
-        }
+        long inicio = metricaBuscar.iniciar();
+        try {
+            // Verifica si el código tiene el formato correcto antes de buscar la incidencia
+            if (!CodigoIncidencia.esValido(codigoBuscado)) {
+                // No lanza una excepción, sino que devuelve null para indicar un formato incorrecto
+                return null;
+            }
 
-        // Itera sobre la lista de incidencias para buscar la incidencia con el código especificado
-        for (Incidencia incidencia : incidencias) {
-            if (incidencia.getCodigo().equals(codigoBuscado)) {
-                return incidencia; // Devuelve la incidencia si se encuentra
+            // Consulta el índice por código y después el historial; devuelve null si no se encuentra la incidencia
+            Incidencia incidencia = indicePorCodigo.get(codigoBuscado);
+            if (incidencia == null && historial != null) {
+                incidencia = historial.obtener(codigoBuscado);
             }
+            return incidencia;
+        } catch (RuntimeException ex) {
+            metricaBuscar.fallo();
+            throw ex;
+        } finally {
+            metricaBuscar.terminar(inicio);
         }
+    }
 
-        return null; // Devuelve null si no se encuentra la incidencia
+    /**
+     * Busca incidencias por las palabras de su problema, su resolución o su causa de eliminación.
+     * No distingue mayúsculas ni tildes; aparecen primero las incidencias que contienen más palabras
+     * de la consulta, y sobre todo las menos frecuentes.
+     * 
+     * @param consulta Las palabras a buscar.
+     * @param desde Número de resultados que se saltan al principio.
+     * @param limite Número máximo de resultados.
+     * @return Las incidencias encontradas, de más a menos relevante.
+     */
+    public List<Incidencia> buscarPorTexto(String consulta, int desde, int limite) {
+        long inicio = metricaBuscarTexto.iniciar();
+        try {
+            return incidenciasDe(indiceTexto.buscar(consulta, desde, limite));
+        } catch (RuntimeException ex) {
+            metricaBuscarTexto.fallo();
+            throw ex;
+        } finally {
+            metricaBuscarTexto.terminar(inicio);
+        }
+    }
+
+    /**
+     * Devuelve el número de palabras distintas en el índice de texto.
+     * @return El número de palabras indexadas.
+     */
+    public int contarPalabrasIndexadas() {
+        return indiceTexto.getPalabras();
+    }
+
+    /**
+     * Busca las incidencias registradas en un intervalo de tiempo, por ejemplo las de ayer entre las 8:00
+     * y las 14:00. Las fechas se comparan con precisión de segundos.
+     * 
+     * @param desde  Inicio del intervalo, incluido.
+     * @param hasta  Fin del intervalo, excluido.
+     * @param estado El estado de las incidencias, o null para todas.
+     * @param saltar Número de resultados que se saltan al principio.
+     * @param limite Número máximo de resultados.
+     * @return Las incidencias encontradas, en orden de registro.
+     */
+    public List<Incidencia> buscarPorFechaRegistro(LocalDateTime desde, LocalDateTime hasta, EstadoIncidencia estado, int saltar, int limite) {
+        long inicio = metricaBuscarFechas.iniciar();
+        try {
+            return incidenciasDe(indiceFechas.registradas(desde, hasta, estado, saltar, limite));
+        } catch (RuntimeException ex) {
+            metricaBuscarFechas.fallo();
+            throw ex;
+        } finally {
+            metricaBuscarFechas.terminar(inicio);
+        }
+    }
+
+    /**
+     * Busca las incidencias resueltas en un intervalo de tiempo, por ejemplo en la última hora.
+     * Las fechas se comparan con precisión de segundos.
+     * 
+     * @param desde  Inicio del intervalo, incluido.
+     * @param hasta  Fin del intervalo, excluido.
+     * @param saltar Número de resultados que se saltan al principio.
+     * @param limite Número máximo de resultados.
+     * @return Las incidencias encontradas, en orden de resolución.
+     */
+    public List<Incidencia> buscarPorFechaResolucion(LocalDateTime desde, LocalDateTime hasta, int saltar, int limite) {
+        long inicio = metricaBuscarFechas.iniciar();
+        try {
+            return incidenciasDe(indiceFechas.resueltas(desde, hasta, saltar, limite));
+        } catch (RuntimeException ex) {
+            metricaBuscarFechas.fallo();
+            throw ex;
+        } finally {
+            metricaBuscarFechas.terminar(inicio);
+        }
+    }
+
+    /**
+     * Busca las incidencias eliminadas en un intervalo de tiempo. Las fechas se comparan con precisión de segundos.
+     * 
+     * @param desde  Inicio del intervalo, incluido.
+     * @param hasta  Fin del intervalo, excluido.
+     * @param saltar Número de resultados que se saltan al principio.
+     * @param limite Número máximo de resultados.
+     * @return Las incidencias encontradas, en orden de eliminación.
+     */
+    public List<Incidencia> buscarPorFechaEliminacion(LocalDateTime desde, LocalDateTime hasta, int saltar, int limite) {
+        long inicio = metricaBuscarFechas.iniciar();
+        try {
+            return incidenciasDe(indiceFechas.eliminadas(desde, hasta, saltar, limite));
+        } catch (RuntimeException ex) {
+            metricaBuscarFechas.fallo();
+            throw ex;
+        } finally {
+            metricaBuscarFechas.terminar(inicio);
+        }
+    }
+
+    /**
+     * Busca las incidencias de un puesto, en orden cronológico.
+     * 
+     * @param puesto El número de puesto.
+     * @param estado El estado de las incidencias, o null para todas: primero las pendientes, después las
+     *               resueltas y por último las eliminadas.
+     * @param saltar Número de resultados que se saltan al principio.
+     * @param limite Número máximo de resultados.
+     * @return Las incidencias del puesto.
+     */
+    public List<Incidencia> buscarPorPuesto(int puesto, EstadoIncidencia estado, int saltar, int limite) {
+        long inicio = metricaBuscarPuesto.iniciar();
+        try {
+            return incidenciasDe(indicePuestos.codigos(puesto, estado, saltar, limite));
+        } catch (RuntimeException ex) {
+            metricaBuscarPuesto.fallo();
+            throw ex;
+        } finally {
+            metricaBuscarPuesto.terminar(inicio);
+        }
+    }
+
+    /**
+     * Cuenta las incidencias pendientes de un puesto.
+     * 
+     * @param puesto El número de puesto.
+     * @return El número de incidencias pendientes del puesto.
+     */
+    public int contarPendientesPuesto(int puesto) {
+        return indicePuestos.pendientes(puesto);
+    }
+
+    /**
+     * Obtiene los puestos con más incidencias pendientes. El recuento se mantiene a medida que cambian
+     * las incidencias, así que no hay que recorrerlas.
+     * 
+     * @param cantidad Número máximo de puestos.
+     * @return Los puestos con alguna incidencia pendiente, de más a menos pendientes.
+     */
+    public List<PuestoConPendientes> obtenerPuestosConMasPendientes(int cantidad) {
+        return indicePuestos.masPendientes(cantidad);
+    }
+
+    /**
+     * Obtiene el número de incidencias resueltas y la media, la mediana y el percentil 95 de su tiempo de
+     * resolución. Las estadísticas se mantienen al resolver y devolver incidencias, así que la consulta no
+     * recorre las incidencias.
+     * 
+     * @return Las estadísticas de todas las incidencias resueltas.
+     */
+    public TiemposResolucion obtenerTiemposResolucion() {
+        return estadisticas.total();
+    }
+
+    /**
+     * Obtiene las estadísticas del tiempo de resolución de las incidencias resueltas un día.
+     * 
+     * @param dia El día de resolución.
+     * @return Las estadísticas de las incidencias resueltas ese día.
+     */
+    public TiemposResolucion obtenerTiemposResolucion(LocalDate dia) {
+        return estadisticas.dia(dia);
+    }
+
+    /**
+     * Obtiene las estadísticas del tiempo de resolución de las incidencias resueltas de un puesto.
+     * 
+     * @param puesto El número de puesto.
+     * @return Las estadísticas de las incidencias resueltas del puesto.
+     */
+    public TiemposResolucion obtenerTiemposResolucionPuesto(int puesto) {
+        return estadisticas.puesto(puesto);
+    }
+
+    /**
+     * Obtiene las incidencias de los códigos indicados, en el mismo orden, buscándolas en el índice por
+     * código y en el historial. Se omiten las que ya no se encuentran.
+     * 
+     * @param codigos Los códigos de las incidencias.
+     * @return Las incidencias encontradas.
+     */
+    private List<Incidencia> incidenciasDe(List<String> codigos) {
+        List<Incidencia> encontradas = new ArrayList<>(codigos.size());
+        for (String codigo : codigos) {
+            Incidencia incidencia = indicePorCodigo.get(codigo);
+            if (incidencia == null && historial != null) {
+                incidencia = historial.obtener(codigo);
+            }
+            if (incidencia != null) {
+                encontradas.add(incidencia);
+            }
+        }
+        return encontradas;
     }
 
     /**
@@ -86,34 +393,49 @@ public class Logica {
      * @param codigoModificar El código de la incidencia a modificar.
      * @param nuevoPuesto      El nuevo número de puesto asociado a la incidencia.
      * @param nuevoProblema    La nueva descripción del problema de la incidencia.
+     * @return true si se ha modificado la incidencia.
      */
-    public void modificarIncidencia(String codigoModificar, int nuevoPuesto, String nuevoProblema) {
-        // Verifica si el formato del código es correcto
-        if (!codigoModificar.matches("^\\d{2}/\\d{2}/\\d{4}-\\d{2}:\\d{2}-\\d+$")) {
-            System.out.println("El formato del código no es correcto.");
-            return;
-        }
+    public boolean modificarIncidencia(String codigoModificar, int nuevoPuesto, String nuevoProblema) {
+        long inicio = metricaModificar.iniciar();
+        try {
+            // Verifica si el formato del código es correcto
+            if (!CodigoIncidencia.esValido(codigoModificar)) {
+                System.out.println("El formato del código no es correcto.");
+                return false;
+            }
 
-        // Bucle para buscar la incidencia correspondiente al código ingresado
-        for (Incidencia incidencia : incidencias) {
-            if (incidencia.getCodigo().equals(codigoModificar)) {
+            // Busca la incidencia correspondiente al código ingresado en el índice
+            Incidencia incidencia = recuperar(codigoModificar);
+            if (incidencia == null) {
+                // Muestra un mensaje indicando que la incidencia no se encontró
+                System.out.println("Incidencia no encontrada.");
+                return false;
+            }
+
+            synchronized (cerrojo(codigoModificar)) {
                 // Verifica si la incidencia no está resuelta para permitir la modificación
-                if (!incidencia.getEstado().equals("resuelta")) {
-                    // Modifica la incidencia con los nuevos datos
-                    incidencia.setPuesto(nuevoPuesto);
-                    incidencia.setProblema(nuevoProblema);
-                    System.out.println("Incidencia modificada con éxito.");
-                } else {
+                if (incidencia.getEstado() == EstadoIncidencia.RESUELTA) {
                     // Muestra un mensaje indicando que no se puede modificar una incidencia
                     // resuelta
                     System.out.println("No se puede modificar una incidencia resuelta.");
+                    return false;
                 }
-                return; // Sale del método una vez que se realiza la modificación o se muestra el
-                        // mensaje de error
+                // Modifica la incidencia con los nuevos datos
+                indicePuestos.quitar(incidencia);
+                incidencia.setPuesto(nuevoPuesto);
+                incidencia.setProblema(nuevoProblema);
+                indiceTexto.indexar(incidencia);
+                indicePuestos.anadir(incidencia);
+                guardar(incidencia);
             }
+            System.out.println("Incidencia modificada con éxito.");
+            return true;
+        } catch (RuntimeException ex) {
+            metricaModificar.fallo();
+            throw ex;
+        } finally {
+            metricaModificar.terminar(inicio);
         }
-        // Muestra un mensaje indicando que la incidencia no se encontró
-        System.out.println("Incidencia no encontrada.");
     }
 
     /**
@@ -123,32 +445,64 @@ public class Logica {
      * @param scanner         El objeto Scanner para recibir entrada del usuario.
      */
     public void eliminarIncidencia(String codigoEliminar, Scanner scanner) {
-        // Verifica si el formato del código proporcionado es correcto
-        if (!codigoEliminar.matches("^\\d{2}/\\d{2}/\\d{4}-\\d{2}:\\d{2}-\\d+$")) {
-            System.out.println("Formato incorrecto, formato correcto: XX/XX/XXXX-XX:XX-X");
+        // Comprueba la incidencia antes de pedir la causa
+        Incidencia incidencia = buscarParaCambio(codigoEliminar);
+        if (incidencia == null) {
+            return;
+        }
+        if (!incidencia.getEstado().puedeCambiarA(EstadoIncidencia.ELIMINADA)) {
+            System.out.println("La incidencia ya está eliminada.");
             return;
         }
 
-        for (Incidencia incidencia : incidencias) {
-            if (incidencia != null && incidencia.getCodigo().equals(codigoEliminar)) {
-                if (!incidencia.getEstado().equals("eliminada")) {
-                    LocalDateTime fechaEliminacion = LocalDateTime.now();
-                    incidencia.setEstado("eliminada");
-                    incidencia.setFechaEliminacion(fechaEliminacion);
-
-                    System.out.println("Ingrese la causa de la eliminación:");
-                    String causaEliminacion = scanner.nextLine();
-                    incidencia.setCausaEliminacion(causaEliminacion);
-                    System.out.println("Incidencia eliminada con éxito.");
-                } else {
+        System.out.println("Ingrese la causa de la eliminación:");
+        String causaEliminacion = scanner.nextLine();
+        eliminarIncidencia(codigoEliminar, causaEliminacion);
+    }
+
+    /**
+     * Elimina una incidencia existente con la causa indicada.
+     * 
+     * @param codigoEliminar   El código de la incidencia a eliminar.
+     * @param causaEliminacion La causa de la eliminación.
+     * @return true si se ha eliminado la incidencia.
+     */
+    public boolean eliminarIncidencia(String codigoEliminar, String causaEliminacion) {
+        long inicio = metricaEliminar.iniciar();
+        try {
+            Incidencia incidencia = buscarParaCambio(codigoEliminar);
+            if (incidencia == null) {
+                return false;
+            }
+
+            synchronized (cerrojo(codigoEliminar)) {
+                if (!incidencia.getEstado().puedeCambiarA(EstadoIncidencia.ELIMINADA)) {
                     System.out.println("La incidencia ya está eliminada.");
+                    return false;
                 }
-                return;
+                LocalDateTime fechaEliminacion = LocalDateTime.now(reloj);
+                indiceFechas.quitar(incidencia);
+                indicePuestos.quitar(incidencia);
+                estadisticas.quitar(incidencia);
+                cambiarEstado(incidencia, EstadoIncidencia.ELIMINADA);
+                incidencia.setFechaEliminacion(fechaEliminacion);
+                incidencia.setCausaEliminacion(causaEliminacion);
+                indiceTexto.indexar(incidencia);
+                indiceFechas.anadir(incidencia);
+                indicePuestos.anadir(incidencia);
+                estadisticas.anadir(incidencia);
+                guardar(incidencia);
             }
+            System.out.println("Incidencia eliminada con éxito.");
+            return true;
+        } catch (RuntimeException ex) {
+            metricaEliminar.fallo();
+            throw ex;
+        } finally {
+            metricaEliminar.terminar(inicio);
         }
-        System.out.println("Incidencia no encontrada.");
     }
-    
+
 
     /**
      * Resuelve una incidencia pendiente.
@@ -157,32 +511,64 @@ public class Logica {
      * @param scanner         El objeto Scanner para recibir entrada del usuario.
      */
     public void resolverIncidencia(String codigoResolver, Scanner scanner) {
-        // Verifica si el formato del código proporcionado es correcto
-        if (!codigoResolver.matches("^\\d{2}/\\d{2}/\\d{4}-\\d{2}:\\d{2}-\\d+$")) {
-            System.out.println("Formato incorrecto, formato correcto: XX/XX/XXXX-XX:XX-X");
+        // Comprueba la incidencia antes de pedir la resolución
+        Incidencia incidencia = buscarParaCambio(codigoResolver);
+        if (incidencia == null) {
+            return;
+        }
+        if (!incidencia.getEstado().puedeCambiarA(EstadoIncidencia.RESUELTA)) {
+            System.out.println(mensajeNoResoluble(incidencia));
             return;
         }
 
-        for (Incidencia incidencia : incidencias) {
-            if (incidencia != null && incidencia.getCodigo().equals(codigoResolver)) {
-                if (!incidencia.getEstado().equals("resuelta")) {
-                    LocalDateTime fechaResolucion = LocalDateTime.now();
-                    incidencia.setEstado("resuelta");
-                    incidencia.setFechaResolucion(fechaResolucion);
-
-                    System.out.println("Ingrese la descripción de la resolución:");
-                    String resolucion = scanner.nextLine();
-                    incidencia.setResolucion(resolucion);
-                    System.out.println("Incidencia resuelta con éxito.");
-                } else {
-                    System.out.println("La incidencia ya está resuelta.");
+        System.out.println("Ingrese la descripción de la resolución:");
+        String resolucion = scanner.nextLine();
+        resolverIncidencia(codigoResolver, resolucion);
+    }
+
+    /**
+     * Resuelve una incidencia pendiente con la resolución indicada.
+     * 
+     * @param codigoResolver El código de la incidencia a resolver.
+     * @param resolucion     La descripción de la resolución.
+     * @return true si se ha resuelto la incidencia.
+     */
+    public boolean resolverIncidencia(String codigoResolver, String resolucion) {
+        long inicio = metricaResolver.iniciar();
+        try {
+            Incidencia incidencia = buscarParaCambio(codigoResolver);
+            if (incidencia == null) {
+                return false;
+            }
+
+            synchronized (cerrojo(codigoResolver)) {
+                if (!incidencia.getEstado().puedeCambiarA(EstadoIncidencia.RESUELTA)) {
+                    System.out.println(mensajeNoResoluble(incidencia));
+                    return false;
                 }
-                return;
+                LocalDateTime fechaResolucion = LocalDateTime.now(reloj);
+                indiceFechas.quitar(incidencia);
+                indicePuestos.quitar(incidencia);
+                estadisticas.quitar(incidencia);
+                cambiarEstado(incidencia, EstadoIncidencia.RESUELTA);
+                incidencia.setFechaResolucion(fechaResolucion);
+                incidencia.setResolucion(resolucion);
+                indiceTexto.indexar(incidencia);
+                indiceFechas.anadir(incidencia);
+                indicePuestos.anadir(incidencia);
+                estadisticas.anadir(incidencia);
+                guardar(incidencia);
             }
+            System.out.println("Incidencia resuelta con éxito.");
+            return true;
+        } catch (RuntimeException ex) {
+            metricaResolver.fallo();
+            throw ex;
+        } finally {
+            metricaResolver.terminar(inicio);
         }
-        System.out.println("Incidencia no encontrada.");
     }
-    
+
 
     /**
      * Modifica la descripción de la resolución de una incidencia ya resuelta.
@@ -191,109 +577,507 @@ public class Logica {
      * @param scanner          El objeto Scanner para recibir entrada del usuario.
      */
     public void modificarIncidenciaResuelta(String codigoModificar, Scanner scanner) {
-        // Verifica si el código tiene el formato correcto antes de buscar la incidencia
-        if (!codigoModificar.matches("^\\d{2}/\\d{2}/\\d{4}-\\d{2}:\\d{2}-\\d+$")) {
-            System.out.println("Formato incorrecto, formato correcto: XX/XX/XXXX-XX:XX-X");
+        // Comprueba la incidencia antes de pedir la nueva resolución
+        Incidencia incidencia = buscarParaCambio(codigoModificar);
+        if (incidencia == null) {
+            return;
+        }
+        if (incidencia.getEstado() != EstadoIncidencia.RESUELTA) {
+            System.out.println("La incidencia no está resuelta.");
             return;
         }
 
-        for (Incidencia incidencia : incidencias) {
-            if (incidencia != null && incidencia.getCodigo().equals(codigoModificar)) {
-                if (incidencia.getEstado().equals("resuelta")) {
-                    System.out.println("Ingrese la nueva descripción de la resolución:");
-                    String nuevaResolucion = scanner.nextLine();
-                    incidencia.setResolucion(nuevaResolucion);
-                    System.out.println("Incidencia resuelta modificada con éxito.");
-                } else {
+        System.out.println("Ingrese la nueva descripción de la resolución:");
+        String nuevaResolucion = scanner.nextLine();
+        modificarIncidenciaResuelta(codigoModificar, nuevaResolucion);
+    }
+
+    /**
+     * Modifica la descripción de la resolución de una incidencia ya resuelta.
+     * 
+     * @param codigoModificar El código de la incidencia a modificar.
+     * @param nuevaResolucion La nueva descripción de la resolución.
+     * @return true si se ha modificado la resolución.
+     */
+    public boolean modificarIncidenciaResuelta(String codigoModificar, String nuevaResolucion) {
+        long inicio = metricaModificarResuelta.iniciar();
+        try {
+            Incidencia incidencia = buscarParaCambio(codigoModificar);
+            if (incidencia == null) {
+                return false;
+            }
+
+            synchronized (cerrojo(codigoModificar)) {
+                if (incidencia.getEstado() != EstadoIncidencia.RESUELTA) {
                     System.out.println("La incidencia no está resuelta.");
+                    return false;
                 }
-                return;
+                incidencia.setResolucion(nuevaResolucion);
+                indiceTexto.indexar(incidencia);
+                guardar(incidencia);
             }
+            System.out.println("Incidencia resuelta modificada con éxito.");
+            return true;
+        } catch (RuntimeException ex) {
+            metricaModificarResuelta.fallo();
+            throw ex;
+        } finally {
+            metricaModificarResuelta.terminar(inicio);
         }
-        System.out.println("Incidencia no encontrada.");
     }
 
-    
+
     /**
      * Devuelve una incidencia resuelta a estado pendiente.
      * 
      * @param codigoDevolver El código de la incidencia a devolver.
+     * @return true si se ha devuelto la incidencia.
+     */
+    public boolean devolverIncidenciaResuelta(String codigoDevolver) {
+        long inicio = metricaDevolver.iniciar();
+        try {
+            Incidencia incidencia = buscarParaCambio(codigoDevolver);
+            if (incidencia == null) {
+                return false;
+            }
+
+            synchronized (cerrojo(codigoDevolver)) {
+                if (!incidencia.getEstado().puedeCambiarA(EstadoIncidencia.PENDIENTE)) {
+                    System.out.println("La incidencia no está resuelta.");
+                    return false;
+                }
+                indiceFechas.quitar(incidencia);
+                indicePuestos.quitar(incidencia);
+                estadisticas.quitar(incidencia);
+                cambiarEstado(incidencia, EstadoIncidencia.PENDIENTE);
+                incidencia.setFechaResolucion(null);
+                incidencia.setResolucion(null);
+                indiceTexto.indexar(incidencia);
+                indiceFechas.anadir(incidencia);
+                indicePuestos.anadir(incidencia);
+                estadisticas.anadir(incidencia);
+                guardar(incidencia);
+            }
+            System.out.println("Incidencia devuelta a pendiente con éxito.");
+            return true;
+        } catch (RuntimeException ex) {
+            metricaDevolver.fallo();
+            throw ex;
+        } finally {
+            metricaDevolver.terminar(inicio);
+        }
+    }
+
+
+    /**
+     * Obtiene el mensaje que se muestra cuando una incidencia no se puede resolver.
+     * 
+     * @param incidencia La incidencia que no se puede resolver.
+     * @return El mensaje según su estado.
      */
-    public void devolverIncidenciaResuelta(String codigoDevolver) {
-        // Verifica el formato del código antes de continuar
-        if (!codigoDevolver.matches("^\\d{2}/\\d{2}/\\d{4}-\\d{2}:\\d{2}-\\d+$")) {
+    private String mensajeNoResoluble(Incidencia incidencia) {
+        return incidencia.getEstado() == EstadoIncidencia.RESUELTA ? "La incidencia ya está resuelta."
+                : "No se puede resolver una incidencia eliminada.";
+    }
+
+
+    /**
+     * Comprueba el formato del código y busca la incidencia que se va a cambiar, mostrando
+     * el mensaje correspondiente si no se puede.
+     * 
+     * @param codigo El código de la incidencia.
+     * @return La incidencia, o null si el formato es incorrecto o no se encuentra.
+     */
+    private Incidencia buscarParaCambio(String codigo) {
+        // Verifica si el formato del código proporcionado es correcto
+        if (!CodigoIncidencia.esValido(codigo)) {
             System.out.println("Formato incorrecto, formato correcto: XX/XX/XXXX-XX:XX-X");
-            return;
+            return null;
         }
 
-        for (Incidencia incidencia : incidencias) {
-            if (incidencia != null && incidencia.getCodigo().equals(codigoDevolver)) {
-                if (incidencia.getEstado().equals("resuelta")) {
-                    incidencia.setEstado("pendiente");
-                    incidencia.setFechaResolucion(null);
-                    incidencia.setResolucion(null);
-                    System.out.println("Incidencia devuelta a pendiente con éxito.");
-                } else {
-                    System.out.println("La incidencia no está resuelta.");
+        Incidencia incidencia = recuperar(codigo);
+        if (incidencia == null) {
+            System.out.println("Incidencia no encontrada.");
+        }
+        return incidencia;
+    }
+
+
+    /**
+     * Obtiene el objeto de una incidencia para cambiarla. Si está en el historial, crea su objeto,
+     * lo añade a los índices y la quita del historial.
+     * 
+     * @param codigo El código de la incidencia, con formato correcto.
+     * @return La incidencia, o null si no se encuentra.
+     */
+    private Incidencia recuperar(String codigo) {
+        Incidencia incidencia = indicePorCodigo.get(codigo);
+        if (incidencia != null || historial == null) {
+            return incidencia;
+        }
+        synchronized (cerrojo(codigo)) {
+            incidencia = indicePorCodigo.get(codigo);
+            if (incidencia == null) {
+                incidencia = historial.obtener(codigo);
+                if (incidencia != null) {
+                    // Se indexa antes de quitarla del historial para que las búsquedas siempre la encuentren
+                    indexar(CodigoIncidencia.parse(codigo), incidencia);
+                    historial.quitar(codigo);
                 }
-                return;
             }
         }
-        System.out.println("Incidencia no encontrada.");
+        return incidencia;
     }
 
 
     /**
-     * Obtiene todas las incidencias pendientes.
+     * Obtiene el día actual según el reloj de la lógica.
      * 
-     * @return Lista de incidencias pendientes.
+     * @return La fecha de hoy.
      */
-    public List<Incidencia> obtenerIncidenciasPendientes() {
-        List<Incidencia> incidenciasPendientes = new ArrayList<>();
+    LocalDate hoy() {
+        return LocalDate.now(reloj);
+    }
 
-        for (Incidencia incidencia : incidencias) {
-            if (incidencia != null && incidencia.getEstado().equals("pendiente")) {
-                incidenciasPendientes.add(incidencia);
+
+    /**
+     * Obtiene el cerrojo de la franja a la que pertenece un código.
+     * 
+     * @param codigo El código de la incidencia.
+     * @return El cerrojo de su franja.
+     */
+    private Object cerrojo(String codigo) {
+        int h = codigo.hashCode();
+        return cerrojos[(h ^ (h >>> 16)) & (NUMERO_FRANJAS - 1)];
+    }
+
+
+    /**
+     * Obtiene el siguiente número de la secuencia diaria sin bloqueos. El día guardado nunca retrocede: si
+     * otro hilo ya ha pasado a un día posterior, se continúa la secuencia de ese día.
+     * 
+     * @param dia El día del registro como epoch day.
+     * @return El día asignado en los 32 bits altos y el número de secuencia en los bajos.
+     */
+    private long siguienteSecuencia(long dia) {
+        while (true) {
+            long actual = secuenciaDiaria.get();
+            // Reinicia el contador si es un nuevo día
+            long siguiente = (actual >>> 32) >= dia ? actual + 1 : (dia << 32) | 1;
+            if (secuenciaDiaria.compareAndSet(actual, siguiente)) {
+                return siguiente;
             }
         }
+    }
+
 
-        return incidenciasPendientes;
+    /**
+     * Hace que la secuencia diaria continúe, como mínimo, a partir del número indicado.
+     * 
+     * @param dia       El día como epoch day.
+     * @param secuencia El número de secuencia ya usado.
+     */
+    private void avanzarSecuencia(long dia, int secuencia) {
+        while (true) {
+            long actual = secuenciaDiaria.get();
+            // Un día anterior al guardado ya no puede repetir códigos y no debe hacer retroceder el contador
+            if ((actual >>> 32) > dia || ((actual >>> 32) == dia && (int) actual >= secuencia)) {
+                return;
+            }
+            if (secuenciaDiaria.compareAndSet(actual, (dia << 32) | secuencia)) {
+                return;
+            }
+        }
     }
 
 
     /**
-     * Obtiene todas las incidencias resueltas.
+     * Envía los cambios de una incidencia a la escritura diferida, si la hay. Debe llamarse con el cerrojo de
+     * su franja, para que la copia que se encola no vea la incidencia a medio cambiar y los cambios de la misma
+     * incidencia se encolen en el orden en que se hicieron.
      * 
-     * @return Lista de incidencias resueltas.
+     * @param incidencia La incidencia modificada.
      */
-    public List<Incidencia> obtenerIncidenciasResueltas() {
-        List<Incidencia> incidenciasResueltas = new ArrayList<>();
+    private void guardar(Incidencia incidencia) {
+        if (persistencia != null) {
+            persistencia.registrarCambio(incidencia);
+        }
+    }
+
+
+    /**
+     * Guarda los cambios pendientes y detiene la escritura diferida, si la hay.
+     */
+    public void cerrar() {
+        if (persistencia != null) {
+            persistencia.close();
+        }
+    }
+
+
+    /**
+     * Carga en memoria incidencias ya guardadas, sin volver a enviarlas a la base de datos.
+     * Si alguna es de hoy, el contador diario continúa a partir de su secuencia para no repetir códigos.
+     * 
+     * @param cargadas Las incidencias a cargar.
+     */
+    public void cargarIncidencias(Collection<Incidencia> cargadas) {
+        long inicio = metricaCargar.iniciar();
+        try {
+            anadirExistentes(cargadas, false);
+        } catch (RuntimeException ex) {
+            metricaCargar.fallo();
+            throw ex;
+        } finally {
+            metricaCargar.terminar(inicio);
+        }
+    }
+
+
+    /**
+     * Añade incidencias traídas de fuera, por ejemplo de un fichero CSV, con su código y sus fechas
+     * originales, y las envía a la base de datos en lotes junto con las altas normales.
+     * Se ignoran las que tienen un código incorrecto o que ya existe.
+     * 
+     * @param importadas Las incidencias a añadir.
+     * @return El número de incidencias añadidas.
+     */
+    public int importarIncidencias(Collection<Incidencia> importadas) {
+        long inicio = metricaImportar.iniciar();
+        try {
+            return anadirExistentes(importadas, true);
+        } catch (RuntimeException ex) {
+            metricaImportar.fallo();
+            throw ex;
+        } finally {
+            metricaImportar.terminar(inicio);
+        }
+    }
+
 
+    /**
+     * Añade a memoria incidencias que ya tienen código y, si se indica, las registra como altas en la persistencia.
+     * 
+     * @param incidencias Las incidencias a añadir.
+     * @param guardar     true para guardarlas también en la base de datos.
+     * @return El número de incidencias añadidas.
+     */
+    private int anadirExistentes(Collection<Incidencia> incidencias, boolean guardar) {
+        int anadidas = 0;
+        LocalDate hoy = hoy();
+        long marcaHoy = (hoy.getYear() * 100L + hoy.getMonthValue()) * 100 + hoy.getDayOfMonth();
         for (Incidencia incidencia : incidencias) {
-            if (incidencia != null && incidencia.getEstado().equals("resuelta")) {
-                incidenciasResueltas.add(incidencia);
+            CodigoIncidencia codigo;
+            try {
+                codigo = CodigoIncidencia.parse(incidencia.getCodigo());
+            } catch (IllegalArgumentException ex) {
+                System.out.println("Se ignora la incidencia con código incorrecto: " + incidencia.getCodigo());
+                continue;
+            }
+            if (incidencia.getEstado() == null || indicePorCodigo.containsKey(codigo.getCodigo())
+                    || !publicar(codigo, incidencia)) {
+                continue;
+            }
+
+            // marcaTemporal es yyyyMMddHHmm, al quitar hora y minuto queda el día
+            if (codigo.getMarcaTemporal() / 10000 == marcaHoy) {
+                avanzarSecuencia(hoy.toEpochDay(), codigo.getSecuencia());
+            }
+            if (guardar && persistencia != null) {
+                // Ya está publicada y otro hilo puede estar cambiándola
+                synchronized (cerrojo(codigo.getCodigo())) {
+                    persistencia.registrarAlta(incidencia);
+                }
             }
+            anadidas++;
         }
+        return anadidas;
+    }
+
+
+    /**
+     * Añade una incidencia ya existente a su grupo, a los totales y a los índices, o al historial si está
+     * cerrada. Todo se hace con el cerrojo de su franja: un cambio que la encuentre por su código espera
+     * al cerrojo, así que nunca la ve a medio añadir ni deja los índices con el estado anterior.
+     * 
+     * @param codigo     El código ya analizado de la incidencia.
+     * @param incidencia La incidencia a añadir.
+     * @return true si se ha añadido, false si su código ya existía.
+     */
+    private boolean publicar(CodigoIncidencia codigo, Incidencia incidencia) {
+        synchronized (cerrojo(codigo.getCodigo())) {
+            EstadoIncidencia estado = incidencia.getEstado();
+            if (historial != null && estado != EstadoIncidencia.PENDIENTE) {
+                // Las cerradas van al historial; si su código no cabe en columnas se guardan como objeto
+                if (indicePorCodigo.containsKey(codigo.getCodigo()) || historial.contiene(codigo.getCodigo())) {
+                    return false;
+                }
+                if (!historial.anadir(incidencia) && !indexar(codigo, incidencia)) {
+                    return false;
+                }
+            } else if (!indexar(codigo, incidencia)) {
+                return false;
+            }
+            indiceTexto.indexar(incidencia);
+            indiceFechas.anadir(incidencia);
+            indicePuestos.anadir(incidencia);
+            estadisticas.anadir(incidencia);
+            return true;
+        }
+    }
+
+
+    /**
+     * Añade una incidencia nueva al índice por código y al grupo de su estado, si su código no existe ya.
+     * 
+     * @param codigo     El código ya analizado de la incidencia.
+     * @param incidencia La incidencia a añadir.
+     * @return true si se ha añadido, false si ya había otra incidencia con el mismo código.
+     */
+    private boolean indexar(CodigoIncidencia codigo, Incidencia incidencia) {
+        if (indicePorCodigo.putIfAbsent(codigo.getCodigo(), incidencia) != null) {
+            return false;
+        }
+        incidenciasPorEstado.get(incidencia.getEstado()).put(codigo, incidencia);
+        totalesPorEstado.get(incidencia.getEstado()).incrementAndGet();
+        return true;
+    }
+
+
+    /**
+     * Cambia el estado de una incidencia y la traslada al grupo del nuevo estado.
+     * Se llama con el cerrojo de la franja de la incidencia tomado.
+     * 
+     * @param incidencia  La incidencia cuyo estado cambia.
+     * @param nuevoEstado El nuevo estado de la incidencia.
+     */
+    private void cambiarEstado(Incidencia incidencia, EstadoIncidencia nuevoEstado) {
+        CodigoIncidencia codigo = CodigoIncidencia.parse(incidencia.getCodigo());
+        EstadoIncidencia estadoAnterior = incidencia.getEstado();
+        if (!estadoAnterior.puedeCambiarA(nuevoEstado)) {
+            throw new IllegalStateException("Transición no permitida: " + estadoAnterior + " -> " + nuevoEstado);
+        }
+        incidenciasPorEstado.get(estadoAnterior).remove(codigo);
+        totalesPorEstado.get(estadoAnterior).decrementAndGet();
+        incidencia.setEstado(nuevoEstado);
+        incidenciasPorEstado.get(nuevoEstado).put(codigo, incidencia);
+        totalesPorEstado.get(nuevoEstado).incrementAndGet();
+    }
+
+
+    /**
+     * Obtiene todas las incidencias pendientes.
+     * 
+     * @return Vista de solo lectura de las incidencias pendientes.
+     */
+    public Collection<Incidencia> obtenerIncidenciasPendientes() {
+        return Collections.unmodifiableCollection(incidenciasPorEstado.get(EstadoIncidencia.PENDIENTE).values());
+    }
 
-        return incidenciasResueltas;
+
+    /**
+     * Obtiene todas las incidencias resueltas.
+     * 
+     * @return Vista de solo lectura de las incidencias resueltas.
+     */
+    public Collection<Incidencia> obtenerIncidenciasResueltas() {
+        return cerradas(EstadoIncidencia.RESUELTA);
     }
 
 
     /**
      * Obtiene todas las incidencias eliminadas.
      * 
-     * @return Lista de incidencias eliminadas.
+     * @return Vista de solo lectura de las incidencias eliminadas.
      */
-    public List<Incidencia> obtenerIncidenciasEliminadas() {
-        List<Incidencia> incidenciasEliminadas = new ArrayList<>();
+    public Collection<Incidencia> obtenerIncidenciasEliminadas() {
+        return cerradas(EstadoIncidencia.ELIMINADA);
+    }
 
-        for (Incidencia incidencia : incidencias) {
-            if (incidencia != null && incidencia.getEstado().equals("eliminada")) {
-                incidenciasEliminadas.add(incidencia);
-            }
+
+    /**
+     * Obtiene las incidencias cerradas de un estado: las que están como objeto y, si hay historial,
+     * las del historial, mezcladas en orden cronológico.
+     * 
+     * @param estado El estado de las incidencias.
+     * @return Vista de solo lectura de las incidencias.
+     */
+    private Collection<Incidencia> cerradas(EstadoIncidencia estado) {
+        ConcurrentSkipListMap<CodigoIncidencia, Incidencia> enMemoria = incidenciasPorEstado.get(estado);
+        if (historial == null) {
+            return Collections.unmodifiableCollection(enMemoria.values());
         }
+        Collection<Incidencia> enHistorial = historial.incidencias(estado);
+        return new AbstractCollection<Incidencia>() {
+            @Override
+            public Iterator<Incidencia> iterator() {
+                return new Iterator<Incidencia>() {
+                    private final Iterator<Map.Entry<CodigoIncidencia, Incidencia>> objetos = enMemoria.entrySet().iterator();
+                    private final Iterator<Incidencia> columnas = enHistorial.iterator();
+                    private Map.Entry<CodigoIncidencia, Incidencia> objeto = objetos.hasNext() ? objetos.next() : null;
+                    private Incidencia columna = columnas.hasNext() ? columnas.next() : null;
+                    private CodigoIncidencia codigoColumna = columna != null ? CodigoIncidencia.parse(columna.getCodigo()) : null;
 
-        return incidenciasEliminadas;
+                    @Override
+                    public boolean hasNext() {
+                        return objeto != null || columna != null;
+                    }
+
+                    @Override
+                    public Incidencia next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        if (columna == null || (objeto != null && objeto.getKey().compareTo(codigoColumna) <= 0)) {
+                            Incidencia siguiente = objeto.getValue();
+                            objeto = objetos.hasNext() ? objetos.next() : null;
+                            return siguiente;
+                        }
+                        Incidencia siguiente = columna;
+                        columna = columnas.hasNext() ? columnas.next() : null;
+                        codigoColumna = columna != null ? CodigoIncidencia.parse(columna.getCodigo()) : null;
+                        return siguiente;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return enMemoria.size() + enHistorial.size();
+            }
+        };
+    }
+
+
+    /**
+     * Cuenta las incidencias pendientes.
+     * 
+     * @return Número de incidencias pendientes.
+     */
+    public int contarIncidenciasPendientes() {
+        return totalesPorEstado.get(EstadoIncidencia.PENDIENTE).get();
+    }
+
+
+    /**
+     * Cuenta las incidencias resueltas.
+     * 
+     * @return Número de incidencias resueltas.
+     */
+    public int contarIncidenciasResueltas() {
+        return totalesPorEstado.get(EstadoIncidencia.RESUELTA).get()
+                + (historial != null ? historial.contar(EstadoIncidencia.RESUELTA) : 0);
+    }
+
+
+    /**
+     * Cuenta las incidencias eliminadas.
+     * 
+     * @return Número de incidencias eliminadas.
+     */
+    public int contarIncidenciasEliminadas() {
+        return totalesPorEstado.get(EstadoIncidencia.ELIMINADA).get()
+                + (historial != null ? historial.contar(EstadoIncidencia.ELIMINADA) : 0);
     }
 
 
@@ -1,18 +1,76 @@
 package aplicacion;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Properties;
+import metricas.Metricas;
+import persistencia.ConfiguracionPersistencia;
+import persistencia.RepositorioIncidencias;
 import presentacion.Interfaz;
+import presentacion.ServidorHttp;
 
 /**
  * Clase principal que inicia la aplicación.
  */
 public class Main {
+    private static final long INTERVALO_VOLCADO_MS = 1000;
+    private static final int MAXIMO_CAMBIOS_PENDIENTES = 10000;
+    private static final int TRAMOS_CARGA = 4;
+
     /**
      * Método principal que inicia la aplicación.
      * @param args Los argumentos de la línea de comandos (no se utilizan en este caso).
      */
     public static void main(String[] args) {
+        long inicio = System.nanoTime();
+
+        // El almacenamiento se elige en incidencias.properties, o en el fichero indicado con -Dincidencias.configuracion
+        Properties configuracion = ConfiguracionPersistencia.cargar(
+                Paths.get(System.getProperty("incidencias.configuracion", "incidencias.properties")));
+        RepositorioIncidencias dao = ConfiguracionPersistencia.abrirRepositorio(configuracion);
+
+        // Se crea la lógica, que guarda los cambios en segundo plano
+        // y mantiene en columnas el historial de incidencias cerradas
+        HistorialColumnar historialColumnar = new HistorialColumnar();
+        Logica logica = new Logica(new EscrituraDiferida(dao, INTERVALO_VOLCADO_MS, MAXIMO_CAMBIOS_PENDIENTES),
+                historialColumnar);
+
+        // Las métricas se consultan por JMX, desde el menú o en /metricas
+        Metricas metricas = Metricas.global();
+        metricas.indicador("logica.pendientes", logica::contarIncidenciasPendientes);
+        metricas.indicador("logica.resueltas", logica::contarIncidenciasResueltas);
+        metricas.indicador("logica.eliminadas", logica::contarIncidenciasEliminadas);
+        metricas.indicador("logica.palabrasIndexadas", logica::contarPalabrasIndexadas);
+        metricas.indicador("historial.incidencias", historialColumnar::getTamano);
+        metricas.indicador("historial.bytes", historialColumnar::getBytesOcupados);
+        metricas.registrarEnJmx();
+
+        // Se cargan las incidencias guardadas: las pendientes y las cerradas de hoy antes de atender a nadie,
+        // para no repetir códigos del día, y el resto del historial en segundo plano
+        CargadorInicial cargador = new CargadorInicial(dao, logica, TRAMOS_CARGA);
+        int pendientes = cargador.cargarPendientes();
+        int cerradasHoy = cargador.cargarCerradasDeHoy();
+
+        // Si se ha configurado un puerto, la lógica también se atiende por HTTP
+        ServidorHttp servidor = abrirServidor(configuracion, logica);
+
+        // Al terminar el programa, incluso con Ctrl+C, se guardan los cambios pendientes
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (servidor != null) {
+                servidor.close();
+            }
+            logica.cerrar();
+            dao.cerrarConexion();
+        }));
+
+        System.out.println(pendientes + " incidencias pendientes y " + cerradasHoy
+                + " cerradas de hoy cargadas; menú disponible en " + (System.nanoTime() - inicio) / 1_000_000 + " ms.");
+        cargador.cargarHistorialEnSegundoPlano().thenAccept(historial -> System.out.println(historial
+                + " incidencias resueltas y eliminadas cargadas en " + (System.nanoTime() - inicio) / 1_000_000 + " ms ("
+                + historialColumnar.getBytesOcupados() / 1024 + " KiB en el historial)."));
+
         // Se crea una instancia de la interfaz de usuario, pasando la lógica como parámetro
-        Interfaz interfaz = new Interfaz(new Logica());
+        Interfaz interfaz = new Interfaz(logica);
 
         // Se imprime el mensaje de bienvenida
         Interfaz.imprimirBienvenida();
@@ -20,4 +78,34 @@ public class Main {
         // Se muestra el menú principal de la interfaz
         Interfaz.mostrarMenu(interfaz);
     }
+
+    /**
+     * Arranca el servidor HTTP si la propiedad http.puerto es mayor que 0.
+     * @param configuracion La configuración leída de incidencias.properties.
+     * @param logica La lógica que atiende el servidor.
+     * @return El servidor arrancado, o null si no se ha configurado o no se ha podido abrir el puerto.
+     */
+    private static ServidorHttp abrirServidor(Properties configuracion, Logica logica) {
+        int puerto = Integer.parseInt(configuracion.getProperty("http.puerto", "0").trim());
+        if (puerto <= 0) {
+            return null;
+        }
+        int hilos = Integer.parseInt(configuracion.getProperty("http.hilos", "16").trim());
+        // Sin TCP_NODELAY el último trozo de cada respuesta espera al ACK retrasado del cliente (unos 40 ms).
+        // El servidor de la JDK lee esta propiedad una sola vez, así que debe ponerse antes de crear el primero;
+        // se respeta el valor si se ha indicado al arrancar.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        try {
+            ServidorHttp servidor = new ServidorHttp(logica, puerto, hilos);
+            servidor.iniciar();
+            System.out.println("Servidor HTTP escuchando en el puerto " + servidor.getPuerto() + ".");
+            return servidor;
+        } catch (IOException ex) {
+            System.out.println("No se ha podido abrir el servidor HTTP en el puerto " + puerto);
+            ex.printStackTrace();
+            return null;
+        }
+    }
 }
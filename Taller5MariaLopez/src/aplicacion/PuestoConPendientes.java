@@ -0,0 +1,37 @@
+package aplicacion;
+
+/**
+ * Un puesto y el número de incidencias pendientes que tiene, como aparece en el informe de los
+ * puestos con más incidencias abiertas.
+ * @author Maria
+ */
+public final class PuestoConPendientes {
+    private final int puesto;
+    private final int pendientes;
+
+    PuestoConPendientes(int puesto, int pendientes) {
+        this.puesto = puesto;
+        this.pendientes = pendientes;
+    }
+
+    /**
+     * Devuelve el número de puesto.
+     * @return El número de puesto.
+     */
+    public int getPuesto() {
+        return puesto;
+    }
+
+    /**
+     * Devuelve el número de incidencias pendientes del puesto.
+     * @return El número de incidencias pendientes.
+     */
+    public int getPendientes() {
+        return pendientes;
+    }
+
+    @Override
+    public String toString() {
+        return "Puesto " + puesto + ": " + pendientes + " pendientes";
+    }
+}
@@ -0,0 +1,66 @@
+package aplicacion;
+
+import java.time.Duration;
+
+/**
+ * Estadísticas del tiempo que tardan en resolverse las incidencias (de la fecha de registro a la de
+ * resolución): número de incidencias, media, mediana y percentil 95.
+ * La mediana y el percentil son aproximados, con un error relativo menor del 2 %; la media es exacta
+ * a nivel de segundos.
+ * @author Maria
+ */
+public final class TiemposResolucion {
+    private final long total;
+    private final Duration media;
+    private final Duration mediana;
+    private final Duration percentil95;
+
+    TiemposResolucion(long total, Duration media, Duration mediana, Duration percentil95) {
+        this.total = total;
+        this.media = media;
+        this.mediana = mediana;
+        this.percentil95 = percentil95;
+    }
+
+    /**
+     * Devuelve el número de incidencias resueltas.
+     * @return El número de incidencias.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Devuelve el tiempo medio de resolución.
+     * @return La media, o cero si no hay incidencias.
+     */
+    public Duration getMedia() {
+        return media;
+    }
+
+    /**
+     * Devuelve la mediana del tiempo de resolución.
+     * @return La mediana, o cero si no hay incidencias.
+     */
+    public Duration getMediana() {
+        return mediana;
+    }
+
+    /**
+     * Devuelve el tiempo en el que se resuelven el 95 % de las incidencias.
+     * @return El percentil 95, o cero si no hay incidencias.
+     */
+    public Duration getPercentil95() {
+        return percentil95;
+    }
+
+    @Override
+    public String toString() {
+        return total + " resueltas, media " + formato(media) + ", mediana " + formato(mediana) + ", p95 " + formato(percentil95);
+    }
+
+    private static String formato(Duration duracion) {
+        long segundos = duracion.getSeconds();
+        return String.format("%dh %02dm %02ds", segundos / 3600, segundos / 60 % 60, segundos % 60);
+    }
+}
@@ -0,0 +1,181 @@
+package dominio;
+
+import java.time.LocalDateTime;
+
+/**
+ * Clase que representa el código de una incidencia con el formato dd/MM/yyyy-HH:mm-N.
+ * Valida el formato sin expresiones regulares y guarda la fecha y hora y la secuencia
+ * diaria como valores primitivos para poder comparar y ordenar códigos sin volver a
+ * analizar el texto.
+ * @author Maria
+ */
+public final class CodigoIncidencia implements Comparable<CodigoIncidencia> {
+    private static final int LONGITUD_MINIMA = 18; // "dd/MM/yyyy-HH:mm-N"
+    private static final int INICIO_SECUENCIA = 17;
+
+    private final String codigo;
+    private final long marcaTemporal;
+    private final int secuencia;
+
+    /**
+     * Constructor privado, se usan los métodos parse y de.
+     * @param codigo        El código en formato texto.
+     * @param marcaTemporal La fecha y hora del código con la forma yyyyMMddHHmm.
+     * @param secuencia     La secuencia diaria del código.
+     */
+    private CodigoIncidencia(String codigo, long marcaTemporal, int secuencia) {
+        this.codigo = codigo;
+        this.marcaTemporal = marcaTemporal;
+        this.secuencia = secuencia;
+    }
+
+    /**
+     * Comprueba si un texto tiene el formato de código dd/MM/yyyy-HH:mm-N sin crear objetos.
+     * Equivale a la expresión ^\d{2}/\d{2}/\d{4}-\d{2}:\d{2}-\d+$.
+     * @param codigo El texto a comprobar.
+     * @return true si el formato es correcto, false en caso contrario.
+     */
+    public static boolean esValido(CharSequence codigo) {
+        if (codigo == null || codigo.length() < LONGITUD_MINIMA) {
+            return false;
+        }
+        return sonDigitos(codigo, 0, 2) && codigo.charAt(2) == '/'
+                && sonDigitos(codigo, 3, 5) && codigo.charAt(5) == '/'
+                && sonDigitos(codigo, 6, 10) && codigo.charAt(10) == '-'
+                && sonDigitos(codigo, 11, 13) && codigo.charAt(13) == ':'
+                && sonDigitos(codigo, 14, 16) && codigo.charAt(16) == '-'
+                && sonDigitos(codigo, INICIO_SECUENCIA, codigo.length());
+    }
+
+    /**
+     * Analiza un código de incidencia.
+     * @param codigo El código en formato dd/MM/yyyy-HH:mm-N.
+     * @return El código analizado.
+     * @throws IllegalArgumentException si el formato no es correcto o la secuencia no cabe en un int.
+     */
+    public static CodigoIncidencia parse(String codigo) {
+        if (!esValido(codigo)) {
+            throw new IllegalArgumentException("Formato incorrecto, formato correcto: XX/XX/XXXX-XX:XX-X");
+        }
+        long dia = leerNumero(codigo, 0, 2);
+        long mes = leerNumero(codigo, 3, 5);
+        long anio = leerNumero(codigo, 6, 10);
+        long hora = leerNumero(codigo, 11, 13);
+        long minuto = leerNumero(codigo, 14, 16);
+        long secuencia = leerNumero(codigo, INICIO_SECUENCIA, codigo.length());
+        if (secuencia > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Secuencia fuera de rango: " + codigo);
+        }
+        long marcaTemporal = (((anio * 100 + mes) * 100 + dia) * 100 + hora) * 100 + minuto;
+        return new CodigoIncidencia(codigo, marcaTemporal, (int) secuencia);
+    }
+
+    /**
+     * Crea el código correspondiente a una fecha de registro y una secuencia diaria.
+     * @param fecha     La fecha y hora de registro.
+     * @param secuencia La secuencia diaria.
+     * @return El código creado.
+     */
+    public static CodigoIncidencia de(LocalDateTime fecha, int secuencia) {
+        StringBuilder sb = new StringBuilder(LONGITUD_MINIMA + 4);
+        escribirDosDigitos(sb, fecha.getDayOfMonth()).append('/');
+        escribirDosDigitos(sb, fecha.getMonthValue()).append('/');
+        escribirDosDigitos(sb, fecha.getYear() / 100);
+        escribirDosDigitos(sb, fecha.getYear() % 100).append('-');
+        escribirDosDigitos(sb, fecha.getHour()).append(':');
+        escribirDosDigitos(sb, fecha.getMinute()).append('-');
+        sb.append(secuencia);
+        long marcaTemporal = (((fecha.getYear() * 100L + fecha.getMonthValue()) * 100 + fecha.getDayOfMonth()) * 100
+                + fecha.getHour()) * 100 + fecha.getMinute();
+        return new CodigoIncidencia(sb.toString(), marcaTemporal, secuencia);
+    }
+
+    private static boolean sonDigitos(CharSequence texto, int desde, int hasta) {
+        if (desde >= hasta) {
+            return false;
+        }
+        for (int i = desde; i < hasta; i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long leerNumero(CharSequence texto, int desde, int hasta) {
+        long valor = 0;
+        for (int i = desde; i < hasta; i++) {
+            valor = valor * 10 + (texto.charAt(i) - '0');
+            if (valor > Integer.MAX_VALUE) {
+                return Long.MAX_VALUE; // Evita el desbordamiento en secuencias muy largas
+            }
+        }
+        return valor;
+    }
+
+    private static StringBuilder escribirDosDigitos(StringBuilder sb, int valor) {
+        return sb.append((char) ('0' + valor / 10)).append((char) ('0' + valor % 10));
+    }
+
+    /**
+     * Ordenación cronológica: primero por fecha y hora y después por secuencia diaria.
+     */
+    @Override
+    public int compareTo(CodigoIncidencia o) {
+        int resultado = Long.compare(marcaTemporal, o.marcaTemporal);
+        if (resultado == 0) {
+            resultado = Integer.compare(secuencia, o.secuencia);
+        }
+        return resultado != 0 ? resultado : codigo.compareTo(o.codigo);
+    }
+
+    /**
+     * hashCode y equals
+     */
+    @Override
+    public int hashCode() {
+        return codigo.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        return codigo.equals(((CodigoIncidencia) obj).codigo);
+    }
+
+    /**
+     * toString
+     */
+    @Override
+    public String toString() {
+        return codigo;
+    }
+
+	// Getters
+
+	/**
+	 * Obtiene el código en formato texto.
+	 * @return El código en formato texto.
+	 */
+	public String getCodigo() {
+		return codigo;
+	}
+
+	/**
+	 * Obtiene la fecha y hora del código como un número con la forma yyyyMMddHHmm.
+	 * @return La marca temporal del código.
+	 */
+	public long getMarcaTemporal() {
+		return marcaTemporal;
+	}
+
+	/**
+	 * Obtiene la secuencia diaria del código.
+	 * @return La secuencia diaria.
+	 */
+	public int getSecuencia() {
+		return secuencia;
+	}
+}
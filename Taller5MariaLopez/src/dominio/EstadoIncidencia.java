@@ -0,0 +1,71 @@
+package dominio;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Enumerado con los estados posibles de una incidencia y las transiciones permitidas entre ellos.
+ * Cada estado tiene un valor numérico que es el que se guarda en la base de datos.
+ * @author Maria
+ */
+public enum EstadoIncidencia {
+    PENDIENTE(0, "pendiente"),
+    RESUELTA(1, "resuelta"),
+    ELIMINADA(2, "eliminada");
+
+    private static final EstadoIncidencia[] POR_VALOR = values();
+
+    static {
+        // Tabla de transiciones: una eliminada ya no puede cambiar de estado
+        PENDIENTE.siguientes = EnumSet.of(RESUELTA, ELIMINADA);
+        RESUELTA.siguientes = EnumSet.of(PENDIENTE, ELIMINADA);
+        ELIMINADA.siguientes = EnumSet.noneOf(EstadoIncidencia.class);
+    }
+
+    private final byte valor;
+    private final String nombre;
+    private Set<EstadoIncidencia> siguientes;
+
+    EstadoIncidencia(int valor, String nombre) {
+        this.valor = (byte) valor;
+        this.nombre = nombre;
+    }
+
+    /**
+     * Comprueba si se permite pasar de este estado al indicado.
+     * @param destino El estado al que se quiere pasar.
+     * @return true si la transición está permitida.
+     */
+    public boolean puedeCambiarA(EstadoIncidencia destino) {
+        return siguientes.contains(destino);
+    }
+
+    /**
+     * Obtiene el estado correspondiente a un valor guardado en la base de datos.
+     * @param valor El valor numérico del estado.
+     * @return El estado correspondiente.
+     * @throws IllegalArgumentException si el valor no corresponde a ningún estado.
+     */
+    public static EstadoIncidencia desdeValor(int valor) {
+        if (valor < 0 || valor >= POR_VALOR.length) {
+            throw new IllegalArgumentException("Estado de incidencia desconocido: " + valor);
+        }
+        return POR_VALOR[valor];
+    }
+
+    /**
+     * Obtiene el valor numérico con el que se guarda el estado.
+     * @return El valor del estado.
+     */
+    public byte getValor() {
+        return valor;
+    }
+
+    /**
+     * Devuelve el nombre del estado tal y como se muestra al usuario.
+     */
+    @Override
+    public String toString() {
+        return nombre;
+    }
+}
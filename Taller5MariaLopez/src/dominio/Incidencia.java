@@ -10,7 +10,7 @@ import java.util.Objects;
  */
 public class Incidencia implements Comparable<Incidencia> {
     private String codigo;
-    private String estado;
+    private EstadoIncidencia estado;
     private int puesto;
     private String problema;
     private LocalDateTime fechaRegistro;
@@ -31,7 +31,16 @@ public class Incidencia implements Comparable<Incidencia> {
      * @param problema2 
      * @param codigo2 
      */
-    public Incidencia(String codigo2, String problema2, int puesto2, String estado2, LocalDateTime fechaRegistro2, LocalDateTime fechaResolucion2, String resolucion2, LocalDateTime fechaEliminacion2, String causaEliminacion2) {
+    public Incidencia(String codigo2, String problema2, int puesto2, EstadoIncidencia estado2, LocalDateTime fechaRegistro2, LocalDateTime fechaResolucion2, String resolucion2, LocalDateTime fechaEliminacion2, String causaEliminacion2) {
+        this.codigo = codigo2;
+        this.problema = problema2;
+        this.puesto = puesto2;
+        this.estado = estado2;
+        this.fechaRegistro = fechaRegistro2;
+        this.fechaResolucion = fechaResolucion2;
+        this.resolucion = resolucion2;
+        this.fechaEliminacion = fechaEliminacion2;
+        this.causaEliminacion = causaEliminacion2;
     }
 
     /**
@@ -54,7 +63,7 @@ public class Incidencia implements Comparable<Incidencia> {
      * @param problema
      * @param fechaRegistro
      */
-    public Incidencia(String codigo, String estado, int puesto, String problema, LocalDateTime fechaRegistro) {
+    public Incidencia(String codigo, EstadoIncidencia estado, int puesto, String problema, LocalDateTime fechaRegistro) {
         this.codigo = codigo;
         this.estado = estado;
         this.puesto = puesto;
@@ -125,7 +134,7 @@ public class Incidencia implements Comparable<Incidencia> {
 	 * @return
 	 */
 	
-	public String getEstado() {
+	public EstadoIncidencia getEstado() {
 		return estado;
 	}
 	
@@ -134,7 +143,7 @@ public class Incidencia implements Comparable<Incidencia> {
 	 * @param estado El estado de la incidencia.
 	 */
 
-	public void setEstado(String estado) {
+	public void setEstado(EstadoIncidencia estado) {
 		this.estado = estado;
 	}
 	
@@ -0,0 +1,66 @@
+package metricas;
+
+/**
+ * Resumen de una operación en un momento dado, tal como se ve por JMX.
+ * Las latencias están en microsegundos.
+ */
+public class DatosOperacion {
+    private final String nombre;
+    private final long llamadas;
+    private final long errores;
+    private final double media;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double maximo;
+
+    DatosOperacion(MetricaOperacion metrica) {
+        HistogramaLatencias latencias = metrica.getLatencias();
+        this.nombre = metrica.getNombre();
+        this.llamadas = metrica.getLlamadas();
+        this.errores = metrica.getErrores();
+        this.media = latencias.getMedia() / 1000;
+        this.p50 = latencias.percentil(0.50) / 1000.0;
+        this.p90 = latencias.percentil(0.90) / 1000.0;
+        this.p99 = latencias.percentil(0.99) / 1000.0;
+        this.p999 = latencias.percentil(0.999) / 1000.0;
+        this.maximo = latencias.getMaximo() / 1000.0;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public long getLlamadas() {
+        return llamadas;
+    }
+
+    public long getErrores() {
+        return errores;
+    }
+
+    public double getMediaMicros() {
+        return media;
+    }
+
+    public double getP50Micros() {
+        return p50;
+    }
+
+    public double getP90Micros() {
+        return p90;
+    }
+
+    public double getP99Micros() {
+        return p99;
+    }
+
+    public double getP999Micros() {
+        return p999;
+    }
+
+    public double getMaximoMicros() {
+        return maximo;
+    }
+}
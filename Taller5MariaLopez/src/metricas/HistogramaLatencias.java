@@ -0,0 +1,137 @@
+package metricas;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias en nanosegundos con cubetas logarítmico-lineales, como los histogramas HDR.
+ * Cada potencia de dos se divide en 32 cubetas iguales, así que cualquier valor se guarda con un error
+ * relativo menor del 3,2 % y el histograma ocupa un tamaño fijo (unos 9 KiB) sea cual sea el número de
+ * valores. Registrar un valor no bloquea ni crea objetos: se incrementa un contador atómico.
+ * Los valores por encima de unos 36 minutos se guardan en la última cubeta.
+ */
+public class HistogramaLatencias {
+    private static final int BITS_SUBCUBETA = 5;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int EXPONENTE_MAXIMO = 40; // 2^41 ns, unos 36 minutos
+    private static final int NUMERO_CUBETAS = (EXPONENTE_MAXIMO - BITS_SUBCUBETA + 2) * SUBCUBETAS;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(NUMERO_CUBETAS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Crea un histograma sin ningún valor registrado.
+     */
+    public HistogramaLatencias() {
+    }
+
+    /**
+     * Registra un valor.
+     * @param nanos La latencia en nanosegundos; los valores negativos se registran como 0.
+     */
+    public void registrar(long nanos) {
+        long valor = Math.max(nanos, 0);
+        cubetas.incrementAndGet(indice(valor));
+        total.increment();
+        suma.add(valor);
+        maximo.accumulate(valor);
+    }
+
+    /**
+     * Número de valores registrados.
+     * @return
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Media de los valores registrados en nanosegundos, o 0 si no hay ninguno.
+     * @return
+     */
+    public double getMedia() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) suma.sum() / n;
+    }
+
+    /**
+     * Mayor valor registrado en nanosegundos.
+     * @return
+     */
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    /**
+     * Valor por debajo del cual queda la proporción indicada de los valores registrados.
+     * @param proporcion Entre 0 y 1, por ejemplo 0.99 para el percentil 99.
+     * @return El valor en nanosegundos (el punto medio de su cubeta), o 0 si no hay valores.
+     */
+    public long percentil(double proporcion) {
+        long[] copia = new long[NUMERO_CUBETAS];
+        long n = 0;
+        for (int i = 0; i < NUMERO_CUBETAS; i++) {
+            copia[i] = cubetas.get(i);
+            n += copia[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(proporcion * n));
+        long acumulado = 0;
+        for (int i = 0; i < NUMERO_CUBETAS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) {
+                // El máximo es exacto, así que ningún percentil lo supera
+                return Math.min(limiteInferior(i) + anchura(i) / 2, getMaximo());
+            }
+        }
+        return getMaximo();
+    }
+
+    /**
+     * Pone el histograma a cero. Los valores registrados mientras tanto pueden perderse en parte.
+     */
+    public void reiniciar() {
+        for (int i = 0; i < NUMERO_CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+        total.reset();
+        suma.reset();
+        maximo.reset();
+    }
+
+    /**
+     * Cubeta de un valor: los menores que 32 tienen cubeta propia y el resto se agrupan por su
+     * potencia de dos y los 5 bits siguientes al más alto.
+     */
+    static int indice(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        if (exponente > EXPONENTE_MAXIMO) {
+            return NUMERO_CUBETAS - 1;
+        }
+        int subcubeta = (int) (valor >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+        return (exponente - BITS_SUBCUBETA + 1) * SUBCUBETAS + subcubeta;
+    }
+
+    static long limiteInferior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int exponente = indice / SUBCUBETAS + BITS_SUBCUBETA - 1;
+        return (1L << exponente) + (long) (indice % SUBCUBETAS) * anchura(indice);
+    }
+
+    static long anchura(int indice) {
+        if (indice < SUBCUBETAS) {
+            return 1;
+        }
+        return 1L << (indice / SUBCUBETAS - 1);
+    }
+}
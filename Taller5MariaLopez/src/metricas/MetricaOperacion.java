@@ -0,0 +1,92 @@
+package metricas;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Llamadas, errores y latencias de una operación.
+ * En operaciones de pocos nanosegundos leer el reloj dos veces costaría más que la propia operación, así que
+ * puede medirse solo una de cada N llamadas elegida al azar: se cuentan todas, y los percentiles de la muestra
+ * se aproximan a los de todas las llamadas.
+ * Uso habitual:
+ * <pre>
+ * long inicio = metrica.iniciar();
+ * try {
+ *     ...
+ * } catch (RuntimeException ex) {
+ *     metrica.fallo();
+ *     throw ex;
+ * } finally {
+ *     metrica.terminar(inicio);
+ * }
+ * </pre>
+ */
+public class MetricaOperacion {
+    private static final long SIN_MEDIR = Long.MIN_VALUE;
+
+    private final String nombre;
+    private final int mascaraMuestreo; // Se mide la llamada si un número al azar no tiene ninguno de estos bits
+    private final LongAdder sinMedir = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final HistogramaLatencias latencias = new HistogramaLatencias();
+
+    MetricaOperacion(String nombre, int muestreo) {
+        if (muestreo < 1 || Integer.bitCount(muestreo) != 1) {
+            throw new IllegalArgumentException("El muestreo debe ser una potencia de dos");
+        }
+        this.nombre = nombre;
+        this.mascaraMuestreo = muestreo - 1;
+    }
+
+    /**
+     * Marca el comienzo de una llamada.
+     * @return El instante de comienzo, que se pasa a terminar.
+     */
+    public long iniciar() {
+        if (mascaraMuestreo != 0 && (ThreadLocalRandom.current().nextInt() & mascaraMuestreo) != 0) {
+            return SIN_MEDIR;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Registra una llamada que empezó en el instante indicado y acaba ahora.
+     * @param inicio El valor devuelto por iniciar.
+     */
+    public void terminar(long inicio) {
+        if (inicio == SIN_MEDIR) {
+            sinMedir.increment();
+        } else {
+            latencias.registrar(System.nanoTime() - inicio);
+        }
+    }
+
+    /**
+     * Cuenta un error en la operación. La llamada se sigue registrando con terminar.
+     */
+    public void fallo() {
+        errores.increment();
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public long getLlamadas() {
+        return latencias.getTotal() + sinMedir.sum();
+    }
+
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    public HistogramaLatencias getLatencias() {
+        return latencias;
+    }
+
+    void reiniciar() {
+        sinMedir.reset();
+        errores.reset();
+        latencias.reiniciar();
+    }
+}
@@ -0,0 +1,129 @@
+package metricas;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registro de las métricas de la aplicación: una MetricaOperacion por cada operación medida de Logica y
+ * del DAO, e indicadores que se calculan al consultarlos, como el número de incidencias de cada estado.
+ * Medir una llamada cuesta dos lecturas del reloj y unos pocos incrementos atómicos, así que las métricas
+ * están siempre activas; en las operaciones más rápidas solo se mide una muestra de las llamadas.
+ * Se consultan por JMX (incidencias:type=Metricas), desde el menú o por HTTP en /metricas.
+ */
+public class Metricas implements MetricasMXBean {
+    private static final String NOMBRE_JMX = "incidencias:type=Metricas";
+    private static final Metricas GLOBAL = new Metricas();
+
+    private final Map<String, MetricaOperacion> operaciones = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> indicadores = new ConcurrentHashMap<>();
+
+    /**
+     * Crea un registro vacío, independiente del que comparte la aplicación.
+     */
+    public Metricas() {
+    }
+
+    /**
+     * Devuelve el registro compartido por toda la aplicación.
+     * @return
+     */
+    public static Metricas global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Devuelve la métrica de la operación indicada, creándola la primera vez.
+     * Conviene guardarla en un campo en lugar de pedirla en cada llamada.
+     * @param nombre Nombre de la operación, por ejemplo logica.registrarIncidencia.
+     * @return
+     */
+    public MetricaOperacion operacion(String nombre) {
+        return operacion(nombre, 1);
+    }
+
+    /**
+     * Devuelve la métrica de la operación indicada, creándola la primera vez, que solo mide la latencia
+     * de una de cada muestreo llamadas. Si la métrica ya existía conserva su muestreo.
+     * @param nombre Nombre de la operación.
+     * @param muestreo Potencia de dos; 1 para medir todas las llamadas.
+     * @return
+     */
+    public MetricaOperacion operacion(String nombre, int muestreo) {
+        return operaciones.computeIfAbsent(nombre, n -> new MetricaOperacion(n, muestreo));
+    }
+
+    /**
+     * Registra un indicador que se calcula cada vez que se consulta. Si ya había uno con el mismo
+     * nombre, lo sustituye.
+     * @param nombre Nombre del indicador.
+     * @param valor Función que calcula su valor actual.
+     */
+    public void indicador(String nombre, LongSupplier valor) {
+        indicadores.put(nombre, valor);
+    }
+
+    /**
+     * Registra las métricas en el servidor JMX de la plataforma. Si ya están registradas no hace nada.
+     */
+    public void registrarEnJmx() {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(NOMBRE_JMX);
+            if (!servidor.isRegistered(nombre)) {
+                servidor.registerMBean(this, nombre);
+            }
+        } catch (JMException ex) {
+            System.out.println("No se han podido registrar las métricas en JMX");
+            ex.printStackTrace();
+        }
+    }
+
+    @Override
+    public List<DatosOperacion> getOperaciones() {
+        List<DatosOperacion> datos = new ArrayList<>();
+        for (MetricaOperacion metrica : new TreeMap<>(operaciones).values()) {
+            datos.add(new DatosOperacion(metrica));
+        }
+        return datos;
+    }
+
+    @Override
+    public Map<String, Long> getIndicadores() {
+        Map<String, Long> valores = new TreeMap<>();
+        indicadores.forEach((nombre, valor) -> valores.put(nombre, valor.getAsLong()));
+        return valores;
+    }
+
+    @Override
+    public String getVolcado() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-36s %10s %8s %10s %10s %10s %10s %10s %10s%n", "Operación (latencias en µs)",
+                "llamadas", "errores", "media", "p50", "p90", "p99", "p99.9", "máximo"));
+        for (DatosOperacion datos : getOperaciones()) {
+            sb.append(String.format("%-36s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", datos.getNombre(),
+                    datos.getLlamadas(), datos.getErrores(), datos.getMediaMicros(), datos.getP50Micros(),
+                    datos.getP90Micros(), datos.getP99Micros(), datos.getP999Micros(), datos.getMaximoMicros()));
+        }
+        Map<String, Long> valores = getIndicadores();
+        if (!valores.isEmpty()) {
+            sb.append(System.lineSeparator());
+            valores.forEach((nombre, valor) -> sb.append(String.format("%-36s %10d%n", nombre, valor)));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void reiniciar() {
+        for (MetricaOperacion metrica : operaciones.values()) {
+            metrica.reiniciar();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package metricas;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vista JMX de las métricas, registrada como incidencias:type=Metricas.
+ */
+public interface MetricasMXBean {
+
+    /**
+     * Resumen de cada operación medida, ordenado por nombre.
+     * @return
+     */
+    List<DatosOperacion> getOperaciones();
+
+    /**
+     * Valor actual de cada indicador, como el número de incidencias de cada estado.
+     * @return
+     */
+    Map<String, Long> getIndicadores();
+
+    /**
+     * Las mismas métricas en texto, como las muestra el menú.
+     * @return
+     */
+    String getVolcado();
+
+    /**
+     * Pone a cero los contadores y las latencias de todas las operaciones.
+     */
+    void reiniciar();
+}
@@ -6,4 +6,10 @@
  */
 module EjercicioPracticoUD3Y4 {
 	requires java.sql;
+	requires java.net.http;
+	requires jdk.httpserver;
+	requires java.management;
+
+	// JMX invoca las métricas por reflexión desde fuera del módulo
+	exports metricas;
 }
\ No newline at end of file
@@ -0,0 +1,501 @@
+package persistencia;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Importación y exportación de incidencias en ficheros CSV, para migrar o archivar muchas de una vez.
+ * <p>
+ * Las columnas son las de la tabla incidencia, en el mismo orden, y el estado se guarda con su valor
+ * numérico. Las fechas tienen el formato 2024-05-21T08:00:00 y un campo vacío es null. Los textos van
+ * entre comillas, con las comillas duplicadas, y los saltos de línea y las barras invertidas se escriben
+ * como \n, \r y \\, así que cada incidencia ocupa exactamente una línea.
+ * <p>
+ * Gracias a eso el fichero se puede leer en paralelo: se divide en tramos cortando en saltos de línea,
+ * cada tramo se proyecta en memoria y lo analiza un hilo, que entrega las incidencias en lotes.
+ */
+public final class ArchivoCsv {
+
+	/** Primera línea del fichero. */
+	public static final String CABECERA = "codigo,problema,puesto,estado,fechaRegistro,fechaResolucion,resolucion,fechaEliminacion,causaEliminacion";
+
+	private static final int COLUMNAS = 9;
+	private static final long TAMANO_MAXIMO_TRAMO = 256L * 1024 * 1024; // Lo que se proyecta de una vez
+	static final long TAMANO_MINIMO_TRAMO = 1024 * 1024; // Por debajo no compensa repartir
+	private static final int TAMANO_BUFFER = 64 * 1024;
+
+	private ArchivoCsv() {
+	}
+
+	/**
+	 * Escribe en un fichero CSV las incidencias del almacenamiento, leyéndolas con streamIncidencias
+	 * para no tenerlas todas en memoria.
+	 * @param repositorio
+	 * @param fichero El fichero que se crea o se sobrescribe
+	 * @return Número de incidencias escritas
+	 * @throws IOException si falla la escritura
+	 */
+	public static long exportar(RepositorioIncidencias repositorio, Path fichero) throws IOException {
+		try (Stream<Incidencia> incidencias = repositorio.streamIncidencias()) {
+			return exportar(incidencias.iterator(), fichero);
+		}
+	}
+
+	/**
+	 * Escribe en un fichero CSV las incidencias que va devolviendo el iterador. Las fechas se escriben
+	 * con precisión de segundos, como las guarda la base de datos.
+	 * @param incidencias
+	 * @param fichero El fichero que se crea o se sobrescribe
+	 * @return Número de incidencias escritas
+	 * @throws IOException si falla la escritura
+	 */
+	public static long exportar(Iterator<Incidencia> incidencias, Path fichero) throws IOException {
+		long escritas = 0;
+		try (Writer salida = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(fichero), StandardCharsets.UTF_8),
+				TAMANO_BUFFER)) {
+			StringBuilder linea = new StringBuilder(256);
+			salida.write(CABECERA);
+			salida.write('\n');
+			while (incidencias.hasNext()) {
+				Incidencia incidencia = incidencias.next();
+				if (incidencia == null) {
+					continue;
+				}
+				linea.setLength(0);
+				linea.append(incidencia.getCodigo()).append(',');
+				escribirTexto(linea, incidencia.getProblema());
+				linea.append(',').append(incidencia.getPuesto());
+				linea.append(',').append(incidencia.getEstado().getValor()).append(',');
+				escribirFecha(linea, incidencia.getFechaRegistro());
+				linea.append(',');
+				escribirFecha(linea, incidencia.getFechaResolucion());
+				linea.append(',');
+				escribirTexto(linea, incidencia.getResolucion());
+				linea.append(',');
+				escribirFecha(linea, incidencia.getFechaEliminacion());
+				linea.append(',');
+				escribirTexto(linea, incidencia.getCausaEliminacion());
+				linea.append('\n');
+				salida.append(linea);
+				escritas++;
+			}
+		}
+		return escritas;
+	}
+
+	/**
+	 * Lee un fichero CSV en paralelo y entrega las incidencias en lotes, con su código y sus fechas originales.
+	 * Los lotes llegan desde varios hilos a la vez y sin un orden concreto, así que el destino debe admitir
+	 * llamadas concurrentes; cada lote es una lista nueva que el destino puede conservar.
+	 * @param fichero
+	 * @param hilos Número de tramos que se analizan a la vez
+	 * @param tamanoLote Número de incidencias de cada lote
+	 * @param destino Recibe cada lote
+	 * @return Número de incidencias leídas
+	 * @throws IOException si no se puede leer el fichero o alguna línea es incorrecta; los lotes ya entregados no se deshacen
+	 */
+	public static long importar(Path fichero, int hilos, int tamanoLote, Consumer<List<Incidencia>> destino) throws IOException {
+		if (hilos < 1 || tamanoLote < 1) {
+			throw new IllegalArgumentException("El número de hilos y el tamaño de lote deben ser positivos");
+		}
+		try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+			long[] cortes = cortes(canal, hilos);
+			ExecutorService ejecutor = Executors.newFixedThreadPool(Math.min(hilos, cortes.length - 1), r -> {
+				Thread hilo = new Thread(r, "importacion-csv");
+				hilo.setDaemon(true);
+				return hilo;
+			});
+			try {
+				AtomicLong leidas = new AtomicLong();
+				List<CompletableFuture<Void>> tareas = new ArrayList<>();
+				for (int i = 0; i + 1 < cortes.length; i++) {
+					long inicio = cortes[i];
+					long fin = cortes[i + 1];
+					tareas.add(CompletableFuture.runAsync(
+							() -> leidas.addAndGet(leerTramo(canal, inicio, fin, tamanoLote, destino)), ejecutor));
+				}
+				CompletableFuture.allOf(tareas.toArray(new CompletableFuture<?>[0])).join();
+				return leidas.get();
+			} catch (CompletionException ex) {
+				if (ex.getCause() instanceof UncheckedIOException) {
+					throw ((UncheckedIOException) ex.getCause()).getCause();
+				}
+				if (ex.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) ex.getCause();
+				}
+				throw ex;
+			} finally {
+				ejecutor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Comprueba la cabecera y divide el resto del fichero en tramos que empiezan y terminan en un salto de línea.
+	 * @return Las posiciones de corte: el tramo i va de cortes[i] a cortes[i + 1]
+	 */
+	private static long[] cortes(FileChannel canal, int hilos) throws IOException {
+		long tamano = canal.size();
+		long inicioDatos = finDeLinea(canal, 0);
+		String cabecera = leerCabecera(canal, inicioDatos);
+		if (!cabecera.equals(CABECERA)) {
+			throw new IOException("El fichero no empieza por la cabecera " + CABECERA);
+		}
+		long datos = tamano - inicioDatos;
+		long tramos = Math.max(Math.min(hilos, (datos + TAMANO_MINIMO_TRAMO - 1) / TAMANO_MINIMO_TRAMO),
+				(datos + TAMANO_MAXIMO_TRAMO - 1) / TAMANO_MAXIMO_TRAMO);
+		tramos = Math.max(tramos, 1);
+		long[] cortes = new long[(int) tramos + 1];
+		cortes[0] = inicioDatos;
+		for (int i = 1; i < tramos; i++) {
+			cortes[i] = Math.max(cortes[i - 1], finDeLinea(canal, inicioDatos + datos * i / tramos));
+		}
+		cortes[(int) tramos] = tamano;
+		return cortes;
+	}
+
+	private static String leerCabecera(FileChannel canal, long fin) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(fin, CABECERA.length() + 8));
+		canal.read(buffer, 0);
+		String cabecera = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+		// Se admiten ficheros guardados con saltos de línea de Windows o con BOM
+		if (cabecera.startsWith("\uFEFF")) {
+			cabecera = cabecera.substring(1);
+		}
+		return cabecera.strip();
+	}
+
+	/**
+	 * Busca el primer salto de línea a partir de una posición.
+	 * @return La posición siguiente al salto de línea, o el tamaño del fichero si no hay más
+	 */
+	private static long finDeLinea(FileChannel canal, long desde) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long posicion = desde;
+		while (true) {
+			buffer.clear();
+			int leidos = canal.read(buffer, posicion);
+			if (leidos <= 0) {
+				return canal.size();
+			}
+			for (int i = 0; i < leidos; i++) {
+				if (buffer.get(i) == '\n') {
+					return posicion + i + 1;
+				}
+			}
+			posicion += leidos;
+		}
+	}
+
+	/**
+	 * Analiza un tramo del fichero y entrega sus incidencias en lotes.
+	 */
+	private static long leerTramo(FileChannel canal, long inicio, long fin, int tamanoLote, Consumer<List<Incidencia>> destino) {
+		if (fin <= inicio) {
+			return 0;
+		}
+		try {
+			Lector lector = new Lector(canal.map(FileChannel.MapMode.READ_ONLY, inicio, fin - inicio), inicio);
+			List<Incidencia> lote = new ArrayList<>(tamanoLote);
+			long leidas = 0;
+			while (lector.siguienteLinea()) {
+				lote.add(lector.incidencia());
+				if (lote.size() == tamanoLote) {
+					destino.accept(lote);
+					leidas += lote.size();
+					lote = new ArrayList<>(tamanoLote);
+				}
+			}
+			if (!lote.isEmpty()) {
+				destino.accept(lote);
+				leidas += lote.size();
+			}
+			return leidas;
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private static void escribirTexto(StringBuilder linea, String texto) {
+		if (texto == null) {
+			return;
+		}
+		linea.append('"');
+		for (int i = 0; i < texto.length(); i++) {
+			char c = texto.charAt(i);
+			switch (c) {
+			case '"':
+				linea.append("\"\"");
+				break;
+			case '\\':
+				linea.append("\\\\");
+				break;
+			case '\n':
+				linea.append("\\n");
+				break;
+			case '\r':
+				linea.append("\\r");
+				break;
+			default:
+				linea.append(c);
+			}
+		}
+		linea.append('"');
+	}
+
+	private static void escribirFecha(StringBuilder linea, LocalDateTime fecha) {
+		if (fecha == null) {
+			return;
+		}
+		linea.append(fecha.getYear()).append('-');
+		dosCifras(linea, fecha.getMonthValue()).append('-');
+		dosCifras(linea, fecha.getDayOfMonth()).append('T');
+		dosCifras(linea, fecha.getHour()).append(':');
+		dosCifras(linea, fecha.getMinute()).append(':');
+		dosCifras(linea, fecha.getSecond());
+	}
+
+	private static StringBuilder dosCifras(StringBuilder linea, int valor) {
+		return linea.append((char) ('0' + valor / 10)).append((char) ('0' + valor % 10));
+	}
+
+	/**
+	 * Analiza las líneas de un tramo proyectado en memoria leyendo directamente sus bytes.
+	 */
+	private static final class Lector {
+		private final MappedByteBuffer datos;
+		private final long desplazamiento; // Posición del tramo en el fichero, para los mensajes de error
+		private byte[] texto = new byte[256];
+		private int posicion;
+		private int inicioLinea;
+		private int finLinea;
+		private int siguiente; // Inicio de la línea siguiente
+
+		Lector(MappedByteBuffer datos, long desplazamiento) {
+			this.datos = datos;
+			this.desplazamiento = desplazamiento;
+		}
+
+		/**
+		 * Avanza hasta la siguiente línea no vacía.
+		 * @return false si no quedan líneas
+		 */
+		boolean siguienteLinea() {
+			int limite = datos.limit();
+			while (siguiente < limite) {
+				inicioLinea = siguiente;
+				int fin = inicioLinea;
+				while (fin < limite && datos.get(fin) != '\n') {
+					fin++;
+				}
+				siguiente = fin + 1;
+				// Las líneas pueden terminar en \r\n; los \r de los textos siempre van escapados
+				if (fin > inicioLinea && datos.get(fin - 1) == '\r') {
+					fin--;
+				}
+				if (fin > inicioLinea) {
+					finLinea = fin;
+					posicion = inicioLinea;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		Incidencia incidencia() {
+			String codigo = texto();
+			separador();
+			String problema = texto();
+			separador();
+			int puesto = entero();
+			separador();
+			int estado = entero();
+			separador();
+			LocalDateTime fechaRegistro = fecha();
+			separador();
+			LocalDateTime fechaResolucion = fecha();
+			separador();
+			String resolucion = texto();
+			separador();
+			LocalDateTime fechaEliminacion = fecha();
+			separador();
+			String causaEliminacion = texto();
+			if (posicion != finLinea) {
+				throw error("hay más de " + COLUMNAS + " columnas");
+			}
+			if (codigo == null || fechaRegistro == null) {
+				throw error("faltan el código o la fecha de registro");
+			}
+			EstadoIncidencia estadoIncidencia;
+			try {
+				estadoIncidencia = EstadoIncidencia.desdeValor(estado);
+			} catch (IllegalArgumentException ex) {
+				throw error(ex.getMessage());
+			}
+			return new Incidencia(codigo, problema, puesto, estadoIncidencia, fechaRegistro, fechaResolucion, resolucion,
+					fechaEliminacion, causaEliminacion);
+		}
+
+		private void separador() {
+			if (posicion >= finLinea || datos.get(posicion) != ',') {
+				throw error("faltan columnas");
+			}
+			posicion++;
+		}
+
+		private String texto() {
+			if (posicion < finLinea && datos.get(posicion) == '"') {
+				posicion++;
+				int longitud = 0;
+				while (true) {
+					if (posicion >= finLinea) {
+						throw error("falta la comilla de cierre");
+					}
+					byte b = datos.get(posicion++);
+					if (b == '"') {
+						if (posicion < finLinea && datos.get(posicion) == '"') {
+							posicion++;
+						} else {
+							break;
+						}
+					} else if (b == '\\' && posicion < finLinea) {
+						b = escapado(datos.get(posicion++));
+					}
+					longitud = anadirByte(longitud, b);
+				}
+				return new String(texto, 0, longitud, StandardCharsets.UTF_8);
+			}
+			int longitud = 0;
+			while (posicion < finLinea && datos.get(posicion) != ',') {
+				byte b = datos.get(posicion++);
+				if (b == '\\' && posicion < finLinea) {
+					b = escapado(datos.get(posicion++));
+				}
+				longitud = anadirByte(longitud, b);
+			}
+			return longitud == 0 ? null : new String(texto, 0, longitud, StandardCharsets.UTF_8);
+		}
+
+		private int anadirByte(int longitud, byte b) {
+			if (longitud == texto.length) {
+				texto = Arrays.copyOf(texto, texto.length * 2);
+			}
+			texto[longitud] = b;
+			return longitud + 1;
+		}
+
+		private static byte escapado(byte b) {
+			switch (b) {
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			default:
+				return b;
+			}
+		}
+
+		private int entero() {
+			int valor = 0;
+			int cifras = 0;
+			boolean negativo = posicion < finLinea && datos.get(posicion) == '-';
+			if (negativo) {
+				posicion++;
+			}
+			while (posicion < finLinea) {
+				int c = datos.get(posicion) - '0';
+				if (c < 0 || c > 9) {
+					break;
+				}
+				if (++cifras > 9) {
+					throw error("número demasiado grande");
+				}
+				valor = valor * 10 + c;
+				posicion++;
+			}
+			if (cifras == 0) {
+				throw error("se esperaba un número");
+			}
+			return negativo ? -valor : valor;
+		}
+
+		/**
+		 * Lee una fecha con el formato 2024-05-21T08:00:00 o, sin segundos, 2024-05-21T08:00.
+		 */
+		private LocalDateTime fecha() {
+			if (posicion >= finLinea || datos.get(posicion) == ',') {
+				return null;
+			}
+			int anio = cifras(4);
+			caracter('-');
+			int mes = cifras(2);
+			caracter('-');
+			int dia = cifras(2);
+			caracter('T');
+			int hora = cifras(2);
+			caracter(':');
+			int minuto = cifras(2);
+			int segundo = 0;
+			if (posicion < finLinea && datos.get(posicion) == ':') {
+				posicion++;
+				segundo = cifras(2);
+			}
+			try {
+				return LocalDateTime.of(anio, mes, dia, hora, minuto, segundo);
+			} catch (DateTimeException ex) {
+				throw error("fecha incorrecta");
+			}
+		}
+
+		private int cifras(int cantidad) {
+			int valor = 0;
+			for (int i = 0; i < cantidad; i++) {
+				int c = posicion < finLinea ? datos.get(posicion) - '0' : -1;
+				if (c < 0 || c > 9) {
+					throw error("fecha incorrecta, el formato es 2024-05-21T08:00:00");
+				}
+				valor = valor * 10 + c;
+				posicion++;
+			}
+			return valor;
+		}
+
+		private void caracter(char esperado) {
+			if (posicion >= finLinea || datos.get(posicion) != esperado) {
+				throw error("fecha incorrecta, el formato es 2024-05-21T08:00:00");
+			}
+			posicion++;
+		}
+
+		private UncheckedIOException error(String motivo) {
+			return new UncheckedIOException(new IOException(
+					"Línea incorrecta en el byte " + (desplazamiento + inicioLinea) + " del fichero: " + motivo));
+		}
+	}
+}
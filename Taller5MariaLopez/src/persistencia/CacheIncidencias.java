@@ -0,0 +1,331 @@
+package persistencia;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Caché de lectura delante de otro almacenamiento de incidencias.
+ * buscaIncidencia consulta primero la caché y, si la incidencia no está o ha caducado, la lee del
+ * almacenamiento y la guarda. La caché tiene un tamaño máximo y, al llenarse, desaloja la incidencia
+ * usada hace más tiempo. Las escrituras hechas a través de esta clase invalidan las incidencias afectadas;
+ * los cambios hechos por otros programas solo se ven cuando caduca la entrada, si se ha indicado un tiempo de vida.
+ * El resto de operaciones se pasan directamente al almacenamiento.
+ */
+public class CacheIncidencias implements RepositorioIncidencias {
+
+	private final RepositorioIncidencias almacenamiento;
+	private final long tiempoVidaNanos;
+	private final ReentrantLock cerrojo = new ReentrantLock();
+	private final LinkedHashMap<String, Entrada> entradas;
+	private long invalidaciones; // Cambia con cada invalidación para no guardar lecturas hechas antes de un cambio
+	private long aciertos;
+	private long fallos;
+	private long desalojos;
+	private long caducadas;
+
+	/**
+	 * Crea la caché.
+	 * @param almacenamiento El almacenamiento del que se leen las incidencias.
+	 * @param tamanoMaximo Número máximo de incidencias en la caché.
+	 * @param tiempoVidaMs Milisegundos que una incidencia puede estar en la caché, o 0 para que no caduque.
+	 */
+	public CacheIncidencias(RepositorioIncidencias almacenamiento, int tamanoMaximo, long tiempoVidaMs) {
+		if (tamanoMaximo < 1) {
+			throw new IllegalArgumentException("El tamaño de la caché debe ser positivo");
+		}
+		if (tiempoVidaMs < 0) {
+			throw new IllegalArgumentException("El tiempo de vida no puede ser negativo");
+		}
+		this.almacenamiento = almacenamiento;
+		this.tiempoVidaNanos = TimeUnit.MILLISECONDS.toNanos(tiempoVidaMs);
+		// En orden de acceso, la primera entrada es la usada hace más tiempo
+		this.entradas = new LinkedHashMap<String, Entrada>(Math.min(tamanoMaximo, 1 << 16) * 4 / 3 + 1, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entrada> masAntigua) {
+				if (size() > tamanoMaximo) {
+					desalojos++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	@Override
+	public Incidencia buscaIncidencia(String codigo) {
+		long invalidacionesAntes;
+		cerrojo.lock();
+		try {
+			Entrada entrada = entradas.get(codigo);
+			if (entrada != null) {
+				if (tiempoVidaNanos == 0 || System.nanoTime() - entrada.guardada < tiempoVidaNanos) {
+					aciertos++;
+					return IncidenciasMemoria.copiar(entrada.incidencia);
+				}
+				entradas.remove(codigo);
+				caducadas++;
+			}
+			fallos++;
+			invalidacionesAntes = invalidaciones;
+		} finally {
+			cerrojo.unlock();
+		}
+
+		// La lectura del almacenamiento se hace sin el cerrojo para no bloquear los aciertos de otros hilos
+		Incidencia incidencia = almacenamiento.buscaIncidencia(codigo);
+		if (incidencia != null) {
+			Entrada entrada = new Entrada(IncidenciasMemoria.copiar(incidencia), System.nanoTime());
+			cerrojo.lock();
+			try {
+				if (invalidaciones == invalidacionesAntes) {
+					entradas.put(codigo, entrada);
+				}
+			} finally {
+				cerrojo.unlock();
+			}
+		}
+		return incidencia;
+	}
+
+	@Override
+	public void create(Incidencia incidencia) {
+		almacenamiento.create(incidencia);
+		if (incidencia != null) {
+			invalidar(incidencia.getCodigo());
+		}
+	}
+
+	@Override
+	public int createAll(Collection<Incidencia> incidencias) {
+		int insertadas = almacenamiento.createAll(incidencias);
+		invalidar(incidencias);
+		return insertadas;
+	}
+
+	@Override
+	public int createAll(Iterator<Incidencia> incidencias) {
+		// Se invalida cada incidencia a medida que el almacenamiento la lee del iterador
+		return almacenamiento.createAll(new Iterator<Incidencia>() {
+			@Override
+			public boolean hasNext() {
+				return incidencias.hasNext();
+			}
+
+			@Override
+			public Incidencia next() {
+				Incidencia incidencia = incidencias.next();
+				if (incidencia != null) {
+					invalidar(incidencia.getCodigo());
+				}
+				return incidencia;
+			}
+		});
+	}
+
+	@Override
+	public void delete(String codigo) {
+		almacenamiento.delete(codigo);
+		invalidar(codigo);
+	}
+
+	@Override
+	public void update(Incidencia incidencia) {
+		almacenamiento.update(incidencia);
+		if (incidencia != null) {
+			invalidar(incidencia.getCodigo());
+		}
+	}
+
+	@Override
+	public int updateAll(Collection<Incidencia> incidencias) {
+		int actualizadas = almacenamiento.updateAll(incidencias);
+		invalidar(incidencias);
+		return actualizadas;
+	}
+
+	@Override
+	public List<Incidencia> listarIncidencias() {
+		return almacenamiento.listarIncidencias();
+	}
+
+	@Override
+	public List<Incidencia> listarPorEstado(EstadoIncidencia estado, Incidencia desde, int limite) {
+		return almacenamiento.listarPorEstado(estado, desde, limite);
+	}
+
+	@Override
+	public Stream<Incidencia> streamIncidencias() {
+		return almacenamiento.streamIncidencias();
+	}
+
+	@Override
+	public Stream<Incidencia> streamPorEstadoYFechas(EstadoIncidencia estado, LocalDateTime desde, LocalDateTime hasta) {
+		return almacenamiento.streamPorEstadoYFechas(estado, desde, hasta);
+	}
+
+	@Override
+	public Stream<Incidencia> streamPorFechaResolucion(LocalDateTime desde, LocalDateTime hasta) {
+		return almacenamiento.streamPorFechaResolucion(desde, hasta);
+	}
+
+	@Override
+	public Stream<Incidencia> streamPorFechaEliminacion(LocalDateTime desde, LocalDateTime hasta) {
+		return almacenamiento.streamPorFechaEliminacion(desde, hasta);
+	}
+
+	@Override
+	public LocalDateTime[] fechasRegistroExtremas(EstadoIncidencia estado) {
+		return almacenamiento.fechasRegistroExtremas(estado);
+	}
+
+	@Override
+	public void cerrarConexion() {
+		vaciar();
+		almacenamiento.cerrarConexion();
+	}
+
+	/**
+	 * Quita de la caché la incidencia con el código indicado
+	 * @param codigo
+	 */
+	public void invalidar(String codigo) {
+		cerrojo.lock();
+		try {
+			entradas.remove(codigo);
+			invalidaciones++;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	private void invalidar(Collection<Incidencia> incidencias) {
+		cerrojo.lock();
+		try {
+			for (Incidencia incidencia : incidencias) {
+				if (incidencia != null) {
+					entradas.remove(incidencia.getCodigo());
+				}
+			}
+			invalidaciones++;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Quita todas las incidencias de la caché
+	 */
+	public void vaciar() {
+		cerrojo.lock();
+		try {
+			entradas.clear();
+			invalidaciones++;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Devuelve el número de búsquedas resueltas con la caché
+	 * @return
+	 */
+	public long getAciertos() {
+		cerrojo.lock();
+		try {
+			return aciertos;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Devuelve el número de búsquedas que han tenido que leer del almacenamiento
+	 * @return
+	 */
+	public long getFallos() {
+		cerrojo.lock();
+		try {
+			return fallos;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Devuelve el número de incidencias desalojadas por falta de espacio
+	 * @return
+	 */
+	public long getDesalojos() {
+		cerrojo.lock();
+		try {
+			return desalojos;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Devuelve el número de incidencias descartadas por superar su tiempo de vida
+	 * @return
+	 */
+	public long getCaducadas() {
+		cerrojo.lock();
+		try {
+			return caducadas;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Devuelve el número de incidencias que hay ahora en la caché
+	 * @return
+	 */
+	public int getTamano() {
+		cerrojo.lock();
+		try {
+			return entradas.size();
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Devuelve la proporción de búsquedas resueltas con la caché, entre 0 y 1
+	 * @return
+	 */
+	public double getTasaAciertos() {
+		cerrojo.lock();
+		try {
+			long total = aciertos + fallos;
+			return total == 0 ? 0 : (double) aciertos / total;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Incidencia guardada en la caché y el momento en que se leyó
+	 */
+	private static class Entrada {
+		private final Incidencia incidencia;
+		private final long guardada;
+
+		Entrada(Incidencia incidencia, long guardada) {
+			this.incidencia = incidencia;
+			this.guardada = guardada;
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package persistencia;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import metricas.Metricas;
+
+/**
+ * Lee la configuración de la persistencia y crea el almacenamiento de incidencias que indica.
+ * La clave almacen elige la implementación: mysql (por defecto), diario o memoria.
+ */
+public final class ConfiguracionPersistencia {
+
+	private ConfiguracionPersistencia() {
+	}
+
+	/**
+	 * Lee un fichero de propiedades. Si no existe o no se puede leer se usa la configuración por defecto.
+	 * @param fichero
+	 * @return Las propiedades leídas, vacías si no hay fichero
+	 */
+	public static Properties cargar(Path fichero) {
+		Properties configuracion = new Properties();
+		if (Files.isRegularFile(fichero)) {
+			try (Reader lector = Files.newBufferedReader(fichero, StandardCharsets.UTF_8)) {
+				configuracion.load(lector);
+			} catch (IOException ex) {
+				System.out.println("Error al leer la configuración " + fichero + ", se usa la configuración por defecto");
+				ex.printStackTrace();
+				configuracion.clear();
+			}
+		}
+		return configuracion;
+	}
+
+	/**
+	 * Crea el almacenamiento de incidencias indicado en la configuración.
+	 * Para el diario se usan las claves diario.directorio, diario.sincronizacion,
+	 * diario.intervaloSincronizacionMs y diario.registrosPorInstantanea.
+	 * Si cache.tamano es mayor que 0, las búsquedas por código pasan por una caché de ese tamaño
+	 * cuyas entradas caducan a los cache.tiempoVidaMs milisegundos (0 para que no caduquen).
+	 * @param configuracion
+	 * @return El almacenamiento creado
+	 * @throws IllegalArgumentException si el almacenamiento indicado no existe
+	 */
+	public static RepositorioIncidencias abrirRepositorio(Properties configuracion) {
+		RepositorioIncidencias repositorio;
+		String almacen = configuracion.getProperty("almacen", "mysql").trim();
+		switch (almacen) {
+		case "mysql":
+			IncidenciasDAO dao = new IncidenciasDAO(configuracion);
+			PoolConexiones pool = dao.getPool();
+			Metricas.global().indicador("pool.conexionesActivas", pool::getConexionesActivas);
+			Metricas.global().indicador("pool.hilosEsperando", pool::getHilosEsperando);
+			Metricas.global().indicador("pool.timeouts", pool::getTimeouts);
+			repositorio = dao;
+			break;
+		case "diario":
+			repositorio = new IncidenciasDiario(Paths.get(configuracion.getProperty("diario.directorio", "datos")),
+					IncidenciasDiario.Sincronizacion.valueOf(configuracion.getProperty("diario.sincronizacion", "CADA_ESCRITURA")),
+					Long.parseLong(configuracion.getProperty("diario.intervaloSincronizacionMs", "1000")),
+					Long.parseLong(configuracion.getProperty("diario.registrosPorInstantanea", "100000")));
+			break;
+		case "memoria":
+			repositorio = new IncidenciasMemoria();
+			break;
+		default:
+			throw new IllegalArgumentException("Almacenamiento de incidencias desconocido: " + almacen);
+		}
+
+		int tamanoCache = Integer.parseInt(configuracion.getProperty("cache.tamano", "0"));
+		if (tamanoCache > 0) {
+			CacheIncidencias cache = new CacheIncidencias(repositorio, tamanoCache,
+					Long.parseLong(configuracion.getProperty("cache.tiempoVidaMs", "0")));
+			Metricas.global().indicador("cache.aciertos", cache::getAciertos);
+			Metricas.global().indicador("cache.fallos", cache::getFallos);
+			Metricas.global().indicador("cache.tamano", cache::getTamano);
+			repositorio = cache;
+		}
+		return repositorio;
+	}
+}
@@ -1,58 +1,141 @@
 package persistencia;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Properties;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import dominio.EstadoIncidencia;
 import dominio.Incidencia;
+import metricas.MetricaOperacion;
+import metricas.Metricas;
 
-public class IncidenciasDAO {
+/**
+ * Almacenamiento de incidencias en una base de datos MySQL a través de JDBC.
+ */
+public class IncidenciasDAO implements RepositorioIncidencias {
 	
-	private Connection conexion;
+	private PoolConexiones pool;
 	private final String USUARIO="pepe";
 	private final String PASSWORD="12345";
 	private final String MAQUINA="localhost";
 	private final String BD="incidencia";
+	private final int MINIMO_CONEXIONES=1;
+	private final int MAXIMO_CONEXIONES=10;
+	private final long TIMEOUT_ADQUISICION_MS=5000;
+	private final long TIEMPO_INACTIVIDAD_MAX_MS=60000;
+	private int tamanoLote = 500;
+	private int lotesPorTransaccion = 10;
+	// Con MySQL, Integer.MIN_VALUE hace que el driver lea las filas una a una en lugar de cargar todo el resultado
+	private int tamanoFetch = Integer.MIN_VALUE;
+	// Métricas de cada sentencia SQL, consultables por JMX y desde el menú
+	private final MetricaOperacion metricaBuscar = Metricas.global().operacion("dao.buscaIncidencia");
+	private final MetricaOperacion metricaCreate = Metricas.global().operacion("dao.create");
+	private final MetricaOperacion metricaCreateAll = Metricas.global().operacion("dao.createAll");
+	private final MetricaOperacion metricaDelete = Metricas.global().operacion("dao.delete");
+	private final MetricaOperacion metricaUpdate = Metricas.global().operacion("dao.update");
+	private final MetricaOperacion metricaUpdateAll = Metricas.global().operacion("dao.updateAll");
+	private final MetricaOperacion metricaListar = Metricas.global().operacion("dao.listarIncidencias");
+	private final MetricaOperacion metricaListarPorEstado = Metricas.global().operacion("dao.listarPorEstado");
+	private final MetricaOperacion metricaStream = Metricas.global().operacion("dao.streamIncidencias");
+	private final MetricaOperacion metricaStreamPorEstado = Metricas.global().operacion("dao.streamPorEstadoYFechas");
+	private final MetricaOperacion metricaStreamPorResolucion = Metricas.global().operacion("dao.streamPorFechaResolucion");
+	private final MetricaOperacion metricaStreamPorEliminacion = Metricas.global().operacion("dao.streamPorFechaEliminacion");
+	private final MetricaOperacion metricaFechasExtremas = Metricas.global().operacion("dao.fechasRegistroExtremas");
 	
+	/**
+	 * Crea el DAO con la configuración por defecto
+	 */
 	public IncidenciasDAO(){
-		conexion = conectar();
+		this(new Properties());
 	}
 	
 	/**
-	 * Crea una conexión con el SGBD y la devuelve
+	 * Crea el DAO con la configuración indicada; las claves que falten toman el valor por defecto.
+	 * Claves: jdbc.url, jdbc.usuario, jdbc.password, pool.minimo, pool.maximo, pool.timeoutAdquisicionMs,
+	 * pool.tiempoInactividadMaxMs, lote.tamano, lote.porTransaccion y fetch.tamano
+	 * @param configuracion
+	 */
+	public IncidenciasDAO(Properties configuracion){
+		// rewriteBatchedStatements hace que el driver envíe cada lote como un único INSERT multi-fila
+		pool = new PoolConexiones(
+				configuracion.getProperty("jdbc.url", "jdbc:mysql://"+MAQUINA+"/"+BD+"?rewriteBatchedStatements=true"),
+				configuracion.getProperty("jdbc.usuario", USUARIO),
+				configuracion.getProperty("jdbc.password", PASSWORD),
+				Integer.parseInt(configuracion.getProperty("pool.minimo", String.valueOf(MINIMO_CONEXIONES))),
+				Integer.parseInt(configuracion.getProperty("pool.maximo", String.valueOf(MAXIMO_CONEXIONES))),
+				Long.parseLong(configuracion.getProperty("pool.timeoutAdquisicionMs", String.valueOf(TIMEOUT_ADQUISICION_MS))),
+				Long.parseLong(configuracion.getProperty("pool.tiempoInactividadMaxMs", String.valueOf(TIEMPO_INACTIVIDAD_MAX_MS))));
+		setTamanoLote(Integer.parseInt(configuracion.getProperty("lote.tamano", String.valueOf(tamanoLote))));
+		setLotesPorTransaccion(Integer.parseInt(configuracion.getProperty("lote.porTransaccion", String.valueOf(lotesPorTransaccion))));
+		setTamanoFetch(Integer.parseInt(configuracion.getProperty("fetch.tamano", String.valueOf(tamanoFetch))));
+	}
+	
+	/**
+	 * Crea el DAO sobre un pool de conexiones ya configurado
+	 * @param pool
+	 */
+	public IncidenciasDAO(PoolConexiones pool){
+		this.pool = pool;
+	}
+	
+	/**
+	 * Devuelve el pool de conexiones, por ejemplo para consultar sus métricas
 	 * @return
 	 */
-	private Connection conectar() {
-		Connection con = null;
-		String url = "jdbc:mysql://"+MAQUINA+"/"+BD;
-		try {
-			con = DriverManager.getConnection(url, USUARIO, PASSWORD);
-			System.out.println("Conectado a la base de datos");
-		}catch(SQLException ex){
-			System.out.println("Error al conectar a la base de datos");
-			ex.printStackTrace();
+	public PoolConexiones getPool() {
+		return pool;
+	}
+	
+	/**
+	 * Establece el número de incidencias que se envían juntas en cada lote de createAll
+	 * @param tamanoLote
+	 */
+	public void setTamanoLote(int tamanoLote) {
+		if (tamanoLote < 1) {
+			throw new IllegalArgumentException("El tamaño de lote debe ser positivo");
 		}
-		return con;
+		this.tamanoLote = tamanoLote;
 	}
 	
 	/**
-	 * Cierra la conexion
+	 * Establece cuántos lotes de createAll se confirman en cada transacción
+	 * @param lotesPorTransaccion
 	 */
-	public void cerrarConexion(){
-		try {
-			this.conexion.close();
-		} catch (SQLException e) {
-			System.out.println("Error al cerrar la conexión");
-			e.printStackTrace();
+	public void setLotesPorTransaccion(int lotesPorTransaccion) {
+		if (lotesPorTransaccion < 1) {
+			throw new IllegalArgumentException("El número de lotes por transacción debe ser positivo");
 		}
+		this.lotesPorTransaccion = lotesPorTransaccion;
+	}
+	
+	/**
+	 * Establece el tamaño de fetch usado por streamIncidencias. Con MySQL, Integer.MIN_VALUE lee fila a fila
+	 * y un valor positivo requiere useCursorFetch=true en la URL para usar un cursor en el servidor.
+	 * @param tamanoFetch
+	 */
+	public void setTamanoFetch(int tamanoFetch) {
+		this.tamanoFetch = tamanoFetch;
+	}
+	
+	/**
+	 * Cierra el pool de conexiones
+	 */
+	public void cerrarConexion(){
+		pool.close();
 	}
 	
 	/**
@@ -63,25 +146,25 @@ public class IncidenciasDAO {
 		public Incidencia buscaIncidencia(String codigo) {
 			Incidencia incidencia = null;
 			String sql = "SELECT * FROM incidencia WHERE codigo = ?";
-			try (PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+			long inicio = metricaBuscar.iniciar();
+			try (Connection conexion = pool.obtenerConexion();
+			     PreparedStatement sentencia = conexion.prepareStatement(sql)) {
 				sentencia.setString(1, codigo);
 				try (ResultSet rs = sentencia.executeQuery()) {
 					if (rs.next()) {
-						String problema = rs.getString("problema");
-						int puesto = rs.getInt("puesto");
-						String estado = rs.getString("estado");
-						LocalDate fechaRegistro = rs.getDate("fecha_registro").toLocalDate();
-						// Recuperar otros campos si es necesario
-
-						incidencia = new Incidencia(codigo, problema, puesto, estado, fechaRegistro);
+						incidencia = leerIncidencia(rs);
 					}
 				} catch (SQLException ex) {
+					metricaBuscar.fallo();
 					System.out.println("Error en la consulta de incidencia por codigo");
 					ex.printStackTrace();
 				}
 			} catch (SQLException ex) {
+				metricaBuscar.fallo();
 				System.out.println("Error en la consulta de incidencia por codigo");
 				ex.printStackTrace();
+			} finally {
+				metricaBuscar.terminar(inicio);
 			}
 			return incidencia;
 		}
@@ -93,22 +176,106 @@ public class IncidenciasDAO {
 		 */
 	    public void create(Incidencia incidencia) {
 	        if (incidencia != null) {
-	            String sql = "INSERT INTO incidencia (codigo, problema, puesto, estado, fecha_registro) VALUES (?, ?, ?, 'pendiente', ?)";
-	            try (PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+	            String sql = "INSERT INTO incidencia (codigo, problema, puesto, estado, fechaRegistro) VALUES (?, ?, ?, ?, ?)";
+	            long inicio = metricaCreate.iniciar();
+	            try (Connection conexion = pool.obtenerConexion();
+	                 PreparedStatement sentencia = conexion.prepareStatement(sql)) {
 	                sentencia.setString(1, incidencia.getCodigo());
 	                sentencia.setString(2, incidencia.getProblema());
 	                sentencia.setInt(3, incidencia.getPuesto());
-	                sentencia.setTimestamp(4, Timestamp.valueOf(incidencia.getFechaRegistro()));
+	                sentencia.setByte(4, incidencia.getEstado().getValor());
+	                sentencia.setTimestamp(5, Timestamp.valueOf(incidencia.getFechaRegistro()));
 	                sentencia.executeUpdate();
 	                System.out.println("Incidencia insertada correctamente");
 	            } catch (SQLException ex) {
+	                metricaCreate.fallo();
 	                System.out.println("Error al insertar una nueva incidencia");
 	                ex.printStackTrace();
+	            } finally {
+	                metricaCreate.terminar(inicio);
 	            }
 	        } else {
 	            System.out.println("La incidencia no puede ser nula");
 	        }
 	    }
+	    
+	    /**
+	     * Método que inserta en la base de datos todas las incidencias de la colección en lotes
+	     * @param incidencias
+	     * @return Número de incidencias insertadas y confirmadas
+	     */
+	    public int createAll(Collection<Incidencia> incidencias) {
+	        return createAll(incidencias.iterator());
+	    }
+	    
+	    /**
+	     * Método que inserta en la base de datos las incidencias que va devolviendo el iterador,
+	     * enviándolas en lotes y confirmando la transacción cada cierto número de lotes.
+	     * Si falla un lote se deshacen los lotes aún no confirmados.
+	     * @param incidencias
+	     * @return Número de incidencias insertadas y confirmadas
+	     */
+	    public int createAll(Iterator<Incidencia> incidencias) {
+	        String sql = "INSERT INTO incidencia (codigo, problema, puesto, estado, fechaRegistro, fechaResolucion, resolucion, fechaEliminacion, causaEliminacion) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	        int confirmadas = 0;
+	        long inicio = metricaCreateAll.iniciar();
+	        try (Connection conexion = pool.obtenerConexion();
+	             PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+	            conexion.setAutoCommit(false);
+	            int enLote = 0;
+	            int lotesSinConfirmar = 0;
+	            int sinConfirmar = 0;
+	            while (incidencias.hasNext()) {
+	                Incidencia incidencia = incidencias.next();
+	                if (incidencia == null) {
+	                    continue;
+	                }
+	                sentencia.setString(1, incidencia.getCodigo());
+	                sentencia.setString(2, incidencia.getProblema());
+	                sentencia.setInt(3, incidencia.getPuesto());
+	                sentencia.setByte(4, incidencia.getEstado().getValor());
+	                sentencia.setTimestamp(5, aTimestamp(incidencia.getFechaRegistro()));
+	                sentencia.setTimestamp(6, aTimestamp(incidencia.getFechaResolucion()));
+	                sentencia.setString(7, incidencia.getResolucion());
+	                sentencia.setTimestamp(8, aTimestamp(incidencia.getFechaEliminacion()));
+	                sentencia.setString(9, incidencia.getCausaEliminacion());
+	                sentencia.addBatch();
+	                if (++enLote == tamanoLote) {
+	                    sentencia.executeBatch();
+	                    sinConfirmar += enLote;
+	                    enLote = 0;
+	                    if (++lotesSinConfirmar == lotesPorTransaccion) {
+	                        conexion.commit();
+	                        confirmadas += sinConfirmar;
+	                        sinConfirmar = 0;
+	                        lotesSinConfirmar = 0;
+	                    }
+	                }
+	            }
+	            if (enLote > 0) {
+	                sentencia.executeBatch();
+	                sinConfirmar += enLote;
+	            }
+	            conexion.commit();
+	            confirmadas += sinConfirmar;
+	        } catch (SQLException ex) {
+	            metricaCreateAll.fallo();
+	            System.out.println("Error al insertar el lote de incidencias");
+	            ex.printStackTrace();
+	        } finally {
+	            metricaCreateAll.terminar(inicio);
+	        }
+	        return confirmadas;
+	    }
+	    
+	    /**
+	     * Convierte una fecha a Timestamp admitiendo valores nulos
+	     * @param fecha
+	     * @return
+	     */
+	    private static Timestamp aTimestamp(LocalDateTime fecha) {
+	        return fecha != null ? Timestamp.valueOf(fecha) : null;
+	    }
 	
 	/**
 	 * Método que elimina de la base de datos una incidencia cuyos datos se le aporta en consulta parametrizada
@@ -116,7 +283,9 @@ public class IncidenciasDAO {
 	 */
 	public void delete(String codigo) {
 		String sql = "DELETE FROM incidencia WHERE codigo = ?";
-		try(PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+		long inicio = metricaDelete.iniciar();
+		try(Connection conexion = pool.obtenerConexion();
+		    PreparedStatement sentencia = conexion.prepareStatement(sql)) {
 			sentencia.setString(1, codigo);
 			int filasAfectadas = sentencia.executeUpdate();
 	        if (filasAfectadas > 0) {
@@ -125,8 +294,11 @@ public class IncidenciasDAO {
 	            System.out.println("No se encontró ninguna incidencia con el código proporcionado");
 	        }
 		}catch(SQLException ex) {
+			metricaDelete.fallo();
 			System.out.println("Error al eliminar incidencia");
 			ex.printStackTrace();
+		} finally {
+			metricaDelete.terminar(inicio);
 		}
 	}
 	
@@ -137,10 +309,12 @@ public class IncidenciasDAO {
 	public void update(Incidencia incidencia) {
 	    if (incidencia != null) {
 	        String sql = "UPDATE incidencia SET problema = ?, puesto = ?, estado = ?, fechaRegistro = ? WHERE codigo = ?";
-	        try (PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+	        long inicio = metricaUpdate.iniciar();
+	        try (Connection conexion = pool.obtenerConexion();
+	             PreparedStatement sentencia = conexion.prepareStatement(sql)) {
 	            sentencia.setString(1, incidencia.getProblema());
 	            sentencia.setInt(2, incidencia.getPuesto());
-	            sentencia.setString(3, incidencia.getEstado());
+	            sentencia.setByte(3, incidencia.getEstado().getValor());
 	            sentencia.setTimestamp(4, java.sql.Timestamp.valueOf(incidencia.getFechaRegistro()));
 	            sentencia.setString(5, incidencia.getCodigo());
 	            int filasAfectadas = sentencia.executeUpdate();
@@ -150,10 +324,74 @@ public class IncidenciasDAO {
 	                System.out.println("No se encontró ninguna incidencia con el código proporcionado");
 	            }
 	        } catch (SQLException ex) {
+	            metricaUpdate.fallo();
 	            System.out.println("Error al actualizar los datos de la incidencia");
 	            ex.printStackTrace();
+	        } finally {
+	            metricaUpdate.terminar(inicio);
+	        }
+	    }
+	}
+	
+	/**
+	 * Método que actualiza todos los campos de las incidencias indicadas en lotes dentro de una única transacción
+	 * @param incidencias
+	 * @return Número de incidencias actualizadas, 0 si la transacción falla
+	 */
+	public int updateAll(Collection<Incidencia> incidencias) {
+	    String sql = "UPDATE incidencia SET problema = ?, puesto = ?, estado = ?, fechaRegistro = ?, fechaResolucion = ?, resolucion = ?, fechaEliminacion = ?, causaEliminacion = ? WHERE codigo = ?";
+	    int actualizadas = 0;
+	    long inicio = metricaUpdateAll.iniciar();
+	    try (Connection conexion = pool.obtenerConexion();
+	         PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+	        conexion.setAutoCommit(false);
+	        int enLote = 0;
+	        for (Incidencia incidencia : incidencias) {
+	            sentencia.setString(1, incidencia.getProblema());
+	            sentencia.setInt(2, incidencia.getPuesto());
+	            sentencia.setByte(3, incidencia.getEstado().getValor());
+	            sentencia.setTimestamp(4, aTimestamp(incidencia.getFechaRegistro()));
+	            sentencia.setTimestamp(5, aTimestamp(incidencia.getFechaResolucion()));
+	            sentencia.setString(6, incidencia.getResolucion());
+	            sentencia.setTimestamp(7, aTimestamp(incidencia.getFechaEliminacion()));
+	            sentencia.setString(8, incidencia.getCausaEliminacion());
+	            sentencia.setString(9, incidencia.getCodigo());
+	            sentencia.addBatch();
+	            if (++enLote == tamanoLote) {
+	                actualizadas += contarFilas(sentencia.executeBatch(), enLote);
+	                enLote = 0;
+	            }
+	        }
+	        if (enLote > 0) {
+	            actualizadas += contarFilas(sentencia.executeBatch(), enLote);
+	        }
+	        conexion.commit();
+	    } catch (SQLException ex) {
+	        metricaUpdateAll.fallo();
+	        System.out.println("Error al actualizar el lote de incidencias");
+	        ex.printStackTrace();
+	        actualizadas = 0;
+	    } finally {
+	        metricaUpdateAll.terminar(inicio);
+	    }
+	    return actualizadas;
+	}
+	
+	/**
+	 * Suma las filas afectadas por un lote; si el driver no informa del número (lotes reescritos) cuenta las sentencias
+	 * @param resultados
+	 * @param sentencias
+	 * @return
+	 */
+	private static int contarFilas(int[] resultados, int sentencias) {
+	    int filas = 0;
+	    for (int resultado : resultados) {
+	        if (resultado == Statement.SUCCESS_NO_INFO) {
+	            return sentencias;
 	        }
+	        filas += Math.max(resultado, 0);
 	    }
+	    return filas;
 	}
 	
 	
@@ -164,28 +402,255 @@ public class IncidenciasDAO {
     public List<Incidencia> listarIncidencias() {
         List<Incidencia> listadoIncidencias = new ArrayList<>();
         String sql = "SELECT * FROM incidencia";
-        try (Statement sentencia = conexion.createStatement();
+        long inicio = metricaListar.iniciar();
+        try (Connection conexion = pool.obtenerConexion();
+             Statement sentencia = conexion.createStatement();
              ResultSet rs = sentencia.executeQuery(sql)) {
 
             while (rs.next()) {
-                String codigo = rs.getString("codigo");
-                String problema = rs.getString("problema");
-                int puesto = rs.getInt("puesto");
-                String estado = rs.getString("estado");
-                LocalDateTime fechaRegistro = rs.getTimestamp("fechaRegistro").toLocalDateTime();
-                LocalDateTime fechaResolucion = rs.getTimestamp("fechaResolucion") != null ? rs.getTimestamp("fechaResolucion").toLocalDateTime() : null;
-                String resolucion = rs.getString("resolucion");
-                LocalDateTime fechaEliminacion = rs.getTimestamp("fechaEliminacion") != null ? rs.getTimestamp("fechaEliminacion").toLocalDateTime() : null;
-                String causaEliminacion = rs.getString("causaEliminacion");
-
-                Incidencia incidencia = new Incidencia(codigo, problema, puesto, estado, fechaRegistro, fechaResolucion, resolucion, fechaEliminacion, causaEliminacion);
+                Incidencia incidencia = leerIncidencia(rs);
                 listadoIncidencias.add(incidencia);
             }
         } catch (SQLException ex) {
+            metricaListar.fallo();
             System.out.println("Error al listar las incidencias");
             ex.printStackTrace();
+        } finally {
+            metricaListar.terminar(inicio);
         }
 
         return listadoIncidencias;
     }
+
+    /**
+     * Método que devuelve una página de incidencias en el estado indicado ordenadas por fecha de registro y código.
+     * Usa paginación por clave: la página siguiente empieza justo después de la última incidencia de la anterior,
+     * de modo que el índice (estado, fechaRegistro, codigo) sitúa cada página sin recorrer las anteriores.
+     * @param estado
+     * @param desde Última incidencia de la página anterior, o null para obtener la primera página
+     * @param limite Número máximo de incidencias de la página
+     * @return
+     */
+    public List<Incidencia> listarPorEstado(EstadoIncidencia estado, Incidencia desde, int limite) {
+        List<Incidencia> pagina = new ArrayList<>();
+        String sql = desde == null
+                ? "SELECT * FROM incidencia WHERE estado = ? ORDER BY fechaRegistro, codigo LIMIT ?"
+                : "SELECT * FROM incidencia WHERE estado = ? AND (fechaRegistro > ? OR (fechaRegistro = ? AND codigo > ?)) ORDER BY fechaRegistro, codigo LIMIT ?";
+        long inicio = metricaListarPorEstado.iniciar();
+        try (Connection conexion = pool.obtenerConexion();
+             PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+            int i = 1;
+            sentencia.setByte(i++, estado.getValor());
+            if (desde != null) {
+                Timestamp fecha = Timestamp.valueOf(desde.getFechaRegistro());
+                sentencia.setTimestamp(i++, fecha);
+                sentencia.setTimestamp(i++, fecha);
+                sentencia.setString(i++, desde.getCodigo());
+            }
+            sentencia.setInt(i, limite);
+            try (ResultSet rs = sentencia.executeQuery()) {
+                while (rs.next()) {
+                    pagina.add(leerIncidencia(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            metricaListarPorEstado.fallo();
+            System.out.println("Error al listar las incidencias por estado");
+            ex.printStackTrace();
+        } finally {
+            metricaListarPorEstado.terminar(inicio);
+        }
+        return pagina;
+    }
+
+    /**
+     * Método que devuelve las incidencias como un Stream que se lee de la base de datos a medida que se consume,
+     * sin cargar la tabla en memoria. El Stream debe cerrarse (por ejemplo con try-with-resources) para liberar
+     * la sentencia, el resultado y la conexión; también se liberan al llegar a la última fila.
+     * @return
+     */
+    public Stream<Incidencia> streamIncidencias() {
+        return streamConsulta(metricaStream, "SELECT * FROM incidencia");
+    }
+
+    /**
+     * Método que devuelve como Stream perezoso las incidencias en el estado indicado registradas en el intervalo
+     * [desde, hasta). Igual que streamIncidencias, el Stream debe cerrarse para liberar la conexión.
+     * @param estado
+     * @param desde Fecha de registro mínima, incluida
+     * @param hasta Fecha de registro máxima, excluida
+     * @return
+     */
+    public Stream<Incidencia> streamPorEstadoYFechas(EstadoIncidencia estado, LocalDateTime desde, LocalDateTime hasta) {
+        return streamConsulta(metricaStreamPorEstado, "SELECT * FROM incidencia WHERE estado = ? AND fechaRegistro >= ? AND fechaRegistro < ?",
+                estado.getValor(), Timestamp.valueOf(desde), Timestamp.valueOf(hasta));
+    }
+
+    /**
+     * Método que devuelve como Stream perezoso las incidencias resueltas en el intervalo [desde, hasta), en orden
+     * de resolución. La consulta recorre el índice idx_fecha_resolucion. El Stream debe cerrarse para liberar la conexión.
+     * @param desde Fecha de resolución mínima, incluida
+     * @param hasta Fecha de resolución máxima, excluida
+     * @return
+     */
+    public Stream<Incidencia> streamPorFechaResolucion(LocalDateTime desde, LocalDateTime hasta) {
+        return streamConsulta(metricaStreamPorResolucion,
+                "SELECT * FROM incidencia WHERE fechaResolucion >= ? AND fechaResolucion < ? ORDER BY fechaResolucion, codigo",
+                Timestamp.valueOf(desde), Timestamp.valueOf(hasta));
+    }
+
+    /**
+     * Método que devuelve como Stream perezoso las incidencias eliminadas en el intervalo [desde, hasta), en orden
+     * de eliminación. La consulta recorre el índice idx_fecha_eliminacion. El Stream debe cerrarse para liberar la conexión.
+     * @param desde Fecha de eliminación mínima, incluida
+     * @param hasta Fecha de eliminación máxima, excluida
+     * @return
+     */
+    public Stream<Incidencia> streamPorFechaEliminacion(LocalDateTime desde, LocalDateTime hasta) {
+        return streamConsulta(metricaStreamPorEliminacion,
+                "SELECT * FROM incidencia WHERE fechaEliminacion >= ? AND fechaEliminacion < ? ORDER BY fechaEliminacion, codigo",
+                Timestamp.valueOf(desde), Timestamp.valueOf(hasta));
+    }
+
+    /**
+     * Método que devuelve la primera y la última fecha de registro de las incidencias en el estado indicado
+     * @param estado
+     * @return Array con la fecha mínima y la máxima, o null si no hay incidencias en ese estado o falla la consulta
+     */
+    public LocalDateTime[] fechasRegistroExtremas(EstadoIncidencia estado) {
+        String sql = "SELECT MIN(fechaRegistro), MAX(fechaRegistro) FROM incidencia WHERE estado = ?";
+        long inicio = metricaFechasExtremas.iniciar();
+        try (Connection conexion = pool.obtenerConexion();
+             PreparedStatement sentencia = conexion.prepareStatement(sql)) {
+            sentencia.setByte(1, estado.getValor());
+            try (ResultSet rs = sentencia.executeQuery()) {
+                if (rs.next() && rs.getTimestamp(1) != null) {
+                    return new LocalDateTime[] { rs.getTimestamp(1).toLocalDateTime(), rs.getTimestamp(2).toLocalDateTime() };
+                }
+            }
+        } catch (SQLException ex) {
+            metricaFechasExtremas.fallo();
+            System.out.println("Error al consultar las fechas de registro");
+            ex.printStackTrace();
+        } finally {
+            metricaFechasExtremas.terminar(inicio);
+        }
+        return null;
+    }
+
+    /**
+     * Ejecuta la consulta indicada con sus parámetros y devuelve sus filas como un Stream perezoso de incidencias.
+     * La métrica mide hasta que la consulta devuelve el resultado; los errores al leer las filas también se cuentan en ella.
+     * @param metrica
+     * @param sql
+     * @param parametros
+     * @return
+     */
+    private Stream<Incidencia> streamConsulta(MetricaOperacion metrica, String sql, Object... parametros) {
+        Connection conexion = null;
+        PreparedStatement sentencia = null;
+        ResultSet rs = null;
+        long inicio = metrica.iniciar();
+        try {
+            conexion = pool.obtenerConexion();
+            sentencia = conexion.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            sentencia.setFetchSize(tamanoFetch);
+            for (int i = 0; i < parametros.length; i++) {
+                sentencia.setObject(i + 1, parametros[i]);
+            }
+            rs = sentencia.executeQuery();
+        } catch (SQLException ex) {
+            metrica.fallo();
+            System.out.println("Error al listar las incidencias");
+            ex.printStackTrace();
+            cerrar(rs, sentencia, conexion);
+            return Stream.empty();
+        } finally {
+            metrica.terminar(inicio);
+        }
+        CursorIncidencias cursor = new CursorIncidencias(metrica, rs, sentencia, conexion);
+        return StreamSupport.stream(cursor, false).onClose(cursor::cerrar);
+    }
+
+    /**
+     * Construye una incidencia a partir de la fila actual del ResultSet
+     * @param rs
+     * @return
+     * @throws SQLException
+     */
+    private Incidencia leerIncidencia(ResultSet rs) throws SQLException {
+        String codigo = rs.getString("codigo");
+        String problema = rs.getString("problema");
+        int puesto = rs.getInt("puesto");
+        EstadoIncidencia estado = EstadoIncidencia.desdeValor(rs.getInt("estado"));
+        LocalDateTime fechaRegistro = rs.getTimestamp("fechaRegistro").toLocalDateTime();
+        LocalDateTime fechaResolucion = rs.getTimestamp("fechaResolucion") != null ? rs.getTimestamp("fechaResolucion").toLocalDateTime() : null;
+        String resolucion = rs.getString("resolucion");
+        LocalDateTime fechaEliminacion = rs.getTimestamp("fechaEliminacion") != null ? rs.getTimestamp("fechaEliminacion").toLocalDateTime() : null;
+        String causaEliminacion = rs.getString("causaEliminacion");
+
+        return new Incidencia(codigo, problema, puesto, estado, fechaRegistro, fechaResolucion, resolucion, fechaEliminacion, causaEliminacion);
+    }
+
+    /**
+     * Cierra los recursos JDBC indicados ignorando los que sean nulos
+     * @param recursos
+     */
+    private static void cerrar(AutoCloseable... recursos) {
+        for (AutoCloseable recurso : recursos) {
+            if (recurso != null) {
+                try {
+                    recurso.close();
+                } catch (Exception ex) {
+                    System.out.println("Error al cerrar los recursos de la consulta");
+                    ex.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Spliterator que recorre un ResultSet abierto y libera sus recursos al terminar o al cerrarse
+     */
+    private class CursorIncidencias extends Spliterators.AbstractSpliterator<Incidencia> {
+        private final ResultSet rs;
+        private final Statement sentencia;
+        private final Connection conexion;
+        private final MetricaOperacion metrica;
+        private boolean cerrado;
+
+        CursorIncidencias(MetricaOperacion metrica, ResultSet rs, Statement sentencia, Connection conexion) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.metrica = metrica;
+            this.rs = rs;
+            this.sentencia = sentencia;
+            this.conexion = conexion;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Incidencia> accion) {
+            if (cerrado) {
+                return false;
+            }
+            try {
+                if (rs.next()) {
+                    accion.accept(leerIncidencia(rs));
+                    return true;
+                }
+            } catch (SQLException ex) {
+                metrica.fallo();
+                System.out.println("Error al leer las incidencias");
+                ex.printStackTrace();
+            }
+            cerrar();
+            return false;
+        }
+
+        void cerrar() {
+            if (!cerrado) {
+                cerrado = true;
+                IncidenciasDAO.cerrar(rs, sentencia, conexion);
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,701 @@
+package persistencia;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Persistencia local de incidencias en ficheros, para instalaciones sin servidor MySQL.
+ * Cada cambio se añade como un registro binario con su CRC al final de un diario que se escribe
+ * con un FileChannel. Las escrituras de varios hilos se agrupan: mientras un hilo escribe y sincroniza
+ * un grupo de registros, los demás acumulan los suyos para el siguiente. Cada cierto número de registros
+ * se guarda una instantánea completa mediante un fichero proyectado en memoria y se empieza un diario
+ * nuevo. Al arrancar se lee la última instantánea y se aplican los diarios posteriores; si el último
+ * registro quedó a medias por una caída, se descarta.
+ * Las consultas se resuelven con la copia del estado que se mantiene en memoria.
+ */
+public class IncidenciasDiario extends IncidenciasMemoria {
+
+	/**
+	 * Cuándo se sincroniza el diario con el disco.
+	 */
+	public enum Sincronizacion {
+		/** Cada escritura espera a que su grupo de registros esté en el disco. */
+		CADA_ESCRITURA,
+		/** Las escrituras vuelven enseguida y el diario se escribe y sincroniza cada cierto intervalo. */
+		PERIODICA,
+		/** Cada escritura espera a que su grupo se entregue al sistema operativo, que decide cuándo llega al disco. */
+		SISTEMA
+	}
+
+	private static final int MAGICO_INSTANTANEA = 0x494E4331; // "INC1"
+	private static final int TAMANO_CABECERA_INSTANTANEA = 4 + 8 + 8; // Mágico, generación y número de incidencias
+	private static final int TAMANO_CABECERA_REGISTRO = 4 + 4; // Longitud y CRC
+	private static final int VENTANA_PROYECCION = 8 * 1024 * 1024;
+	private static final int MAXIMO_PENDIENTE = 1024 * 1024; // Bytes acumulados que fuerzan una escritura
+	private static final byte ALTA = 1;
+	private static final byte CAMBIO = 2;
+	private static final byte BORRADO = 3;
+	private static final long SIN_FECHA = Long.MIN_VALUE;
+
+	private final Path directorio;
+	private final Sincronizacion sincronizacion;
+	private final long registrosPorInstantanea;
+	private final ScheduledExecutorService tareas;
+
+	private final ReentrantLock cerrojo = new ReentrantLock();
+	private final Condition escrito = cerrojo.newCondition();
+	private final ReentrantLock cerrojoInstantanea = new ReentrantLock(); // Una sola instantánea a la vez
+	private FileChannel diario;
+	private long generacion; // Número del diario actual
+	private ByteBuffer pendiente = ByteBuffer.allocate(64 * 1024); // Registros aún no escritos
+	private ByteBuffer enEscritura = ByteBuffer.allocate(64 * 1024); // Registros que está escribiendo otro hilo
+	private long ultimoEncolado; // Número del último registro añadido a pendiente
+	private long ultimoEscrito; // Número del último registro escrito en el diario
+	private boolean escribiendo;
+	private long registrosDesdeInstantanea;
+	private boolean instantaneaProgramada;
+	private boolean cerrado;
+	private IOException errorEscritura; // Primer error al escribir el diario; después no se aceptan más registros
+
+	/**
+	 * Abre o crea la persistencia en el directorio indicado y recupera su estado.
+	 * @param directorio Directorio con la instantánea y los diarios.
+	 * @param sincronizacion Cuándo se sincroniza el diario con el disco.
+	 * @param intervaloSincronizacionMs Milisegundos entre dos escrituras con la sincronización periódica.
+	 * @param registrosPorInstantanea Número de registros tras el cual se guarda una instantánea nueva.
+	 * @throws UncheckedIOException si no se puede leer o crear el directorio.
+	 */
+	public IncidenciasDiario(Path directorio, Sincronizacion sincronizacion, long intervaloSincronizacionMs,
+			long registrosPorInstantanea) {
+		if (registrosPorInstantanea < 1) {
+			throw new IllegalArgumentException("El número de registros por instantánea debe ser positivo");
+		}
+		this.directorio = directorio;
+		this.sincronizacion = sincronizacion;
+		this.registrosPorInstantanea = registrosPorInstantanea;
+		try {
+			Files.createDirectories(directorio);
+			recuperar();
+		} catch (IOException ex) {
+			throw new UncheckedIOException("No se puede abrir el diario de incidencias en " + directorio, ex);
+		}
+		this.tareas = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread hilo = new Thread(r, "diario-incidencias");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+		if (sincronizacion == Sincronizacion.PERIODICA) {
+			tareas.scheduleWithFixedDelay(this::sincronizar, intervaloSincronizacionMs, intervaloSincronizacionMs,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Guarda una instantánea final y cierra el diario
+	 */
+	@Override
+	public void cerrarConexion() {
+		tareas.shutdown();
+		try {
+			tareas.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		hacerInstantanea();
+		cerrojo.lock();
+		try {
+			if (cerrado) {
+				return;
+			}
+			vaciarPendiente();
+			cerrado = true;
+			diario.force(false);
+			diario.close();
+		} catch (IOException ex) {
+			System.out.println("Error al cerrar el diario de incidencias");
+			ex.printStackTrace();
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	@Override
+	public void create(Incidencia incidencia) {
+		if (incidencia == null) {
+			System.out.println("La incidencia no puede ser nula");
+		} else if (registrar(ALTA, List.of(incidencia).iterator()) > 0) {
+			System.out.println("Incidencia insertada correctamente");
+		} else {
+			System.out.println("Error al insertar una nueva incidencia");
+		}
+	}
+
+	@Override
+	public int createAll(Collection<Incidencia> incidencias) {
+		return registrar(ALTA, incidencias.iterator());
+	}
+
+	@Override
+	public int createAll(Iterator<Incidencia> incidencias) {
+		return registrar(ALTA, incidencias);
+	}
+
+	@Override
+	public void delete(String codigo) {
+		Incidencia borrada = new Incidencia(codigo, null, 0, null, null, null, null, null, null);
+		if (registrar(BORRADO, List.of(borrada).iterator()) > 0) {
+			System.out.println("Incidencia eliminada correctamente");
+		} else {
+			System.out.println("No se encontró ninguna incidencia con el código proporcionado");
+		}
+	}
+
+	/**
+	 * Actualiza el problema, el puesto, el estado y la fecha de registro
+	 */
+	@Override
+	public void update(Incidencia incidencia) {
+		if (incidencia == null) {
+			return;
+		}
+		Incidencia actual = incidencias.get(incidencia.getCodigo());
+		if (actual == null) {
+			System.out.println("No se encontró ninguna incidencia con el código proporcionado");
+			return;
+		}
+		if (registrar(CAMBIO, List.of(actualizarDatos(actual, incidencia)).iterator()) > 0) {
+			System.out.println("Incidencia actualizada correctamente");
+		}
+	}
+
+	@Override
+	public int updateAll(Collection<Incidencia> incidencias) {
+		return registrar(CAMBIO, incidencias.iterator());
+	}
+
+	/**
+	 * Añade al diario los registros de las incidencias y aplica los cambios al estado en memoria.
+	 * Las altas de códigos que ya existen y los cambios o borrados de códigos que no existen se descartan.
+	 * @param tipo ALTA, CAMBIO o BORRADO
+	 * @param lote
+	 * @return Número de incidencias registradas
+	 */
+	private int registrar(byte tipo, Iterator<Incidencia> lote) {
+		// Los registros se preparan fuera del cerrojo
+		List<Incidencia> copias = new ArrayList<>();
+		List<byte[]> registros = new ArrayList<>();
+		while (lote.hasNext()) {
+			Incidencia incidencia = lote.next();
+			if (incidencia != null) {
+				Incidencia copia = copiar(incidencia);
+				copias.add(copia);
+				registros.add(tipo == BORRADO ? registroBorrado(copia.getCodigo()) : registro(tipo, copia));
+			}
+		}
+
+		int aceptados = 0;
+		long numero;
+		cerrojo.lock();
+		try {
+			comprobarDisponible();
+			for (int i = 0; i < copias.size(); i++) {
+				Incidencia copia = copias.get(i);
+				String codigo = copia.getCodigo();
+				boolean existe = incidencias.containsKey(codigo);
+				if (tipo == ALTA ? existe : !existe) {
+					continue;
+				}
+				encolar(registros.get(i));
+				if (tipo == BORRADO) {
+					incidencias.remove(codigo);
+				} else {
+					incidencias.put(codigo, copia);
+				}
+				aceptados++;
+			}
+			numero = ultimoEncolado;
+			registrosDesdeInstantanea += aceptados;
+			if (registrosDesdeInstantanea >= registrosPorInstantanea && !instantaneaProgramada && !tareas.isShutdown()) {
+				instantaneaProgramada = true;
+				tareas.execute(this::hacerInstantanea);
+			}
+
+			if (sincronizacion != Sincronizacion.PERIODICA || pendiente.position() >= MAXIMO_PENDIENTE) {
+				// Escritura en grupo: el primer hilo que llega escribe todo lo acumulado y los demás esperan
+				while (ultimoEscrito < numero) {
+					comprobarDisponible();
+					if (escribiendo) {
+						escrito.awaitUninterruptibly();
+					} else {
+						escribirPendiente();
+					}
+				}
+			}
+		} catch (IOException ex) {
+			System.out.println("Error al escribir en el diario de incidencias");
+			ex.printStackTrace();
+			return 0;
+		} finally {
+			cerrojo.unlock();
+		}
+		return aceptados;
+	}
+
+	/**
+	 * Comprueba que el diario sigue abierto y que no ha fallado ninguna escritura. Se llama con el cerrojo tomado.
+	 */
+	private void comprobarDisponible() throws IOException {
+		if (errorEscritura != null) {
+			throw new IOException("El diario de incidencias no está disponible por un error de escritura anterior", errorEscritura);
+		}
+		if (cerrado) {
+			throw new IOException("El diario de incidencias está cerrado");
+		}
+	}
+
+	/**
+	 * Añade un registro al buffer pendiente. Se llama con el cerrojo tomado.
+	 */
+	private void encolar(byte[] registro) {
+		if (pendiente.remaining() < registro.length) {
+			ByteBuffer mayor = ByteBuffer.allocate(Math.max(pendiente.capacity() * 2, pendiente.position() + registro.length));
+			pendiente.flip();
+			mayor.put(pendiente);
+			pendiente = mayor;
+		}
+		pendiente.put(registro);
+		ultimoEncolado++;
+	}
+
+	/**
+	 * Escribe en el diario los registros pendientes. Se llama con el cerrojo tomado y sin otra escritura
+	 * en curso; el cerrojo se suelta mientras se escribe para que otros hilos sigan añadiendo registros.
+	 */
+	private void escribirPendiente() throws IOException {
+		ByteBuffer lote = pendiente;
+		long hasta = ultimoEncolado;
+		pendiente = enEscritura;
+		pendiente.clear();
+		enEscritura = lote;
+		escribiendo = true;
+		FileChannel canal = diario;
+		cerrojo.unlock();
+		try {
+			lote.flip();
+			while (lote.hasRemaining()) {
+				canal.write(lote);
+			}
+			if (sincronizacion != Sincronizacion.SISTEMA) {
+				canal.force(false);
+			}
+		} catch (IOException ex) {
+			// Los registros del grupo se han perdido, así que no se puede seguir añadiendo al diario
+			cerrojo.lock();
+			errorEscritura = ex;
+			cerrojo.unlock();
+			throw ex;
+		} finally {
+			cerrojo.lock();
+			escribiendo = false;
+			escrito.signalAll();
+		}
+		ultimoEscrito = hasta;
+	}
+
+	/**
+	 * Espera a la escritura en curso y escribe lo que quede pendiente. Se llama con el cerrojo tomado.
+	 */
+	private void vaciarPendiente() throws IOException {
+		while (escribiendo || ultimoEscrito < ultimoEncolado) {
+			if (errorEscritura != null) {
+				throw new IOException("El diario de incidencias no está disponible por un error de escritura anterior", errorEscritura);
+			}
+			if (escribiendo) {
+				escrito.awaitUninterruptibly();
+			} else {
+				escribirPendiente();
+			}
+		}
+	}
+
+	/**
+	 * Escribe y sincroniza los registros pendientes; con la sincronización periódica se llama cada intervalo.
+	 */
+	public void sincronizar() {
+		cerrojo.lock();
+		try {
+			if (!cerrado) {
+				vaciarPendiente();
+			}
+		} catch (IOException ex) {
+			System.out.println("Error al sincronizar el diario de incidencias");
+			ex.printStackTrace();
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Guarda una instantánea del estado actual y borra los diarios que ya contiene.
+	 * Los registros nuevos van a un diario nuevo mientras se escribe la instantánea.
+	 */
+	public void hacerInstantanea() {
+		cerrojoInstantanea.lock();
+		try {
+			long generacionInstantanea;
+			List<Incidencia> estado;
+			cerrojo.lock();
+			try {
+				instantaneaProgramada = false;
+				if (cerrado) {
+					return;
+				}
+				vaciarPendiente();
+				diario.force(false);
+				diario.close();
+				generacion++;
+				diario = abrirDiario(generacion);
+				estado = new ArrayList<>(incidencias.values());
+				generacionInstantanea = generacion;
+				registrosDesdeInstantanea = 0;
+			} finally {
+				cerrojo.unlock();
+			}
+			escribirInstantanea(generacionInstantanea, estado);
+			borrarAnteriores(generacionInstantanea);
+		} catch (IOException ex) {
+			System.out.println("Error al guardar la instantánea de incidencias");
+			ex.printStackTrace();
+		} finally {
+			cerrojoInstantanea.unlock();
+		}
+	}
+
+	/**
+	 * Escribe la instantánea con un fichero proyectado en memoria. La cabecera con el número mágico se escribe
+	 * al final, cuando el resto ya está en el disco, para que una instantánea a medias no se use nunca.
+	 */
+	private void escribirInstantanea(long generacionInstantanea, List<Incidencia> estado) throws IOException {
+		Path fichero = directorio.resolve(nombreInstantanea(generacionInstantanea));
+		try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long inicio = TAMANO_CABECERA_INSTANTANEA;
+			// La primera ventana se ajusta a un tamaño estimado para que las instantáneas pequeñas no ocupen de más
+			long estimado = Math.max(4096, estado.size() * 160L);
+			MappedByteBuffer ventana = canal.map(FileChannel.MapMode.READ_WRITE, inicio, Math.min(VENTANA_PROYECCION, estimado));
+			for (Incidencia incidencia : estado) {
+				byte[] registro = registro(ALTA, incidencia);
+				if (ventana.remaining() < registro.length) {
+					ventana.force();
+					inicio += ventana.position();
+					ventana = canal.map(FileChannel.MapMode.READ_WRITE, inicio, Math.max(VENTANA_PROYECCION, registro.length));
+				}
+				ventana.put(registro);
+			}
+			ventana.force();
+
+			MappedByteBuffer cabecera = canal.map(FileChannel.MapMode.READ_WRITE, 0, TAMANO_CABECERA_INSTANTANEA);
+			cabecera.putInt(MAGICO_INSTANTANEA).putLong(generacionInstantanea).putLong(estado.size());
+			cabecera.force();
+		}
+	}
+
+	/**
+	 * Borra las instantáneas y los diarios anteriores a una instantánea ya completa.
+	 * Si un fichero no se puede borrar se vuelve a intentar en la siguiente instantánea.
+	 */
+	private void borrarAnteriores(long generacionInstantanea) throws IOException {
+		for (Map.Entry<Long, Path> diarioAnterior : ficheros("diario-").headMap(generacionInstantanea).entrySet()) {
+			borrar(diarioAnterior.getValue());
+		}
+		for (Map.Entry<Long, Path> instantanea : ficheros("instantanea-").headMap(generacionInstantanea).entrySet()) {
+			borrar(instantanea.getValue());
+		}
+	}
+
+	private static void borrar(Path fichero) {
+		try {
+			Files.deleteIfExists(fichero);
+		} catch (IOException ex) {
+			System.out.println("No se ha podido borrar " + fichero);
+		}
+	}
+
+	/**
+	 * Carga la última instantánea completa y aplica los diarios posteriores, en orden.
+	 */
+	private void recuperar() throws IOException {
+		long generacionInstantanea = 0;
+		for (Map.Entry<Long, Path> instantanea : ficheros("instantanea-").descendingMap().entrySet()) {
+			if (leerInstantanea(instantanea.getValue())) {
+				generacionInstantanea = instantanea.getKey();
+				break;
+			}
+			incidencias.clear();
+		}
+
+		generacion = generacionInstantanea;
+		for (Map.Entry<Long, Path> diarioPosterior : ficheros("diario-").tailMap(generacionInstantanea).entrySet()) {
+			leerDiario(diarioPosterior.getValue());
+			generacion = diarioPosterior.getKey();
+		}
+		diario = abrirDiario(generacion);
+	}
+
+	/**
+	 * Lee una instantánea proyectándola en memoria por ventanas.
+	 * @return false si la instantánea está incompleta o dañada
+	 */
+	private boolean leerInstantanea(Path fichero) throws IOException {
+		try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)) {
+			long tamano = canal.size();
+			if (tamano < TAMANO_CABECERA_INSTANTANEA) {
+				return false;
+			}
+			MappedByteBuffer cabecera = canal.map(FileChannel.MapMode.READ_ONLY, 0, TAMANO_CABECERA_INSTANTANEA);
+			if (cabecera.getInt() != MAGICO_INSTANTANEA) {
+				return false;
+			}
+			cabecera.getLong();
+			long total = cabecera.getLong();
+
+			long inicio = TAMANO_CABECERA_INSTANTANEA;
+			MappedByteBuffer ventana = null;
+			for (long leidas = 0; leidas < total; leidas++) {
+				if (ventana == null || ventana.remaining() < TAMANO_CABECERA_REGISTRO
+						|| ventana.remaining() < TAMANO_CABECERA_REGISTRO + ventana.getInt(ventana.position())) {
+					if (ventana != null) {
+						inicio += ventana.position();
+					}
+					if (tamano - inicio < TAMANO_CABECERA_REGISTRO) {
+						return false;
+					}
+					ventana = canal.map(FileChannel.MapMode.READ_ONLY, inicio, Math.min(tamano - inicio,
+							Math.max(VENTANA_PROYECCION, TAMANO_CABECERA_REGISTRO + (long) leerEntero(canal, inicio))));
+				}
+				int longitud = ventana.getInt();
+				int crc = ventana.getInt();
+				if (longitud <= 0 || longitud > ventana.remaining()) {
+					return false;
+				}
+				ByteBuffer carga = ventana.slice(ventana.position(), longitud);
+				ventana.position(ventana.position() + longitud);
+				if (!aplicar(carga, crc)) {
+					return false;
+				}
+			}
+			return true;
+		} catch (RuntimeException ex) {
+			System.out.println("La instantánea " + fichero + " está dañada");
+			ex.printStackTrace();
+			return false;
+		}
+	}
+
+	private static int leerEntero(FileChannel canal, long posicion) throws IOException {
+		ByteBuffer entero = ByteBuffer.allocate(4);
+		while (entero.hasRemaining() && canal.read(entero, posicion + entero.position()) >= 0) {
+		}
+		return entero.hasRemaining() ? 0 : entero.getInt(0);
+	}
+
+	/**
+	 * Aplica los registros de un diario. Si el final está incompleto o dañado por una caída, lo recorta.
+	 */
+	private void leerDiario(Path fichero) throws IOException {
+		long valido = 0;
+		long tamano = Files.size(fichero);
+		try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(fichero), 64 * 1024))) {
+			while (true) {
+				int longitud = entrada.readInt();
+				int crc = entrada.readInt();
+				if (longitud <= 0 || longitud > tamano - valido - TAMANO_CABECERA_REGISTRO) {
+					break;
+				}
+				byte[] carga = new byte[longitud];
+				entrada.readFully(carga);
+				if (!aplicar(ByteBuffer.wrap(carga), crc)) {
+					break;
+				}
+				valido += TAMANO_CABECERA_REGISTRO + longitud;
+			}
+		} catch (EOFException ex) {
+			// Fin del diario
+		}
+		if (valido < tamano) {
+			System.out.println("Se descarta el final incompleto del diario " + fichero);
+			try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.WRITE)) {
+				canal.truncate(valido);
+			}
+		}
+	}
+
+	/**
+	 * Comprueba el CRC de un registro y lo aplica al estado en memoria.
+	 * @return false si el CRC no coincide
+	 */
+	private boolean aplicar(ByteBuffer carga, int crc) {
+		CRC32C calculado = new CRC32C();
+		calculado.update(carga.duplicate());
+		if ((int) calculado.getValue() != crc) {
+			return false;
+		}
+		byte tipo = carga.get();
+		String codigo = leerTexto(carga);
+		if (tipo == BORRADO) {
+			incidencias.remove(codigo);
+			return true;
+		}
+		String problema = leerTexto(carga);
+		int puesto = carga.getInt();
+		EstadoIncidencia estado = EstadoIncidencia.desdeValor(carga.get());
+		LocalDateTime fechaRegistro = leerFecha(carga);
+		LocalDateTime fechaResolucion = leerFecha(carga);
+		String resolucion = leerTexto(carga);
+		LocalDateTime fechaEliminacion = leerFecha(carga);
+		String causaEliminacion = leerTexto(carga);
+		incidencias.put(codigo, new Incidencia(codigo, problema, puesto, estado, fechaRegistro, fechaResolucion, resolucion,
+				fechaEliminacion, causaEliminacion));
+		return true;
+	}
+
+	private FileChannel abrirDiario(long numero) throws IOException {
+		return FileChannel.open(directorio.resolve(nombreDiario(numero)), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Obtiene los ficheros del directorio con el prefijo indicado ordenados por su número de generación
+	 */
+	private TreeMap<Long, Path> ficheros(String prefijo) throws IOException {
+		TreeMap<Long, Path> encontrados = new TreeMap<>();
+		try (DirectoryStream<Path> contenido = Files.newDirectoryStream(directorio, prefijo + "*.bin")) {
+			for (Path fichero : contenido) {
+				String nombre = fichero.getFileName().toString();
+				try {
+					encontrados.put(Long.parseLong(nombre.substring(prefijo.length(), nombre.length() - 4)), fichero);
+				} catch (NumberFormatException ex) {
+					// No es un fichero de la persistencia
+				}
+			}
+		}
+		return encontrados;
+	}
+
+	private static String nombreDiario(long numero) {
+		return "diario-" + numero + ".bin";
+	}
+
+	private static String nombreInstantanea(long numero) {
+		return "instantanea-" + numero + ".bin";
+	}
+
+	/**
+	 * Codifica un registro de alta o cambio: longitud, CRC, tipo y campos de la incidencia
+	 */
+	private static byte[] registro(byte tipo, Incidencia incidencia) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(160);
+		try (DataOutputStream salida = new DataOutputStream(bytes)) {
+			salida.writeLong(0); // Longitud y CRC, se rellenan al final
+			salida.writeByte(tipo);
+			escribirTexto(salida, incidencia.getCodigo());
+			escribirTexto(salida, incidencia.getProblema());
+			salida.writeInt(incidencia.getPuesto());
+			salida.writeByte(incidencia.getEstado().getValor());
+			escribirFecha(salida, incidencia.getFechaRegistro());
+			escribirFecha(salida, incidencia.getFechaResolucion());
+			escribirTexto(salida, incidencia.getResolucion());
+			escribirFecha(salida, incidencia.getFechaEliminacion());
+			escribirTexto(salida, incidencia.getCausaEliminacion());
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex); // No ocurre al escribir en memoria
+		}
+		return completar(bytes.toByteArray());
+	}
+
+	private static byte[] registroBorrado(String codigo) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+		try (DataOutputStream salida = new DataOutputStream(bytes)) {
+			salida.writeLong(0);
+			salida.writeByte(BORRADO);
+			escribirTexto(salida, codigo);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return completar(bytes.toByteArray());
+	}
+
+	/**
+	 * Rellena la longitud y el CRC de la carga del registro
+	 */
+	private static byte[] completar(byte[] registro) {
+		CRC32C crc = new CRC32C();
+		crc.update(registro, TAMANO_CABECERA_REGISTRO, registro.length - TAMANO_CABECERA_REGISTRO);
+		ByteBuffer.wrap(registro).putInt(registro.length - TAMANO_CABECERA_REGISTRO).putInt((int) crc.getValue());
+		return registro;
+	}
+
+	private static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+		if (texto == null) {
+			salida.writeInt(-1);
+		} else {
+			byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+			salida.writeInt(bytes.length);
+			salida.write(bytes);
+		}
+	}
+
+	private static String leerTexto(ByteBuffer carga) {
+		int longitud = carga.getInt();
+		if (longitud < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[longitud];
+		carga.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void escribirFecha(DataOutputStream salida, LocalDateTime fecha) throws IOException {
+		if (fecha == null) {
+			salida.writeLong(SIN_FECHA);
+		} else {
+			salida.writeLong(fecha.toEpochSecond(ZoneOffset.UTC));
+			salida.writeInt(fecha.getNano());
+		}
+	}
+
+	private static LocalDateTime leerFecha(ByteBuffer carga) {
+		long segundos = carga.getLong();
+		return segundos == SIN_FECHA ? null : LocalDateTime.ofEpochSecond(segundos, carga.getInt(), ZoneOffset.UTC);
+	}
+}
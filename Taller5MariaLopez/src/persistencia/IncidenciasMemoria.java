@@ -0,0 +1,182 @@
+package persistencia;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Almacenamiento de incidencias solo en memoria, sin base de datos ni ficheros.
+ * Guarda copias de las incidencias, de modo que los cambios posteriores de los objetos
+ * de la lógica no afectan a lo guardado hasta que se vuelven a guardar.
+ * Sirve para pruebas y para puestos en los que no hace falta conservar los datos.
+ */
+public class IncidenciasMemoria implements RepositorioIncidencias {
+
+	protected final Map<String, Incidencia> incidencias = new ConcurrentHashMap<>();
+
+	@Override
+	public Incidencia buscaIncidencia(String codigo) {
+		Incidencia incidencia = incidencias.get(codigo);
+		return incidencia != null ? copiar(incidencia) : null;
+	}
+
+	@Override
+	public void create(Incidencia incidencia) {
+		if (incidencia == null) {
+			System.out.println("La incidencia no puede ser nula");
+		} else if (incidencias.putIfAbsent(incidencia.getCodigo(), copiar(incidencia)) == null) {
+			System.out.println("Incidencia insertada correctamente");
+		} else {
+			System.out.println("Error al insertar una nueva incidencia");
+		}
+	}
+
+	@Override
+	public int createAll(Collection<Incidencia> incidencias) {
+		return createAll(incidencias.iterator());
+	}
+
+	/**
+	 * Guarda las incidencias que no existían; las de códigos repetidos se descartan
+	 */
+	@Override
+	public int createAll(Iterator<Incidencia> nuevas) {
+		int insertadas = 0;
+		while (nuevas.hasNext()) {
+			Incidencia incidencia = nuevas.next();
+			if (incidencia != null && incidencias.putIfAbsent(incidencia.getCodigo(), copiar(incidencia)) == null) {
+				insertadas++;
+			}
+		}
+		return insertadas;
+	}
+
+	@Override
+	public void delete(String codigo) {
+		if (incidencias.remove(codigo) != null) {
+			System.out.println("Incidencia eliminada correctamente");
+		} else {
+			System.out.println("No se encontró ninguna incidencia con el código proporcionado");
+		}
+	}
+
+	@Override
+	public void update(Incidencia incidencia) {
+		if (incidencia == null) {
+			return;
+		}
+		Incidencia actualizada = incidencias.computeIfPresent(incidencia.getCodigo(), (codigo, actual) -> actualizarDatos(actual, incidencia));
+		if (actualizada != null) {
+			System.out.println("Incidencia actualizada correctamente");
+		} else {
+			System.out.println("No se encontró ninguna incidencia con el código proporcionado");
+		}
+	}
+
+	@Override
+	public int updateAll(Collection<Incidencia> cambiadas) {
+		int actualizadas = 0;
+		for (Incidencia incidencia : cambiadas) {
+			if (incidencias.replace(incidencia.getCodigo(), copiar(incidencia)) != null) {
+				actualizadas++;
+			}
+		}
+		return actualizadas;
+	}
+
+	@Override
+	public List<Incidencia> listarIncidencias() {
+		return incidencias.values().stream().map(IncidenciasMemoria::copiar).collect(Collectors.toList());
+	}
+
+	@Override
+	public List<Incidencia> listarPorEstado(EstadoIncidencia estado, Incidencia desde, int limite) {
+		Comparator<Incidencia> orden = Comparator.comparing(Incidencia::getFechaRegistro).thenComparing(Incidencia::getCodigo);
+		return incidencias.values().stream()
+				.filter(i -> i.getEstado() == estado && (desde == null || orden.compare(i, desde) > 0))
+				.sorted(orden)
+				.limit(limite)
+				.map(IncidenciasMemoria::copiar)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public Stream<Incidencia> streamIncidencias() {
+		return incidencias.values().stream().map(IncidenciasMemoria::copiar);
+	}
+
+	@Override
+	public Stream<Incidencia> streamPorEstadoYFechas(EstadoIncidencia estado, LocalDateTime desde, LocalDateTime hasta) {
+		return incidencias.values().stream()
+				.filter(i -> i.getEstado() == estado && !i.getFechaRegistro().isBefore(desde) && i.getFechaRegistro().isBefore(hasta))
+				.map(IncidenciasMemoria::copiar);
+	}
+
+	@Override
+	public Stream<Incidencia> streamPorFechaResolucion(LocalDateTime desde, LocalDateTime hasta) {
+		return streamPorFecha(Incidencia::getFechaResolucion, desde, hasta);
+	}
+
+	@Override
+	public Stream<Incidencia> streamPorFechaEliminacion(LocalDateTime desde, LocalDateTime hasta) {
+		return streamPorFecha(Incidencia::getFechaEliminacion, desde, hasta);
+	}
+
+	private Stream<Incidencia> streamPorFecha(Function<Incidencia, LocalDateTime> fecha, LocalDateTime desde, LocalDateTime hasta) {
+		return incidencias.values().stream()
+				.filter(i -> fecha.apply(i) != null && !fecha.apply(i).isBefore(desde) && fecha.apply(i).isBefore(hasta))
+				.sorted(Comparator.comparing(fecha).thenComparing(Incidencia::getCodigo))
+				.map(IncidenciasMemoria::copiar);
+	}
+
+	@Override
+	public LocalDateTime[] fechasRegistroExtremas(EstadoIncidencia estado) {
+		LocalDateTime minima = null;
+		LocalDateTime maxima = null;
+		for (Incidencia incidencia : incidencias.values()) {
+			if (incidencia.getEstado() == estado) {
+				LocalDateTime fecha = incidencia.getFechaRegistro();
+				minima = minima == null || fecha.isBefore(minima) ? fecha : minima;
+				maxima = maxima == null || fecha.isAfter(maxima) ? fecha : maxima;
+			}
+		}
+		return minima != null ? new LocalDateTime[] { minima, maxima } : null;
+	}
+
+	@Override
+	public void cerrarConexion() {
+		// No hay recursos que liberar
+	}
+
+	/**
+	 * Aplica a una incidencia guardada los campos que cambia update: problema, puesto, estado y fecha de registro
+	 * @param actual La incidencia guardada
+	 * @param cambios La incidencia con los datos nuevos
+	 * @return Una incidencia nueva con el resultado
+	 */
+	protected static Incidencia actualizarDatos(Incidencia actual, Incidencia cambios) {
+		return new Incidencia(actual.getCodigo(), cambios.getProblema(), cambios.getPuesto(), cambios.getEstado(),
+				cambios.getFechaRegistro(), actual.getFechaResolucion(), actual.getResolucion(),
+				actual.getFechaEliminacion(), actual.getCausaEliminacion());
+	}
+
+	/**
+	 * Copia una incidencia para que los cambios posteriores del objeto original no afecten al estado guardado
+	 * @param i
+	 * @return
+	 */
+	public static Incidencia copiar(Incidencia i) {
+		return new Incidencia(i.getCodigo(), i.getProblema(), i.getPuesto(), i.getEstado(), i.getFechaRegistro(),
+				i.getFechaResolucion(), i.getResolucion(), i.getFechaEliminacion(), i.getCausaEliminacion());
+	}
+}
@@ -0,0 +1,407 @@
+package persistencia;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool acotado de conexiones JDBC.
+ * Mantiene entre un mínimo y un máximo de conexiones abiertas, valida cada conexión antes
+ * de prestarla, cierra las conexiones inactivas que sobran y limita el tiempo de espera
+ * cuando todas están ocupadas. Las conexiones prestadas vuelven al pool al cerrarlas.
+ */
+public class PoolConexiones implements AutoCloseable {
+
+	private static final int TIMEOUT_VALIDACION_SEGUNDOS = 2;
+
+	private final String url;
+	private final String usuario;
+	private final String password;
+	private final int minimo;
+	private final int maximo;
+	private final long timeoutAdquisicionMs;
+	private final long tiempoInactividadMaxMs;
+
+	private final ReentrantLock cerrojo = new ReentrantLock();
+	private final Condition disponible = cerrojo.newCondition();
+	private final ArrayDeque<ConexionInactiva> inactivas = new ArrayDeque<>();
+	private final ScheduledExecutorService desalojador;
+
+	private int abiertas;
+	private int activas;
+	private int esperando;
+	private long adquisiciones;
+	private long timeouts;
+	private long tiempoEsperaTotalNanos;
+	private boolean cerrado;
+
+	/**
+	 * Crea el pool y abre el número mínimo de conexiones.
+	 * @param url La URL JDBC de la base de datos.
+	 * @param usuario El usuario de la base de datos.
+	 * @param password La contraseña del usuario.
+	 * @param minimo Número de conexiones que se mantienen abiertas aunque estén inactivas.
+	 * @param maximo Número máximo de conexiones abiertas a la vez.
+	 * @param timeoutAdquisicionMs Tiempo máximo de espera para obtener una conexión.
+	 * @param tiempoInactividadMaxMs Tiempo tras el cual se cierra una conexión inactiva que sobra.
+	 */
+	public PoolConexiones(String url, String usuario, String password, int minimo, int maximo,
+			long timeoutAdquisicionMs, long tiempoInactividadMaxMs) {
+		if (minimo < 0 || maximo < 1 || minimo > maximo) {
+			throw new IllegalArgumentException("Tamaño de pool incorrecto: minimo=" + minimo + ", maximo=" + maximo);
+		}
+		this.url = url;
+		this.usuario = usuario;
+		this.password = password;
+		this.minimo = minimo;
+		this.maximo = maximo;
+		this.timeoutAdquisicionMs = timeoutAdquisicionMs;
+		this.tiempoInactividadMaxMs = tiempoInactividadMaxMs;
+
+		for (int i = 0; i < minimo; i++) {
+			try {
+				inactivas.push(new ConexionInactiva(abrir()));
+				abiertas++;
+			} catch (SQLException ex) {
+				System.out.println("Error al conectar a la base de datos");
+				ex.printStackTrace();
+				break;
+			}
+		}
+
+		this.desalojador = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread hilo = new Thread(r, "pool-conexiones-desalojo");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+		long periodo = Math.max(1, tiempoInactividadMaxMs / 2);
+		desalojador.scheduleWithFixedDelay(this::desalojarInactivas, periodo, periodo, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Obtiene una conexión válida del pool, esperando como máximo el tiempo de adquisición configurado.
+	 * La conexión devuelta debe cerrarse para devolverla al pool.
+	 * @return Una conexión prestada por el pool.
+	 * @throws SQLException si el pool está cerrado, se agota el tiempo de espera o no se puede conectar.
+	 */
+	public Connection obtenerConexion() throws SQLException {
+		long inicio = System.nanoTime();
+		long restante = TimeUnit.MILLISECONDS.toNanos(timeoutAdquisicionMs);
+		while (true) {
+			Connection fisica = null;
+			boolean crear = false;
+			cerrojo.lock();
+			try {
+				while (true) {
+					if (cerrado) {
+						throw new SQLException("El pool de conexiones está cerrado");
+					}
+					if (!inactivas.isEmpty()) {
+						fisica = inactivas.pop().conexion;
+						break;
+					}
+					if (abiertas < maximo) {
+						abiertas++; // Reserva el hueco antes de conectar fuera del cerrojo
+						crear = true;
+						break;
+					}
+					if (restante <= 0) {
+						timeouts++;
+						throw new SQLException("Tiempo de espera agotado al obtener una conexión del pool");
+					}
+					esperando++;
+					try {
+						restante = disponible.awaitNanos(restante);
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrumpido mientras se esperaba una conexión", ex);
+					} finally {
+						esperando--;
+					}
+				}
+			} finally {
+				cerrojo.unlock();
+			}
+
+			if (crear) {
+				try {
+					fisica = abrir();
+				} catch (SQLException ex) {
+					liberarHueco();
+					throw ex;
+				}
+			} else if (!esValida(fisica)) {
+				cerrarFisica(fisica);
+				liberarHueco();
+				restante = TimeUnit.MILLISECONDS.toNanos(timeoutAdquisicionMs) - (System.nanoTime() - inicio);
+				continue;
+			}
+
+			cerrojo.lock();
+			try {
+				activas++;
+				adquisiciones++;
+				tiempoEsperaTotalNanos += System.nanoTime() - inicio;
+			} finally {
+				cerrojo.unlock();
+			}
+			return envolver(fisica);
+		}
+	}
+
+	/**
+	 * Cierra todas las conexiones inactivas y marca el pool como cerrado.
+	 * Las conexiones prestadas se cierran cuando se devuelvan.
+	 */
+	@Override
+	public void close() {
+		cerrojo.lock();
+		try {
+			cerrado = true;
+			for (ConexionInactiva inactiva : inactivas) {
+				cerrarFisica(inactiva.conexion);
+				abiertas--;
+			}
+			inactivas.clear();
+			disponible.signalAll();
+		} finally {
+			cerrojo.unlock();
+		}
+		desalojador.shutdownNow();
+	}
+
+	private Connection abrir() throws SQLException {
+		return DriverManager.getConnection(url, usuario, password);
+	}
+
+	private boolean esValida(Connection conexion) {
+		try {
+			return conexion.isValid(TIMEOUT_VALIDACION_SEGUNDOS);
+		} catch (SQLException ex) {
+			return false;
+		}
+	}
+
+	private void cerrarFisica(Connection conexion) {
+		try {
+			conexion.close();
+		} catch (SQLException ex) {
+			// La conexión ya no se va a usar, no hay nada más que hacer
+		}
+	}
+
+	private void liberarHueco() {
+		cerrojo.lock();
+		try {
+			abiertas--;
+			disponible.signal();
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Devuelve al pool una conexión prestada, deshaciendo cualquier transacción pendiente.
+	 */
+	private void devolver(Connection fisica) {
+		boolean reutilizable;
+		try {
+			reutilizable = !fisica.isClosed();
+			if (reutilizable && !fisica.getAutoCommit()) {
+				fisica.rollback();
+				fisica.setAutoCommit(true);
+			}
+		} catch (SQLException ex) {
+			reutilizable = false;
+		}
+
+		cerrojo.lock();
+		try {
+			activas--;
+			if (reutilizable && !cerrado) {
+				inactivas.push(new ConexionInactiva(fisica));
+			} else {
+				abiertas--;
+				cerrarFisica(fisica);
+			}
+			disponible.signal();
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Cierra las conexiones inactivas más antiguas que el tiempo máximo de inactividad,
+	 * manteniendo siempre el número mínimo de conexiones abiertas.
+	 */
+	private void desalojarInactivas() {
+		long limite = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(tiempoInactividadMaxMs);
+		cerrojo.lock();
+		try {
+			// Las más antiguas están al final de la pila
+			Iterator<ConexionInactiva> it = inactivas.descendingIterator();
+			while (it.hasNext() && abiertas > minimo) {
+				ConexionInactiva inactiva = it.next();
+				if (inactiva.desde - limite > 0) {
+					break;
+				}
+				it.remove();
+				abiertas--;
+				cerrarFisica(inactiva.conexion);
+			}
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	private Connection envolver(Connection fisica) {
+		return (Connection) Proxy.newProxyInstance(PoolConexiones.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ConexionPrestada(fisica));
+	}
+
+	// Métricas del pool
+
+	/**
+	 * Obtiene el número de conexiones prestadas en este momento.
+	 * @return El número de conexiones activas.
+	 */
+	public int getConexionesActivas() {
+		cerrojo.lock();
+		try {
+			return activas;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Obtiene el número de conexiones abiertas que esperan a ser prestadas.
+	 * @return El número de conexiones inactivas.
+	 */
+	public int getConexionesInactivas() {
+		cerrojo.lock();
+		try {
+			return inactivas.size();
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Obtiene el número de hilos esperando una conexión.
+	 * @return El número de hilos en espera.
+	 */
+	public int getHilosEsperando() {
+		cerrojo.lock();
+		try {
+			return esperando;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Obtiene el número de conexiones prestadas desde la creación del pool.
+	 * @return El número de adquisiciones.
+	 */
+	public long getAdquisiciones() {
+		cerrojo.lock();
+		try {
+			return adquisiciones;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Obtiene el número de peticiones que agotaron el tiempo de espera.
+	 * @return El número de timeouts.
+	 */
+	public long getTimeouts() {
+		cerrojo.lock();
+		try {
+			return timeouts;
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Obtiene el tiempo total que se ha esperado para obtener conexiones.
+	 * @return El tiempo de espera acumulado en milisegundos.
+	 */
+	public long getTiempoEsperaTotalMs() {
+		cerrojo.lock();
+		try {
+			return TimeUnit.NANOSECONDS.toMillis(tiempoEsperaTotalNanos);
+		} finally {
+			cerrojo.unlock();
+		}
+	}
+
+	/**
+	 * Conexión abierta guardada en el pool junto al instante en que quedó inactiva.
+	 */
+	private static class ConexionInactiva {
+		private final Connection conexion;
+		private final long desde;
+
+		ConexionInactiva(Connection conexion) {
+			this.conexion = conexion;
+			this.desde = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Manejador de la conexión entregada al usuario: close() la devuelve al pool
+	 * y cualquier uso posterior falla como en una conexión cerrada.
+	 */
+	private class ConexionPrestada implements InvocationHandler {
+		private final Connection fisica;
+		private boolean devuelta;
+
+		ConexionPrestada(Connection fisica) {
+			this.fisica = fisica;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+			switch (metodo.getName()) {
+				case "close":
+					if (!devuelta) {
+						devuelta = true;
+						devolver(fisica);
+					}
+					return null;
+				case "isClosed":
+					return devuelta || fisica.isClosed();
+				case "equals":
+					return proxy == args[0];
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "toString":
+					return "ConexionPrestada[" + fisica + "]";
+				default:
+					if (devuelta) {
+						throw new SQLException("La conexión ya se ha devuelto al pool");
+					}
+					try {
+						return metodo.invoke(fisica, args);
+					} catch (InvocationTargetException ex) {
+						throw ex.getCause();
+					}
+			}
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package persistencia;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Fachada asíncrona sobre un almacenamiento de incidencias.
+ * Cada operación devuelve enseguida un CompletableFuture y se ejecuta en otro hilo. Como mucho se ejecutan
+ * a la vez el número de operaciones indicado; el resto esperan en una cola sin ocupar ningún hilo, de modo que
+ * miles de peticiones simultáneas se atienden con unas pocas conexiones.
+ * Cada método hace lo mismo que el método del mismo nombre de RepositorioIncidencias; los errores se
+ * devuelven completando el CompletableFuture con la excepción.
+ */
+public class RepositorioAsincrono implements AutoCloseable {
+
+	private final RepositorioIncidencias almacenamiento;
+	private final Executor ejecutor;
+	private final ExecutorService ejecutorPropio; // El ejecutor creado por esta clase, o null si lo ha dado quien la usa
+	private final Semaphore permisos;
+	private final Queue<Operacion<?>> enCola = new ConcurrentLinkedQueue<>();
+	private volatile boolean cerrado;
+
+	/**
+	 * Crea la fachada con su propio grupo de hilos, uno por cada operación que puede ejecutarse a la vez.
+	 * @param almacenamiento El almacenamiento sobre el que se ejecutan las operaciones.
+	 * @param maximoEnCurso Número máximo de operaciones ejecutándose a la vez.
+	 */
+	public RepositorioAsincrono(RepositorioIncidencias almacenamiento, int maximoEnCurso) {
+		this(almacenamiento, maximoEnCurso, crearHilos(maximoEnCurso), true);
+	}
+
+	/**
+	 * Crea la fachada sobre un ejecutor dado, por ejemplo uno de hilos virtuales en versiones de Java que los tengan.
+	 * El ejecutor no se cierra al cerrar la fachada.
+	 * @param almacenamiento El almacenamiento sobre el que se ejecutan las operaciones.
+	 * @param maximoEnCurso Número máximo de operaciones ejecutándose a la vez.
+	 * @param ejecutor El ejecutor en el que se ejecutan las operaciones.
+	 */
+	public RepositorioAsincrono(RepositorioIncidencias almacenamiento, int maximoEnCurso, Executor ejecutor) {
+		this(almacenamiento, maximoEnCurso, ejecutor, false);
+	}
+
+	private RepositorioAsincrono(RepositorioIncidencias almacenamiento, int maximoEnCurso, Executor ejecutor, boolean propio) {
+		if (maximoEnCurso < 1) {
+			throw new IllegalArgumentException("El máximo de operaciones en curso debe ser positivo");
+		}
+		this.almacenamiento = almacenamiento;
+		this.ejecutor = ejecutor;
+		this.ejecutorPropio = propio ? (ExecutorService) ejecutor : null;
+		this.permisos = new Semaphore(maximoEnCurso);
+	}
+
+	private static ExecutorService crearHilos(int maximoEnCurso) {
+		if (maximoEnCurso < 1) {
+			throw new IllegalArgumentException("El máximo de operaciones en curso debe ser positivo");
+		}
+		return Executors.newFixedThreadPool(maximoEnCurso, r -> {
+			Thread hilo = new Thread(r, "repositorio-asincrono");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+	}
+
+	public CompletableFuture<Incidencia> buscaIncidencia(String codigo) {
+		return ejecutar(() -> almacenamiento.buscaIncidencia(codigo));
+	}
+
+	public CompletableFuture<Void> create(Incidencia incidencia) {
+		return ejecutar(() -> {
+			almacenamiento.create(incidencia);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Integer> createAll(Collection<Incidencia> incidencias) {
+		return ejecutar(() -> almacenamiento.createAll(incidencias));
+	}
+
+	public CompletableFuture<Void> delete(String codigo) {
+		return ejecutar(() -> {
+			almacenamiento.delete(codigo);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> update(Incidencia incidencia) {
+		return ejecutar(() -> {
+			almacenamiento.update(incidencia);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Integer> updateAll(Collection<Incidencia> incidencias) {
+		return ejecutar(() -> almacenamiento.updateAll(incidencias));
+	}
+
+	public CompletableFuture<List<Incidencia>> listarIncidencias() {
+		return ejecutar(almacenamiento::listarIncidencias);
+	}
+
+	public CompletableFuture<List<Incidencia>> listarPorEstado(EstadoIncidencia estado, Incidencia desde, int limite) {
+		return ejecutar(() -> almacenamiento.listarPorEstado(estado, desde, limite));
+	}
+
+	public CompletableFuture<LocalDateTime[]> fechasRegistroExtremas(EstadoIncidencia estado) {
+		return ejecutar(() -> almacenamiento.fechasRegistroExtremas(estado));
+	}
+
+	/**
+	 * Recorre todas las incidencias sin cargarlas en memoria, pasando cada una a la acción indicada
+	 * en el hilo de la operación.
+	 * @param accion
+	 * @return Número de incidencias recorridas
+	 */
+	public CompletableFuture<Long> recorrerIncidencias(Consumer<? super Incidencia> accion) {
+		return ejecutar(() -> recorrer(almacenamiento.streamIncidencias(), accion));
+	}
+
+	/**
+	 * Recorre las incidencias en el estado indicado registradas en el intervalo [desde, hasta) sin cargarlas
+	 * en memoria, pasando cada una a la acción indicada en el hilo de la operación.
+	 * @param estado
+	 * @param desde
+	 * @param hasta
+	 * @param accion
+	 * @return Número de incidencias recorridas
+	 */
+	public CompletableFuture<Long> recorrerPorEstadoYFechas(EstadoIncidencia estado, LocalDateTime desde,
+			LocalDateTime hasta, Consumer<? super Incidencia> accion) {
+		return ejecutar(() -> recorrer(almacenamiento.streamPorEstadoYFechas(estado, desde, hasta), accion));
+	}
+
+	private static long recorrer(Stream<Incidencia> incidencias, Consumer<? super Incidencia> accion) {
+		long[] recorridas = { 0 };
+		try (Stream<Incidencia> recorrido = incidencias) {
+			recorrido.forEach(incidencia -> {
+				accion.accept(incidencia);
+				recorridas[0]++;
+			});
+		}
+		return recorridas[0];
+	}
+
+	/**
+	 * Devuelve el número de operaciones que esperan a que termine otra
+	 * @return
+	 */
+	public int getEnCola() {
+		return enCola.size();
+	}
+
+	/**
+	 * Deja de aceptar operaciones y, si el grupo de hilos es propio, lo cierra cuando terminen las que están en curso;
+	 * las que aún esperan en la cola terminan con RejectedExecutionException. No cierra el almacenamiento.
+	 */
+	@Override
+	public void close() {
+		cerrado = true;
+		if (ejecutorPropio != null) {
+			ejecutorPropio.shutdown();
+		}
+	}
+
+	/**
+	 * Pone la operación en la cola y la lanza en cuanto haya un permiso libre
+	 */
+	private <T> CompletableFuture<T> ejecutar(Supplier<T> operacion) {
+		CompletableFuture<T> resultado = new CompletableFuture<>();
+		if (cerrado) {
+			resultado.completeExceptionally(new RejectedExecutionException("La fachada asíncrona está cerrada"));
+			return resultado;
+		}
+		enCola.add(new Operacion<>(operacion, resultado));
+		lanzarEnCola();
+		return resultado;
+	}
+
+	/**
+	 * Lanza operaciones de la cola mientras haya permisos. Se llama al encolar una operación y al terminar otra.
+	 */
+	private void lanzarEnCola() {
+		while (!enCola.isEmpty() && permisos.tryAcquire()) {
+			Operacion<?> tarea = enCola.poll();
+			if (tarea == null) {
+				// Otro hilo se ha llevado la operación; se devuelve el permiso y se vuelve a comprobar la cola
+				permisos.release();
+				continue;
+			}
+			try {
+				ejecutor.execute(() -> {
+					try {
+						tarea.ejecutar();
+					} finally {
+						permisos.release();
+						lanzarEnCola();
+					}
+				});
+			} catch (RejectedExecutionException ex) {
+				permisos.release();
+				tarea.resultado.completeExceptionally(ex);
+			}
+		}
+	}
+
+	/**
+	 * Operación pendiente y el resultado que se completa al ejecutarla
+	 */
+	private static class Operacion<T> {
+		private final Supplier<T> operacion;
+		private final CompletableFuture<T> resultado;
+
+		Operacion(Supplier<T> operacion, CompletableFuture<T> resultado) {
+			this.operacion = operacion;
+			this.resultado = resultado;
+		}
+
+		void ejecutar() {
+			try {
+				resultado.complete(operacion.get());
+			} catch (Throwable ex) {
+				resultado.completeExceptionally(ex);
+			}
+		}
+	}
+}
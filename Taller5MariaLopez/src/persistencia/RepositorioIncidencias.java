@@ -0,0 +1,125 @@
+package persistencia;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Operaciones de almacenamiento de incidencias, independientes de dónde se guarden.
+ * La implementación se elige en la configuración: base de datos (IncidenciasDAO), ficheros locales
+ * (IncidenciasDiario) o solo memoria (IncidenciasMemoria).
+ */
+public interface RepositorioIncidencias {
+
+	/**
+	 * Busca una incidencia por su código
+	 * @param codigo
+	 * @return La incidencia, o null si no existe
+	 */
+	Incidencia buscaIncidencia(String codigo);
+
+	/**
+	 * Guarda una incidencia nueva
+	 * @param incidencia
+	 */
+	void create(Incidencia incidencia);
+
+	/**
+	 * Guarda todas las incidencias nuevas de la colección
+	 * @param incidencias
+	 * @return Número de incidencias guardadas
+	 */
+	int createAll(Collection<Incidencia> incidencias);
+
+	/**
+	 * Guarda las incidencias nuevas que va devolviendo el iterador
+	 * @param incidencias
+	 * @return Número de incidencias guardadas
+	 */
+	int createAll(Iterator<Incidencia> incidencias);
+
+	/**
+	 * Borra la incidencia con el código indicado
+	 * @param codigo
+	 */
+	void delete(String codigo);
+
+	/**
+	 * Actualiza el problema, el puesto, el estado y la fecha de registro de una incidencia
+	 * @param incidencia
+	 */
+	void update(Incidencia incidencia);
+
+	/**
+	 * Actualiza todos los campos de las incidencias indicadas
+	 * @param incidencias
+	 * @return Número de incidencias actualizadas
+	 */
+	int updateAll(Collection<Incidencia> incidencias);
+
+	/**
+	 * Devuelve todas las incidencias
+	 * @return
+	 */
+	List<Incidencia> listarIncidencias();
+
+	/**
+	 * Devuelve una página de incidencias en el estado indicado ordenadas por fecha de registro y código
+	 * @param estado
+	 * @param desde Última incidencia de la página anterior, o null para obtener la primera página
+	 * @param limite Número máximo de incidencias de la página
+	 * @return
+	 */
+	List<Incidencia> listarPorEstado(EstadoIncidencia estado, Incidencia desde, int limite);
+
+	/**
+	 * Devuelve todas las incidencias como un Stream que debe cerrarse al terminar
+	 * @return
+	 */
+	Stream<Incidencia> streamIncidencias();
+
+	/**
+	 * Devuelve como Stream las incidencias en el estado indicado registradas en el intervalo [desde, hasta).
+	 * El Stream debe cerrarse al terminar
+	 * @param estado
+	 * @param desde Fecha de registro mínima, incluida
+	 * @param hasta Fecha de registro máxima, excluida
+	 * @return
+	 */
+	Stream<Incidencia> streamPorEstadoYFechas(EstadoIncidencia estado, LocalDateTime desde, LocalDateTime hasta);
+
+	/**
+	 * Devuelve como Stream las incidencias resueltas en el intervalo [desde, hasta), ordenadas por fecha de resolución.
+	 * El Stream debe cerrarse al terminar
+	 * @param desde Fecha de resolución mínima, incluida
+	 * @param hasta Fecha de resolución máxima, excluida
+	 * @return
+	 */
+	Stream<Incidencia> streamPorFechaResolucion(LocalDateTime desde, LocalDateTime hasta);
+
+	/**
+	 * Devuelve como Stream las incidencias eliminadas en el intervalo [desde, hasta), ordenadas por fecha de eliminación.
+	 * El Stream debe cerrarse al terminar
+	 * @param desde Fecha de eliminación mínima, incluida
+	 * @param hasta Fecha de eliminación máxima, excluida
+	 * @return
+	 */
+	Stream<Incidencia> streamPorFechaEliminacion(LocalDateTime desde, LocalDateTime hasta);
+
+	/**
+	 * Devuelve la primera y la última fecha de registro de las incidencias en el estado indicado
+	 * @param estado
+	 * @return Array con la fecha mínima y la máxima, o null si no hay incidencias en ese estado
+	 */
+	LocalDateTime[] fechasRegistroExtremas(EstadoIncidencia estado);
+
+	/**
+	 * Libera los recursos del almacenamiento
+	 */
+	void cerrarConexion();
+}
@@ -0,0 +1,193 @@
+package presentacion;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import aplicacion.PuestoConPendientes;
+import aplicacion.TiemposResolucion;
+import dominio.Incidencia;
+
+/**
+ * Clase que escribe incidencias en JSON directamente sobre un Writer, sin construir el documento en memoria.
+ * Los textos se escriben por tramos y solo se escapan los caracteres que lo necesitan, y las fechas se
+ * formatean sobre el propio Writer, de modo que escribir una incidencia apenas crea objetos.
+ * @author Maria
+ */
+public class EscritorJson {
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final char[] HEXADECIMAL = "0123456789abcdef".toCharArray();
+
+    private final Writer salida;
+
+    /**
+     * Constructor de la clase EscritorJson.
+     * @param salida El destino del JSON; conviene que tenga buffer.
+     */
+    public EscritorJson(Writer salida) {
+        this.salida = salida;
+    }
+
+    /**
+     * Escribe una incidencia como objeto JSON.
+     * @param incidencia La incidencia a escribir.
+     * @throws IOException si falla la escritura.
+     */
+    public void escribir(Incidencia incidencia) throws IOException {
+        salida.write("{\"codigo\":");
+        escribirTexto(incidencia.getCodigo());
+        salida.write(",\"estado\":");
+        escribirTexto(incidencia.getEstado() != null ? incidencia.getEstado().toString() : null);
+        salida.write(",\"puesto\":");
+        salida.write(Integer.toString(incidencia.getPuesto()));
+        salida.write(",\"problema\":");
+        escribirTexto(incidencia.getProblema());
+        salida.write(",\"fechaRegistro\":");
+        escribirFecha(incidencia.getFechaRegistro());
+        salida.write(",\"fechaResolucion\":");
+        escribirFecha(incidencia.getFechaResolucion());
+        salida.write(",\"resolucion\":");
+        escribirTexto(incidencia.getResolucion());
+        salida.write(",\"fechaEliminacion\":");
+        escribirFecha(incidencia.getFechaEliminacion());
+        salida.write(",\"causaEliminacion\":");
+        escribirTexto(incidencia.getCausaEliminacion());
+        salida.write('}');
+    }
+
+    /**
+     * Escribe un array JSON con las incidencias, desde la posición indicada y hasta un máximo.
+     * @param incidencias Las incidencias a escribir.
+     * @param desde Número de incidencias que se saltan al principio.
+     * @param limite Número máximo de incidencias que se escriben.
+     * @return Número de incidencias escritas.
+     * @throws IOException si falla la escritura.
+     */
+    public int escribir(Iterable<Incidencia> incidencias, int desde, int limite) throws IOException {
+        int posicion = 0;
+        int escritas = 0;
+        salida.write('[');
+        for (Incidencia incidencia : incidencias) {
+            if (escritas == limite) {
+                break;
+            }
+            if (posicion++ < desde) {
+                continue;
+            }
+            if (escritas++ > 0) {
+                salida.write(',');
+            }
+            escribir(incidencia);
+        }
+        salida.write(']');
+        return escritas;
+    }
+
+    /**
+     * Escribe un array JSON con los puestos y su número de incidencias pendientes.
+     * @param puestos Los puestos a escribir.
+     * @throws IOException si falla la escritura.
+     */
+    public void escribirPuestos(List<PuestoConPendientes> puestos) throws IOException {
+        salida.write('[');
+        for (int i = 0; i < puestos.size(); i++) {
+            if (i > 0) {
+                salida.write(',');
+            }
+            salida.write("{\"puesto\":");
+            salida.write(Integer.toString(puestos.get(i).getPuesto()));
+            salida.write(",\"pendientes\":");
+            salida.write(Integer.toString(puestos.get(i).getPendientes()));
+            salida.write('}');
+        }
+        salida.write(']');
+    }
+
+    /**
+     * Escribe un objeto JSON con el número de incidencias resueltas y su tiempo de resolución en segundos.
+     * @param tiempos Las estadísticas a escribir.
+     * @throws IOException si falla la escritura.
+     */
+    public void escribirTiempos(TiemposResolucion tiempos) throws IOException {
+        salida.write("{\"resueltas\":");
+        salida.write(Long.toString(tiempos.getTotal()));
+        salida.write(",\"mediaSegundos\":");
+        salida.write(Long.toString(tiempos.getMedia().getSeconds()));
+        salida.write(",\"medianaSegundos\":");
+        salida.write(Long.toString(tiempos.getMediana().getSeconds()));
+        salida.write(",\"percentil95Segundos\":");
+        salida.write(Long.toString(tiempos.getPercentil95().getSeconds()));
+        salida.write('}');
+    }
+
+    /**
+     * Escribe un objeto JSON con un único campo de texto, por ejemplo un mensaje de error.
+     * @param campo El nombre del campo.
+     * @param valor El valor del campo.
+     * @throws IOException si falla la escritura.
+     */
+    public void escribirCampo(String campo, String valor) throws IOException {
+        salida.write('{');
+        escribirTexto(campo);
+        salida.write(':');
+        escribirTexto(valor);
+        salida.write('}');
+    }
+
+    /**
+     * Escribe un texto entre comillas escapando las comillas, la barra invertida y los caracteres de control.
+     */
+    private void escribirTexto(String texto) throws IOException {
+        if (texto == null) {
+            salida.write("null");
+            return;
+        }
+        salida.write('"');
+        int inicioTramo = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                salida.write(texto, inicioTramo, i - inicioTramo);
+                escapar(c);
+                inicioTramo = i + 1;
+            }
+        }
+        salida.write(texto, inicioTramo, texto.length() - inicioTramo);
+        salida.write('"');
+    }
+
+    private void escapar(char c) throws IOException {
+        switch (c) {
+            case '"':
+                salida.write("\\\"");
+                break;
+            case '\\':
+                salida.write("\\\\");
+                break;
+            case '\n':
+                salida.write("\\n");
+                break;
+            case '\r':
+                salida.write("\\r");
+                break;
+            case '\t':
+                salida.write("\\t");
+                break;
+            default:
+                salida.write("\\u00");
+                salida.write(HEXADECIMAL[c >> 4]);
+                salida.write(HEXADECIMAL[c & 0xF]);
+        }
+    }
+
+    private void escribirFecha(LocalDateTime fecha) throws IOException {
+        if (fecha == null) {
+            salida.write("null");
+        } else {
+            salida.write('"');
+            FORMATO_FECHA.formatTo(fecha, salida);
+            salida.write('"');
+        }
+    }
+}
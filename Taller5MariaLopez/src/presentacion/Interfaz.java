@@ -1,10 +1,13 @@
 package presentacion;
 
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Scanner;
 import aplicacion.Logica;
+import aplicacion.PuestoConPendientes;
 import dominio.Incidencia;
+import metricas.Metricas;
 
 /**
  * Clase principal que contiene el método main para ejecutar el programa de gestión de incidencias.
@@ -12,8 +15,11 @@ import dominio.Incidencia;
  * @author Maria
  */
 public class Interfaz {
+    private static final int INCIDENCIAS_POR_PAGINA = 20;
+
     private Scanner scanner;
     private Logica logica;
+    private RenderizadorIncidencias renderizador;
 
     /**
      * Constructor de la clase Interfaz.
@@ -22,6 +28,7 @@ public class Interfaz {
     public Interfaz(Logica logica) {
         this.scanner = new Scanner(System.in);
         this.logica = logica;
+        this.renderizador = RenderizadorIncidencias.paraConsola(INCIDENCIAS_POR_PAGINA);
     }
 
     /**
@@ -77,14 +84,18 @@ public class Interfaz {
             System.out.println("8. Mostrar incidencias pendientes");
             System.out.println("9. Mostrar incidencias resueltas");
             System.out.println("10. Mostrar incidencias eliminadas");
-            System.out.println("11. Salir");
+            System.out.println("11. Buscar incidencias por texto");
+            System.out.println("12. Mostrar puestos con más incidencias pendientes");
+            System.out.println("13. Mostrar tiempos de resolución");
+            System.out.println("14. Mostrar métricas");
+            System.out.println("15. Salir");
 
             if (scanner.hasNextInt()) {
                 opcion = scanner.nextInt();
                 scanner.nextLine(); // Limpiar el buffer
 
-                if (opcion < 1 || opcion > 12) {
-                    System.out.println("Por favor, introduzca un número del 1 al 11.");
+                if (opcion < 1 || opcion > 15) {
+                    System.out.println("Por favor, introduzca un número del 1 al 15.");
                     continue;
                 }
 
@@ -120,14 +131,26 @@ public class Interfaz {
                         interfaz.mostrarIncidenciasEliminadas();
                         break;
                     case 11:
+                        interfaz.buscarPorTexto();
+                        break;
+                    case 12:
+                        interfaz.mostrarPuestosConMasPendientes();
+                        break;
+                    case 13:
+                        interfaz.mostrarTiemposResolucion();
+                        break;
+                    case 14:
+                        System.out.print(Metricas.global().getVolcado());
+                        break;
+                    case 15:
                         System.out.println("Acaba de salir del programa.");
                         break;
                 }
             } else {
-                System.out.println("Por favor, introduzca un número del 1 al 11.");
+                System.out.println("Por favor, introduzca un número del 1 al 15.");
                 scanner.next(); // Limpiar el buffer
             }
-        } while (opcion != 12);
+        } while (opcion != 15);
     }
 
 
@@ -165,18 +188,28 @@ public class Interfaz {
         // Verifica si se encontró la incidencia
         if (incidencia != null) {
             // Muestra la información de la incidencia
-            DateTimeFormatter formatterFechaHora = DateTimeFormatter.ofPattern("dd/MM/yyyy-HH:mm");
-            System.out.println("Código: " + incidencia.getCodigo());
-            System.out.println("Estado: " + incidencia.getEstado());
-            System.out.println("Puesto: " + incidencia.getPuesto());
-            System.out.println("Problema: " + incidencia.getProblema());
-            System.out.println("Fecha Registro: " + incidencia.getFechaRegistro().format(formatterFechaHora));
-            System.out.println();
+            renderizador.mostrar(incidencia, false);
         } else {
             System.out.println("Incidencia no encontrada o formato incorrecto.");
         }
     }
 
+    /**
+     * Método que busca incidencias por palabras y muestra las más relevantes.
+     */
+    public void buscarPorTexto() {
+        System.out.println("Ingrese las palabras a buscar:");
+        String consulta = scanner.nextLine();
+
+        List<Incidencia> encontradas = logica.buscarPorTexto(consulta, 0, 10);
+        if (encontradas.isEmpty()) {
+            System.out.println("No se ha encontrado ninguna incidencia con esas palabras.");
+        }
+        for (Incidencia incidencia : encontradas) {
+            renderizador.mostrar(incidencia, false);
+        }
+    }
+
     /**
      * Método para obtener el código de la incidencia a buscar.
      * @return El código de la incidencia a buscar.
@@ -260,17 +293,9 @@ public class Interfaz {
      * Método que muestra las incidencia pendientes
      */
     public void mostrarIncidenciasPendientes() {
-        List<Incidencia> incidenciasPendientes = logica.obtenerIncidenciasPendientes();
+        Collection<Incidencia> incidenciasPendientes = logica.obtenerIncidenciasPendientes();
         if (!incidenciasPendientes.isEmpty()) {
-            DateTimeFormatter formatterFechaHora = DateTimeFormatter.ofPattern("dd/MM/yyyy-HH:mm");
-            for (Incidencia incidencia : incidenciasPendientes) {
-                System.out.println("Código: " + incidencia.getCodigo());
-                System.out.println("Estado: " + incidencia.getEstado());
-                System.out.println("Puesto: " + incidencia.getPuesto());
-                System.out.println("Problema: " + incidencia.getProblema());
-                System.out.println("Fecha Registro: " + incidencia.getFechaRegistro().format(formatterFechaHora));
-                System.out.println();
-            }
+            renderizador.mostrar(incidenciasPendientes, false, this::siguientePagina);
         } else {
             System.out.println("No hay incidencias pendientes.");
         }
@@ -281,19 +306,9 @@ public class Interfaz {
      */
 
     public void mostrarIncidenciasResueltas() {
-        List<Incidencia> incidenciasResueltas = logica.obtenerIncidenciasResueltas();
+        Collection<Incidencia> incidenciasResueltas = logica.obtenerIncidenciasResueltas();
         if (!incidenciasResueltas.isEmpty()) {
-            DateTimeFormatter formatterFechaHora = DateTimeFormatter.ofPattern("dd/MM/yyyy-HH:mm");
-            for (Incidencia incidencia : incidenciasResueltas) {
-                System.out.println("Código: " + incidencia.getCodigo());
-                System.out.println("Estado: " + incidencia.getEstado());
-                System.out.println("Puesto: " + incidencia.getPuesto());
-                System.out.println("Problema: " + incidencia.getProblema());
-                System.out.println("Fecha Registro: " + incidencia.getFechaRegistro().format(formatterFechaHora));
-                System.out.println("Fecha Resolución: " + incidencia.getFechaResolucion().format(formatterFechaHora));
-                System.out.println("Resolución: " + incidencia.getResolucion());
-                System.out.println();
-            }
+            renderizador.mostrar(incidenciasResueltas, true, this::siguientePagina);
         } else {
             System.out.println("No hay incidencias resueltas.");
         }
@@ -305,21 +320,53 @@ public class Interfaz {
      */
 
     public void mostrarIncidenciasEliminadas() {
-        List<Incidencia> incidenciasEliminadas = logica.obtenerIncidenciasEliminadas();
+        Collection<Incidencia> incidenciasEliminadas = logica.obtenerIncidenciasEliminadas();
         if (!incidenciasEliminadas.isEmpty()) {
-            DateTimeFormatter formatterFechaHora = DateTimeFormatter.ofPattern("dd/MM/yyyy-HH:mm");
-            for (Incidencia incidencia : incidenciasEliminadas) {
-                System.out.println("Código: " + incidencia.getCodigo());
-                System.out.println("Estado: " + incidencia.getEstado());
-                System.out.println("Puesto: " + incidencia.getPuesto());
-                System.out.println("Problema: " + incidencia.getProblema());
-                System.out.println("Fecha Registro: " + incidencia.getFechaRegistro().format(formatterFechaHora));
-                System.out.println("Fecha Eliminación: " + incidencia.getFechaEliminacion().format(formatterFechaHora));
-                System.out.println("Causa Eliminación: " + incidencia.getCausaEliminacion());
-                System.out.println();
-            }
+            renderizador.mostrar(incidenciasEliminadas, true, this::siguientePagina);
         } else {
             System.out.println("No hay incidencias eliminadas.");
         }
     }
-}
+
+    /**
+     * Método que muestra los 20 puestos con más incidencias pendientes
+     */
+    public void mostrarPuestosConMasPendientes() {
+        List<PuestoConPendientes> puestos = logica.obtenerPuestosConMasPendientes(20);
+        if (puestos.isEmpty()) {
+            System.out.println("No hay incidencias pendientes.");
+        }
+        for (PuestoConPendientes puesto : puestos) {
+            System.out.println(puesto);
+        }
+    }
+
+    /**
+     * Método que muestra el tiempo de resolución de todas las incidencias resueltas, de las de hoy
+     * y, si se indica, de las de un puesto.
+     */
+    public void mostrarTiemposResolucion() {
+        System.out.println("Total: " + logica.obtenerTiemposResolucion());
+        System.out.println("Hoy: " + logica.obtenerTiemposResolucion(LocalDate.now()));
+        System.out.println("Ingrese un número de puesto o pulse Enter para terminar:");
+        String puesto = scanner.nextLine().trim();
+        if (puesto.isEmpty()) {
+            return;
+        }
+        try {
+            int numero = Integer.parseInt(puesto);
+            System.out.println("Puesto " + numero + ": " + logica.obtenerTiemposResolucionPuesto(numero));
+        } catch (NumberFormatException e) {
+            System.out.println("Error de formato, introduzca solo números.");
+        }
+    }
+
+    /**
+     * Método que se llama entre dos páginas de un listado.
+     * @return true para mostrar la página siguiente, false para terminar el listado.
+     */
+    private boolean siguientePagina() {
+        System.out.println("Pulsa Enter para ver más o 's' para salir del listado ...");
+        return !scanner.nextLine().equalsIgnoreCase("s");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+package presentacion;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.BooleanSupplier;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Clase que escribe listados de incidencias en bloque.
+ * Cada incidencia se formatea en un único buffer reutilizable con un formateador de fechas compartido
+ * y el texto se envía a la salida a través de un BufferedWriter grande, de modo que un listado largo
+ * se escribe en pocas operaciones en lugar de varias por incidencia.
+ * @author Maria
+ */
+public class RenderizadorIncidencias {
+    private static final DateTimeFormatter FORMATO_FECHA_HORA = DateTimeFormatter.ofPattern("dd/MM/yyyy-HH:mm");
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    private final Writer salida;
+    private final StringBuilder buffer = new StringBuilder(1024);
+    private char[] caracteres = new char[1024];
+    private final int incidenciasPorPagina;
+
+    /**
+     * Constructor de la clase RenderizadorIncidencias.
+     * @param salida El destino del texto; se envuelve en un BufferedWriter si no lo es.
+     * @param incidenciasPorPagina Número de incidencias por pantalla, o 0 para no paginar.
+     */
+    public RenderizadorIncidencias(Writer salida, int incidenciasPorPagina) {
+        this.salida = salida instanceof BufferedWriter ? salida : new BufferedWriter(salida, TAMANO_BUFFER);
+        this.incidenciasPorPagina = incidenciasPorPagina;
+    }
+
+    /**
+     * Crea un renderizador que escribe en la salida estándar.
+     * @param incidenciasPorPagina Número de incidencias por pantalla, o 0 para no paginar.
+     * @return El renderizador creado.
+     */
+    public static RenderizadorIncidencias paraConsola(int incidenciasPorPagina) {
+        Charset charset = Charset.forName(System.getProperty("sun.stdout.encoding", Charset.defaultCharset().name()));
+        return new RenderizadorIncidencias(new OutputStreamWriter(System.out, charset), incidenciasPorPagina);
+    }
+
+    /**
+     * Escribe un listado de incidencias. Al completar cada página vuelca la salida y pregunta si se continúa.
+     * @param incidencias Las incidencias a escribir.
+     * @param conDetalle Si se añaden la fecha y la descripción de la resolución o de la eliminación.
+     * @param continuar Se llama al final de cada página; si devuelve false el listado se detiene.
+     * @return Número de incidencias escritas.
+     */
+    public int mostrar(Iterable<Incidencia> incidencias, boolean conDetalle, BooleanSupplier continuar) {
+        int escritas = 0;
+        try {
+            for (Incidencia incidencia : incidencias) {
+                if (incidenciasPorPagina > 0 && escritas > 0 && escritas % incidenciasPorPagina == 0) {
+                    salida.flush();
+                    if (!continuar.getAsBoolean()) {
+                        return escritas;
+                    }
+                }
+                escribir(incidencia, conDetalle);
+                escritas++;
+            }
+            salida.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return escritas;
+    }
+
+    /**
+     * Escribe una incidencia y vuelca la salida.
+     * @param incidencia La incidencia a escribir.
+     * @param conDetalle Si se añaden la fecha y la descripción de la resolución o de la eliminación.
+     */
+    public void mostrar(Incidencia incidencia, boolean conDetalle) {
+        try {
+            escribir(incidencia, conDetalle);
+            salida.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Formatea la incidencia en el buffer y lo pasa a la salida sin volcarla.
+     */
+    private void escribir(Incidencia incidencia, boolean conDetalle) throws IOException {
+        buffer.setLength(0);
+        buffer.append("Código: ").append(incidencia.getCodigo()).append(System.lineSeparator());
+        buffer.append("Estado: ").append(incidencia.getEstado()).append(System.lineSeparator());
+        buffer.append("Puesto: ").append(incidencia.getPuesto()).append(System.lineSeparator());
+        buffer.append("Problema: ").append(incidencia.getProblema()).append(System.lineSeparator());
+        anadirFecha("Fecha Registro: ", incidencia.getFechaRegistro());
+        if (conDetalle && incidencia.getEstado() == EstadoIncidencia.RESUELTA) {
+            anadirFecha("Fecha Resolución: ", incidencia.getFechaResolucion());
+            buffer.append("Resolución: ").append(incidencia.getResolucion()).append(System.lineSeparator());
+        } else if (conDetalle && incidencia.getEstado() == EstadoIncidencia.ELIMINADA) {
+            anadirFecha("Fecha Eliminación: ", incidencia.getFechaEliminacion());
+            buffer.append("Causa Eliminación: ").append(incidencia.getCausaEliminacion()).append(System.lineSeparator());
+        }
+        buffer.append(System.lineSeparator());
+
+        // Copia el buffer a un array reutilizable para no crear un String por incidencia
+        int longitud = buffer.length();
+        if (caracteres.length < longitud) {
+            caracteres = new char[Math.max(longitud, caracteres.length * 2)];
+        }
+        buffer.getChars(0, longitud, caracteres, 0);
+        salida.write(caracteres, 0, longitud);
+    }
+
+    private void anadirFecha(String etiqueta, LocalDateTime fecha) {
+        buffer.append(etiqueta);
+        if (fecha != null) {
+            FORMATO_FECHA_HORA.formatTo(fecha, buffer);
+        } else {
+            buffer.append("null");
+        }
+        buffer.append(System.lineSeparator());
+    }
+}
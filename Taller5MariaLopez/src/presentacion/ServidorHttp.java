@@ -0,0 +1,481 @@
+package presentacion;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import aplicacion.Logica;
+import aplicacion.TiemposResolucion;
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+import metricas.Metricas;
+
+/**
+ * Servidor HTTP que permite trabajar con la lógica desde otros programas o desde varios puestos a la vez.
+ * Las respuestas son JSON y se escriben a medida que se generan. Los parámetros van en la URL o, en las
+ * peticiones POST, también en el cuerpo como formulario (application/x-www-form-urlencoded); el código de
+ * incidencia siempre va como parámetro porque contiene barras.
+ * <ul>
+ * <li>GET /incidencias?codigo=C: busca una incidencia.</li>
+ * <li>GET /incidencias?estado=pendiente|resuelta|eliminada&amp;desde=N&amp;limite=M: lista las incidencias de un estado.</li>
+ * <li>GET /incidencias?texto=T&amp;desde=N&amp;limite=M: busca incidencias por palabras, de más a menos relevante.</li>
+ * <li>GET /incidencias?fecha=registro|resolucion|eliminacion&amp;inicio=I&amp;fin=F&amp;desde=N&amp;limite=M: busca las
+ * incidencias con esa fecha en [I, F), con el formato 2024-05-21T08:00; con fecha=registro admite también estado.</li>
+ * <li>GET /incidencias?puesto=P&amp;estado=E&amp;desde=N&amp;limite=M: las incidencias de un puesto, opcionalmente de un estado.</li>
+ * <li>POST /incidencias con puesto y problema: registra una incidencia.</li>
+ * <li>POST /incidencias/modificar con codigo, puesto y problema.</li>
+ * <li>POST /incidencias/resolver con codigo y resolucion.</li>
+ * <li>POST /incidencias/eliminar con codigo y causa.</li>
+ * <li>GET /puestos?limite=M: los puestos con más incidencias pendientes.</li>
+ * <li>GET /estadisticas?dia=D o ?puesto=P: el tiempo de resolución de todas las incidencias resueltas, de las
+ * resueltas el día D (con el formato 2024-05-21) o de las del puesto P.</li>
+ * <li>GET /metricas: las métricas de la aplicación en texto.</li>
+ * </ul>
+ * Los parámetros mal codificados, como %zz, se responden con un error 400.
+ * <p>
+ * Sin TCP_NODELAY el último trozo de cada respuesta espera al ACK retrasado del cliente (unos 40 ms). El
+ * servidor de la JDK solo lo activa con la propiedad sun.net.httpserver.nodelay=true, que lee una vez al crear
+ * el primer servidor: hay que ponerla al arrancar (-Dsun.net.httpserver.nodelay=true) o antes de crearlo,
+ * como hace Main.
+ * @author Maria
+ */
+public class ServidorHttp implements AutoCloseable {
+    private static final int LIMITE_POR_DEFECTO = 100;
+    private static final int LIMITE_MAXIMO = 10000;
+    private static final int PUESTOS_POR_DEFECTO = 20;
+    private static final int TAMANO_BUFFER = 16 * 1024;
+
+    private final Logica logica;
+    private final HttpServer servidor;
+    private final ExecutorService hilos;
+
+    /**
+     * Constructor de la clase ServidorHttp. El servidor no atiende peticiones hasta llamar a iniciar.
+     * @param logica La lógica sobre la que se trabaja.
+     * @param puerto El puerto en el que se escucha.
+     * @param numeroHilos Número de peticiones que se atienden a la vez.
+     * @throws IOException si no se puede abrir el puerto.
+     */
+    public ServidorHttp(Logica logica, int puerto, int numeroHilos) throws IOException {
+        this.logica = logica;
+        this.servidor = HttpServer.create(new InetSocketAddress(puerto), 0);
+        this.hilos = Executors.newFixedThreadPool(numeroHilos, r -> {
+            Thread hilo = new Thread(r, "servidor-http");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        servidor.setExecutor(hilos);
+        servidor.createContext("/incidencias", this::atender);
+        servidor.createContext("/puestos", this::mostrarPuestos);
+        servidor.createContext("/estadisticas", this::mostrarEstadisticas);
+        servidor.createContext("/metricas", ServidorHttp::mostrarMetricas);
+    }
+
+    /**
+     * Empieza a atender peticiones.
+     */
+    public void iniciar() {
+        servidor.start();
+    }
+
+    /**
+     * Obtiene el puerto en el que se escucha, útil si se ha pedido el puerto 0.
+     * @return El puerto.
+     */
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Deja de aceptar peticiones y espera como mucho un segundo a que terminen las que están en curso.
+     */
+    @Override
+    public void close() {
+        servidor.stop(1);
+        hilos.shutdown();
+        try {
+            hilos.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Atiende una petición a /incidencias y a sus operaciones.
+     */
+    private void atender(HttpExchange intercambio) throws IOException {
+        try {
+            String ruta = intercambio.getRequestURI().getPath();
+            String metodo = intercambio.getRequestMethod();
+            Map<String, String> parametros = leerParametros(intercambio);
+            if (parametros == null) {
+                return;
+            }
+
+            if (ruta.equals("/incidencias") || ruta.equals("/incidencias/")) {
+                if (metodo.equals("GET")) {
+                    consultar(intercambio, parametros);
+                } else if (metodo.equals("POST")) {
+                    registrar(intercambio, parametros);
+                } else {
+                    responderError(intercambio, 405, "Método no permitido");
+                }
+            } else if (!metodo.equals("POST")) {
+                responderError(intercambio, 405, "Método no permitido");
+            } else if (ruta.equals("/incidencias/modificar")) {
+                cambiar(intercambio, parametros, "puesto", "problema");
+            } else if (ruta.equals("/incidencias/resolver")) {
+                cambiar(intercambio, parametros, "resolucion");
+            } else if (ruta.equals("/incidencias/eliminar")) {
+                cambiar(intercambio, parametros, "causa");
+            } else {
+                responderError(intercambio, 404, "Operación desconocida");
+            }
+        } catch (RuntimeException ex) {
+            // Un error inesperado en una petición no debe detener el servidor
+            System.out.println("Error al atender una petición HTTP");
+            ex.printStackTrace();
+            if (intercambio.getResponseCode() == -1) {
+                responderError(intercambio, 500, "Error interno");
+            }
+        } finally {
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Devuelve los puestos con más incidencias pendientes, de más a menos.
+     */
+    private void mostrarPuestos(HttpExchange intercambio) throws IOException {
+        try (intercambio) {
+            if (!intercambio.getRequestMethod().equals("GET")) {
+                responderError(intercambio, 405, "Método no permitido");
+                return;
+            }
+            Map<String, String> parametros = leerParametros(intercambio);
+            if (parametros == null) {
+                return;
+            }
+            Integer limite = leerEntero(parametros, "limite", PUESTOS_POR_DEFECTO);
+            if (limite == null || limite < 0 || limite > LIMITE_MAXIMO) {
+                responderError(intercambio, 400, "limite debe ser un número entre 0 y " + LIMITE_MAXIMO);
+                return;
+            }
+            intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            intercambio.sendResponseHeaders(200, 0);
+            try (Writer salida = escritor(intercambio)) {
+                new EscritorJson(salida).escribirPuestos(logica.obtenerPuestosConMasPendientes(limite));
+            }
+        }
+    }
+
+    /**
+     * Devuelve las estadísticas del tiempo de resolución en total, de un día o de un puesto.
+     */
+    private void mostrarEstadisticas(HttpExchange intercambio) throws IOException {
+        try (intercambio) {
+            if (!intercambio.getRequestMethod().equals("GET")) {
+                responderError(intercambio, 405, "Método no permitido");
+                return;
+            }
+            Map<String, String> parametros = leerParametros(intercambio);
+            if (parametros == null) {
+                return;
+            }
+            TiemposResolucion tiempos;
+            if (parametros.containsKey("dia")) {
+                try {
+                    tiempos = logica.obtenerTiemposResolucion(LocalDate.parse(parametros.get("dia")));
+                } catch (DateTimeParseException ex) {
+                    responderError(intercambio, 400, "dia debe ser una fecha con el formato 2024-05-21");
+                    return;
+                }
+            } else if (parametros.containsKey("puesto")) {
+                Integer puesto = leerEntero(parametros, "puesto", null);
+                if (puesto == null) {
+                    responderError(intercambio, 400, "puesto debe ser un número");
+                    return;
+                }
+                tiempos = logica.obtenerTiemposResolucionPuesto(puesto);
+            } else {
+                tiempos = logica.obtenerTiemposResolucion();
+            }
+            intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            intercambio.sendResponseHeaders(200, 0);
+            try (Writer salida = escritor(intercambio)) {
+                new EscritorJson(salida).escribirTiempos(tiempos);
+            }
+        }
+    }
+
+    /**
+     * Devuelve en texto las mismas métricas que muestra el menú.
+     */
+    private static void mostrarMetricas(HttpExchange intercambio) throws IOException {
+        try (intercambio) {
+            byte[] volcado = Metricas.global().getVolcado().getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            intercambio.sendResponseHeaders(200, volcado.length);
+            intercambio.getResponseBody().write(volcado);
+        }
+    }
+
+    /**
+     * Busca una incidencia por código, busca incidencias por texto, por fechas o por puesto, o lista las incidencias de un estado.
+     */
+    private void consultar(HttpExchange intercambio, Map<String, String> parametros) throws IOException {
+        String codigo = parametros.get("codigo");
+        if (codigo != null) {
+            if (!CodigoIncidencia.esValido(codigo)) {
+                responderError(intercambio, 400, "Formato incorrecto, formato correcto: XX/XX/XXXX-XX:XX-X");
+                return;
+            }
+            Incidencia incidencia = logica.buscarIncidencia(codigo);
+            if (incidencia == null) {
+                responderError(intercambio, 404, "Incidencia no encontrada");
+            } else {
+                responder(intercambio, 200, incidencia);
+            }
+            return;
+        }
+
+        Integer desde = leerEntero(parametros, "desde", 0);
+        Integer limite = leerEntero(parametros, "limite", LIMITE_POR_DEFECTO);
+        if (desde == null || limite == null || desde < 0 || limite < 0 || limite > LIMITE_MAXIMO) {
+            responderError(intercambio, 400, "desde y limite deben ser números entre 0 y " + LIMITE_MAXIMO);
+            return;
+        }
+
+        String texto = parametros.get("texto");
+        String fecha = parametros.get("fecha");
+        String estado = parametros.get("estado");
+        Collection<Incidencia> incidencias;
+        if (texto != null) {
+            // La búsqueda ya devuelve solo la página pedida
+            incidencias = logica.buscarPorTexto(texto, desde, limite);
+            desde = 0;
+        } else if (fecha != null) {
+            incidencias = buscarPorFechas(intercambio, parametros, fecha, estado, desde, limite);
+            if (incidencias == null) {
+                return;
+            }
+            desde = 0;
+        } else if (parametros.containsKey("puesto")) {
+            Integer puesto = leerEntero(parametros, "puesto", null);
+            EstadoIncidencia filtro = estado != null ? leerEstado(estado) : null;
+            if (puesto == null || (estado != null && filtro == null)) {
+                responderError(intercambio, 400, "puesto debe ser un número y estado pendiente, resuelta o eliminada");
+                return;
+            }
+            incidencias = logica.buscarPorPuesto(puesto, filtro, desde, limite);
+            desde = 0;
+        } else if ("pendiente".equals(estado)) {
+            incidencias = logica.obtenerIncidenciasPendientes();
+        } else if ("resuelta".equals(estado)) {
+            incidencias = logica.obtenerIncidenciasResueltas();
+        } else if ("eliminada".equals(estado)) {
+            incidencias = logica.obtenerIncidenciasEliminadas();
+        } else {
+            responderError(intercambio, 400, "Indique codigo, texto o estado (pendiente, resuelta o eliminada)");
+            return;
+        }
+
+        // El listado se escribe por partes a medida que se recorre, sin conocer su longitud de antemano
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(200, 0);
+        try (Writer salida = escritor(intercambio)) {
+            new EscritorJson(salida).escribir(incidencias, desde, limite);
+        }
+    }
+
+    /**
+     * Busca las incidencias con la fecha indicada en el intervalo [inicio, fin).
+     * @return La página de incidencias, o null si los parámetros no son correctos y ya se ha respondido con el error.
+     */
+    private List<Incidencia> buscarPorFechas(HttpExchange intercambio, Map<String, String> parametros, String fecha,
+            String estado, int desde, int limite) throws IOException {
+        LocalDateTime inicio;
+        LocalDateTime fin;
+        try {
+            inicio = LocalDateTime.parse(parametros.getOrDefault("inicio", ""));
+            fin = LocalDateTime.parse(parametros.getOrDefault("fin", ""));
+        } catch (DateTimeParseException ex) {
+            responderError(intercambio, 400, "inicio y fin deben ser fechas con el formato 2024-05-21T08:00");
+            return null;
+        }
+        switch (fecha) {
+            case "registro":
+                EstadoIncidencia filtro = null;
+                if (estado != null) {
+                    filtro = leerEstado(estado);
+                    if (filtro == null) {
+                        responderError(intercambio, 400, "El estado debe ser pendiente, resuelta o eliminada");
+                        return null;
+                    }
+                }
+                return logica.buscarPorFechaRegistro(inicio, fin, filtro, desde, limite);
+            case "resolucion":
+                return logica.buscarPorFechaResolucion(inicio, fin, desde, limite);
+            case "eliminacion":
+                return logica.buscarPorFechaEliminacion(inicio, fin, desde, limite);
+            default:
+                responderError(intercambio, 400, "La fecha debe ser registro, resolucion o eliminacion");
+                return null;
+        }
+    }
+
+    private static EstadoIncidencia leerEstado(String estado) {
+        switch (estado) {
+            case "pendiente":
+                return EstadoIncidencia.PENDIENTE;
+            case "resuelta":
+                return EstadoIncidencia.RESUELTA;
+            case "eliminada":
+                return EstadoIncidencia.ELIMINADA;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Registra una incidencia nueva.
+     */
+    private void registrar(HttpExchange intercambio, Map<String, String> parametros) throws IOException {
+        Integer puesto = leerEntero(parametros, "puesto", null);
+        String problema = parametros.get("problema");
+        if (puesto == null || problema == null) {
+            responderError(intercambio, 400, "Indique puesto y problema");
+            return;
+        }
+        responder(intercambio, 201, logica.registrarIncidencia(puesto, problema));
+    }
+
+    /**
+     * Modifica, resuelve o elimina una incidencia según la ruta, con los parámetros indicados.
+     */
+    private void cambiar(HttpExchange intercambio, Map<String, String> parametros, String... necesarios) throws IOException {
+        String codigo = parametros.get("codigo");
+        if (!CodigoIncidencia.esValido(codigo)) {
+            responderError(intercambio, 400, "Formato incorrecto, formato correcto: XX/XX/XXXX-XX:XX-X");
+            return;
+        }
+        for (String necesario : necesarios) {
+            if (parametros.get(necesario) == null) {
+                responderError(intercambio, 400, "Falta el parámetro " + necesario);
+                return;
+            }
+        }
+        if (logica.buscarIncidencia(codigo) == null) {
+            responderError(intercambio, 404, "Incidencia no encontrada");
+            return;
+        }
+
+        boolean hecho;
+        String ruta = intercambio.getRequestURI().getPath();
+        if (ruta.endsWith("/modificar")) {
+            Integer puesto = leerEntero(parametros, "puesto", null);
+            if (puesto == null) {
+                responderError(intercambio, 400, "El puesto debe ser un número");
+                return;
+            }
+            hecho = logica.modificarIncidencia(codigo, puesto, parametros.get("problema"));
+        } else if (ruta.endsWith("/resolver")) {
+            hecho = logica.resolverIncidencia(codigo, parametros.get("resolucion"));
+        } else {
+            hecho = logica.eliminarIncidencia(codigo, parametros.get("causa"));
+        }
+
+        if (hecho) {
+            responder(intercambio, 200, logica.buscarIncidencia(codigo));
+        } else {
+            // La lógica no permite el cambio en el estado actual de la incidencia
+            responderError(intercambio, 409, "La incidencia está en estado " + logica.buscarIncidencia(codigo).getEstado());
+        }
+    }
+
+    private void responder(HttpExchange intercambio, int estado, Incidencia incidencia) throws IOException {
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(estado, 0);
+        try (Writer salida = escritor(intercambio)) {
+            new EscritorJson(salida).escribir(incidencia);
+        }
+    }
+
+    private void responderError(HttpExchange intercambio, int estado, String mensaje) throws IOException {
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(estado, 0);
+        try (Writer salida = escritor(intercambio)) {
+            new EscritorJson(salida).escribirCampo("error", mensaje);
+        }
+    }
+
+    private static Writer escritor(HttpExchange intercambio) {
+        return new BufferedWriter(new OutputStreamWriter(intercambio.getResponseBody(), StandardCharsets.UTF_8), TAMANO_BUFFER);
+    }
+
+    /**
+     * Lee los parámetros de la URL y, en las peticiones POST, los del cuerpo como formulario.
+     * @return Los parámetros, o null si alguno está mal codificado; en ese caso ya se ha respondido con un 400.
+     */
+    private Map<String, String> leerParametros(HttpExchange intercambio) throws IOException {
+        Map<String, String> parametros = new HashMap<>();
+        try {
+            anadirParametros(parametros, intercambio.getRequestURI().getRawQuery());
+            if (intercambio.getRequestMethod().equals("POST")) {
+                try (InputStream cuerpo = intercambio.getRequestBody()) {
+                    anadirParametros(parametros, new String(cuerpo.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            // URLDecoder no admite un % que no vaya seguido de dos cifras hexadecimales
+            responderError(intercambio, 400, "Parámetro mal codificado: " + ex.getMessage());
+            return null;
+        }
+        return parametros;
+    }
+
+    private static void anadirParametros(Map<String, String> parametros, String consulta) {
+        if (consulta == null || consulta.isEmpty()) {
+            return;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String nombre = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            parametros.putIfAbsent(URLDecoder.decode(nombre, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Lee un parámetro entero.
+     * @return El valor, el valor por defecto si no está, o null si no es un número.
+     */
+    private static Integer leerEntero(Map<String, String> parametros, String nombre, Integer porDefecto) {
+        String valor = parametros.get(nombre);
+        if (valor == null) {
+            return porDefecto;
+        }
+        try {
+            return Integer.valueOf(valor.trim());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package presentacion;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import aplicacion.CargadorInicial;
+import aplicacion.EscrituraDiferida;
+import aplicacion.HistorialColumnar;
+import aplicacion.Logica;
+import persistencia.ArchivoCsv;
+import persistencia.ConfiguracionPersistencia;
+import persistencia.RepositorioIncidencias;
+
+/**
+ * Importa y exporta incidencias en bloque con ficheros CSV, en el formato que se describe en
+ * {@link ArchivoCsv}. Usa el almacenamiento configurado en incidencias.properties, igual que la aplicación.
+ * <ul>
+ * <li>exportar fichero: escribe todas las incidencias del almacenamiento, leyéndolas en streaming.</li>
+ * <li>importar fichero [hilos]: carga las incidencias guardadas, lee el fichero en paralelo y añade las que no
+ * existen a la lógica y, en lotes, al almacenamiento. Conserva sus códigos y sus fechas.</li>
+ * <li>comprobar fichero [hilos]: solo lee el fichero, para saber si es correcto antes de importarlo.</li>
+ * </ul>
+ * Al terminar se muestran las filas por segundo y el máximo de memoria del heap ocupada durante la operación.
+ * @author Maria
+ */
+public class TransferenciaCsv {
+    private static final int TAMANO_LOTE = 1000;
+    private static final long INTERVALO_VOLCADO_MS = 1000;
+    private static final int MAXIMO_CAMBIOS_PENDIENTES = 10000;
+    private static final int TRAMOS_CARGA = 4;
+    private static final long INTERVALO_MUESTREO_MS = 20;
+
+    /**
+     * Método principal de la importación y exportación.
+     * @param args La operación, el fichero y, al leer, el número de hilos (opcional).
+     * @throws Exception si falla la lectura o la escritura.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Uso: TransferenciaCsv exportar|importar|comprobar fichero [hilos]");
+            return;
+        }
+        Path fichero = Paths.get(args[1]);
+        int hilos = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        MemoriaMaxima memoria = new MemoriaMaxima();
+        memoria.start();
+        long inicio = System.nanoTime();
+        long filas;
+        switch (args[0]) {
+            case "exportar":
+                filas = exportar(fichero);
+                break;
+            case "importar":
+                filas = importar(fichero, hilos);
+                break;
+            case "comprobar":
+                filas = ArchivoCsv.importar(fichero, hilos, TAMANO_LOTE, lote -> { });
+                System.out.println(filas + " incidencias correctas.");
+                break;
+            default:
+                System.out.println("Operación desconocida: " + args[0]);
+                return;
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        memoria.interrupt();
+        memoria.join();
+
+        System.out.printf("%d filas en %.1f s: %.0f filas por segundo%n", filas, segundos, filas / segundos);
+        System.out.printf("Memoria máxima del heap: %d MiB%n", memoria.maxima / (1024 * 1024));
+    }
+
+    /**
+     * Escribe en el fichero las incidencias del almacenamiento configurado.
+     */
+    private static long exportar(Path fichero) throws Exception {
+        RepositorioIncidencias dao = abrirRepositorio();
+        try {
+            long escritas = ArchivoCsv.exportar(dao, fichero);
+            System.out.println(escritas + " incidencias exportadas a " + fichero + ".");
+            return escritas;
+        } finally {
+            dao.cerrarConexion();
+        }
+    }
+
+    /**
+     * Añade las incidencias del fichero a la lógica y al almacenamiento configurado. Primero se cargan
+     * las guardadas para que la lógica descarte los códigos repetidos en lugar de que falle el lote.
+     */
+    private static long importar(Path fichero, int hilos) throws Exception {
+        RepositorioIncidencias dao = abrirRepositorio();
+        Logica logica = new Logica(new EscrituraDiferida(dao, INTERVALO_VOLCADO_MS, MAXIMO_CAMBIOS_PENDIENTES),
+                new HistorialColumnar());
+        try {
+            CargadorInicial cargador = new CargadorInicial(dao, logica, TRAMOS_CARGA);
+            int existentes = cargador.cargarPendientes() + cargador.cargarHistorialEnSegundoPlano().join();
+            System.out.println(existentes + " incidencias ya guardadas.");
+
+            AtomicLong anadidas = new AtomicLong();
+            long leidas = ArchivoCsv.importar(fichero, hilos, TAMANO_LOTE,
+                    lote -> anadidas.addAndGet(logica.importarIncidencias(lote)));
+            System.out.println(leidas + " incidencias leídas, " + anadidas.get() + " añadidas y "
+                    + (leidas - anadidas.get()) + " descartadas por tener un código incorrecto o repetido.");
+            return leidas;
+        } finally {
+            // Vuelca los lotes que queden pendientes antes de cerrar el almacenamiento
+            logica.cerrar();
+            dao.cerrarConexion();
+        }
+    }
+
+    private static RepositorioIncidencias abrirRepositorio() {
+        Properties configuracion = ConfiguracionPersistencia.cargar(
+                Paths.get(System.getProperty("incidencias.configuracion", "incidencias.properties")));
+        return ConfiguracionPersistencia.abrirRepositorio(configuracion);
+    }
+
+    /**
+     * Hilo que mide cada poco tiempo la memoria ocupada del heap y guarda la máxima.
+     */
+    private static final class MemoriaMaxima extends Thread {
+        private final MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        private volatile long maxima;
+
+        MemoriaMaxima() {
+            super("memoria-maxima");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                maxima = Math.max(maxima, memoria.getHeapMemoryUsage().getUsed());
+                try {
+                    Thread.sleep(INTERVALO_MUESTREO_MS);
+                } catch (InterruptedException ex) {
+                    maxima = Math.max(maxima, memoria.getHeapMemoryUsage().getUsed());
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package aplicacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+import persistencia.IncidenciasMemoria;
+
+/**
+ * Pruebas de la carga inicial: antes de registrar incidencias nuevas deben estar cargadas las pendientes y las
+ * resueltas y eliminadas de hoy, para que la secuencia del día no repita un código ya guardado.
+ */
+class CargadorInicialTest {
+    private static final LocalDateTime AHORA = LocalDateTime.of(2024, 5, 21, 10, 0);
+    private static final Clock RELOJ = Clock.fixed(AHORA.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+
+    private PrintStream salida;
+    private IncidenciasMemoria dao;
+    private Logica logica;
+    private CargadorInicial cargador;
+
+    @BeforeEach
+    void preparar() {
+        // IncidenciasMemoria avisa por consola de cada alta
+        salida = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        dao = new IncidenciasMemoria();
+        LocalDateTime ayer = AHORA.minusDays(1);
+        LocalDateTime hoy = AHORA.minusHours(2);
+        dao.create(new Incidencia(CodigoIncidencia.de(ayer, 9).getCodigo(), EstadoIncidencia.PENDIENTE, 1,
+                "Problema de ayer", ayer));
+        dao.create(new Incidencia(CodigoIncidencia.de(hoy, 1).getCodigo(), EstadoIncidencia.PENDIENTE, 2,
+                "Problema de hoy", hoy));
+        dao.create(new Incidencia(CodigoIncidencia.de(hoy, 7).getCodigo(), "Problema resuelto", 3,
+                EstadoIncidencia.RESUELTA, hoy, hoy.plusMinutes(30), "Cable cambiado", null, null));
+        dao.create(new Incidencia(CodigoIncidencia.de(hoy, 4).getCodigo(), "Problema eliminado", 4,
+                EstadoIncidencia.ELIMINADA, hoy, null, null, hoy.plusMinutes(10), "Duplicada"));
+        dao.create(new Incidencia(CodigoIncidencia.de(ayer, 20).getCodigo(), "Problema resuelto ayer", 5,
+                EstadoIncidencia.RESUELTA, ayer, ayer.plusHours(1), "Reiniciado", null, null));
+        logica = new Logica(null, new HistorialColumnar(), RELOJ);
+        cargador = new CargadorInicial(dao, logica, 2);
+    }
+
+    @AfterEach
+    void restaurar() {
+        System.setOut(salida);
+    }
+
+    @Test
+    void laSecuenciaContinuaTrasLasCerradasDeHoy() {
+        assertEquals(2, cargador.cargarPendientes());
+        assertEquals(2, cargador.cargarCerradasDeHoy());
+
+        Incidencia registrada = logica.registrarIncidencia(6, "Problema nuevo");
+
+        assertEquals(CodigoIncidencia.de(AHORA, 8).getCodigo(), registrada.getCodigo());
+        assertEquals(1, logica.contarIncidenciasResueltas());
+        assertEquals(1, logica.contarIncidenciasEliminadas());
+    }
+
+    @Test
+    void elHistorialNoRepiteLasCerradasDeHoy() {
+        cargador.cargarPendientes();
+        cargador.cargarCerradasDeHoy();
+        cargador.cargarHistorialEnSegundoPlano().join();
+
+        assertEquals(2, logica.contarIncidenciasPendientes());
+        assertEquals(2, logica.contarIncidenciasResueltas());
+        assertEquals(1, logica.contarIncidenciasEliminadas());
+        assertNotNull(logica.buscarIncidencia(CodigoIncidencia.de(AHORA.minusHours(2), 7).getCodigo()));
+    }
+}
@@ -0,0 +1,253 @@
+package aplicacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+import persistencia.IncidenciasMemoria;
+
+/**
+ * Pruebas de la escritura diferida con un almacenamiento en memoria que anota los lotes que recibe
+ * y puede fallar a propósito.
+ */
+class EscrituraDiferidaTest {
+    private static final long SIN_VOLCADO_PERIODICO_MS = TimeUnit.HOURS.toMillis(1);
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 5, 21, 9, 0);
+
+    private final AlmacenPrueba almacen = new AlmacenPrueba();
+
+    private static Incidencia pendiente(int numero) {
+        return new Incidencia("21/05/2024-09:00-" + numero, EstadoIncidencia.PENDIENTE, 100, "Problema " + numero,
+                INICIO.plusMinutes(numero));
+    }
+
+    private static Incidencia resuelta(int numero) {
+        return new Incidencia("21/05/2024-09:00-" + numero, "Problema " + numero, 100, EstadoIncidencia.RESUELTA,
+                INICIO.plusMinutes(numero), INICIO.plusHours(1), "Resuelta", null, null);
+    }
+
+    @Test
+    void agrupaLosCambiosDeCadaIncidenciaEnUnLote() {
+        almacen.createAll(List.of(pendiente(9)));
+        almacen.lotesAltas.clear();
+        try (EscrituraDiferida escritura = new EscrituraDiferida(almacen, SIN_VOLCADO_PERIODICO_MS, 100)) {
+            escritura.registrarAlta(pendiente(1));
+            escritura.registrarCambio(resuelta(1));
+            escritura.registrarAlta(pendiente(2));
+            escritura.registrarCambio(resuelta(9));
+
+            escritura.volcar();
+
+            assertEquals(List.of(List.of(resuelta(1), pendiente(2))), almacen.lotesAltas);
+            assertEquals(List.of(List.of(resuelta(9))), almacen.lotesCambios);
+        }
+    }
+
+    @Test
+    void guardaLaIncidenciaComoEstabaAlRegistrarElCambio() {
+        try (EscrituraDiferida escritura = new EscrituraDiferida(almacen, SIN_VOLCADO_PERIODICO_MS, 100)) {
+            Incidencia incidencia = pendiente(1);
+            escritura.registrarAlta(incidencia);
+            // Un cambio que aún no se ha registrado no debe colarse en el volcado
+            incidencia.setProblema("Problema cambiado");
+
+            escritura.volcar();
+
+            assertEquals(pendiente(1), almacen.buscaIncidencia(pendiente(1).getCodigo()));
+        }
+    }
+
+    @Test
+    void reintentaLasAltasSiElAlmacenamientoFalla() {
+        try (EscrituraDiferida escritura = new EscrituraDiferida(almacen, SIN_VOLCADO_PERIODICO_MS, 100)) {
+            escritura.registrarAlta(pendiente(1));
+            escritura.registrarAlta(pendiente(2));
+            almacen.fallosPendientes = 1;
+
+            escritura.volcar();
+            assertTrue(almacen.listarIncidencias().isEmpty());
+
+            escritura.volcar();
+            assertEquals(pendiente(1), almacen.buscaIncidencia(pendiente(1).getCodigo()));
+            assertEquals(pendiente(2), almacen.buscaIncidencia(pendiente(2).getCodigo()));
+        }
+    }
+
+    @Test
+    void reintentaSoloLasAltasQueNoSeConfirmaron() {
+        try (EscrituraDiferida escritura = new EscrituraDiferida(almacen, SIN_VOLCADO_PERIODICO_MS, 100)) {
+            for (int i = 1; i <= 4; i++) {
+                escritura.registrarAlta(pendiente(i));
+            }
+            // Como IncidenciasDAO cuando falla un lote después de confirmar los anteriores
+            almacen.maximoConfirmadas = 2;
+
+            escritura.volcar();
+            almacen.maximoConfirmadas = Integer.MAX_VALUE;
+            escritura.volcar();
+
+            assertEquals(4, almacen.listarIncidencias().size());
+            assertEquals(List.of(List.of(pendiente(3)), List.of(pendiente(4))),
+                    almacen.lotesAltas.subList(1, almacen.lotesAltas.size()));
+        }
+    }
+
+    @Test
+    void reintentaLosCambiosSiElAlmacenamientoFalla() {
+        almacen.createAll(List.of(pendiente(1)));
+        try (EscrituraDiferida escritura = new EscrituraDiferida(almacen, SIN_VOLCADO_PERIODICO_MS, 100)) {
+            escritura.registrarCambio(resuelta(1));
+            almacen.fallosPendientes = 1;
+
+            escritura.volcar();
+            assertEquals(pendiente(1), almacen.buscaIncidencia(pendiente(1).getCodigo()));
+
+            escritura.volcar();
+            assertEquals(resuelta(1), almacen.buscaIncidencia(pendiente(1).getCodigo()));
+        }
+    }
+
+    @Test
+    void unAltaFallidaNoPisaUnCambioMasReciente() {
+        try (EscrituraDiferida escritura = new EscrituraDiferida(almacen, SIN_VOLCADO_PERIODICO_MS, 100)) {
+            escritura.registrarAlta(pendiente(1));
+            // El cambio llega mientras se está guardando el alta, que después falla
+            almacen.alEscribir = () -> escritura.registrarCambio(resuelta(1));
+            almacen.fallosPendientes = 1;
+
+            escritura.volcar();
+            almacen.alEscribir = null;
+            escritura.volcar();
+
+            // Se inserta el estado más reciente, como alta porque la primera no llegó a guardarse
+            assertEquals(resuelta(1), almacen.buscaIncidencia(pendiente(1).getCodigo()));
+            assertTrue(almacen.lotesCambios.isEmpty());
+        }
+    }
+
+    @Test
+    void descartaLosCambiosQueAgotanSusIntentos() {
+        try (EscrituraDiferida escritura = new EscrituraDiferida(almacen, SIN_VOLCADO_PERIODICO_MS, 100)) {
+            escritura.registrarAlta(pendiente(1));
+            almacen.fallosPendientes = Integer.MAX_VALUE;
+
+            for (int i = 0; i < EscrituraDiferida.MAXIMO_INTENTOS + 2; i++) {
+                escritura.volcar();
+            }
+
+            assertEquals(EscrituraDiferida.MAXIMO_INTENTOS, almacen.lotesAltas.size());
+        }
+    }
+
+    @Test
+    void closeVuelcaLoPendienteYRechazaCambiosNuevos() {
+        EscrituraDiferida escritura = new EscrituraDiferida(almacen, SIN_VOLCADO_PERIODICO_MS, 100);
+        escritura.registrarAlta(pendiente(1));
+        almacen.fallosPendientes = 1;
+
+        escritura.close();
+
+        assertEquals(pendiente(1), almacen.buscaIncidencia(pendiente(1).getCodigo()));
+        assertThrows(IllegalStateException.class, () -> escritura.registrarAlta(pendiente(2)));
+    }
+
+    @Test
+    void closeDespiertaConErrorAQuienEsperaHueco() throws Exception {
+        CountDownLatch escribiendo = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        EscrituraDiferida escritura = new EscrituraDiferida(almacen, SIN_VOLCADO_PERIODICO_MS, 1);
+        escritura.registrarAlta(pendiente(1));
+        almacen.alEscribir = () -> {
+            escribiendo.countDown();
+            esperar(continuar);
+        };
+
+        // Con la cola llena se pide un volcado, que se queda guardando pendiente(1); pendiente(2) ocupa la cola
+        escritura.registrarAlta(pendiente(2));
+        assertTrue(escribiendo.await(10, TimeUnit.SECONDS));
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread esperando = new Thread(() -> {
+            try {
+                escritura.registrarAlta(pendiente(3));
+            } catch (Throwable ex) {
+                error.set(ex);
+            }
+        });
+        esperando.start();
+        while (esperando.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+
+        Thread cierre = new Thread(escritura::close);
+        cierre.start();
+        esperando.join(TimeUnit.SECONDS.toMillis(10));
+        assertTrue(error.get() instanceof IllegalStateException);
+
+        almacen.alEscribir = null;
+        continuar.countDown();
+        cierre.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(pendiente(2), almacen.buscaIncidencia(pendiente(2).getCodigo()));
+        assertNull(almacen.buscaIncidencia(pendiente(3).getCodigo()));
+    }
+
+    private static void esperar(CountDownLatch senal) {
+        try {
+            senal.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Almacenamiento en memoria que anota cada lote y puede fallar o confirmar solo una parte.
+     */
+    private static final class AlmacenPrueba extends IncidenciasMemoria {
+        final List<List<Incidencia>> lotesAltas = new ArrayList<>();
+        final List<List<Incidencia>> lotesCambios = new ArrayList<>();
+        volatile int fallosPendientes; // Número de escrituras siguientes que lanzan una excepción
+        volatile int maximoConfirmadas = Integer.MAX_VALUE; // Altas que confirma cada createAll
+        volatile Runnable alEscribir; // Se ejecuta al empezar cada escritura
+
+        @Override
+        public synchronized int createAll(Iterator<Incidencia> nuevas) {
+            List<Incidencia> lote = new ArrayList<>();
+            nuevas.forEachRemaining(lote::add);
+            lotesAltas.add(lote);
+            empezarEscritura();
+            return super.createAll(lote.subList(0, Math.min(lote.size(), maximoConfirmadas)).iterator());
+        }
+
+        @Override
+        public synchronized int updateAll(Collection<Incidencia> cambiadas) {
+            lotesCambios.add(new ArrayList<>(cambiadas));
+            empezarEscritura();
+            return super.updateAll(cambiadas);
+        }
+
+        private void empezarEscritura() {
+            Runnable accion = alEscribir;
+            if (accion != null) {
+                accion.run();
+            }
+            if (fallosPendientes > 0) {
+                fallosPendientes--;
+                throw new IllegalStateException("Fallo simulado del almacenamiento");
+            }
+        }
+    }
+}
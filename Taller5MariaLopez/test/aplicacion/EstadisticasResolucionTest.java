@@ -0,0 +1,162 @@
+package aplicacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Pruebas de las estadísticas de resolución: el error de la mediana y el percentil 95 frente a los valores
+ * exactos, y la retirada exacta de una incidencia resuelta que vuelve a pendiente.
+ */
+class EstadisticasResolucionTest {
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 5, 21, 8, 0);
+    private static final double ERROR_MAXIMO = 0.02;
+    private static final int PUESTOS = 7;
+
+    private static Incidencia resuelta(int numero, long segundos) {
+        LocalDateTime registro = INICIO.plusMinutes(numero);
+        return new Incidencia(CodigoIncidencia.de(registro, numero).getCodigo(), "Problema " + numero,
+                numero % PUESTOS, EstadoIncidencia.RESUELTA, registro, registro.plusSeconds(segundos), "Resuelta",
+                null, null);
+    }
+
+    /**
+     * Devuelve la incidencia a pendiente como lo hace la lógica: se retira con su estado resuelto, se cambia
+     * y se vuelve a añadir.
+     */
+    private static void devolver(EstadisticasResolucion estadisticas, Incidencia incidencia) {
+        estadisticas.quitar(incidencia);
+        incidencia.setEstado(EstadoIncidencia.PENDIENTE);
+        incidencia.setFechaResolucion(null);
+        incidencia.setResolucion(null);
+        estadisticas.anadir(incidencia);
+    }
+
+    @Test
+    void losPercentilesTienenUnErrorRelativoAcotado() {
+        SplittableRandom azar = new SplittableRandom(42);
+        comprobarError("uniforme de segundos a horas", () -> azar.nextLong(1, 4 * 3600));
+        comprobarError("lognormal alrededor de una hora",
+                () -> Math.round(Math.exp(Math.log(3600) + 1.5 * normal(azar))));
+        comprobarError("cola larga hasta meses",
+                () -> Math.min(Math.round(60 / Math.pow(1 - azar.nextDouble(), 1.2)), 10_000_000));
+        comprobarError("menos de medio minuto", () -> azar.nextLong(0, 30));
+    }
+
+    private static double normal(SplittableRandom azar) {
+        return Math.sqrt(-2 * Math.log(1 - azar.nextDouble())) * Math.cos(2 * Math.PI * azar.nextDouble());
+    }
+
+    private static void comprobarError(String distribucion, LongSupplier duraciones) {
+        EstadisticasResolucion estadisticas = new EstadisticasResolucion();
+        int total = 20_000;
+        long[] segundos = new long[total];
+        long suma = 0;
+        for (int i = 0; i < total; i++) {
+            segundos[i] = duraciones.getAsLong();
+            suma += segundos[i];
+            estadisticas.anadir(resuelta(i, segundos[i]));
+        }
+        Arrays.sort(segundos);
+
+        TiemposResolucion tiempos = estadisticas.total();
+        assertEquals(total, tiempos.getTotal(), distribucion);
+        assertEquals(Duration.ofMillis(suma * 1000 / total), tiempos.getMedia(), distribucion);
+        comprobarPercentil(distribucion + ", mediana", exacto(segundos, 0.5), tiempos.getMediana());
+        comprobarPercentil(distribucion + ", percentil 95", exacto(segundos, 0.95), tiempos.getPercentil95());
+    }
+
+    private static long exacto(long[] ordenados, double proporcion) {
+        return ordenados[(int) Math.ceil(proporcion * ordenados.length) - 1];
+    }
+
+    private static void comprobarPercentil(String mensaje, long exacto, Duration estimado) {
+        // Por debajo de 32 segundos cada segundo tiene su cubeta y el error es cero
+        long error = Math.abs(estimado.getSeconds() - exacto);
+        assertTrue(error <= ERROR_MAXIMO * exacto, mensaje + ": exacto " + exacto + " s, estimado " + estimado);
+    }
+
+    @Test
+    void devolverUnaResueltaRetiraExactamenteSuTiempo() {
+        EstadisticasResolucion estadisticas = new EstadisticasResolucion();
+        EstadisticasResolucion soloLasQueQuedan = new EstadisticasResolucion();
+        SplittableRandom azar = new SplittableRandom(7);
+        List<Incidencia> devueltas = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // Tiempos de hasta tres días para repartirlas en varios días de resolución
+            long segundos = azar.nextLong(0, 3 * 86_400);
+            estadisticas.anadir(resuelta(i, segundos));
+            if (i % 3 == 0) {
+                devueltas.add(resuelta(i, segundos));
+            } else {
+                soloLasQueQuedan.anadir(resuelta(i, segundos));
+            }
+        }
+
+        for (Incidencia incidencia : devueltas) {
+            devolver(estadisticas, incidencia);
+        }
+
+        comprobarIguales(soloLasQueQuedan.total(), estadisticas.total());
+        for (LocalDate dia = INICIO.toLocalDate(); dia.isBefore(INICIO.toLocalDate().plusDays(8)); dia = dia.plusDays(1)) {
+            comprobarIguales(soloLasQueQuedan.dia(dia), estadisticas.dia(dia));
+        }
+        for (int puesto = 0; puesto < PUESTOS; puesto++) {
+            comprobarIguales(soloLasQueQuedan.puesto(puesto), estadisticas.puesto(puesto));
+        }
+    }
+
+    @Test
+    void alDevolverTodasLosGruposQuedanVacios() {
+        EstadisticasResolucion estadisticas = new EstadisticasResolucion();
+        List<Incidencia> resueltas = List.of(resuelta(1, 90), resuelta(2, 7200), resuelta(3, 86_400 * 40L));
+        for (Incidencia incidencia : resueltas) {
+            estadisticas.anadir(incidencia);
+        }
+        LocalDate dia = resueltas.get(0).getFechaResolucion().toLocalDate();
+
+        for (Incidencia incidencia : resueltas) {
+            devolver(estadisticas, incidencia);
+        }
+
+        TiemposResolucion vacio = new TiemposResolucion(0, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+        comprobarIguales(vacio, estadisticas.total());
+        comprobarIguales(vacio, estadisticas.dia(dia));
+        comprobarIguales(vacio, estadisticas.puesto(1));
+    }
+
+    @Test
+    void soloCuentanLasResueltas() {
+        EstadisticasResolucion estadisticas = new EstadisticasResolucion();
+        estadisticas.anadir(new Incidencia(CodigoIncidencia.de(INICIO, 1).getCodigo(), EstadoIncidencia.PENDIENTE, 1,
+                "Pendiente", INICIO));
+        estadisticas.anadir(new Incidencia(CodigoIncidencia.de(INICIO, 2).getCodigo(), "Eliminada", 1,
+                EstadoIncidencia.ELIMINADA, INICIO, null, null, INICIO.plusHours(1), "Duplicada"));
+        estadisticas.anadir(resuelta(3, 600));
+
+        TiemposResolucion tiempos = estadisticas.total();
+        assertEquals(1, tiempos.getTotal());
+        assertEquals(Duration.ofMinutes(10), tiempos.getMedia());
+    }
+
+    private static void comprobarIguales(TiemposResolucion esperado, TiemposResolucion obtenido) {
+        assertEquals(esperado.getTotal(), obtenido.getTotal());
+        assertEquals(esperado.getMedia(), obtenido.getMedia());
+        assertEquals(esperado.getMediana(), obtenido.getMediana());
+        assertEquals(esperado.getPercentil95(), obtenido.getPercentil95());
+    }
+}
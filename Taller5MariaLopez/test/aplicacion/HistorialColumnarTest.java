@@ -0,0 +1,118 @@
+package aplicacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Pruebas del historial en columnas: lectura de lo guardado y recorridos en orden cronológico de código
+ * cuando las incidencias llegan desordenadas y se quitan.
+ */
+class HistorialColumnarTest {
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 5, 21, 8, 0);
+
+    private final HistorialColumnar historial = new HistorialColumnar();
+
+    private static Incidencia cerrada(int minuto, int secuencia) {
+        LocalDateTime registro = INICIO.plusMinutes(minuto);
+        String codigo = CodigoIncidencia.de(registro, secuencia).getCodigo();
+        if (secuencia % 2 == 0) {
+            return new Incidencia(codigo, "Problema " + minuto, minuto % 7, EstadoIncidencia.RESUELTA, registro,
+                    registro.plusHours(1), "Resuelta", null, null);
+        }
+        return new Incidencia(codigo, "Problema " + minuto, minuto % 7, EstadoIncidencia.ELIMINADA, registro,
+                null, null, registro.plusHours(2), "Duplicada");
+    }
+
+    private static List<Incidencia> lista(Iterable<Incidencia> incidencias) {
+        List<Incidencia> lista = new ArrayList<>();
+        incidencias.forEach(lista::add);
+        return lista;
+    }
+
+    @Test
+    void devuelveLaIncidenciaGuardada() {
+        Incidencia incidencia = cerrada(3, 2);
+
+        assertTrue(historial.anadir(incidencia));
+        assertFalse(historial.anadir(incidencia));
+
+        assertEquals(incidencia, historial.obtener(incidencia.getCodigo()));
+        assertTrue(historial.quitar(incidencia.getCodigo()));
+        assertNull(historial.obtener(incidencia.getCodigo()));
+        assertEquals(0, historial.contar(EstadoIncidencia.RESUELTA));
+    }
+
+    @Test
+    void recorreEnOrdenCronologicoAunqueLleguenDesordenadasYSeQuiten() {
+        SplittableRandom azar = new SplittableRandom(20240521L);
+        TreeMap<CodigoIncidencia, Incidencia> esperadas = new TreeMap<>();
+        for (int ronda = 0; ronda < 50; ronda++) {
+            // Casi todas llegan en orden, algunas de minutos anteriores y otras con la secuencia cambiada
+            for (int i = 0; i < 200; i++) {
+                int minuto = azar.nextInt(10) == 0 ? azar.nextInt(ronda * 60 + 60) : ronda * 60 + i % 60;
+                Incidencia incidencia = cerrada(minuto, 1 + azar.nextInt(4));
+                CodigoIncidencia codigo = CodigoIncidencia.parse(incidencia.getCodigo());
+                assertEquals(!esperadas.containsKey(codigo), historial.anadir(incidencia), incidencia.getCodigo());
+                esperadas.putIfAbsent(codigo, incidencia);
+            }
+            List<CodigoIncidencia> codigos = new ArrayList<>(esperadas.keySet());
+            for (int i = 0; i < 40; i++) {
+                CodigoIncidencia codigo = codigos.get(azar.nextInt(codigos.size()));
+                assertEquals(esperadas.remove(codigo) != null, historial.quitar(codigo.getCodigo()));
+            }
+
+            for (EstadoIncidencia estado : new EstadoIncidencia[] { EstadoIncidencia.RESUELTA, EstadoIncidencia.ELIMINADA }) {
+                List<Incidencia> delEstado = new ArrayList<>();
+                for (Incidencia incidencia : esperadas.values()) {
+                    if (incidencia.getEstado() == estado) {
+                        delEstado.add(incidencia);
+                    }
+                }
+                assertEquals(delEstado, lista(historial.incidencias(estado)), "Ronda " + ronda + ", " + estado);
+                assertEquals(delEstado.size(), historial.contar(estado));
+            }
+        }
+    }
+
+    @Test
+    void unRecorridoEnCursoNoVeLasAltasPosterioresYSaltaLasQuitadas() {
+        for (int minuto = 0; minuto < 10; minuto++) {
+            historial.anadir(cerrada(minuto, 2));
+        }
+        Iterator<Incidencia> recorrido = historial.incidencias(EstadoIncidencia.RESUELTA).iterator();
+        assertEquals(cerrada(0, 2), recorrido.next());
+
+        historial.anadir(cerrada(20, 2));
+        historial.anadir(cerrada(5, 4));
+        historial.quitar(cerrada(1, 2).getCodigo());
+
+        List<Incidencia> resto = new ArrayList<>();
+        recorrido.forEachRemaining(resto::add);
+        List<Incidencia> esperado = new ArrayList<>();
+        for (int minuto = 2; minuto < 10; minuto++) {
+            esperado.add(cerrada(minuto, 2));
+        }
+        assertEquals(esperado, resto);
+
+        List<Incidencia> completo = lista(historial.incidencias(EstadoIncidencia.RESUELTA));
+        assertEquals(cerrada(5, 2), completo.get(4));
+        assertEquals(cerrada(5, 4), completo.get(5));
+        assertEquals(cerrada(20, 2), completo.get(completo.size() - 1));
+        assertEquals(11, completo.size());
+    }
+}
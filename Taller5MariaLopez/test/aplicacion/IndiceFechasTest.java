@@ -0,0 +1,56 @@
+package aplicacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Pruebas de la paginación del índice de fechas.
+ */
+class IndiceFechasTest {
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 5, 21, 8, 0);
+
+    private final IndiceFechas indice = new IndiceFechas();
+
+    IndiceFechasTest() {
+        for (int minuto = 0; minuto < 10; minuto++) {
+            LocalDateTime registro = INICIO.plusMinutes(minuto);
+            EstadoIncidencia estado = minuto % 2 == 0 ? EstadoIncidencia.PENDIENTE : EstadoIncidencia.RESUELTA;
+            indice.anadir(new Incidencia(CodigoIncidencia.de(registro, 1).getCodigo(), estado, 1, "Problema", registro));
+        }
+    }
+
+    private static String codigo(int minuto) {
+        return CodigoIncidencia.de(INICIO.plusMinutes(minuto), 1).getCodigo();
+    }
+
+    @Test
+    void saltaYLimitaLosResultados() {
+        LocalDateTime hasta = INICIO.plusHours(1);
+
+        assertEquals(List.of(codigo(2), codigo(3), codigo(4)), indice.registradas(INICIO, hasta, null, 2, 3));
+        assertEquals(List.of(codigo(4), codigo(6)), indice.registradas(INICIO, hasta, EstadoIncidencia.PENDIENTE, 2, 2));
+        assertEquals(List.of(), indice.registradas(INICIO, hasta, null, 20, 3));
+        assertEquals(List.of(), indice.registradas(INICIO, hasta, null, 0, 0));
+    }
+
+    @Test
+    void rechazaSaltarOLimiteNegativos() {
+        LocalDateTime hasta = INICIO.plusHours(1);
+
+        assertThrows(IllegalArgumentException.class, () -> indice.registradas(INICIO, hasta, null, -1, 3));
+        assertThrows(IllegalArgumentException.class, () -> indice.registradas(INICIO, hasta, null, 0, -1));
+        assertThrows(IllegalArgumentException.class,
+                () -> indice.registradas(INICIO, hasta, EstadoIncidencia.PENDIENTE, -1, 3));
+        assertThrows(IllegalArgumentException.class, () -> indice.resueltas(INICIO, hasta, 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> indice.eliminadas(INICIO, hasta, -1, 3));
+    }
+}
@@ -0,0 +1,64 @@
+package aplicacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Pruebas de la paginación y del informe de pendientes del índice de puestos.
+ */
+class IndicePuestosTest {
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 5, 21, 8, 0);
+
+    private final IndicePuestos indice = new IndicePuestos();
+
+    IndicePuestosTest() {
+        // El puesto 1 tiene una incidencia pendiente, el 2 dos y el 3 tres
+        int minuto = 0;
+        for (int puesto = 1; puesto <= 3; puesto++) {
+            for (int i = 0; i < puesto; i++) {
+                LocalDateTime registro = INICIO.plusMinutes(minuto++);
+                indice.anadir(new Incidencia(CodigoIncidencia.de(registro, 1).getCodigo(), EstadoIncidencia.PENDIENTE,
+                        puesto, "Problema", registro));
+            }
+        }
+    }
+
+    private static String codigo(int minuto) {
+        return CodigoIncidencia.de(INICIO.plusMinutes(minuto), 1).getCodigo();
+    }
+
+    @Test
+    void saltaYLimitaLosCodigosDeUnPuesto() {
+        assertEquals(List.of(codigo(4), codigo(5)), indice.codigos(3, null, 1, 5));
+        assertEquals(List.of(codigo(3)), indice.codigos(3, EstadoIncidencia.PENDIENTE, 0, 1));
+        assertEquals(List.of(), indice.codigos(3, null, 0, 0));
+    }
+
+    @Test
+    void devuelveLosPuestosConMasPendientes() {
+        List<PuestoConPendientes> primeros = indice.masPendientes(2);
+
+        assertEquals(2, primeros.size());
+        assertEquals(3, primeros.get(0).getPuesto());
+        assertEquals(3, primeros.get(0).getPendientes());
+        assertEquals(2, primeros.get(1).getPuesto());
+        assertEquals(List.of(), indice.masPendientes(0));
+    }
+
+    @Test
+    void rechazaArgumentosNegativos() {
+        assertThrows(IllegalArgumentException.class, () -> indice.codigos(3, null, -1, 5));
+        assertThrows(IllegalArgumentException.class, () -> indice.codigos(3, null, 0, -1));
+        assertThrows(IllegalArgumentException.class, () -> indice.codigos(99, null, -1, 5));
+        assertThrows(IllegalArgumentException.class, () -> indice.masPendientes(-1));
+    }
+}
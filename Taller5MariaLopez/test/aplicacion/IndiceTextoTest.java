@@ -0,0 +1,155 @@
+package aplicacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Pruebas del índice de texto: normalización de las palabras, orden por relevancia, entradas obsoletas al
+ * volver a indexar, compactación y códigos que no se pueden guardar como clave numérica.
+ */
+class IndiceTextoTest {
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 5, 21, 8, 0);
+
+    private final IndiceTexto indice = new IndiceTexto();
+
+    private static String codigo(int numero) {
+        return CodigoIncidencia.de(INICIO.plusMinutes(numero), numero).getCodigo();
+    }
+
+    private static Incidencia pendiente(String codigo, String problema) {
+        return new Incidencia(codigo, EstadoIncidencia.PENDIENTE, 1, problema, INICIO);
+    }
+
+    private void indexar(int numero, String problema) {
+        indice.indexar(pendiente(codigo(numero), problema));
+    }
+
+    private List<String> buscar(String consulta) {
+        return indice.buscar(consulta, 0, Integer.MAX_VALUE);
+    }
+
+    @Test
+    void quitaTildesMayusculasYPalabrasVacias() {
+        assertEquals(List.of("impresion", "no", "funciona", "pinguino", "anora", "canones", "x1"),
+                IndiceTexto.palabras("La IMPRESIÓN no funciona; el Pingüino añora 2 cañones de la X1."));
+        assertEquals(List.of(), IndiceTexto.palabras("de la y el a en con"));
+        assertEquals(List.of(), IndiceTexto.palabras(null));
+    }
+
+    @Test
+    void encuentraSinDistinguirTildesNiMayusculas() {
+        indexar(1, "Impresión borrosa");
+        indexar(2, "Teclado roto");
+
+        assertEquals(List.of(codigo(1)), buscar("IMPRESION"));
+        assertEquals(List.of(codigo(1)), buscar("impresión"));
+        assertEquals(List.of(codigo(2)), buscar("TECLADO"));
+    }
+
+    @Test
+    void noIndexaLasPalabrasVacias() {
+        indexar(1, "El de la red");
+
+        assertEquals(1, indice.getPalabras());
+        assertEquals(List.of(), buscar("el de la"));
+        assertEquals(List.of(codigo(1)), buscar("la red"));
+    }
+
+    @Test
+    void ordenaPorRelevancia() {
+        // Una palabra poco frecuente pesa más que una que aparece en todas
+        indexar(1, "impresora atascada");
+        indexar(2, "impresora lenta");
+        indexar(3, "impresora apagada");
+        assertEquals(codigo(1), buscar("impresora atascada").get(0));
+
+        // Con la misma longitud, pesa más la palabra que se repite
+        indexar(4, "red red red");
+        indexar(5, "red switch cable");
+        assertEquals(List.of(codigo(4), codigo(5)), buscar("red"));
+
+        // Con la misma frecuencia, pesa más el texto corto
+        indexar(6, "pantalla");
+        indexar(7, "pantalla monitor raton teclado altavoz");
+        assertEquals(List.of(codigo(6), codigo(7)), buscar("pantalla"));
+
+        // Contener más palabras de la consulta puntúa más
+        assertEquals(codigo(7), buscar("pantalla monitor").get(0));
+    }
+
+    @Test
+    void aIgualRelevanciaVaPrimeroLaIndexadaMasTarde() {
+        indexar(1, "servidor caido");
+        indexar(2, "servidor caido");
+        indexar(3, "servidor caido");
+
+        assertEquals(List.of(codigo(3), codigo(2), codigo(1)), buscar("servidor"));
+        assertEquals(List.of(codigo(2)), indice.buscar("servidor", 1, 1));
+        assertEquals(List.of(), indice.buscar("servidor", 3, 10));
+        assertEquals(List.of(), indice.buscar("servidor", 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> indice.buscar("servidor", -1, 1));
+    }
+
+    @Test
+    void ignoraLasEntradasAnterioresAlVolverAIndexar() {
+        indexar(1, "impresora atascada");
+        indexar(2, "impresora lenta");
+        Incidencia resuelta = new Incidencia(codigo(1), "Teclado roto", 1, EstadoIncidencia.RESUELTA, INICIO,
+                INICIO.plusHours(1), "Cambiado por uno nuevo", null, null);
+        indice.indexar(resuelta);
+
+        assertEquals(2, indice.getTamano());
+        assertEquals(List.of(codigo(2)), buscar("impresora"));
+        assertEquals(List.of(), buscar("atascada"));
+        assertEquals(List.of(codigo(1)), buscar("teclado"));
+        assertEquals(List.of(codigo(1)), buscar("nuevo"));
+    }
+
+    @Test
+    void compactaLasListasCuandoHayMuchasEntradasObsoletas() {
+        int versiones = 5000;
+        for (int i = 0; i < versiones; i++) {
+            indexar(1, "palabra" + i + " comun");
+        }
+        indexar(2, "comun");
+
+        // Sin compactar quedaría una lista por cada palabra de cada versión
+        assertTrue(indice.getPalabras() < versiones / 2, "Palabras tras compactar: " + indice.getPalabras());
+        assertEquals(2, indice.getTamano());
+        assertEquals(List.of(), buscar("palabra0"));
+        assertEquals(List.of(), buscar("palabra" + (versiones - 2)));
+        assertEquals(List.of(codigo(1)), buscar("palabra" + (versiones - 1)));
+        assertEquals(List.of(codigo(2), codigo(1)), buscar("comun"));
+    }
+
+    @Test
+    void guardaTalCualLosCodigosQueNoSeReconstruyen() {
+        // Secuencia con ceros a la izquierda y fecha que no existe: no caben en la clave numérica
+        String conCeros = "21/05/2024-08:01-007";
+        String fechaImposible = "31/02/2024-08:00-1";
+        indice.indexar(pendiente(conCeros, "Monitor parpadea"));
+        indice.indexar(pendiente(codigo(7), "Monitor apagado"));
+        indice.indexar(pendiente(fechaImposible, "Monitor roto"));
+
+        assertEquals(List.of(conCeros), buscar("parpadea"));
+        assertEquals(List.of(codigo(7)), buscar("apagado"));
+        assertEquals(List.of(fechaImposible), buscar("roto"));
+
+        indice.indexar(pendiente(conCeros, "Ratón sin pilas"));
+
+        assertEquals(3, indice.getTamano());
+        assertEquals(List.of(), buscar("parpadea"));
+        assertEquals(List.of(conCeros), buscar("raton pilas"));
+        assertEquals(List.of(fechaImposible, codigo(7)), buscar("monitor"));
+    }
+}
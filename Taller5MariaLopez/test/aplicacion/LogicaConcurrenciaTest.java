@@ -0,0 +1,420 @@
+package aplicacion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+import persistencia.IncidenciasMemoria;
+
+/**
+ * Prueba de carga concurrente de la lógica: varios hilos registran, resuelven, devuelven, modifican y eliminan
+ * incidencias mientras otros dos importan las mismas incidencias, pendientes y cerradas; las cerradas van al
+ * historial en columnas. Al terminar, los códigos deben ser únicos y los totales, los grupos por estado,
+ * los índices de fechas y puestos y las estadísticas de resolución deben coincidir.
+ * <p>
+ * También se registra con un reloj que salta a un lado y otro de la medianoche, como el que ven dos hilos que
+ * leen la hora justo antes y justo después: la secuencia diaria no debe volver al día anterior ni repetir códigos.
+ * <p>
+ * Con escritura diferida, lo que llega al almacenamiento nunca debe ser una incidencia a medio cambiar y, tras
+ * cerrar, debe coincidir con lo que hay en memoria.
+ */
+class LogicaConcurrenciaTest {
+    private static final int OPERACIONES_POR_HILO = 400;
+    private static final int IMPORTADAS = 2000;
+    private static final int TAMANO_LOTE = 50;
+    private static final int PUESTOS = 20;
+    private static final LocalDateTime PRINCIPIO = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final LocalDateTime FIN = LocalDateTime.of(2100, 1, 1, 0, 0);
+    private static final LocalDateTime ANTES_DE_MEDIANOCHE = LocalDateTime.of(2024, 5, 21, 23, 59, 59, 900_000_000);
+    private static final int REGISTROS_MEDIANOCHE = 200;
+    private static final int CARGA_CADA = 20;
+    private static final int REGISTRADAS_ANTES = 50;
+    private static final long PAUSA_LECTURA_NANOS = 20_000;
+
+    @ParameterizedTest(name = "{0} hilos")
+    @ValueSource(ints = { 1, 2, 4, 8, 16, 32 })
+    void losTotalesYLosIndicesCoincidenTrasLosCambiosConcurrentes(int hilos) throws Exception {
+        Logica logica = new Logica(null, new HistorialColumnar());
+        List<Incidencia> importadas = importadas();
+        List<String> codigosImportados = new ArrayList<>();
+        for (Incidencia incidencia : importadas) {
+            codigosImportados.add(incidencia.getCodigo());
+        }
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos + 2);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<List<String>>> trabajadores = new ArrayList<>();
+        List<Future<Integer>> importaciones = new ArrayList<>();
+        try {
+            for (int i = 0; i < hilos; i++) {
+                trabajadores.add(ejecutor.submit(() -> {
+                    salida.await();
+                    return trabajar(logica, codigosImportados);
+                }));
+            }
+            // Las dos importaciones traen las mismas incidencias en distinto orden: cada una se añade una sola vez
+            for (int i = 0; i < 2; i++) {
+                boolean alReves = i == 1;
+                importaciones.add(ejecutor.submit(() -> {
+                    salida.await();
+                    return importar(logica, importadas, alReves);
+                }));
+            }
+            salida.countDown();
+
+            List<String> registradas = new ArrayList<>();
+            for (Future<List<String>> trabajador : trabajadores) {
+                registradas.addAll(trabajador.get(2, TimeUnit.MINUTES));
+            }
+            int anadidas = 0;
+            for (Future<Integer> importacion : importaciones) {
+                anadidas += importacion.get(2, TimeUnit.MINUTES);
+            }
+
+            assertEquals(registradas.size(), new HashSet<>(registradas).size(), "Códigos registrados repetidos");
+            assertEquals(IMPORTADAS, anadidas, "Incidencias importadas");
+            comprobarConsistencia(logica, registradas.size() + IMPORTADAS);
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    @ParameterizedTest(name = "{0} hilos")
+    @ValueSource(ints = { 1, 4, 16 })
+    void losCodigosNoSeRepitenAlCruzarLaMedianoche(int hilos) throws Exception {
+        Logica logica = new Logica(null, null, new RelojMedianoche());
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<List<String>>> trabajadores = new ArrayList<>();
+        try {
+            for (int i = 0; i < hilos; i++) {
+                int hilo = i;
+                trabajadores.add(ejecutor.submit(() -> {
+                    salida.await();
+                    return registrarEnLaMedianoche(logica, hilo);
+                }));
+            }
+            salida.countDown();
+
+            List<String> registradas = new ArrayList<>();
+            for (Future<List<String>> trabajador : trabajadores) {
+                registradas.addAll(trabajador.get(2, TimeUnit.MINUTES));
+            }
+
+            assertEquals(registradas.size(), new HashSet<>(registradas).size(), "Códigos registrados repetidos");
+            int cargadas = hilos * (REGISTROS_MEDIANOCHE / CARGA_CADA);
+            assertEquals(hilos * REGISTROS_MEDIANOCHE, registradas.size() - cargadas, "Incidencias registradas");
+            comprobarConsistencia(logica, registradas.size());
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    @ParameterizedTest(name = "{0} hilos")
+    @ValueSource(ints = { 1, 4, 16 })
+    void loGuardadoCoincideConLaMemoria(int hilos) throws Exception {
+        AlmacenComprobado almacen = new AlmacenComprobado();
+        // Volcados muy seguidos para que el volcador lea las incidencias mientras otros hilos las cambian
+        Logica logica = new Logica(new EscrituraDiferida(almacen, 1, 16), null);
+        List<String> compartidas = new ArrayList<>();
+        for (int i = 0; i < REGISTRADAS_ANTES; i++) {
+            compartidas.add(logica.registrarIncidencia(i % PUESTOS, "Problema previo " + i).getCodigo());
+        }
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<List<String>>> trabajadores = new ArrayList<>();
+        try {
+            for (int i = 0; i < hilos; i++) {
+                trabajadores.add(ejecutor.submit(() -> {
+                    salida.await();
+                    return trabajar(logica, compartidas);
+                }));
+            }
+            salida.countDown();
+            for (Future<List<String>> trabajador : trabajadores) {
+                trabajador.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            ejecutor.shutdownNow();
+        }
+        logica.cerrar();
+
+        assertTrue(almacen.incoherentes.isEmpty(), "Guardadas a medio cambiar: " + almacen.incoherentes);
+        int comparadas = 0;
+        for (Collection<Incidencia> grupo : List.of(logica.obtenerIncidenciasPendientes(),
+                logica.obtenerIncidenciasResueltas(), logica.obtenerIncidenciasEliminadas())) {
+            for (Incidencia incidencia : grupo) {
+                assertEquals(incidencia, almacen.buscaIncidencia(incidencia.getCodigo()), incidencia.getCodigo());
+                comparadas++;
+            }
+        }
+        assertEquals(REGISTRADAS_ANTES + hilos * OPERACIONES_POR_HILO, comparadas, "Incidencias en memoria");
+    }
+
+    /**
+     * Registra incidencias y de vez en cuando carga una del día anterior a la medianoche con una secuencia alta,
+     * que no debe hacer volver el contador a ese día. Devuelve los códigos de todas.
+     */
+    private static List<String> registrarEnLaMedianoche(Logica logica, int hilo) {
+        List<String> codigos = new ArrayList<>();
+        for (int i = 0; i < REGISTROS_MEDIANOCHE; i++) {
+            codigos.add(logica.registrarIncidencia(i % PUESTOS, "Problema de red " + i).getCodigo());
+            if (i % CARGA_CADA == 0) {
+                LocalDateTime registro = ANTES_DE_MEDIANOCHE.minusHours(1);
+                String codigo = CodigoIncidencia.de(registro, 10_000 + hilo * REGISTROS_MEDIANOCHE + i).getCodigo();
+                logica.cargarIncidencias(List.of(
+                        new Incidencia(codigo, EstadoIncidencia.PENDIENTE, i % PUESTOS, "Problema de ayer", registro)));
+                codigos.add(codigo);
+            }
+        }
+        return codigos;
+    }
+
+    /**
+     * Almacenamiento en memoria que anota las incidencias que le llegan con un estado que no cuadra con sus fechas.
+     * Lee el estado un poco después que las fechas, como quien escribe los campos de uno en uno, para que un
+     * cambio de estado en medio se note.
+     */
+    private static final class AlmacenComprobado extends IncidenciasMemoria {
+        final Collection<String> incoherentes = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public int createAll(Iterator<Incidencia> nuevas) {
+            List<Incidencia> lote = new ArrayList<>();
+            nuevas.forEachRemaining(lote::add);
+            comprobar(lote);
+            return super.createAll(lote.iterator());
+        }
+
+        @Override
+        public int updateAll(Collection<Incidencia> cambiadas) {
+            comprobar(cambiadas);
+            return super.updateAll(cambiadas);
+        }
+
+        private void comprobar(Collection<Incidencia> lote) {
+            for (Incidencia incidencia : lote) {
+                boolean sinResolucion = incidencia.getFechaResolucion() == null && incidencia.getResolucion() == null;
+                boolean resuelta = incidencia.getFechaResolucion() != null && incidencia.getResolucion() != null;
+                boolean eliminada = incidencia.getFechaEliminacion() != null && incidencia.getCausaEliminacion() != null;
+                LockSupport.parkNanos(PAUSA_LECTURA_NANOS);
+                boolean coherente;
+                switch (incidencia.getEstado()) {
+                    case PENDIENTE:
+                        coherente = sinResolucion && incidencia.getFechaEliminacion() == null;
+                        break;
+                    case RESUELTA:
+                        coherente = resuelta && incidencia.getFechaEliminacion() == null;
+                        break;
+                    default:
+                        coherente = eliminada;
+                        break;
+                }
+                if (!coherente) {
+                    incoherentes.add(incidencia.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reloj que da, una vez cada uno, un instante justo antes y otro justo después de la medianoche.
+     */
+    private static final class RelojMedianoche extends Clock {
+        private final AtomicInteger lecturas = new AtomicInteger();
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zona) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            LocalDateTime ahora = lecturas.getAndIncrement() % 2 == 0 ? ANTES_DE_MEDIANOCHE.plusNanos(200_000_000)
+                    : ANTES_DE_MEDIANOCHE;
+            return ahora.toInstant(ZoneOffset.UTC);
+        }
+    }
+
+    /**
+     * Registra incidencias y hace cambios al azar sobre las propias y sobre las importadas, que pueden no haberse
+     * cargado aún. Devuelve los códigos registrados.
+     */
+    private static List<String> trabajar(Logica logica, List<String> importadas) {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        List<String> registradas = new ArrayList<>();
+        for (int i = 0; i < OPERACIONES_POR_HILO; i++) {
+            registradas.add(logica.registrarIncidencia(azar.nextInt(PUESTOS), "Problema de red " + i).getCodigo());
+            List<String> candidatas = azar.nextBoolean() ? registradas : importadas;
+            String codigo = candidatas.get(azar.nextInt(candidatas.size()));
+            switch (azar.nextInt(5)) {
+                case 0:
+                    logica.resolverIncidencia(codigo, "Cable cambiado");
+                    break;
+                case 1:
+                    logica.devolverIncidenciaResuelta(codigo);
+                    break;
+                case 2:
+                    logica.modificarIncidencia(codigo, azar.nextInt(PUESTOS), "Problema de pantalla");
+                    break;
+                case 3:
+                    logica.modificarIncidenciaResuelta(codigo, "Pantalla cambiada");
+                    break;
+                default:
+                    logica.eliminarIncidencia(codigo, "Duplicada");
+                    break;
+            }
+        }
+        return registradas;
+    }
+
+    private static int importar(Logica logica, List<Incidencia> importadas, boolean alReves) {
+        List<Incidencia> orden = new ArrayList<>(importadas);
+        if (alReves) {
+            Collections.reverse(orden);
+        }
+        int anadidas = 0;
+        for (int i = 0; i < orden.size(); i += TAMANO_LOTE) {
+            anadidas += logica.importarIncidencias(orden.subList(i, Math.min(i + TAMANO_LOTE, orden.size())));
+        }
+        return anadidas;
+    }
+
+    /**
+     * Incidencias de días anteriores: un tercio pendientes, un tercio resueltas y un tercio eliminadas.
+     */
+    private static List<Incidencia> importadas() {
+        LocalDateTime inicio = LocalDateTime.of(2024, 5, 20, 8, 0);
+        List<Incidencia> importadas = new ArrayList<>();
+        for (int i = 1; i <= IMPORTADAS; i++) {
+            LocalDateTime registro = inicio.plusMinutes(i);
+            String codigo = CodigoIncidencia.de(registro, i).getCodigo();
+            switch (i % 3) {
+                case 0:
+                    importadas.add(new Incidencia(codigo, EstadoIncidencia.PENDIENTE, i % PUESTOS, "Problema " + i,
+                            registro));
+                    break;
+                case 1:
+                    importadas.add(new Incidencia(codigo, "Problema " + i, i % PUESTOS, EstadoIncidencia.RESUELTA,
+                            registro, registro.plusHours(1), "Resuelta", null, null));
+                    break;
+                default:
+                    importadas.add(new Incidencia(codigo, "Problema " + i, i % PUESTOS, EstadoIncidencia.ELIMINADA,
+                            registro, null, null, registro.plusHours(1), "Duplicada"));
+                    break;
+            }
+        }
+        return importadas;
+    }
+
+    private static void comprobarConsistencia(Logica logica, int total) {
+        List<Incidencia> vistas = new ArrayList<>();
+        int[] contadas = {
+            comprobarEstado(logica.obtenerIncidenciasPendientes(), EstadoIncidencia.PENDIENTE, logica, vistas),
+            comprobarEstado(logica.obtenerIncidenciasResueltas(), EstadoIncidencia.RESUELTA, logica, vistas),
+            comprobarEstado(logica.obtenerIncidenciasEliminadas(), EstadoIncidencia.ELIMINADA, logica, vistas)
+        };
+        assertEquals(logica.contarIncidenciasPendientes(), contadas[0], "Total de pendientes");
+        assertEquals(logica.contarIncidenciasResueltas(), contadas[1], "Total de resueltas");
+        assertEquals(logica.contarIncidenciasEliminadas(), contadas[2], "Total de eliminadas");
+        Set<String> codigos = new HashSet<>();
+        Set<String> conResolucion = new HashSet<>();
+        Set<String> conEliminacion = new HashSet<>();
+        for (Incidencia incidencia : vistas) {
+            assertTrue(codigos.add(incidencia.getCodigo()), "En más de un estado: " + incidencia.getCodigo());
+            if (incidencia.getFechaResolucion() != null) {
+                conResolucion.add(incidencia.getCodigo());
+            }
+            if (incidencia.getFechaEliminacion() != null) {
+                conEliminacion.add(incidencia.getCodigo());
+            }
+        }
+        assertEquals(total, codigos.size(), "Incidencias en algún estado");
+
+        int pendientesPorPuesto = 0;
+        for (int puesto = 0; puesto < PUESTOS; puesto++) {
+            pendientesPorPuesto += logica.contarPendientesPuesto(puesto);
+        }
+        assertEquals(contadas[0], pendientesPorPuesto, "Pendientes del índice por puesto");
+
+        EstadoIncidencia[] estados = EstadoIncidencia.values();
+        for (int i = 0; i < estados.length; i++) {
+            EstadoIncidencia estado = estados[i];
+            List<Incidencia> porFecha = logica.buscarPorFechaRegistro(PRINCIPIO, FIN, estado, 0, Integer.MAX_VALUE);
+            assertEquals(contadas[i], porFecha.size(), "Índice de fechas de registro: " + estado);
+            int porPuesto = 0;
+            for (int puesto = 0; puesto < PUESTOS; puesto++) {
+                for (Incidencia incidencia : logica.buscarPorPuesto(puesto, estado, 0, Integer.MAX_VALUE)) {
+                    assertEquals(puesto, incidencia.getPuesto(), incidencia.getCodigo());
+                    assertEquals(estado, incidencia.getEstado(), incidencia.getCodigo());
+                    porPuesto++;
+                }
+            }
+            assertEquals(contadas[i], porPuesto, "Índice de puestos: " + estado);
+        }
+        // Las fechas de resolución y eliminación se indexan en cualquier estado: una resuelta que se elimina conserva la suya
+        assertEquals(conResolucion, codigosDe(logica.buscarPorFechaResolucion(PRINCIPIO, FIN, 0, Integer.MAX_VALUE)),
+                "Índice de fechas de resolución");
+        assertEquals(conEliminacion, codigosDe(logica.buscarPorFechaEliminacion(PRINCIPIO, FIN, 0, Integer.MAX_VALUE)),
+                "Índice de fechas de eliminación");
+        assertEquals(contadas[1], logica.obtenerTiemposResolucion().getTotal(), "Tiempos de resolución");
+    }
+
+    private static Set<String> codigosDe(List<Incidencia> incidencias) {
+        Set<String> codigos = new HashSet<>();
+        for (Incidencia incidencia : incidencias) {
+            assertTrue(codigos.add(incidencia.getCodigo()), "Repetida en el índice: " + incidencia.getCodigo());
+        }
+        return codigos;
+    }
+
+    /**
+     * Comprueba que cada incidencia del grupo tiene su estado y se encuentra por su código, y devuelve cuántas hay.
+     */
+    private static int comprobarEstado(Collection<Incidencia> grupo, EstadoIncidencia estado, Logica logica,
+            List<Incidencia> vistas) {
+        int contadas = 0;
+        for (Incidencia incidencia : grupo) {
+            assertEquals(estado, incidencia.getEstado(), incidencia.getCodigo());
+            Incidencia buscada = logica.buscarIncidencia(incidencia.getCodigo());
+            assertNotNull(buscada, incidencia.getCodigo());
+            assertEquals(estado, buscada.getEstado(), incidencia.getCodigo());
+            vistas.add(incidencia);
+            contadas++;
+        }
+        return contadas;
+    }
+}
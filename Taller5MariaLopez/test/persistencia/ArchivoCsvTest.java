@@ -0,0 +1,194 @@
+package persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Pruebas de la exportación e importación en CSV: los textos vuelven tal cual, la lectura en paralelo no pierde
+ * ni repite filas y los errores indican el byte del fichero en el que empieza la línea incorrecta.
+ */
+class ArchivoCsvTest {
+	private static final LocalDateTime INICIO = LocalDateTime.of(2024, 5, 21, 8, 0);
+	private static final int TAMANO_LOTE = 1000;
+
+	@TempDir
+	Path directorio;
+
+	private static Incidencia resuelta(int numero, String problema, String resolucion) {
+		LocalDateTime registro = INICIO.plusMinutes(numero);
+		return new Incidencia(CodigoIncidencia.de(registro, numero).getCodigo(), problema, numero % 50,
+				EstadoIncidencia.RESUELTA, registro, registro.plusHours(1).plusSeconds(numero % 60), resolucion, null,
+				null);
+	}
+
+	private static Incidencia eliminada(int numero, String problema, String causa) {
+		LocalDateTime registro = INICIO.plusMinutes(numero);
+		return new Incidencia(CodigoIncidencia.de(registro, numero).getCodigo(), problema, numero % 50,
+				EstadoIncidencia.ELIMINADA, registro, null, null, registro.plusDays(1), causa);
+	}
+
+	private static Incidencia pendiente(int numero, String problema) {
+		LocalDateTime registro = INICIO.plusMinutes(numero).plusSeconds(numero % 60);
+		return new Incidencia(CodigoIncidencia.de(registro, numero).getCodigo(), EstadoIncidencia.PENDIENTE,
+				numero % 50, problema, registro);
+	}
+
+	private static List<Incidencia> porCodigo(Iterable<Incidencia> incidencias) {
+		List<Incidencia> ordenadas = new ArrayList<>();
+		incidencias.forEach(ordenadas::add);
+		ordenadas.sort(Comparator.comparing(Incidencia::getCodigo));
+		return ordenadas;
+	}
+
+	private static List<Incidencia> importar(Path fichero, int hilos) throws IOException {
+		Queue<Incidencia> leidas = new ConcurrentLinkedQueue<>();
+		long total = ArchivoCsv.importar(fichero, hilos, TAMANO_LOTE, leidas::addAll);
+		assertEquals(leidas.size(), total, "Incidencias leídas");
+		return porCodigo(leidas);
+	}
+
+	@Test
+	void losTextosVuelvenTalCual() throws IOException {
+		List<Incidencia> incidencias = porCodigo(List.of(
+				pendiente(1, "Dice \"no arranca\", y \"\" dos veces"),
+				pendiente(2, "C:\\Usuarios\\ana\\termina en \\"),
+				pendiente(3, "Primera línea\nsegunda línea\n"),
+				pendiente(4, "Retorno\r\nde Windows y \\n sin escapar"),
+				pendiente(5, ""),
+				pendiente(6, "Ñandú, acción y pingüino: 日本語 😀"),
+				resuelta(7, "Texto \"\\\" raro", ""),
+				resuelta(8, "Con resolución", "Cable\rcambiado, \"nuevo\""),
+				eliminada(9, null, "Duplicada\\\n"),
+				eliminada(10, "Sin causa", null),
+				resuelta(11, ",", "\"")));
+		Path fichero = directorio.resolve("incidencias.csv");
+
+		assertEquals(incidencias.size(), ArchivoCsv.exportar(incidencias.iterator(), fichero));
+
+		assertEquals(incidencias, importar(fichero, 1));
+		// Cada incidencia ocupa una línea aunque sus textos tengan saltos de línea
+		assertEquals(incidencias.size() + 1, Files.readAllLines(fichero, StandardCharsets.UTF_8).size());
+	}
+
+	@Test
+	void admiteSaltosDeLineaDeWindowsYBom() throws IOException {
+		Incidencia incidencia = resuelta(1, "Pantalla \"rota\"", "Cambiada");
+		Path original = directorio.resolve("original.csv");
+		ArchivoCsv.exportar(List.of(incidencia).iterator(), original);
+		String texto = Files.readString(original, StandardCharsets.UTF_8);
+		Path fichero = directorio.resolve("windows.csv");
+		Files.writeString(fichero, "\uFEFF" + texto.replace("\n", "\r\n"), StandardCharsets.UTF_8);
+
+		assertEquals(List.of(incidencia), importar(fichero, 2));
+	}
+
+	@ParameterizedTest(name = "{0} hilos")
+	@ValueSource(ints = { 1, 2, 3, 4, 7 })
+	void laLecturaEnParaleloNoPierdeNiRepiteFilas(int hilos) throws IOException {
+		List<Incidencia> incidencias = porCodigo(muchas());
+		Path fichero = directorio.resolve("muchas.csv");
+		ArchivoCsv.exportar(incidencias.iterator(), fichero);
+		assertTrue(Files.size(fichero) > 4 * ArchivoCsv.TAMANO_MINIMO_TRAMO, "El fichero debe dar para varios tramos");
+
+		Set<Thread> lectores = ConcurrentHashMap.newKeySet();
+		Queue<List<Incidencia>> lotes = new ConcurrentLinkedQueue<>();
+		long total = ArchivoCsv.importar(fichero, hilos, TAMANO_LOTE, lote -> {
+			lectores.add(Thread.currentThread());
+			lotes.add(lote);
+		});
+
+		List<Incidencia> leidas = new ArrayList<>();
+		for (List<Incidencia> lote : lotes) {
+			assertTrue(lote.size() <= TAMANO_LOTE, "Lote demasiado grande: " + lote.size());
+			leidas.addAll(lote);
+		}
+		assertEquals(incidencias.size(), total, "Incidencias leídas");
+		assertEquals(incidencias.size(), new HashSet<>(leidas).size(), "Incidencias distintas");
+		assertEquals(incidencias, porCodigo(leidas));
+		assertEquals(hilos, lectores.size(), "Hilos que han leído un tramo");
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		"01/01/2024-00:00-1,\"Faltan columnas\",3,0",
+		"01/01/2024-00:00-1,\"Estado desconocido\",3,9,2024-01-01T00:00:00,,,,",
+		"01/01/2024-00:00-1,\"Fecha mal\",3,0,2024-13-01T00:00:00,,,,",
+		"01/01/2024-00:00-1,\"Fecha a medias\",3,0,2024-01-01,,,,",
+		"01/01/2024-00:00-1,\"Sin cerrar,3,0,2024-01-01T00:00:00,,,,",
+		"01/01/2024-00:00-1,\"Columna de más\",3,0,2024-01-01T00:00:00,,,,,",
+		"01/01/2024-00:00-1,\"Sin número\",x,0,2024-01-01T00:00:00,,,,",
+		",\"Sin código\",3,0,2024-01-01T00:00:00,,,,"
+	})
+	void informaDelByteDeLaLineaIncorrecta(String incorrecta) throws IOException {
+		Path fichero = directorio.resolve("incorrecto.csv");
+		ArchivoCsv.exportar(List.of(pendiente(1, "Bien"), resuelta(2, "También, bien", "Sí")).iterator(), fichero);
+		long inicioLinea = Files.size(fichero);
+		Files.writeString(fichero, incorrecta + "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+		IOException error = assertThrows(IOException.class, () -> importar(fichero, 1));
+
+		assertTrue(error.getMessage().contains("en el byte " + inicioLinea + " "), error.getMessage());
+	}
+
+	@Test
+	void informaDelByteAbsolutoEnUnTramoPosterior() throws IOException {
+		Path fichero = directorio.resolve("muchas.csv");
+		ArchivoCsv.exportar(muchas().iterator(), fichero);
+		long inicioLinea = Files.size(fichero);
+		Files.writeString(fichero, "01/01/2024-00:00-1,\"Estado desconocido\",3,9,2024-01-01T00:00:00,,,,\n"
+				+ pendiente(1, "Detrás de la incorrecta").getCodigo() + ",\"Bien\",3,0,2024-01-01T00:00:00,,,,\n",
+				StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+		IOException error = assertThrows(IOException.class, () -> importar(fichero, 4));
+
+		assertTrue(error.getMessage().contains("en el byte " + inicioLinea + " "), error.getMessage());
+	}
+
+	/**
+	 * Incidencias suficientes para un fichero de varios tramos, en los tres estados y con textos escapados.
+	 */
+	private static List<Incidencia> muchas() {
+		List<Incidencia> incidencias = new ArrayList<>();
+		String relleno = String.join("", Collections.nCopies(8, "texto \"largo\" con acentos áéíóú\\ y\n"));
+		for (int i = 1; i <= 20_000; i++) {
+			switch (i % 3) {
+			case 0:
+				incidencias.add(pendiente(i, "Problema " + i + " " + relleno));
+				break;
+			case 1:
+				incidencias.add(resuelta(i, "Problema " + i, "Resuelta " + relleno));
+				break;
+			default:
+				incidencias.add(eliminada(i, "Problema " + i + "\r\n", "Duplicada " + i));
+				break;
+			}
+		}
+		return incidencias;
+	}
+}
@@ -0,0 +1,75 @@
+package persistencia;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * Base de datos H2 en memoria, en modo MySQL, con la tabla incidencia de incidencia.sql.
+ * Cada nombre es una base de datos distinta que vive hasta que se borra.
+ */
+final class BaseDatosPrueba {
+
+	private BaseDatosPrueba() {
+	}
+
+	/**
+	 * URL JDBC de la base de datos con el nombre indicado
+	 * @param nombre
+	 * @return
+	 */
+	static String url(String nombre) {
+		return "jdbc:h2:mem:" + nombre + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+	}
+
+	/**
+	 * Crea la tabla incidencia y sus índices, borrando la que hubiera
+	 * @param nombre
+	 * @throws SQLException
+	 */
+	static void crearTabla(String nombre) throws SQLException {
+		try (Connection conexion = DriverManager.getConnection(url(nombre), "sa", "");
+		     Statement sentencia = conexion.createStatement()) {
+			sentencia.execute("DROP TABLE IF EXISTS incidencia");
+			sentencia.execute("CREATE TABLE incidencia ("
+					+ "codigo varchar(20) NOT NULL PRIMARY KEY, problema text NOT NULL, puesto int NOT NULL, "
+					+ "estado tinyint NOT NULL, fechaRegistro datetime NOT NULL, fechaResolucion datetime, "
+					+ "resolucion text, fechaEliminacion datetime, causaEliminacion text)");
+			sentencia.execute("CREATE INDEX idx_estado_fecha_registro ON incidencia (estado, fechaRegistro, codigo)");
+			sentencia.execute("CREATE INDEX idx_fecha_resolucion ON incidencia (fechaResolucion)");
+			sentencia.execute("CREATE INDEX idx_fecha_eliminacion ON incidencia (fechaEliminacion)");
+		}
+	}
+
+	/**
+	 * Borra la base de datos con todas sus tablas
+	 * @param nombre
+	 * @throws SQLException
+	 */
+	static void borrar(String nombre) throws SQLException {
+		try (Connection conexion = DriverManager.getConnection(url(nombre), "sa", "");
+		     Statement sentencia = conexion.createStatement()) {
+			sentencia.execute("DROP ALL OBJECTS");
+		}
+	}
+
+	/**
+	 * Configuración de IncidenciasDAO para la base de datos con el nombre indicado
+	 * @param nombre
+	 * @return
+	 */
+	static Properties configuracion(String nombre) {
+		Properties configuracion = new Properties();
+		configuracion.setProperty("jdbc.url", url(nombre));
+		configuracion.setProperty("jdbc.usuario", "sa");
+		configuracion.setProperty("jdbc.password", "");
+		// H2 no admite el tamaño de fetch negativo con el que el driver de MySQL lee fila a fila
+		configuracion.setProperty("fetch.tamano", "100");
+		// Lotes pequeños para que las pruebas pasen por varios lotes y varias transacciones
+		configuracion.setProperty("lote.tamano", "2");
+		configuracion.setProperty("lote.porTransaccion", "2");
+		return configuracion;
+	}
+}
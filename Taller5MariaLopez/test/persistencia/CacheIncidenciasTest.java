@@ -0,0 +1,152 @@
+package persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import dominio.Incidencia;
+
+/**
+ * Contrato del repositorio para la caché delante del almacenamiento en memoria, y pruebas propias de la caché:
+ * orden de desalojo, caducidad, invalidación al escribir y lecturas que empiezan antes de una escritura.
+ */
+class CacheIncidenciasTest extends ContratoRepositorioIncidencias {
+	private static final long ESPERA_MAXIMA_MS = 5000;
+
+	@Override
+	protected RepositorioIncidencias crearRepositorio() {
+		return new CacheIncidencias(new IncidenciasMemoria(), 1000, 0);
+	}
+
+	/**
+	 * Almacenamiento en memoria que cuenta las búsquedas y, si se indica, detiene la siguiente después de leer
+	 * la incidencia, hasta que la prueba la deje continuar.
+	 */
+	private static final class AlmacenamientoContado extends IncidenciasMemoria {
+		private final AtomicInteger lecturas = new AtomicInteger();
+		private volatile CountDownLatch leida;
+		private volatile CountDownLatch continuar;
+
+		@Override
+		public Incidencia buscaIncidencia(String codigo) {
+			lecturas.incrementAndGet();
+			Incidencia incidencia = super.buscaIncidencia(codigo);
+			CountDownLatch detener = continuar;
+			if (detener != null) {
+				continuar = null;
+				leida.countDown();
+				try {
+					detener.await(ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return incidencia;
+		}
+	}
+
+	private static AlmacenamientoContado almacenamientoCon(int incidencias) {
+		AlmacenamientoContado almacenamiento = new AlmacenamientoContado();
+		for (int i = 1; i <= incidencias; i++) {
+			almacenamiento.create(pendiente(i));
+		}
+		return almacenamiento;
+	}
+
+	@Test
+	void desalojaLaUsadaHaceMasTiempo() {
+		AlmacenamientoContado almacenamiento = almacenamientoCon(3);
+		CacheIncidencias cache = new CacheIncidencias(almacenamiento, 2, 0);
+
+		cache.buscaIncidencia(codigo(1));
+		cache.buscaIncidencia(codigo(2));
+		cache.buscaIncidencia(codigo(1)); // La 2 pasa a ser la usada hace más tiempo
+		cache.buscaIncidencia(codigo(3));
+		assertEquals(3, almacenamiento.lecturas.get());
+		assertEquals(1, cache.getDesalojos());
+		assertEquals(2, cache.getTamano());
+
+		assertEquals(pendiente(1), cache.buscaIncidencia(codigo(1)));
+		assertEquals(pendiente(3), cache.buscaIncidencia(codigo(3)));
+		assertEquals(3, almacenamiento.lecturas.get());
+		assertEquals(pendiente(2), cache.buscaIncidencia(codigo(2)));
+		assertEquals(4, almacenamiento.lecturas.get());
+		assertEquals(3, cache.getAciertos());
+		assertEquals(4, cache.getFallos());
+	}
+
+	@Test
+	void devuelveCopiasQueNoCambianLaCache() {
+		CacheIncidencias cache = new CacheIncidencias(almacenamientoCon(1), 10, 0);
+
+		Incidencia primera = cache.buscaIncidencia(codigo(1));
+		primera.setProblema("Cambiado fuera de la caché");
+		Incidencia segunda = cache.buscaIncidencia(codigo(1));
+
+		assertNotSame(primera, segunda);
+		assertEquals(pendiente(1), segunda);
+	}
+
+	@Test
+	void lasEntradasCaducanTrasSuTiempoDeVida() throws InterruptedException {
+		AlmacenamientoContado almacenamiento = almacenamientoCon(1);
+		CacheIncidencias cache = new CacheIncidencias(almacenamiento, 10, 50);
+
+		cache.buscaIncidencia(codigo(1));
+		cache.buscaIncidencia(codigo(1));
+		assertEquals(1, almacenamiento.lecturas.get());
+
+		Thread.sleep(150);
+		assertEquals(pendiente(1), cache.buscaIncidencia(codigo(1)));
+		assertEquals(2, almacenamiento.lecturas.get());
+		assertEquals(1, cache.getCaducadas());
+	}
+
+	@Test
+	void lasEscriturasInvalidanLasIncidenciasAfectadas() {
+		AlmacenamientoContado almacenamiento = almacenamientoCon(2);
+		CacheIncidencias cache = new CacheIncidencias(almacenamiento, 10, 0);
+		cache.buscaIncidencia(codigo(1));
+		cache.buscaIncidencia(codigo(2));
+
+		Incidencia cambiada = pendiente(1);
+		cambiada.setProblema("Problema cambiado");
+		cache.update(cambiada);
+		assertEquals(cambiada, cache.buscaIncidencia(codigo(1)));
+		assertEquals(pendiente(2), cache.buscaIncidencia(codigo(2)));
+		assertEquals(3, almacenamiento.lecturas.get());
+
+		cache.delete(codigo(2));
+		assertNull(cache.buscaIncidencia(codigo(2)));
+		assertEquals(4, almacenamiento.lecturas.get());
+	}
+
+	@Test
+	void noGuardaLaLecturaEmpezadaAntesDeUnaEscritura() throws Exception {
+		AlmacenamientoContado almacenamiento = almacenamientoCon(1);
+		CacheIncidencias cache = new CacheIncidencias(almacenamiento, 10, 0);
+		almacenamiento.leida = new CountDownLatch(1);
+		CountDownLatch continuar = new CountDownLatch(1);
+		almacenamiento.continuar = continuar;
+
+		// La búsqueda lee la fila antigua y se detiene antes de guardarla en la caché
+		CompletableFuture<Incidencia> busqueda = CompletableFuture.supplyAsync(() -> cache.buscaIncidencia(codigo(1)));
+		assertTrue(almacenamiento.leida.await(ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS));
+		Incidencia cambiada = pendiente(1);
+		cambiada.setProblema("Problema cambiado");
+		cache.update(cambiada);
+		continuar.countDown();
+
+		assertEquals(pendiente(1), busqueda.get(ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS));
+		assertEquals(0, cache.getTamano());
+		assertEquals(cambiada, cache.buscaIncidencia(codigo(1)));
+	}
+}
@@ -0,0 +1,230 @@
+package persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Pruebas que debe pasar cualquier implementación de RepositorioIncidencias. Cada implementación
+ * tiene su subclase, que solo indica cómo crear un repositorio vacío.
+ */
+abstract class ContratoRepositorioIncidencias {
+
+	/** Fecha de registro de la primera incidencia de las pruebas; las demás se registran un minuto después cada una. */
+	static final LocalDateTime INICIO = LocalDateTime.of(2024, 5, 21, 9, 0);
+
+	protected RepositorioIncidencias repositorio;
+
+	/**
+	 * Crea un repositorio vacío
+	 * @return
+	 * @throws Exception
+	 */
+	protected abstract RepositorioIncidencias crearRepositorio() throws Exception;
+
+	@BeforeEach
+	void abrir() throws Exception {
+		repositorio = crearRepositorio();
+	}
+
+	@AfterEach
+	void cerrar() {
+		repositorio.cerrarConexion();
+	}
+
+	static String codigo(int numero) {
+		return "21/05/2024-09:00-" + numero;
+	}
+
+	static Incidencia pendiente(int numero) {
+		return new Incidencia(codigo(numero), EstadoIncidencia.PENDIENTE, 100 + numero % 5, "Problema " + numero,
+				INICIO.plusMinutes(numero));
+	}
+
+	static Incidencia resuelta(int numero) {
+		return new Incidencia(codigo(numero), "Problema " + numero, 100 + numero % 5, EstadoIncidencia.RESUELTA,
+				INICIO.plusMinutes(numero), INICIO.plusHours(numero), "Resuelta " + numero, null, null);
+	}
+
+	static Incidencia eliminada(int numero) {
+		return new Incidencia(codigo(numero), "Problema " + numero, 100 + numero % 5, EstadoIncidencia.ELIMINADA,
+				INICIO.plusMinutes(numero), null, null, INICIO.plusHours(numero), "Duplicada " + numero);
+	}
+
+	static List<Incidencia> porCodigo(List<Incidencia> incidencias) {
+		List<Incidencia> ordenadas = new ArrayList<>(incidencias);
+		ordenadas.sort(Comparator.comparing(Incidencia::getCodigo));
+		return ordenadas;
+	}
+
+	static List<Incidencia> leer(Stream<Incidencia> stream) {
+		try (stream) {
+			return stream.collect(Collectors.toList());
+		}
+	}
+
+	@Test
+	void buscaIncidenciaDevuelveNullSiNoExiste() {
+		assertNull(repositorio.buscaIncidencia(codigo(1)));
+	}
+
+	@Test
+	void createGuardaUnaIncidenciaPendiente() {
+		repositorio.create(pendiente(1));
+
+		assertEquals(pendiente(1), repositorio.buscaIncidencia(codigo(1)));
+	}
+
+	@Test
+	void laIncidenciaGuardadaNoCambiaConElObjetoOriginal() {
+		Incidencia incidencia = pendiente(1);
+		repositorio.create(incidencia);
+		incidencia.setProblema("Cambiado sin guardar");
+
+		assertEquals(pendiente(1), repositorio.buscaIncidencia(codigo(1)));
+	}
+
+	@Test
+	void createAllGuardaTodosLosCampos() {
+		List<Incidencia> incidencias = List.of(pendiente(1), resuelta(2), eliminada(3), pendiente(4), resuelta(5));
+
+		assertEquals(5, repositorio.createAll(incidencias));
+		for (Incidencia incidencia : incidencias) {
+			assertEquals(incidencia, repositorio.buscaIncidencia(incidencia.getCodigo()));
+		}
+	}
+
+	@Test
+	void createAllConIteradorGuardaLasIncidenciasQueDevuelve() {
+		List<Incidencia> incidencias = List.of(pendiente(1), resuelta(2), eliminada(3));
+
+		assertEquals(3, repositorio.createAll(incidencias.iterator()));
+		assertEquals(porCodigo(incidencias), porCodigo(repositorio.listarIncidencias()));
+	}
+
+	@Test
+	void deleteBorraSoloLaIncidenciaIndicada() {
+		repositorio.createAll(List.of(pendiente(1), pendiente(2)));
+
+		repositorio.delete(codigo(1));
+		repositorio.delete(codigo(99));
+
+		assertNull(repositorio.buscaIncidencia(codigo(1)));
+		assertEquals(List.of(pendiente(2)), repositorio.listarIncidencias());
+	}
+
+	@Test
+	void updateCambiaProblemaPuestoEstadoYFechaDeRegistro() {
+		repositorio.create(pendiente(1));
+		Incidencia cambiada = new Incidencia(codigo(1), EstadoIncidencia.RESUELTA, 7, "Otro problema",
+				INICIO.plusDays(1));
+
+		repositorio.update(cambiada);
+
+		assertEquals(cambiada, repositorio.buscaIncidencia(codigo(1)));
+	}
+
+	@Test
+	void updateAllCambiaTodosLosCampos() {
+		repositorio.createAll(List.of(pendiente(1), pendiente(2), pendiente(3)));
+
+		assertEquals(2, repositorio.updateAll(List.of(resuelta(1), eliminada(3))));
+
+		assertEquals(List.of(resuelta(1), pendiente(2), eliminada(3)), porCodigo(repositorio.listarIncidencias()));
+	}
+
+	@Test
+	void listarPorEstadoPaginaPorFechaDeRegistroYCodigo() {
+		List<Incidencia> incidencias = new ArrayList<>();
+		for (int i = 1; i <= 12; i++) {
+			Incidencia incidencia = i % 3 == 0 ? resuelta(i) : pendiente(i);
+			if (i % 2 == 0) {
+				// Misma fecha que la anterior para que el orden lo decida el código
+				incidencia.setFechaRegistro(INICIO.plusMinutes(i - 1));
+			}
+			incidencias.add(incidencia);
+		}
+		repositorio.createAll(incidencias);
+		List<Incidencia> esperadas = incidencias.stream()
+				.filter(i -> i.getEstado() == EstadoIncidencia.PENDIENTE)
+				.sorted(Comparator.comparing(Incidencia::getFechaRegistro).thenComparing(Incidencia::getCodigo))
+				.collect(Collectors.toList());
+
+		List<Incidencia> leidas = new ArrayList<>();
+		List<Incidencia> pagina = repositorio.listarPorEstado(EstadoIncidencia.PENDIENTE, null, 3);
+		while (!pagina.isEmpty()) {
+			assertTrue(pagina.size() <= 3);
+			leidas.addAll(pagina);
+			pagina = repositorio.listarPorEstado(EstadoIncidencia.PENDIENTE, pagina.get(pagina.size() - 1), 3);
+		}
+
+		assertEquals(esperadas, leidas);
+		assertTrue(repositorio.listarPorEstado(EstadoIncidencia.ELIMINADA, null, 3).isEmpty());
+	}
+
+	@Test
+	void streamIncidenciasDevuelveTodas() {
+		List<Incidencia> incidencias = List.of(pendiente(1), resuelta(2), eliminada(3));
+		repositorio.createAll(incidencias);
+
+		assertEquals(porCodigo(incidencias), porCodigo(leer(repositorio.streamIncidencias())));
+	}
+
+	@Test
+	void streamPorEstadoYFechasIncluyeElInicioYExcluyeElFinal() {
+		repositorio.createAll(List.of(pendiente(1), pendiente(2), resuelta(3), pendiente(4), pendiente(5)));
+
+		List<Incidencia> leidas = leer(repositorio.streamPorEstadoYFechas(EstadoIncidencia.PENDIENTE,
+				INICIO.plusMinutes(2), INICIO.plusMinutes(5)));
+
+		assertEquals(List.of(pendiente(2), pendiente(4)), porCodigo(leidas));
+	}
+
+	@Test
+	void streamPorFechaResolucionOrdenaPorFechaDeResolucion() {
+		Incidencia tardia = resuelta(1);
+		tardia.setFechaResolucion(INICIO.plusHours(10));
+		repositorio.createAll(List.of(tardia, resuelta(2), resuelta(3), pendiente(4), resuelta(12)));
+
+		List<Incidencia> leidas = leer(repositorio.streamPorFechaResolucion(INICIO.plusHours(2), INICIO.plusHours(12)));
+
+		assertEquals(List.of(resuelta(2), resuelta(3), tardia), leidas);
+	}
+
+	@Test
+	void streamPorFechaEliminacionOrdenaPorFechaDeEliminacion() {
+		Incidencia tardia = eliminada(1);
+		tardia.setFechaEliminacion(INICIO.plusHours(10));
+		repositorio.createAll(List.of(tardia, eliminada(2), resuelta(3), eliminada(4), eliminada(12)));
+
+		List<Incidencia> leidas = leer(repositorio.streamPorFechaEliminacion(INICIO.plusHours(2), INICIO.plusHours(12)));
+
+		assertEquals(List.of(eliminada(2), eliminada(4), tardia), leidas);
+	}
+
+	@Test
+	void fechasRegistroExtremasDelEstado() {
+		assertNull(repositorio.fechasRegistroExtremas(EstadoIncidencia.PENDIENTE));
+
+		repositorio.createAll(List.of(resuelta(1), pendiente(2), pendiente(5), pendiente(3), resuelta(9)));
+
+		assertArrayEquals(new LocalDateTime[] { INICIO.plusMinutes(2), INICIO.plusMinutes(5) },
+				repositorio.fechasRegistroExtremas(EstadoIncidencia.PENDIENTE));
+		assertNull(repositorio.fechasRegistroExtremas(EstadoIncidencia.ELIMINADA));
+	}
+}
@@ -0,0 +1,23 @@
+package persistencia;
+
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.AfterEach;
+
+/**
+ * Contrato del repositorio para la base de datos, sobre H2 en memoria en modo MySQL.
+ */
+class IncidenciasDAOTest extends ContratoRepositorioIncidencias {
+	private static final String BASE_DATOS = "contrato";
+
+	@Override
+	protected RepositorioIncidencias crearRepositorio() throws SQLException {
+		BaseDatosPrueba.crearTabla(BASE_DATOS);
+		return new IncidenciasDAO(BaseDatosPrueba.configuracion(BASE_DATOS));
+	}
+
+	@AfterEach
+	void borrarBaseDatos() throws SQLException {
+		BaseDatosPrueba.borrar(BASE_DATOS);
+	}
+}
@@ -0,0 +1,58 @@
+package persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+import persistencia.IncidenciasDiario.Sincronizacion;
+
+/**
+ * Contrato del repositorio para el diario en ficheros, y recuperación del estado al volver a abrirlo.
+ */
+class IncidenciasDiarioTest extends ContratoRepositorioIncidencias {
+
+	@TempDir
+	Path directorio;
+
+	@Override
+	protected RepositorioIncidencias crearRepositorio() {
+		// Pocos registros por instantánea para que las pruebas también pasen por las instantáneas
+		return new IncidenciasDiario(directorio, Sincronizacion.CADA_ESCRITURA, 0, 4);
+	}
+
+	@Test
+	void recuperaLosCambiosAlVolverAAbrirlo() {
+		repositorio.createAll(List.of(pendiente(1), pendiente(2), pendiente(3), pendiente(4), pendiente(5)));
+		repositorio.create(pendiente(6));
+		repositorio.updateAll(List.of(resuelta(2), eliminada(3)));
+		repositorio.update(new Incidencia(codigo(4), EstadoIncidencia.PENDIENTE, 9, "Otro problema",
+				INICIO.plusDays(1)));
+		repositorio.delete(codigo(5));
+		List<Incidencia> antes = porCodigo(repositorio.listarIncidencias());
+		repositorio.cerrarConexion();
+
+		repositorio = crearRepositorio();
+
+		assertEquals(antes, porCodigo(repositorio.listarIncidencias()));
+	}
+
+	@Test
+	void recuperaElDiarioSinInstantaneaFinal() {
+		// Con la sincronización de cada escritura el diario ya está en el disco aunque no se cierre
+		repositorio.createAll(List.of(pendiente(1), resuelta(2)));
+		repositorio.delete(codigo(1));
+
+		RepositorioIncidencias copia = crearRepositorio();
+		try {
+			assertEquals(List.of(resuelta(2)), copia.listarIncidencias());
+		} finally {
+			copia.cerrarConexion();
+		}
+	}
+}
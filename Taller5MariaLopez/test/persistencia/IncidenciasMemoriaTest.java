@@ -0,0 +1,12 @@
+package persistencia;
+
+/**
+ * Contrato del repositorio para el almacenamiento solo en memoria.
+ */
+class IncidenciasMemoriaTest extends ContratoRepositorioIncidencias {
+
+	@Override
+	protected RepositorioIncidencias crearRepositorio() {
+		return new IncidenciasMemoria();
+	}
+}
@@ -0,0 +1,210 @@
+package persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas del pool de conexiones sobre H2 en memoria.
+ */
+class PoolConexionesTest {
+	private static final String BASE_DATOS = "pool";
+	private static final long SIN_DESALOJO_MS = TimeUnit.HOURS.toMillis(1);
+
+	private PoolConexiones pool;
+
+	@BeforeEach
+	void crearBaseDatos() throws SQLException {
+		BaseDatosPrueba.crearTabla(BASE_DATOS);
+	}
+
+	@AfterEach
+	void cerrar() throws SQLException {
+		if (pool != null) {
+			pool.close();
+		}
+		BaseDatosPrueba.borrar(BASE_DATOS);
+	}
+
+	private PoolConexiones crearPool(int minimo, int maximo, long timeoutAdquisicionMs, long tiempoInactividadMaxMs) {
+		pool = new PoolConexiones(BaseDatosPrueba.url(BASE_DATOS), "sa", "", minimo, maximo, timeoutAdquisicionMs,
+				tiempoInactividadMaxMs);
+		return pool;
+	}
+
+	/**
+	 * Identificador de la sesión de H2, que distingue las conexiones físicas
+	 */
+	private static int sesion(Connection conexion) throws SQLException {
+		try (Statement sentencia = conexion.createStatement();
+		     ResultSet rs = sentencia.executeQuery("SELECT SESSION_ID()")) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	private static int contarFilas(Connection conexion) throws SQLException {
+		try (Statement sentencia = conexion.createStatement();
+		     ResultSet rs = sentencia.executeQuery("SELECT COUNT(*) FROM incidencia")) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	@Test
+	void abreElMinimoYReutilizaLasConexionesDevueltas() throws SQLException {
+		crearPool(1, 2, 1000, SIN_DESALOJO_MS);
+		assertEquals(1, pool.getConexionesInactivas());
+
+		int primera;
+		try (Connection conexion = pool.obtenerConexion()) {
+			assertEquals(1, pool.getConexionesActivas());
+			assertEquals(0, pool.getConexionesInactivas());
+			primera = sesion(conexion);
+		}
+		assertEquals(0, pool.getConexionesActivas());
+		assertEquals(1, pool.getConexionesInactivas());
+
+		try (Connection conexion = pool.obtenerConexion()) {
+			assertEquals(primera, sesion(conexion));
+		}
+		assertEquals(2, pool.getAdquisiciones());
+	}
+
+	@Test
+	void abreConexionesNuevasHastaElMaximo() throws SQLException {
+		crearPool(0, 2, 1000, SIN_DESALOJO_MS);
+
+		try (Connection primera = pool.obtenerConexion(); Connection segunda = pool.obtenerConexion()) {
+			assertNotEquals(sesion(primera), sesion(segunda));
+			assertEquals(2, pool.getConexionesActivas());
+		}
+		assertEquals(2, pool.getConexionesInactivas());
+	}
+
+	@Test
+	void agotaElTiempoDeEsperaSiNoQuedanConexiones() throws SQLException {
+		crearPool(1, 1, 100, SIN_DESALOJO_MS);
+
+		try (Connection ocupada = pool.obtenerConexion()) {
+			long inicio = System.nanoTime();
+			SQLException error = assertThrows(SQLException.class, pool::obtenerConexion);
+			long esperaMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+			assertTrue(error.getMessage().startsWith("Tiempo de espera agotado"), error.getMessage());
+			assertTrue(esperaMs >= 100, "Esperó " + esperaMs + " ms");
+			assertEquals(1, pool.getTimeouts());
+		}
+	}
+
+	@Test
+	void quienEsperaRecibeLaConexionDevuelta() throws Exception {
+		crearPool(1, 1, 10_000, SIN_DESALOJO_MS);
+		Connection ocupada = pool.obtenerConexion();
+		int sesionOcupada = sesion(ocupada);
+
+		CompletableFuture<Integer> espera = CompletableFuture.supplyAsync(() -> {
+			try (Connection conexion = pool.obtenerConexion()) {
+				return sesion(conexion);
+			} catch (SQLException ex) {
+				throw new IllegalStateException(ex);
+			}
+		});
+		while (pool.getHilosEsperando() == 0) {
+			Thread.sleep(1);
+		}
+		ocupada.close();
+
+		assertEquals(sesionOcupada, espera.get(10, TimeUnit.SECONDS));
+		assertEquals(0, pool.getTimeouts());
+	}
+
+	@Test
+	void desalojaLasInactivasQueSobranYConservaElMinimo() throws Exception {
+		crearPool(1, 3, 1000, 100);
+		Connection[] conexiones = { pool.obtenerConexion(), pool.obtenerConexion(), pool.obtenerConexion() };
+		for (Connection conexion : conexiones) {
+			conexion.close();
+		}
+		assertEquals(3, pool.getConexionesInactivas());
+
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (pool.getConexionesInactivas() > 1 && System.nanoTime() - limite < 0) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, pool.getConexionesInactivas());
+
+		// Varios periodos después sigue abierto el mínimo
+		Thread.sleep(300);
+		assertEquals(1, pool.getConexionesInactivas());
+	}
+
+	@Test
+	void deshaceLaTransaccionPendienteAlDevolverLaConexion() throws SQLException {
+		crearPool(1, 1, 1000, SIN_DESALOJO_MS);
+
+		try (Connection conexion = pool.obtenerConexion(); Statement sentencia = conexion.createStatement()) {
+			conexion.setAutoCommit(false);
+			sentencia.executeUpdate("INSERT INTO incidencia (codigo, problema, puesto, estado, fechaRegistro) "
+					+ "VALUES ('21/05/2024-09:00-1', 'Sin confirmar', 1, 0, CURRENT_TIMESTAMP)");
+		}
+
+		try (Connection conexion = pool.obtenerConexion()) {
+			assertTrue(conexion.getAutoCommit());
+			assertEquals(0, contarFilas(conexion));
+		}
+	}
+
+	@Test
+	void laConexionDevueltaNoSePuedeUsar() throws SQLException {
+		crearPool(1, 1, 1000, SIN_DESALOJO_MS);
+		Connection conexion = pool.obtenerConexion();
+		conexion.close();
+		conexion.close();
+
+		assertTrue(conexion.isClosed());
+		assertThrows(SQLException.class, conexion::createStatement);
+		assertEquals(0, pool.getConexionesActivas());
+		assertEquals(1, pool.getConexionesInactivas());
+	}
+
+	@Test
+	void noReutilizaUnaConexionFisicaCerrada() throws SQLException {
+		crearPool(1, 1, 1000, SIN_DESALOJO_MS);
+		int cerrada;
+		try (Connection conexion = pool.obtenerConexion()) {
+			cerrada = sesion(conexion);
+			conexion.unwrap(Connection.class).close();
+		}
+		assertEquals(0, pool.getConexionesInactivas());
+
+		try (Connection conexion = pool.obtenerConexion()) {
+			assertNotEquals(cerrada, sesion(conexion));
+		}
+	}
+
+	@Test
+	void elPoolCerradoNoPrestaConexiones() throws SQLException {
+		crearPool(1, 2, 1000, SIN_DESALOJO_MS);
+		Connection prestada = pool.obtenerConexion();
+
+		pool.close();
+
+		assertThrows(SQLException.class, pool::obtenerConexion);
+		prestada.close();
+		assertEquals(0, pool.getConexionesActivas());
+		assertEquals(0, pool.getConexionesInactivas());
+	}
+}
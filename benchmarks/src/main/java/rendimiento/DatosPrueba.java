@@ -0,0 +1,111 @@
+package rendimiento;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Genera los conjuntos de incidencias que usan las pruebas de rendimiento.
+ * Con la misma semilla se generan siempre las mismas incidencias, para que los resultados de distintas
+ * ejecuciones sean comparables.
+ */
+final class DatosPrueba {
+    static final long SEMILLA = 20240521L;
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int MINUTOS_DIA = 24 * 60;
+    private static final String[] PROBLEMAS = {
+        "Faltan cables", "No enciende la pantalla", "El ratón no responde",
+        "Sin conexión a la red", "La impresora no imprime", "Teclado con teclas rotas"
+    };
+
+    private DatosPrueba() {
+    }
+
+    /**
+     * Genera incidencias registradas una por minuto desde el 1 de enero de 2024: el 60 % pendientes,
+     * el 25 % resueltas y el 15 % eliminadas.
+     * @param cantidad Número de incidencias.
+     * @return Las incidencias, en orden de registro.
+     */
+    static List<Incidencia> generar(int cantidad) {
+        SplittableRandom azar = new SplittableRandom(SEMILLA);
+        List<Incidencia> incidencias = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            LocalDateTime registro = INICIO.plusMinutes(i);
+            String codigo = CodigoIncidencia.de(registro, i % MINUTOS_DIA + 1).getCodigo();
+            String problema = PROBLEMAS[azar.nextInt(PROBLEMAS.length)];
+            int puesto = 1 + azar.nextInt(200);
+            int tipo = azar.nextInt(100);
+            if (tipo < 60) {
+                incidencias.add(new Incidencia(codigo, EstadoIncidencia.PENDIENTE, puesto, problema, registro));
+            } else if (tipo < 85) {
+                incidencias.add(new Incidencia(codigo, problema, puesto, EstadoIncidencia.RESUELTA, registro,
+                        registro.plusHours(1 + azar.nextInt(48)), "Resuelta en el puesto", null, null));
+            } else {
+                incidencias.add(new Incidencia(codigo, problema, puesto, EstadoIncidencia.ELIMINADA, registro,
+                        null, null, registro.plusHours(1 + azar.nextInt(48)), "Duplicada"));
+            }
+        }
+        return incidencias;
+    }
+
+    /**
+     * Sustituye el problema, la resolución y la causa de eliminación por textos de varias palabras, para
+     * las pruebas de búsqueda por texto. Las palabras salen de un vocabulario con unas pocas muy frecuentes
+     * y muchas raras, como en los textos reales, e incluyen tildes y mayúsculas.
+     * @param incidencias Las incidencias generadas por {@link #generar(int)}.
+     */
+    static void anadirTextos(List<Incidencia> incidencias) {
+        SplittableRandom azar = new SplittableRandom(SEMILLA + 1);
+        String[] vocabulario = vocabulario();
+        for (Incidencia incidencia : incidencias) {
+            incidencia.setProblema(frase(azar, vocabulario, 4 + azar.nextInt(8)));
+            if (incidencia.getResolucion() != null) {
+                incidencia.setResolucion(frase(azar, vocabulario, 3 + azar.nextInt(10)));
+            }
+            if (incidencia.getCausaEliminacion() != null) {
+                incidencia.setCausaEliminacion(frase(azar, vocabulario, 2 + azar.nextInt(4)));
+            }
+        }
+    }
+
+    private static String frase(SplittableRandom azar, String[] vocabulario, int palabras) {
+        StringBuilder frase = new StringBuilder();
+        for (int i = 0; i < palabras; i++) {
+            double u = azar.nextDouble();
+            if (i > 0) {
+                frase.append(' ');
+            }
+            frase.append(vocabulario[(int) (vocabulario.length * u * u * u)]);
+        }
+        return frase.toString();
+    }
+
+    private static String[] vocabulario() {
+        String[] comunes = {
+            "Pantalla", "ratón", "teclado", "impresión", "conexión", "red", "cable", "equipo", "no", "enciende",
+            "falla", "lento", "error", "contraseña", "usuario", "correo", "actualización", "batería", "cargador",
+            "monitor", "sonido", "micrófono", "cámara", "wifi", "servidor", "licencia", "instalación", "permiso",
+            "disco", "memoria", "tóner", "papel", "atasco", "reinicio", "bloqueo", "pantallazo", "azul", "negro"
+        };
+        String[] vocabulario = new String[4000];
+        for (int i = 0; i < vocabulario.length; i++) {
+            vocabulario[i] = i < comunes.length ? comunes[i] : comunes[i % comunes.length].toLowerCase() + i;
+        }
+        return vocabulario;
+    }
+
+    /**
+     * Descarta los mensajes de consola de Logica y del DAO, que en la aplicación van al usuario
+     * y aquí solo añadirían ruido a las medidas.
+     */
+    static void silenciarConsola() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
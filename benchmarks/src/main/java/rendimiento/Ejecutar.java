@@ -0,0 +1,59 @@
+package rendimiento;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Map;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de benchmarks.jar. Admite las mismas opciones que JMH (por ejemplo -p tamano=1000
+ * o un patrón con las pruebas a ejecutar) y, si no se indican -rf ni -rff, guarda los
+ * resultados en JSON en resultados/jmh-AAAAMMDD-HHMMSS.json para compararlos entre versiones.
+ * <p>
+ * Si el primer argumento es el nombre de una de las pruebas de carga, que no son de JMH, se ejecuta esa
+ * prueba con el resto de argumentos, por ejemplo java -jar benchmarks.jar PruebaCargaHttp 32 10.
+ */
+public final class Ejecutar {
+    private static final DateTimeFormatter FORMATO_FICHERO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final Map<String, Programa> PRUEBAS_CARGA = Map.of(
+            "PruebaCargaHttp", PruebaCargaHttp::main,
+            "PruebaCargaAsincrona", PruebaCargaAsincrona::main,
+            "PruebaCargaDiario", PruebaCargaDiario::main,
+            "PruebaMemoriaHistorial", PruebaMemoriaHistorial::main);
+
+    /**
+     * El método main de una prueba de carga.
+     */
+    @FunctionalInterface
+    private interface Programa {
+        void main(String[] args) throws Exception;
+    }
+
+    private Ejecutar() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Programa prueba = args.length > 0 ? PRUEBAS_CARGA.get(args[0]) : null;
+        if (prueba != null) {
+            prueba.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        CommandLineOptions lineaComandos = new CommandLineOptions(args);
+        ChainedOptionsBuilder opciones = new OptionsBuilder().parent(lineaComandos);
+        if (!lineaComandos.getResultFormat().hasValue() && !lineaComandos.getResult().hasValue()) {
+            opciones.resultFormat(ResultFormatType.JSON);
+            Path carpeta = Paths.get("resultados");
+            Files.createDirectories(carpeta);
+            opciones.result(carpeta.resolve("jmh-" + LocalDateTime.now().format(FORMATO_FICHERO) + ".json").toString());
+        }
+        new Runner(opciones.build()).run();
+    }
+}
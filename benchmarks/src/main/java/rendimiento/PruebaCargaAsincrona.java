@@ -0,0 +1,131 @@
+package rendimiento;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+import persistencia.IncidenciasMemoria;
+import persistencia.RepositorioAsincrono;
+
+/**
+ * Prueba de carga de la fachada asíncrona del almacenamiento.
+ * Lanza a la vez muchas búsquedas de incidencias sobre un almacenamiento que tarda unos milisegundos en
+ * contestar, como una base de datos en otra máquina, y repite la prueba con varios máximos de operaciones en
+ * curso. Para cada uno se muestran el tiempo en lanzar todas las búsquedas, el total, las búsquedas por
+ * segundo, la mediana y el percentil 99 de la latencia y el máximo de búsquedas que llegaron a la vez al
+ * almacenamiento.
+ * <p>
+ * Uso: java -jar benchmarks.jar PruebaCargaAsincrona [búsquedas] [esperaMs] [enCurso...]. Por defecto,
+ * 10000 búsquedas, 2 ms de espera y 10 y 50 operaciones en curso.
+ * @author Maria
+ */
+public class PruebaCargaAsincrona {
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int INCIDENCIAS = 1000;
+
+    /**
+     * Método principal de la prueba de carga.
+     * @param args Número de búsquedas, milisegundos de espera del almacenamiento y máximos en curso (opcionales).
+     */
+    public static void main(String[] args) {
+        int busquedas = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long esperaMs = args.length > 1 ? Long.parseLong(args[1]) : 2;
+        int[] enCurso = args.length > 2 ? Arrays.stream(args, 2, args.length).mapToInt(Integer::parseInt).toArray()
+                : new int[] { 10, 50 };
+
+        // Los mensajes de las altas del almacenamiento en memoria no interesan en la prueba
+        PrintStream salida = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        AlmacenamientoLento almacenamiento = new AlmacenamientoLento(esperaMs);
+        List<String> codigos = new ArrayList<>(INCIDENCIAS);
+        for (int i = 0; i < INCIDENCIAS; i++) {
+            LocalDateTime registro = INICIO.plusMinutes(i);
+            String codigo = CodigoIncidencia.de(registro, 1).getCodigo();
+            almacenamiento.create(new Incidencia(codigo, EstadoIncidencia.PENDIENTE, i % 200, "Problema " + i, registro));
+            codigos.add(codigo);
+        }
+        System.setOut(salida);
+
+        // Calentamiento para que las medidas no incluyan la compilación
+        ejecutar(almacenamiento, codigos, busquedas / 10, enCurso[enCurso.length - 1], null);
+
+        System.out.printf("%d búsquedas simultáneas, el almacenamiento tarda %d ms en cada una%n", busquedas, esperaMs);
+        for (int maximo : enCurso) {
+            ejecutar(almacenamiento, codigos, busquedas, maximo, salida);
+        }
+    }
+
+    /**
+     * Lanza todas las búsquedas sin esperar, espera a que terminen y, si se indica la salida, muestra el resultado.
+     */
+    private static void ejecutar(AlmacenamientoLento almacenamiento, List<String> codigos, int busquedas,
+            int maximoEnCurso, PrintStream salida) {
+        almacenamiento.maximoSimultaneas.set(0);
+        long[] latencias = new long[busquedas];
+        CompletableFuture<?>[] futuros = new CompletableFuture<?>[busquedas];
+        AtomicInteger encontradas = new AtomicInteger();
+        try (RepositorioAsincrono asincrono = new RepositorioAsincrono(almacenamiento, maximoEnCurso)) {
+            long inicio = System.nanoTime();
+            for (int i = 0; i < busquedas; i++) {
+                int indice = i;
+                long lanzada = System.nanoTime();
+                futuros[i] = asincrono.buscaIncidencia(codigos.get(i % codigos.size())).thenAccept(incidencia -> {
+                    latencias[indice] = System.nanoTime() - lanzada;
+                    if (incidencia != null) {
+                        encontradas.incrementAndGet();
+                    }
+                });
+            }
+            double lanzamiento = (System.nanoTime() - inicio) / 1e6;
+            CompletableFuture.allOf(futuros).join();
+            double duracion = (System.nanoTime() - inicio) / 1e9;
+
+            if (salida != null) {
+                Arrays.sort(latencias);
+                salida.printf("%3d en curso: lanzadas en %.1f ms, terminadas en %.2f s, %.0f búsquedas por segundo%n",
+                        maximoEnCurso, lanzamiento, duracion, busquedas / duracion);
+                salida.printf("              latencia p50: %.1f ms, p99: %.1f ms; %d encontradas; %d a la vez como máximo%n",
+                        percentil(latencias, 0.50), percentil(latencias, 0.99), encontradas.get(),
+                        almacenamiento.maximoSimultaneas.get());
+            }
+        }
+    }
+
+    private static double percentil(long[] ordenadas, double proporcion) {
+        int indice = (int) Math.ceil(proporcion * ordenadas.length) - 1;
+        return ordenadas[Math.max(indice, 0)] / 1e6;
+    }
+
+    /**
+     * Almacenamiento en memoria que espera un tiempo fijo en cada búsqueda y cuenta las que atiende a la vez.
+     */
+    private static final class AlmacenamientoLento extends IncidenciasMemoria {
+        private final long esperaMs;
+        private final AtomicInteger simultaneas = new AtomicInteger();
+        private final AtomicInteger maximoSimultaneas = new AtomicInteger();
+
+        AlmacenamientoLento(long esperaMs) {
+            this.esperaMs = esperaMs;
+        }
+
+        @Override
+        public Incidencia buscaIncidencia(String codigo) {
+            maximoSimultaneas.accumulateAndGet(simultaneas.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(esperaMs);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                simultaneas.decrementAndGet();
+            }
+            return super.buscaIncidencia(codigo);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package rendimiento;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+import persistencia.IncidenciasDiario;
+import persistencia.IncidenciasDiario.Sincronizacion;
+
+/**
+ * Prueba de carga de la persistencia en ficheros locales.
+ * <p>
+ * Primero mide los registros por segundo que se guardan en el diario con cada modo de sincronización y
+ * varios hilos, dando de alta las incidencias de una en una o en lotes. Después guarda el número de
+ * incidencias indicado, abandona el diario sin cerrarlo, como tras una caída, y mide cuánto se tarda en
+ * recuperarlo reproduciendo el diario completo y, tras cerrarlo con su instantánea, leyendo la instantánea.
+ * Los mensajes que escribe la persistencia en cada alta se descartan para que no cuenten en la medida.
+ * <p>
+ * Uso: java -Xmx2g -jar benchmarks.jar PruebaCargaDiario [incidencias] [segundos] [directorio]. Por defecto,
+ * un millón de incidencias, dos segundos por medida y un directorio temporal, que se borra al terminar; con un
+ * millón conviene -Xmx2g.
+ * @author Maria
+ */
+public class PruebaCargaDiario {
+    private static final LocalDateTime INICIO = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final int SECUENCIAS_POR_MINUTO = 10;
+    private static final int[] HILOS = { 1, 4, 16 };
+    private static final int[] LOTES = { 1, 100 };
+    private static final int LOTE_RECUPERACION = 1000;
+    private static final long INTERVALO_SINCRONIZACION_MS = 10;
+
+    private static final AtomicLong siguiente = new AtomicLong();
+
+    /**
+     * Método principal de la prueba de carga.
+     * @param args Número de incidencias de la recuperación, segundos de cada medida y directorio (opcionales).
+     * @throws Exception si falla el diario o se interrumpe la prueba.
+     */
+    public static void main(String[] args) throws Exception {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        Path base = args.length > 2 ? Files.createDirectories(Paths.get(args[2]))
+                : Files.createTempDirectory("prueba-diario");
+
+        // Los resultados se escriben en la salida original; la de la persistencia se descarta
+        PrintStream salida = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            // Calentamiento para que las medidas no incluyan la compilación
+            escribir(base.resolve("calentamiento"), Sincronizacion.SISTEMA, 4, 1, 1);
+
+            salida.println("Escritura en el diario:");
+            for (Sincronizacion sincronizacion : Sincronizacion.values()) {
+                for (int hilos : HILOS) {
+                    for (int lote : LOTES) {
+                        double porSegundo = escribir(base.resolve("escritura"), sincronizacion, hilos, lote, segundos);
+                        salida.printf("  %-14s %2d hilos, lotes de %3d: %10.0f registros por segundo%n",
+                                sincronizacion, hilos, lote, porSegundo);
+                    }
+                }
+            }
+
+            recuperar(base.resolve("recuperacion"), cantidad, salida);
+        } finally {
+            System.setOut(salida);
+            borrar(base);
+        }
+    }
+
+    /**
+     * Da de alta incidencias desde varios hilos durante los segundos indicados y devuelve los registros
+     * guardados por segundo. No se hace ninguna instantánea durante la medida.
+     */
+    private static double escribir(Path directorio, Sincronizacion sincronizacion, int hilos, int lote, int segundos)
+            throws Exception {
+        IncidenciasDiario diario = new IncidenciasDiario(directorio, sincronizacion, INTERVALO_SINCRONIZACION_MS,
+                Long.MAX_VALUE);
+        AtomicLong guardados = new AtomicLong();
+        long inicio = System.nanoTime();
+        long fin = inicio + segundos * 1_000_000_000L;
+        Thread[] escritores = new Thread[hilos];
+        for (int i = 0; i < hilos; i++) {
+            escritores[i] = new Thread(() -> {
+                long propios = 0;
+                while (System.nanoTime() < fin) {
+                    if (lote == 1) {
+                        diario.create(generar());
+                    } else {
+                        diario.createAll(generar(lote));
+                    }
+                    propios += lote;
+                }
+                guardados.addAndGet(propios);
+            }, "escritor-" + i);
+            escritores[i].start();
+        }
+        for (Thread escritor : escritores) {
+            escritor.join();
+        }
+        double duracion = (System.nanoTime() - inicio) / 1e9;
+        diario.cerrarConexion();
+        borrar(directorio);
+        return guardados.get() / duracion;
+    }
+
+    /**
+     * Guarda las incidencias, abandona el diario y mide la recuperación desde el diario y desde la instantánea.
+     */
+    private static void recuperar(Path directorio, int cantidad, PrintStream salida) throws IOException {
+        IncidenciasDiario diario = new IncidenciasDiario(directorio, Sincronizacion.SISTEMA, 0, Long.MAX_VALUE);
+        for (int guardadas = 0; guardadas < cantidad; guardadas += LOTE_RECUPERACION) {
+            diario.createAll(generar(Math.min(LOTE_RECUPERACION, cantidad - guardadas)));
+        }
+        diario.sincronizar();
+        // Sin cerrarlo no se guarda la instantánea final, así que al abrirlo se reproduce el diario entero
+        diario = null;
+        salida.printf("Recuperación de %d incidencias (%d MiB en disco):%n", cantidad, tamano(directorio) / (1024 * 1024));
+
+        long inicio = System.nanoTime();
+        IncidenciasDiario recuperado = new IncidenciasDiario(directorio, Sincronizacion.SISTEMA, 0, Long.MAX_VALUE);
+        double reproduccion = (System.nanoTime() - inicio) / 1e9;
+        int leidas = recuperado.listarIncidencias().size();
+        salida.printf("  Reproduciendo el diario:  %6.2f s, %d incidencias%n", reproduccion, leidas);
+
+        // Al cerrar se guarda la instantánea y se borran los diarios que contiene
+        recuperado.cerrarConexion();
+        recuperado = null;
+
+        inicio = System.nanoTime();
+        recuperado = new IncidenciasDiario(directorio, Sincronizacion.SISTEMA, 0, Long.MAX_VALUE);
+        double instantanea = (System.nanoTime() - inicio) / 1e9;
+        leidas = recuperado.listarIncidencias().size();
+        salida.printf("  Leyendo la instantánea:   %6.2f s, %d incidencias%n", instantanea, leidas);
+        recuperado.cerrarConexion();
+    }
+
+    private static List<Incidencia> generar(int cantidad) {
+        List<Incidencia> lote = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            lote.add(generar());
+        }
+        return lote;
+    }
+
+    /**
+     * Incidencia pendiente con un código que no se repite en toda la prueba.
+     */
+    private static Incidencia generar() {
+        long numero = siguiente.getAndIncrement();
+        LocalDateTime registro = INICIO.plusMinutes(numero / SECUENCIAS_POR_MINUTO);
+        String codigo = CodigoIncidencia.de(registro, (int) (numero % SECUENCIAS_POR_MINUTO) + 1).getCodigo();
+        return new Incidencia(codigo, EstadoIncidencia.PENDIENTE, (int) (numero % 200),
+                "Problema del puesto número " + numero % 1000, registro);
+    }
+
+    private static long tamano(Path directorio) throws IOException {
+        try (Stream<Path> ficheros = Files.list(directorio)) {
+            long total = 0;
+            for (Path fichero : (Iterable<Path>) ficheros::iterator) {
+                total += Files.size(fichero);
+            }
+            return total;
+        }
+    }
+
+    private static void borrar(Path directorio) throws IOException {
+        if (!Files.exists(directorio)) {
+            return;
+        }
+        try (Stream<Path> ficheros = Files.walk(directorio)) {
+            for (Path fichero : (Iterable<Path>) ficheros.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(fichero);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package rendimiento;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import aplicacion.Logica;
+import presentacion.ServidorHttp;
+
+/**
+ * Prueba de carga del servidor HTTP en la propia máquina.
+ * Varios clientes lanzan peticiones sin pausa durante un tiempo: registran incidencias, las buscan y
+ * piden páginas de pendientes. Al terminar se muestran la mediana y el percentil 99 de la latencia y las
+ * peticiones por segundo.
+ * <p>
+ * Uso: java -jar benchmarks.jar PruebaCargaHttp [clientes] [segundos] [url]. Si no se indica la URL se arranca un servidor en un
+ * puerto libre sobre una lógica sin persistencia.
+ * @author Maria
+ */
+public class PruebaCargaHttp {
+    private static final int MAXIMO_MUESTRAS_POR_CLIENTE = 1 << 20;
+
+    /**
+     * Método principal de la prueba de carga.
+     * @param args Número de clientes, segundos de prueba y URL base del servidor (opcionales).
+     * @throws Exception si falla el servidor o se interrumpe la prueba.
+     */
+    public static void main(String[] args) throws Exception {
+        int clientes = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        ServidorHttp servidor = null;
+        String base;
+        if (args.length > 2) {
+            base = args[2];
+        } else {
+            // Igual que en Main, para que la prueba mida el servidor como se arranca en la aplicación
+            if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+                System.setProperty("sun.net.httpserver.nodelay", "true");
+            }
+            servidor = new ServidorHttp(new Logica(), 0, Runtime.getRuntime().availableProcessors() * 2);
+            servidor.iniciar();
+            base = "http://localhost:" + servidor.getPuerto();
+        }
+
+        HttpClient cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        // Calentamiento para que las medidas no incluyan la compilación ni la apertura de conexiones
+        ejecutar(cliente, base, clientes, System.nanoTime() + 2_000_000_000L);
+
+        long inicio = System.nanoTime();
+        long[][] muestras = ejecutar(cliente, base, clientes, inicio + segundos * 1_000_000_000L);
+        double duracion = (System.nanoTime() - inicio) / 1e9;
+
+        int total = 0;
+        for (long[] muestrasCliente : muestras) {
+            total += muestrasCliente.length;
+        }
+        long[] latencias = new long[total];
+        int posicion = 0;
+        for (long[] muestrasCliente : muestras) {
+            System.arraycopy(muestrasCliente, 0, latencias, posicion, muestrasCliente.length);
+            posicion += muestrasCliente.length;
+        }
+        Arrays.sort(latencias);
+
+        System.out.printf("%d clientes, %d peticiones en %.1f s%n", clientes, total, duracion);
+        System.out.printf("Peticiones por segundo: %.0f%n", total / duracion);
+        System.out.printf("Latencia p50: %.3f ms, p99: %.3f ms, máxima: %.3f ms%n",
+                percentil(latencias, 0.50), percentil(latencias, 0.99), latencias[total - 1] / 1e6);
+
+        if (servidor != null) {
+            servidor.close();
+        }
+    }
+
+    /**
+     * Lanza los clientes hasta el instante indicado y devuelve la latencia en nanosegundos de cada petición.
+     */
+    private static long[][] ejecutar(HttpClient cliente, String base, int clientes, long fin) throws InterruptedException {
+        long[][] muestras = new long[clientes][];
+        CountDownLatch terminados = new CountDownLatch(clientes);
+        for (int i = 0; i < clientes; i++) {
+            int numero = i;
+            Thread hilo = new Thread(() -> {
+                try {
+                    muestras[numero] = lanzarPeticiones(cliente, base, numero, fin);
+                } finally {
+                    terminados.countDown();
+                }
+            }, "prueba-carga-" + i);
+            hilo.setDaemon(true);
+            hilo.start();
+        }
+        terminados.await();
+        return muestras;
+    }
+
+    /**
+     * Bucle de un cliente: por cada alta hace varias búsquedas y algún listado.
+     */
+    private static long[] lanzarPeticiones(HttpClient cliente, String base, int numero, long fin) {
+        long[] latencias = new long[1024];
+        int medidas = 0;
+        String ultimoCodigo = null;
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        while (System.nanoTime() < fin && medidas < MAXIMO_MUESTRAS_POR_CLIENTE) {
+            HttpRequest peticion;
+            int tipo = azar.nextInt(10);
+            if (ultimoCodigo == null || tipo == 0) {
+                peticion = HttpRequest.newBuilder(URI.create(base + "/incidencias"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString("puesto=" + numero + "&problema=" + codificar("Prueba de carga")))
+                        .build();
+            } else if (tipo == 1) {
+                peticion = HttpRequest.newBuilder(URI.create(base + "/incidencias?estado=pendiente&limite=20")).build();
+            } else {
+                peticion = HttpRequest.newBuilder(URI.create(base + "/incidencias?codigo=" + codificar(ultimoCodigo))).build();
+            }
+
+            long inicio = System.nanoTime();
+            String cuerpo;
+            try {
+                cuerpo = cliente.send(peticion, HttpResponse.BodyHandlers.ofString()).body();
+            } catch (IOException ex) {
+                System.out.println("Error en la petición: " + ex.getMessage());
+                continue;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long latencia = System.nanoTime() - inicio;
+
+            if (peticion.method().equals("POST")) {
+                ultimoCodigo = leerCodigo(cuerpo);
+            }
+            if (medidas == latencias.length) {
+                latencias = Arrays.copyOf(latencias, medidas * 2);
+            }
+            latencias[medidas++] = latencia;
+        }
+        return Arrays.copyOf(latencias, medidas);
+    }
+
+    /**
+     * Saca el código de la respuesta de un alta, que empieza por {"codigo":"...".
+     */
+    private static String leerCodigo(String cuerpo) {
+        int inicio = cuerpo.indexOf("\"codigo\":\"");
+        if (inicio < 0) {
+            return null;
+        }
+        inicio += 10;
+        return cuerpo.substring(inicio, cuerpo.indexOf('"', inicio));
+    }
+
+    private static String codificar(String texto) {
+        return URLEncoder.encode(texto, StandardCharsets.UTF_8);
+    }
+
+    private static double percentil(long[] ordenadas, double proporcion) {
+        int indice = (int) Math.ceil(proporcion * ordenadas.length) - 1;
+        return ordenadas[Math.max(indice, 0)] / 1e6;
+    }
+}
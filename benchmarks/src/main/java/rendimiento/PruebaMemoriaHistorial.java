@@ -0,0 +1,131 @@
+package rendimiento;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import aplicacion.HistorialColumnar;
+import aplicacion.Logica;
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Mide la memoria que ocupan las incidencias cerradas cargadas en la lógica, como objetos o en el historial
+ * en columnas. Genera incidencias resueltas y eliminadas, la mitad de cada estado, con un número limitado de
+ * textos distintos de problema, resolución y causa, como en un historial real. Cada texto es un objeto String
+ * distinto, igual que cuando se leen de la base de datos.
+ * <p>
+ * Se mide el montón ocupado después de varias recolecciones, antes y después de cargar, y se divide entre
+ * el número de incidencias. Los modos son:
+ * <ul>
+ * <li>objetos: la lógica sin historial, con sus índices.</li>
+ * <li>columnas: la lógica con historial, con sus índices.</li>
+ * <li>historial: solo el historial en columnas, sin la lógica.</li>
+ * </ul>
+ * <p>
+ * Uso: java -jar benchmarks.jar PruebaMemoriaHistorial [incidencias] [problemas] [resoluciones] [causas] [modo].
+ * Por defecto, un millón de incidencias con 1000, 500 y 50 textos distintos y los tres modos; con un millón
+ * conviene -Xmx2g.
+ * @author Maria
+ */
+public class PruebaMemoriaHistorial {
+    private static final LocalDateTime INICIO = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    /**
+     * Método principal de la prueba de memoria.
+     * @param args Número de incidencias, de textos distintos de cada tipo y modo (opcionales).
+     */
+    public static void main(String[] args) {
+        int cantidad = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int problemas = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int resoluciones = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int causas = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        String[] modos = args.length > 4 ? new String[] { args[4] } : new String[] { "objetos", "columnas", "historial" };
+
+        System.out.printf("%d incidencias cerradas, %d/%d/%d textos distintos%n", cantidad, problemas, resoluciones, causas);
+        for (String modo : modos) {
+            long antes = montonOcupado();
+            long directaAntes = memoriaDirecta();
+            Object cargado = cargar(modo, cantidad, problemas, resoluciones, causas);
+            long monton = montonOcupado() - antes;
+            long directa = memoriaDirecta() - directaAntes;
+
+            System.out.printf("%-10s %7.1f bytes por incidencia en el montón, %7.1f con la memoria directa%n",
+                    modo, (double) monton / cantidad, (double) (monton + directa) / cantidad);
+            if (cargado instanceof HistorialColumnar) {
+                System.out.printf("%-10s %7.1f bytes por incidencia según getBytesOcupados()%n", "",
+                        (double) ((HistorialColumnar) cargado).getBytesOcupados() / cantidad);
+            }
+            // Mantiene vivo lo cargado hasta después de medir
+            System.out.println("  (" + cargado.getClass().getSimpleName() + ")");
+        }
+    }
+
+    private static Object cargar(String modo, int cantidad, int problemas, int resoluciones, int causas) {
+        switch (modo) {
+            case "objetos":
+            case "columnas": {
+                Logica logica = new Logica(null, modo.equals("columnas") ? new HistorialColumnar() : null);
+                List<Incidencia> incidencias = new ArrayList<>(cantidad);
+                for (int i = 0; i < cantidad; i++) {
+                    incidencias.add(generar(i, problemas, resoluciones, causas));
+                }
+                logica.cargarIncidencias(incidencias);
+                return logica;
+            }
+            case "historial": {
+                HistorialColumnar historial = new HistorialColumnar();
+                for (int i = 0; i < cantidad; i++) {
+                    historial.anadir(generar(i, problemas, resoluciones, causas));
+                }
+                return historial;
+            }
+            default:
+                throw new IllegalArgumentException("Modo desconocido: " + modo);
+        }
+    }
+
+    private static Incidencia generar(int numero, int problemas, int resoluciones, int causas) {
+        LocalDateTime registro = INICIO.plusMinutes(numero);
+        String codigo = CodigoIncidencia.de(registro, 1).getCodigo();
+        String problema = "Problema del puesto número " + numero % problemas;
+        int puesto = numero % 200;
+        if (numero % 2 == 0) {
+            return new Incidencia(codigo, problema, puesto, EstadoIncidencia.RESUELTA, registro,
+                    registro.plusHours(1 + numero % 48), "Resuelta cambiando la pieza " + numero % resoluciones, null, null);
+        }
+        return new Incidencia(codigo, problema, puesto, EstadoIncidencia.ELIMINADA, registro,
+                null, null, registro.plusHours(1 + numero % 48), "Duplicada de otra incidencia " + numero % causas);
+    }
+
+    /**
+     * Memoria ocupada del montón después de varias recolecciones.
+     */
+    private static long montonOcupado() {
+        long ocupado = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            ocupado = Math.min(ocupado, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        }
+        return ocupado;
+    }
+
+    /**
+     * Memoria reservada por los buffers directos, donde el historial guarda los textos.
+     */
+    private static long memoriaDirecta() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+}
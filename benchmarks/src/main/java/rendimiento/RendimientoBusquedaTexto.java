@@ -0,0 +1,86 @@
+package rendimiento;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import aplicacion.Logica;
+import dominio.Incidencia;
+
+/**
+ * Rendimiento de la búsqueda por texto con el índice invertido de Logica frente a recorrer todas las
+ * incidencias comparando con contains, que es lo que había que hacer sin índice. El recorrido parte de los
+ * textos ya pasados a minúsculas, lo que le da ventaja, y no ordena por relevancia.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = { "-Xmx3g" })
+public class RendimientoBusquedaTexto {
+    private static final int LIMITE = 20;
+
+    @Param({ "100000", "1000000" })
+    private int tamano;
+
+    /**
+     * Una palabra rara, una frecuente, dos de frecuencia media y una de cada tipo, con tildes y mayúsculas
+     */
+    @Param({ "pantalla2014", "pantalla", "teclado monitor", "Conexión ratón pantalla2014" })
+    private String consulta;
+
+    private Logica logica;
+    private String[] textos;
+    private String[] terminos;
+    private List<Incidencia> incidencias;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        DatosPrueba.silenciarConsola();
+        incidencias = DatosPrueba.generar(tamano);
+        DatosPrueba.anadirTextos(incidencias);
+        logica = new Logica();
+        logica.cargarIncidencias(incidencias);
+
+        textos = new String[incidencias.size()];
+        for (int i = 0; i < textos.length; i++) {
+            Incidencia incidencia = incidencias.get(i);
+            textos[i] = (incidencia.getProblema() + " " + incidencia.getResolucion() + " "
+                    + incidencia.getCausaEliminacion()).toLowerCase(Locale.ROOT);
+        }
+        terminos = consulta.toLowerCase(Locale.ROOT).split(" ");
+    }
+
+    @Benchmark
+    public List<Incidencia> indice() {
+        return logica.buscarPorTexto(consulta, 0, LIMITE);
+    }
+
+    @Benchmark
+    public List<Incidencia> recorridoLineal() {
+        // Hay que recorrerlas todas para saber cuántas coinciden, aunque solo se devuelva la primera página
+        List<Incidencia> encontradas = new ArrayList<>();
+        for (int i = 0; i < textos.length; i++) {
+            for (String termino : terminos) {
+                if (textos[i].contains(termino)) {
+                    encontradas.add(incidencias.get(i));
+                    break;
+                }
+            }
+        }
+        return encontradas.subList(0, Math.min(LIMITE, encontradas.size()));
+    }
+}
@@ -0,0 +1,141 @@
+package rendimiento;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import dominio.Incidencia;
+import persistencia.CacheIncidencias;
+import persistencia.IncidenciasMemoria;
+import persistencia.RepositorioIncidencias;
+
+/**
+ * Latencia de las búsquedas por código con CacheIncidencias delante de un almacenamiento que tarda lo que
+ * un viaje de ida y vuelta a la base de datos, frente a consultarlo siempre (tamanoCache = 0). Los códigos
+ * buscados siguen una distribución de Zipf, como en el uso real: unas pocas incidencias se consultan muy a
+ * menudo y la mayoría casi nunca. Se mide una muestra de las llamadas para ver la mediana y los percentiles;
+ * los fallos de la caché siguen costando el viaje completo, así que los percentiles altos no bajan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RendimientoCache {
+    private static final int INCIDENCIAS = 100_000;
+    private static final int BUSQUEDAS = 1 << 20; // Secuencia de códigos que se recorre en bucle
+
+    @Param({ "0", "1000", "10000" })
+    private int tamanoCache;
+
+    /**
+     * Exponente de la distribución de Zipf; cuanto mayor, más se concentran las búsquedas en pocas incidencias
+     */
+    @Param({ "1.0" })
+    private double exponente;
+
+    @Param({ "200" })
+    private long esperaMicros;
+
+    private RepositorioIncidencias repositorio;
+    private String[] busquedas;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        DatosPrueba.silenciarConsola();
+        List<Incidencia> incidencias = DatosPrueba.generar(INCIDENCIAS);
+        AlmacenamientoLento almacenamiento = new AlmacenamientoLento(TimeUnit.MICROSECONDS.toNanos(esperaMicros));
+        almacenamiento.createAll(incidencias);
+        repositorio = tamanoCache == 0 ? almacenamiento : new CacheIncidencias(almacenamiento, tamanoCache, 0);
+
+        // El rango de Zipf se asigna a las incidencias al azar para que las más buscadas no sean las primeras
+        SplittableRandom azar = new SplittableRandom(DatosPrueba.SEMILLA);
+        String[] porRango = new String[INCIDENCIAS];
+        for (int i = 0; i < INCIDENCIAS; i++) {
+            int j = azar.nextInt(i + 1);
+            porRango[i] = porRango[j];
+            porRango[j] = incidencias.get(i).getCodigo();
+        }
+        Zipf zipf = new Zipf(INCIDENCIAS, exponente);
+        busquedas = new String[BUSQUEDAS];
+        for (int i = 0; i < BUSQUEDAS; i++) {
+            busquedas[i] = porRango[zipf.siguiente(azar)];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Posicion {
+        int siguiente;
+    }
+
+    @Benchmark
+    public Incidencia buscar(Posicion posicion) {
+        int i = posicion.siguiente++ & (BUSQUEDAS - 1);
+        return repositorio.buscaIncidencia(busquedas[i]);
+    }
+
+    /**
+     * Muestreo de una distribución de Zipf sobre los rangos 0..n-1 por búsqueda binaria en la función de
+     * distribución acumulada, calculada una sola vez.
+     */
+    static final class Zipf {
+        private final double[] acumulada;
+
+        Zipf(int n, double exponente) {
+            acumulada = new double[n];
+            double suma = 0;
+            for (int rango = 0; rango < n; rango++) {
+                suma += 1 / Math.pow(rango + 1, exponente);
+                acumulada[rango] = suma;
+            }
+            for (int rango = 0; rango < n; rango++) {
+                acumulada[rango] /= suma;
+            }
+        }
+
+        int siguiente(SplittableRandom azar) {
+            double u = azar.nextDouble();
+            int bajo = 0;
+            int alto = acumulada.length - 1;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (acumulada[medio] < u) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+    }
+
+    /**
+     * Almacenamiento en memoria que espera en cada búsqueda lo que tardaría la base de datos en contestar.
+     */
+    static final class AlmacenamientoLento extends IncidenciasMemoria {
+        private final long esperaNanos;
+
+        AlmacenamientoLento(long esperaNanos) {
+            this.esperaNanos = esperaNanos;
+        }
+
+        @Override
+        public Incidencia buscaIncidencia(String codigo) {
+            LockSupport.parkNanos(esperaNanos);
+            return super.buscaIncidencia(codigo);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package rendimiento;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import dominio.CodigoIncidencia;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+import persistencia.IncidenciasDAO;
+
+/**
+ * Rendimiento de las operaciones de IncidenciasDAO sobre una base de datos H2 en memoria en modo MySQL,
+ * con la misma tabla e índices que incidencia.sql. Mide el coste del DAO, el pool y JDBC sin red;
+ * contra un servidor MySQL real los tiempos incluyen además la ida y vuelta de cada consulta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RendimientoDAO {
+    private static final String URL = "jdbc:h2:mem:incidencia;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final int TAMANO_PAGINA = 100;
+    private static final int FILAS_ALTA = 1000;
+    private static final LocalDateTime INICIO_ALTAS = LocalDateTime.of(2099, 1, 2, 0, 0);
+
+    @Param({ "1000", "100000" })
+    private int tamano;
+
+    private IncidenciasDAO dao;
+    private List<Incidencia> incidencias;
+    private Incidencia nueva;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        DatosPrueba.silenciarConsola();
+        try (Connection conexion = DriverManager.getConnection(URL, "sa", "");
+             Statement sentencia = conexion.createStatement()) {
+            sentencia.execute("DROP TABLE IF EXISTS incidencia");
+            sentencia.execute("CREATE TABLE incidencia ("
+                    + "codigo varchar(20) NOT NULL PRIMARY KEY, problema text NOT NULL, puesto int NOT NULL, "
+                    + "estado tinyint NOT NULL, fechaRegistro datetime NOT NULL, fechaResolucion datetime, "
+                    + "resolucion text, fechaEliminacion datetime, causaEliminacion text)");
+            sentencia.execute("CREATE INDEX idx_estado_fecha_registro ON incidencia (estado, fechaRegistro, codigo)");
+            sentencia.execute("CREATE INDEX idx_fecha_resolucion ON incidencia (fechaResolucion)");
+            sentencia.execute("CREATE INDEX idx_fecha_eliminacion ON incidencia (fechaEliminacion)");
+        }
+
+        Properties configuracion = new Properties();
+        configuracion.setProperty("jdbc.url", URL);
+        configuracion.setProperty("jdbc.usuario", "sa");
+        configuracion.setProperty("jdbc.password", "");
+        // H2 no admite el tamaño de fetch negativo con el que el driver de MySQL lee fila a fila
+        configuracion.setProperty("fetch.tamano", "1000");
+        dao = new IncidenciasDAO(configuracion);
+
+        incidencias = DatosPrueba.generar(tamano);
+        dao.createAll(incidencias);
+        nueva = new Incidencia("01/01/2099-00:00-1", EstadoIncidencia.PENDIENTE, 42, "Faltan cables",
+                incidencias.get(0).getFechaRegistro());
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        dao.cerrarConexion();
+    }
+
+    private Incidencia siguienteIncidencia() {
+        siguiente = (siguiente + 7919) % incidencias.size();
+        return incidencias.get(siguiente);
+    }
+
+    @Benchmark
+    public Incidencia buscaIncidencia() {
+        return dao.buscaIncidencia(siguienteIncidencia().getCodigo());
+    }
+
+    /**
+     * Alta y baja de la misma incidencia, para que el tamaño de la tabla no cambie durante la medida.
+     */
+    @Benchmark
+    public void createYDelete() {
+        dao.create(nueva);
+        dao.delete(nueva.getCodigo());
+    }
+
+    @Benchmark
+    public void update() {
+        dao.update(siguienteIncidencia());
+    }
+
+    @Benchmark
+    public List<Incidencia> listarPorEstado() {
+        return dao.listarPorEstado(EstadoIncidencia.PENDIENTE, null, TAMANO_PAGINA);
+    }
+
+    @Benchmark
+    public List<Incidencia> listarPorEstadoDesde() {
+        // Página a partir de una incidencia intermedia, que usa el índice (estado, fechaRegistro, codigo)
+        return dao.listarPorEstado(EstadoIncidencia.PENDIENTE, incidencias.get(incidencias.size() / 2), TAMANO_PAGINA);
+    }
+
+    @Benchmark
+    public long streamPorFechaResolucion() {
+        // Las resueltas en una hora a mitad de los datos, con el índice idx_fecha_resolucion
+        LocalDateTime desde = incidencias.get(incidencias.size() / 2).getFechaRegistro();
+        try (Stream<Incidencia> resueltas = dao.streamPorFechaResolucion(desde, desde.plusHours(1))) {
+            return resueltas.count();
+        }
+    }
+
+    /**
+     * Inserta {@value #FILAS_ALTA} incidencias nuevas con una sola llamada a createAll, que las envía en lotes JDBC
+     * dentro de pocas transacciones. El resultado son filas por segundo, comparable con {@link #createPorFila}.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(FILAS_ALTA)
+    public int createAll(Altas altas) {
+        return dao.createAll(altas.nuevas);
+    }
+
+    /**
+     * Inserta las mismas incidencias con un create por fila: una sentencia y una confirmación por incidencia.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(FILAS_ALTA)
+    public void createPorFila(Altas altas) {
+        for (Incidencia incidencia : altas.nuevas) {
+            dao.create(incidencia);
+        }
+    }
+
+    /**
+     * Incidencias nuevas para las altas, que se borran fuera de la medida después de cada llamada para que
+     * la tabla vuelva a su tamaño. Solo la usan los benchmarks de altas.
+     */
+    @State(Scope.Thread)
+    public static class Altas {
+        private final List<Incidencia> nuevas = new ArrayList<>(FILAS_ALTA);
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            for (int i = 0; i < FILAS_ALTA; i++) {
+                LocalDateTime fecha = INICIO_ALTAS.plusMinutes(i);
+                nuevas.add(new Incidencia(CodigoIncidencia.de(fecha, 1).getCodigo(), EstadoIncidencia.PENDIENTE,
+                        i % 100, "Faltan cables", fecha));
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void borrar() throws SQLException {
+            try (Connection conexion = DriverManager.getConnection(URL, "sa", "");
+                 Statement sentencia = conexion.createStatement()) {
+                sentencia.executeUpdate("DELETE FROM incidencia WHERE codigo LIKE '02/01/2099-%'");
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package rendimiento;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import aplicacion.HistorialColumnar;
+import aplicacion.Logica;
+import aplicacion.PuestoConPendientes;
+import aplicacion.TiemposResolucion;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+
+/**
+ * Rendimiento de las operaciones de Logica sin persistencia: alta, búsqueda por código y recorrido
+ * de los listados por estado, con distintos tamaños de datos y con o sin historial en columnas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RendimientoLogica {
+
+    @Param({ "10000", "100000", "1000000" })
+    private int tamano;
+
+    @Param({ "false", "true" })
+    private boolean historial;
+
+    private Logica logica;
+    private String[] codigos;
+    private int siguiente;
+    private LocalDateTime ventanaDesde;
+    private LocalDateTime ventanaHasta;
+    private String pendiente;
+
+    /**
+     * Carga las incidencias generadas. Se repite en cada iteración porque registrar añade incidencias
+     * y, si no, el tamaño crecería durante la medida.
+     */
+    @Setup(Level.Iteration)
+    public void preparar() {
+        DatosPrueba.silenciarConsola();
+        List<Incidencia> incidencias = DatosPrueba.generar(tamano);
+        logica = new Logica(null, historial ? new HistorialColumnar() : null);
+        logica.cargarIncidencias(incidencias);
+        ventanaDesde = incidencias.get(incidencias.size() / 2).getFechaRegistro();
+        ventanaHasta = ventanaDesde.plusHours(6);
+        pendiente = logica.obtenerIncidenciasPendientes().iterator().next().getCodigo();
+        codigos = new String[incidencias.size()];
+        for (int i = 0; i < codigos.length; i++) {
+            codigos[i] = incidencias.get(i).getCodigo();
+        }
+    }
+
+    @Benchmark
+    public Incidencia registrarIncidencia() {
+        return logica.registrarIncidencia(42, "Faltan cables");
+    }
+
+    @Benchmark
+    public Incidencia buscarIncidencia() {
+        // Se recorren los códigos saltando para no favorecer a la caché del procesador
+        siguiente = (siguiente + 7919) % codigos.length;
+        return logica.buscarIncidencia(codigos[siguiente]);
+    }
+
+    @Benchmark
+    public Incidencia buscarIncidenciaInexistente() {
+        return logica.buscarIncidencia("01/01/1999-00:00-1");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void obtenerIncidenciasPendientes(Blackhole consumidor) {
+        for (Incidencia incidencia : logica.obtenerIncidenciasPendientes()) {
+            consumidor.consume(incidencia);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void obtenerIncidenciasResueltas(Blackhole consumidor) {
+        for (Incidencia incidencia : logica.obtenerIncidenciasResueltas()) {
+            consumidor.consume(incidencia);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void obtenerIncidenciasEliminadas(Blackhole consumidor) {
+        for (Incidencia incidencia : logica.obtenerIncidenciasEliminadas()) {
+            consumidor.consume(incidencia);
+        }
+    }
+
+    /**
+     * Pendientes registradas en seis horas a mitad de los datos, con el índice de fechas.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Incidencia> buscarPorFechaRegistro() {
+        return logica.buscarPorFechaRegistro(ventanaDesde, ventanaHasta, EstadoIncidencia.PENDIENTE, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * La misma consulta que buscarPorFechaRegistro recorriendo todas las pendientes, como se hacía sin índice.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Incidencia> recorrerPorFechaRegistro() {
+        List<Incidencia> encontradas = new ArrayList<>();
+        for (Incidencia incidencia : logica.obtenerIncidenciasPendientes()) {
+            LocalDateTime fecha = incidencia.getFechaRegistro();
+            if (!fecha.isBefore(ventanaDesde) && fecha.isBefore(ventanaHasta)) {
+                encontradas.add(incidencia);
+            }
+        }
+        return encontradas;
+    }
+
+    @Benchmark
+    public List<Incidencia> buscarPorPuesto() {
+        return logica.buscarPorPuesto(96, EstadoIncidencia.PENDIENTE, 0, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<PuestoConPendientes> obtenerPuestosConMasPendientes() {
+        return logica.obtenerPuestosConMasPendientes(20);
+    }
+
+    /**
+     * El mismo informe que obtenerPuestosConMasPendientes contando las pendientes de cada puesto, como se hacía sin índice.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Map.Entry<Integer, Integer>> recontarPuestosConMasPendientes() {
+        Map<Integer, Integer> pendientes = new HashMap<>();
+        for (Incidencia incidencia : logica.obtenerIncidenciasPendientes()) {
+            pendientes.merge(incidencia.getPuesto(), 1, Integer::sum);
+        }
+        List<Map.Entry<Integer, Integer>> puestos = new ArrayList<>(pendientes.entrySet());
+        puestos.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        return puestos.subList(0, Math.min(20, puestos.size()));
+    }
+
+    @Benchmark
+    public TiemposResolucion obtenerTiemposResolucion() {
+        return logica.obtenerTiemposResolucion();
+    }
+
+    @Benchmark
+    public TiemposResolucion obtenerTiemposResolucionPuesto() {
+        return logica.obtenerTiemposResolucionPuesto(96);
+    }
+
+    /**
+     * Las mismas estadísticas que obtenerTiemposResolucion recorriendo las resueltas y ordenando sus tiempos.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long[] recalcularTiemposResolucion() {
+        long[] segundos = new long[logica.contarIncidenciasResueltas()];
+        int total = 0;
+        long suma = 0;
+        for (Incidencia incidencia : logica.obtenerIncidenciasResueltas()) {
+            if (total == segundos.length) {
+                break;
+            }
+            segundos[total] = incidencia.getFechaResolucion().toEpochSecond(ZoneOffset.UTC)
+                    - incidencia.getFechaRegistro().toEpochSecond(ZoneOffset.UTC);
+            suma += segundos[total++];
+        }
+        if (total == 0) {
+            return new long[4];
+        }
+        Arrays.sort(segundos, 0, total);
+        return new long[] { total, suma / total, segundos[(total - 1) / 2], segundos[(int) Math.ceil(0.95 * total) - 1] };
+    }
+
+    /**
+     * Resolver una incidencia y devolverla a pendiente, que actualiza las estadísticas dos veces.
+     */
+    @Benchmark
+    public boolean resolverYDevolver() {
+        logica.resolverIncidencia(pendiente, "Reiniciado");
+        return logica.devolverIncidenciaResuelta(pendiente);
+    }
+}
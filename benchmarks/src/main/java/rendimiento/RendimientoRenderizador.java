@@ -0,0 +1,120 @@
+package rendimiento;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import dominio.EstadoIncidencia;
+import dominio.Incidencia;
+import presentacion.RenderizadorIncidencias;
+
+/**
+ * Rendimiento de los listados de incidencias con RenderizadorIncidencias frente a la forma anterior, un
+ * println por campo sobre un PrintStream configurado como System.out (autoflush y buffer de 128 bytes).
+ * Ambos escriben en una salida que descarta los bytes, así que se mide el formateo y el paso por los buffers
+ * sin la consola; en una consola real cada volcado es además una llamada al sistema. Además de los listados
+ * por segundo se cuentan las líneas por segundo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RendimientoRenderizador {
+    private static final int INCIDENCIAS = 10000;
+
+    private List<Incidencia> incidencias;
+    private RenderizadorIncidencias renderizador;
+    private PrintStream consola;
+    private long lineasListado;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        incidencias = DatosPrueba.generar(INCIDENCIAS);
+        OutputStream descartar = OutputStream.nullOutputStream();
+        renderizador = new RenderizadorIncidencias(new OutputStreamWriter(descartar, StandardCharsets.UTF_8), 0);
+        consola = comoSystemOut(descartar);
+
+        // Las dos formas deben escribir exactamente el mismo texto
+        ByteArrayOutputStream nuevo = new ByteArrayOutputStream();
+        new RenderizadorIncidencias(new OutputStreamWriter(nuevo, StandardCharsets.UTF_8), 0)
+                .mostrar(incidencias, true, () -> true);
+        ByteArrayOutputStream anterior = new ByteArrayOutputStream();
+        printlnPorCampo(comoSystemOut(anterior), incidencias);
+        String texto = nuevo.toString(StandardCharsets.UTF_8);
+        if (!texto.equals(anterior.toString(StandardCharsets.UTF_8))) {
+            throw new IllegalStateException("El renderizador y println no escriben el mismo listado");
+        }
+        lineasListado = texto.split(System.lineSeparator(), -1).length - 1;
+    }
+
+    private static PrintStream comoSystemOut(OutputStream destino) {
+        return new PrintStream(new BufferedOutputStream(destino, 128), true, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int renderizador(Lineas lineas) {
+        lineas.lineas += lineasListado;
+        return renderizador.mostrar(incidencias, true, () -> true);
+    }
+
+    @Benchmark
+    public void println(Lineas lineas) {
+        lineas.lineas += lineasListado;
+        printlnPorCampo(consola, incidencias);
+    }
+
+    /**
+     * Los listados de Interfaz antes del renderizador: un formateador por listado y un println por campo.
+     */
+    private static void printlnPorCampo(PrintStream salida, List<Incidencia> incidencias) {
+        DateTimeFormatter formatterFechaHora = DateTimeFormatter.ofPattern("dd/MM/yyyy-HH:mm");
+        for (Incidencia incidencia : incidencias) {
+            salida.println("Código: " + incidencia.getCodigo());
+            salida.println("Estado: " + incidencia.getEstado());
+            salida.println("Puesto: " + incidencia.getPuesto());
+            salida.println("Problema: " + incidencia.getProblema());
+            salida.println("Fecha Registro: " + incidencia.getFechaRegistro().format(formatterFechaHora));
+            if (incidencia.getEstado() == EstadoIncidencia.RESUELTA) {
+                salida.println("Fecha Resolución: " + incidencia.getFechaResolucion().format(formatterFechaHora));
+                salida.println("Resolución: " + incidencia.getResolucion());
+            } else if (incidencia.getEstado() == EstadoIncidencia.ELIMINADA) {
+                salida.println("Fecha Eliminación: " + incidencia.getFechaEliminacion().format(formatterFechaHora));
+                salida.println("Causa Eliminación: " + incidencia.getCausaEliminacion());
+            }
+            salida.println();
+        }
+    }
+
+    /**
+     * Líneas escritas, que JMH muestra como líneas por segundo.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Lineas {
+        public long lineas;
+
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            lineas = 0;
+        }
+    }
+}
@@ -31,7 +31,7 @@ CREATE TABLE `incidencia` (
   `codigo` varchar(20) NOT NULL,
   `problema` text NOT NULL,
   `puesto` int(11) NOT NULL,
-  `estado` varchar(20) NOT NULL,
+  `estado` tinyint(4) NOT NULL COMMENT '0 = pendiente, 1 = resuelta, 2 = eliminada',
   `fechaRegistro` datetime NOT NULL,
   `fechaResolucion` datetime DEFAULT NULL,
   `resolucion` text DEFAULT NULL,
@@ -44,7 +44,7 @@ CREATE TABLE `incidencia` (
 --
 
 INSERT INTO `incidencia` (`codigo`, `problema`, `puesto`, `estado`, `fechaRegistro`, `fechaResolucion`, `resolucion`, `fechaEliminacion`, `causaEliminacion`) VALUES
-('21/05/2024-12:35-1', 'Faltan cables', 96, 'pendiente', '2024-05-21 13:08:34', NULL, NULL, NULL, NULL);
+('21/05/2024-12:35-1', 'Faltan cables', 96, 0, '2024-05-21 13:08:34', NULL, NULL, NULL, NULL);
 
 --
 -- Índices para tablas volcadas
@@ -54,7 +54,10 @@ INSERT INTO `incidencia` (`codigo`, `problema`, `puesto`, `estado`, `fechaRegist
 -- Indices de la tabla `incidencia`
 --
 ALTER TABLE `incidencia`
-  ADD PRIMARY KEY (`codigo`);
+  ADD PRIMARY KEY (`codigo`),
+  ADD KEY `idx_estado_fecha_registro` (`estado`,`fechaRegistro`,`codigo`),
+  ADD KEY `idx_fecha_resolucion` (`fechaResolucion`),
+  ADD KEY `idx_fecha_eliminacion` (`fechaEliminacion`);
 COMMIT;
 
 /*!40101 SET CHARACTER_SET_CLIENT=@OLD_CHARACTER_SET_CLIENT */;